@@ -0,0 +1,172 @@
+package com.craftmine;
+
+import java.util.Arrays;
+
+/**
+ * Hands out ranges of a fixed-size arena from a free list sorted by offset.
+ * Sizes and offsets are in whatever unit the caller counts in. Allocation
+ * takes the first free block that fits; freeing merges the range with free
+ * neighbours, so the list only ever holds the gaps between live ranges.
+ *
+ * Free blocks and live ranges are kept in sorted int arrays, found by binary
+ * search and scanned without boxing, as the render thread allocates on every
+ * upload and translucent re-sort. The largest free block is kept up to date as
+ * blocks merge and only rescanned after the largest one was split.
+ *
+ * Needs no OpenGL context. Not thread-safe.
+ */
+public class ArenaAllocator {
+    private final int capacity;
+    private final Blocks freeBlocks = new Blocks();  // Gaps, by offset
+    private final Blocks allocations = new Blocks();  // Live ranges, by offset
+    private int used;
+    private int largestFree;
+    private boolean largestFreeStale;  // The largest free block was split; rescan before answering
+
+    public ArenaAllocator(int capacity) {
+        this.capacity = capacity;
+        freeBlocks.insert(0, 0, capacity);
+        largestFree = capacity;
+    }
+
+    /**
+     * @return the offset of a new range of size units, or -1 if no free block is large enough
+     */
+    public int allocate(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Allocation size must be positive: " + size);
+        }
+        if (!largestFreeStale && size > largestFree) {
+            return -1;
+        }
+        int[] sizes = freeBlocks.sizes;
+        for (int i = 0; i < freeBlocks.count; i++) {
+            int blockSize = sizes[i];
+            if (blockSize >= size) {
+                int offset = freeBlocks.offsets[i];
+                if (blockSize > size) {
+                    // The gap keeps its place in the order, moved up by size
+                    freeBlocks.offsets[i] = offset + size;
+                    sizes[i] = blockSize - size;
+                } else {
+                    freeBlocks.remove(i);
+                }
+                if (blockSize == largestFree) {
+                    largestFreeStale = true;
+                }
+                allocations.insert(allocations.find(offset), offset, size);
+                used += size;
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    public void free(int offset) {
+        int index = allocations.find(offset);
+        if (index >= allocations.count || allocations.offsets[index] != offset) {
+            throw new IllegalArgumentException("No allocation at offset " + offset);
+        }
+        int size = allocations.sizes[index];
+        allocations.remove(index);
+        used -= size;
+
+        // Merge with the free blocks on either side
+        int after = freeBlocks.find(offset);
+        int before = after - 1;
+        boolean mergeBefore = before >= 0 && freeBlocks.offsets[before] + freeBlocks.sizes[before] == offset;
+        boolean mergeAfter = after < freeBlocks.count && freeBlocks.offsets[after] == offset + size;
+        int merged;
+        if (mergeBefore && mergeAfter) {
+            merged = freeBlocks.sizes[before] + size + freeBlocks.sizes[after];
+            freeBlocks.sizes[before] = merged;
+            freeBlocks.remove(after);
+        } else if (mergeBefore) {
+            merged = freeBlocks.sizes[before] + size;
+            freeBlocks.sizes[before] = merged;
+        } else if (mergeAfter) {
+            merged = size + freeBlocks.sizes[after];
+            freeBlocks.offsets[after] = offset;
+            freeBlocks.sizes[after] = merged;
+        } else {
+            merged = size;
+            freeBlocks.insert(after, offset, size);
+        }
+        if (!largestFreeStale) {
+            largestFree = Math.max(largestFree, merged);
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getUsed() {
+        return used;
+    }
+
+    public int getFree() {
+        return capacity - used;
+    }
+
+    public int getAllocationCount() {
+        return allocations.count;
+    }
+
+    public int getFreeBlockCount() {
+        return freeBlocks.count;
+    }
+
+    public int getLargestFreeBlock() {
+        if (largestFreeStale) {
+            largestFree = 0;
+            for (int i = 0; i < freeBlocks.count; i++) {
+                largestFree = Math.max(largestFree, freeBlocks.sizes[i]);
+            }
+            largestFreeStale = false;
+        }
+        return largestFree;
+    }
+
+    /**
+     * Ranges sorted by offset, as two parallel arrays that grow as needed.
+     */
+    private static final class Blocks {
+        int[] offsets = new int[64];
+        int[] sizes = new int[64];
+        int count;
+
+        // Index of the first range at or after offset
+        int find(int offset) {
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (offsets[middle] < offset) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        void insert(int index, int offset, int size) {
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+                sizes = Arrays.copyOf(sizes, count * 2);
+            }
+            System.arraycopy(offsets, index, offsets, index + 1, count - index);
+            System.arraycopy(sizes, index, sizes, index + 1, count - index);
+            offsets[index] = offset;
+            sizes[index] = size;
+            count++;
+        }
+
+        void remove(int index) {
+            System.arraycopy(offsets, index + 1, offsets, index, count - index - 1);
+            System.arraycopy(sizes, index + 1, sizes, index, count - index - 1);
+            count--;
+        }
+    }
+}
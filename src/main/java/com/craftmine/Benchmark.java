@@ -0,0 +1,1382 @@
+package com.craftmine;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import org.joml.FrustumIntersection;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.lwjgl.BufferUtils;
+
+/**
+ * CPU-side benchmarks that don't need a window or an OpenGL context.
+ * Run with:
+ * java -cp target/craftmine-1.0-SNAPSHOT-jar-with-dependencies.jar com.craftmine.Benchmark [all|arenas|compression|edits|frames|lookup|meshing|occlusion|player|text|textures]
+ * Exits with status 1 if any check fails.
+ */
+public class Benchmark {
+    private static final int SEED = 123;  // Same seed the game uses
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int ROUNDS = 20;
+    private static final List<String> MODES = List.of(
+        "all", "arenas", "compression", "edits", "frames", "lookup", "meshing", "occlusion", "player", "text", "textures");
+
+    private static int mismatches;  // Failed checks; any fail the run
+
+    public static void main(String[] args) {
+        String which = args.length > 0 ? args[0] : "all";
+        if (!MODES.contains(which)) {
+            System.err.println("Unknown benchmark " + which + "; expected one of " + String.join("|", MODES));
+            System.exit(2);
+        }
+
+        long start = System.nanoTime();
+        TerrainGeneration terrain = new TerrainGeneration(SEED);
+        System.out.printf("World generation: %.1f ms%n", (System.nanoTime() - start) / 1e6);
+
+        if (which.equals("all") || which.equals("compression")) {
+            compression(terrain);
+        }
+        if (which.equals("all") || which.equals("lookup")) {
+            lookup(terrain);
+        }
+        if (which.equals("all") || which.equals("meshing")) {
+            meshing(terrain);
+        }
+        if (which.equals("all") || which.equals("occlusion")) {
+            occlusion(terrain);
+        }
+        if (which.equals("all") || which.equals("textures")) {
+            textures();
+        }
+        if (which.equals("all") || which.equals("arenas")) {
+            arenas(terrain);
+        }
+        if (which.equals("all") || which.equals("edits")) {
+            edits(terrain);
+        }
+        if (which.equals("all") || which.equals("frames")) {
+            frames();
+        }
+        if (which.equals("all") || which.equals("player")) {
+            player();
+        }
+        if (which.equals("all") || which.equals("text")) {
+            text();
+        }
+
+        if (mismatches > 0) {
+            System.err.println(mismatches + " check(s) failed");
+            System.exit(1);
+        }
+    }
+
+    private static TexturePacker.Image solidImage(int width, int height, int rgba) {
+        byte[] pixels = new byte[width * height * 4];
+        for (int i = 0; i < pixels.length; i += 4) {
+            pixels[i] = (byte)(rgba >>> 24);
+            pixels[i + 1] = (byte)(rgba >>> 16);
+            pixels[i + 2] = (byte)(rgba >>> 8);
+            pixels[i + 3] = (byte)rgba;
+        }
+        return new TexturePacker.Image(width, height, pixels);
+    }
+
+    private static int pixel(byte[] pixels, int size, int x, int y) {
+        int i = (y * size + x) * 4;
+        return (pixels[i] & 0xff) << 24 | (pixels[i + 1] & 0xff) << 16 | (pixels[i + 2] & 0xff) << 8 | (pixels[i + 3] & 0xff);
+    }
+
+    /**
+     * Texture array packing checks, then packing time for images the size of our block textures.
+     */
+    private static void textures() {
+        System.out.println("== Texture packing ==");
+        TexturePacker.Image small = solidImage(120, 120, 0xff0000ff);
+        TexturePacker.Image large = solidImage(1920, 1920, 0x00ff00ff);
+        check("Layer size, capped", TexturePacker.MAX_LAYER_SIZE, TexturePacker.layerSize(new TexturePacker.Image[] { small, large }));
+        check("Layer size, rounded up", 4, TexturePacker.layerSize(new TexturePacker.Image[] { solidImage(3, 3, 0), solidImage(2, 4, 0) }));
+        check("Mip levels for 256", 9, TexturePacker.mipLevelCount(256));
+
+        // Enlarging repeats pixels; shrinking averages them
+        byte[] checker = new byte[2 * 2 * 4];
+        checker[3 * 4] = (byte)0xff;  // Bottom right pixel red, others black
+        byte[] enlarged = TexturePacker.resize(new TexturePacker.Image(2, 2, checker), 4);
+        check("Enlarge keeps hard edges", 0xff000000, pixel(enlarged, 4, 3, 3));
+        check("Enlarge keeps hard edges", 0, pixel(enlarged, 4, 1, 2));
+        byte[] shrunk = TexturePacker.resize(new TexturePacker.Image(2, 2, checker), 1);
+        check("Shrink averages", 0x40000000, pixel(shrunk, 1, 0, 0));
+
+        TexturePacker.Packed packed = TexturePacker.pack(new TexturePacker.Image[] { solidImage(4, 4, 0x11223344), solidImage(8, 2, 0x55667788) });
+        check("Packed layer size", 8, packed.layerSize);
+        check("Packed mip levels", 4, packed.levels.length);
+        check("Smallest level bytes", 2 * 4, packed.levels[3].length);
+        check("Layer 0 colour at 1x1", 0x11223344, pixel(packed.levels[3], 1, 0, 0));
+        check("Layer 1 colour at 1x1", 0x55667788, pixel(Arrays.copyOfRange(packed.levels[3], 4, 8), 1, 0, 0));
+
+        TexturePacker.Image[] blockSized = new TexturePacker.Image[ChunkMesher.TEXTURE_COUNT];
+        int[] sizes = { 512, 1920, 512, 800, 800, 512, 512, 148, 1920, 120, 708, 1920 };
+        for (int i = 0; i < blockSized.length; i++) {
+            blockSized[i] = solidImage(sizes[i], sizes[i], 0x80808080);
+        }
+        long nanos = 0;
+        long bytes = 0;
+        for (int round = 0; round < 1 + 3; round++) {
+            long start = System.nanoTime();
+            TexturePacker.Packed result = TexturePacker.pack(blockSized);
+            if (round > 0) {
+                nanos += System.nanoTime() - start;
+                bytes = 0;
+                for (byte[] level : result.levels) {
+                    bytes += level.length;
+                }
+            }
+        }
+        System.out.printf("Packing %d block textures: %.1f ms, %d KB with mipmaps%n", blockSized.length, nanos / 1e6 / 3, bytes / 1024);
+
+        checkSpriteAtlas();
+    }
+
+    private static void checkSpriteAtlas() {
+        // A wide image is scaled to the atlas keeping its shape; the tallest image goes first
+        SpriteAtlas atlas = SpriteAtlas.pack(new TexturePacker.Image[] {
+            solidImage(10, 10, 0x11223344), solidImage(300, 60, 0x55667788), solidImage(20, 30, 0x99aabbcc) }, 128);
+        check("Sprite atlas, wide image width", 126, Math.round((atlas.getU1(1) - atlas.getU0(1)) * 128));
+        check("Sprite atlas, wide image height", 25, Math.round((atlas.getV1(1) - atlas.getV0(1)) * 128));
+        check("Sprite atlas, tallest first", 1, Math.round(atlas.getV0(2) * 128));
+        check("Sprite atlas, too wide for its shelf", 32 + 1, Math.round(atlas.getV0(1) * 128));
+        check("Sprite atlas, third shelf", 32 + 27 + 1, Math.round(atlas.getV0(0) * 128));
+        // The padding repeats the edge, so filtering at the border never picks up a neighbour
+        int left = Math.round(atlas.getU0(0) * 128);
+        int top = Math.round(atlas.getV0(0) * 128);
+        check("Sprite atlas, padding copies edge", 0x11223344, pixel(atlas.getPixels(), 128, left - 1, top - 1));
+        check("Sprite atlas, beyond padding empty", 0, pixel(atlas.getPixels(), 128, left - 2, top));
+        int thrown = 0;
+        try {
+            SpriteAtlas.pack(new TexturePacker.Image[] { solidImage(60, 60, 0), solidImage(60, 60, 0), solidImage(60, 60, 0) }, 64);
+        } catch (IllegalArgumentException e) {
+            thrown = 1;
+        }
+        check("Sprite atlas, overflow throws", 1, thrown);
+
+        long start = System.nanoTime();
+        SpriteAtlas menus = UiSprites.packAtlas();
+        System.out.printf("Packing the UI sprites: %.1f ms into %d x %d%n", (System.nanoTime() - start) / 1e6, menus.getSize(), menus.getSize());
+        check("UI font unscaled", BitmapFont.ATLAS_WIDTH, Math.round((menus.getU1(UiSprites.FONT) - menus.getU0(UiSprites.FONT)) * menus.getSize()));
+    }
+
+    /**
+     * Small hand-made world for checking mesher output against known counts.
+     */
+    private static final class SyntheticBlocks implements BlockAccess {
+        private final int size;
+        private final int height;
+        private final TerrainGeneration.BlockType[] blocks;
+
+        SyntheticBlocks(int size, int height) {
+            this.size = size;
+            this.height = height;
+            this.blocks = new TerrainGeneration.BlockType[size * size * height];
+        }
+
+        void fill(int minX, int minZ, int minY, int maxX, int maxZ, int maxY, TerrainGeneration.BlockType type) {
+            for (int x = minX; x <= maxX; x++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    for (int y = minY; y <= maxY; y++) {
+                        blocks[(x * size + z) * height + y] = type;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public TerrainGeneration.BlockType getBlock(int x, int z, int y) {
+            if (x < 0 || x >= size || z < 0 || z >= size || y < 0 || y >= height) {
+                return null;
+            }
+            return blocks[(x * size + z) * height + y];
+        }
+
+        @Override
+        public int getMaxHeight() {
+            return height;
+        }
+    }
+
+    private static void check(String name, int expected, int actual) {
+        if (expected != actual) {
+            mismatches++;
+        }
+        System.out.printf("%-40s expected %6d, got %6d %s%n", name, expected, actual, expected == actual ? "OK" : "MISMATCH");
+    }
+
+    private static void meshing(TerrainGeneration terrain) {
+        System.out.println("== Meshing ==");
+        checkMesher(false);
+        checkMesher(true);
+        checkPackedVertices();
+        checkAmbientOcclusion();
+        meshWorld(terrain, false, true);
+        meshWorld(terrain, true, true);
+        meshWorld(terrain, true, false);
+        checkLodMesher();
+        meshWorldLod(terrain);
+        checkFaceSorter();
+    }
+
+    /**
+     * Water faces of three separate blocks, sorted for a camera off to one side.
+     */
+    private static void checkFaceSorter() {
+        SyntheticBlocks pools = new SyntheticBlocks(Chunk.SIZE, Chunk.SECTION_HEIGHT);
+        pools.fill(2, 0, 0, 2, 0, 0, TerrainGeneration.BlockType.WATER);
+        pools.fill(6, 0, 0, 6, 0, 0, TerrainGeneration.BlockType.WATER);
+        pools.fill(10, 0, 0, 10, 0, 0, TerrainGeneration.BlockType.WATER);
+        MeshData mesh = new ChunkMesher(pools, true).buildSection(0, 0, 0);
+        float[] water = new float[mesh.getVertexCount(MeshData.TRANSPARENT) * MeshData.FLOATS_PER_VERTEX];
+        mesh.vertices.position(mesh.getFirst(MeshData.TRANSPARENT) * MeshData.FLOATS_PER_VERTEX);
+        mesh.vertices.get(water);
+        mesh.release();
+
+        float[] sorted = new float[water.length];
+        float camX = -5;
+        new FaceSorter().sort(water, sorted, camX, 0, 0);
+        int floatsPerFace = MeshData.VERTICES_PER_FACE * MeshData.FLOATS_PER_VERTEX;
+        int faces = sorted.length / floatsPerFace;
+        int outOfOrder = 0;
+        float previous = Float.MAX_VALUE;
+        for (int face = 0; face < faces; face++) {
+            float distance = faceCentreX(sorted, face) - camX;
+            if (distance > previous) {
+                outOfOrder++;
+            }
+            previous = distance;
+        }
+        check("Sorted water faces", 18, faces);
+        check("Farthest face first (block x)", 10, Math.round(faceCentreX(sorted, 0) - 0.5f));
+        check("Nearest face last (block x)", 2, Math.round(faceCentreX(sorted, faces - 1) + 0.5f));
+        check("Faces out of order", 0, outOfOrder);
+    }
+
+    private static float faceCentreX(float[] vertices, int face) {
+        int floatsPerFace = MeshData.VERTICES_PER_FACE * MeshData.FLOATS_PER_VERTEX;
+        float x = 0;
+        for (int corner = 0; corner < MeshData.VERTICES_PER_FACE; corner++) {
+            x += vertices[face * floatsPerFace + corner * MeshData.FLOATS_PER_VERTEX];
+        }
+        return x / MeshData.VERTICES_PER_FACE;
+    }
+
+    private static int lodQuads(SyntheticBlocks blocks, int level) {
+        LodMesher mesher = new LodMesher(blocks);
+        mesher.scanSurface(0, 0);
+        MeshData mesh = mesher.build(0, 0, level);
+        int quads = mesh.getFaceCount();
+        mesh.release();
+        return quads;
+    }
+
+    /**
+     * Quad counts of low-detail meshes: one top per cell, walls down to lower cells, skirts on the chunk edge.
+     */
+    private static void checkLodMesher() {
+        SyntheticBlocks flat = new SyntheticBlocks(Chunk.SIZE, Chunk.SECTION_HEIGHT);
+        flat.fill(0, 0, 0, 15, 15, 3, TerrainGeneration.BlockType.STONE);
+        check("LOD 2x: flat ground", 64 + 4 * 8, lodQuads(flat, 0));
+        check("LOD 8x: flat ground", 4 + 4 * 2, lodQuads(flat, 2));
+
+        // One wall per cell pair across the step
+        SyntheticBlocks step = new SyntheticBlocks(Chunk.SIZE, Chunk.SECTION_HEIGHT);
+        step.fill(0, 0, 0, 15, 15, 3, TerrainGeneration.BlockType.STONE);
+        step.fill(0, 0, 4, 7, 15, 5, TerrainGeneration.BlockType.STONE);
+        check("LOD 8x: step", 4 + 4 * 2 + 2, lodQuads(step, 2));
+
+        // A lone pillar averages away, leaving flat ground
+        SyntheticBlocks pillar = new SyntheticBlocks(Chunk.SIZE, Chunk.SECTION_HEIGHT);
+        pillar.fill(0, 0, 0, 15, 15, 3, TerrainGeneration.BlockType.STONE);
+        pillar.fill(5, 5, 4, 5, 5, 5, TerrainGeneration.BlockType.STONE);
+        check("LOD 8x: pillar averaged out", 4 + 4 * 2, lodQuads(pillar, 2));
+
+        // Skirts reach the bottom of the world, so neighbours at any level leave no crack
+        LodMesher mesher = new LodMesher(flat);
+        mesher.scanSurface(0, 0);
+        MeshData mesh = mesher.build(0, 0, 1);
+        float lowest = Float.MAX_VALUE;
+        for (int i = 1; i < mesh.vertices.limit(); i += MeshData.FLOATS_PER_VERTEX) {
+            lowest = Math.min(lowest, mesh.vertices.get(i));
+        }
+        mesh.release();
+        check("LOD 4x: skirt bottom (half blocks)", -1, Math.round(lowest * 2));
+    }
+
+    /**
+     * Low-detail meshes of the whole world at every level, as the distant terrain worker builds them.
+     */
+    private static void meshWorldLod(TerrainGeneration terrain) {
+        int perSide = TerrainGeneration.CHUNKS_PER_SIDE;
+        BlockSnapshot snapshot = new BlockSnapshot(terrain.getMaxHeight());
+        LodMesher mesher = new LodMesher(snapshot);
+        long[] quads = new long[LodMesher.DECIMATION.length];
+        ShortBuffer packed = BufferUtils.createShortBuffer(1 << 16);
+        long packNanos = 0;
+        long start = System.nanoTime();
+        for (int chunkX = 0; chunkX < perSide; chunkX++) {
+            for (int chunkZ = 0; chunkZ < perSide; chunkZ++) {
+                snapshot.capture(terrain.getChunkStore(), chunkX, chunkZ);
+                mesher.scanSurface(chunkX, chunkZ);
+                for (int level = 0; level < quads.length; level++) {
+                    MeshData mesh = mesher.build(chunkX, chunkZ, level);
+                    quads[level] += mesh.getFaceCount();
+                    long packStart = System.nanoTime();
+                    packed.clear();
+                    PackedVertices.pack(mesh.vertices, 0, mesh.getVertexCount(), chunkX * Chunk.SIZE - 0.5f, -0.5f, chunkZ * Chunk.SIZE - 0.5f, packed);
+                    packNanos += System.nanoTime() - packStart;
+                    mesh.release();
+                }
+            }
+        }
+        long nanos = System.nanoTime() - start - packNanos;
+        for (int level = 0; level < quads.length; level++) {
+            System.out.printf("LOD %dx world: %d quads%n", LodMesher.DECIMATION[level], quads[level]);
+        }
+        System.out.printf("LOD build, all levels: %.1f ms for %d chunks%n", nanos / 1e6, perSide * perSide);
+    }
+
+    /**
+     * Exact face counts on small synthetic worlds. The greedy counts are quads after merging.
+     */
+    private static void checkMesher(boolean greedy) {
+        String name = greedy ? "Greedy: " : "Naive: ";
+
+        SyntheticBlocks single = new SyntheticBlocks(Chunk.SIZE, Chunk.SECTION_HEIGHT);
+        single.fill(4, 4, 4, 4, 4, 4, TerrainGeneration.BlockType.STONE);
+        check(name + "single block", 6, new ChunkMesher(single, greedy).buildSection(0, 0, 0).getFaceCount());
+
+        // Only the outer surface of a solid cube is drawn
+        SyntheticBlocks cube = new SyntheticBlocks(Chunk.SIZE, Chunk.SECTION_HEIGHT);
+        cube.fill(2, 2, 2, 4, 4, 4, TerrainGeneration.BlockType.DIRT);
+        check(name + "3x3x3 cube", greedy ? 6 : 6 * 9, new ChunkMesher(cube, greedy).buildSection(0, 0, 0).getFaceCount());
+
+        // Stone keeps its top face under water; water keeps only the faces that look into air
+        SyntheticBlocks pond = new SyntheticBlocks(Chunk.SIZE, Chunk.SECTION_HEIGHT);
+        pond.fill(0, 0, 0, 15, 15, 0, TerrainGeneration.BlockType.STONE);
+        pond.fill(0, 0, 1, 15, 15, 1, TerrainGeneration.BlockType.WATER);
+        MeshData pondMesh = new ChunkMesher(pond, greedy).buildSection(0, 0, 0);
+        check(name + "stone under water, opaque", greedy ? 6 : 256 + 256 + 4 * 16, pondMesh.getFaceCount(MeshData.OPAQUE));
+        check(name + "stone under water, water", greedy ? 1 + 4 : 256 + 4 * 16, pondMesh.getFaceCount(MeshData.TRANSPARENT));
+
+        // Grass tops merge into one quad, but never with the dirt tops next to them
+        SyntheticBlocks field = new SyntheticBlocks(Chunk.SIZE, Chunk.SECTION_HEIGHT);
+        field.fill(0, 0, 0, 7, 15, 0, TerrainGeneration.BlockType.GRASS);
+        field.fill(8, 0, 0, 15, 15, 0, TerrainGeneration.BlockType.DIRT);
+        check(name + "grass tops next to dirt", greedy ? 1 : 128,
+            new ChunkMesher(field, greedy).buildSection(0, 0, 0).getFaceCount(MeshData.OPAQUE, ChunkMesher.GRASS_TOP));
+
+        // Two blocks touching across a chunk border hide the face between them
+        SyntheticBlocks border = new SyntheticBlocks(2 * Chunk.SIZE, Chunk.SECTION_HEIGHT);
+        border.fill(15, 3, 3, 16, 3, 3, TerrainGeneration.BlockType.STONE);
+        ChunkMesher borderMesher = new ChunkMesher(border, greedy);
+        check(name + "chunk border, left chunk", 5, borderMesher.buildSection(0, 0, 0).getFaceCount());
+        check(name + "chunk border, right chunk", 5, borderMesher.buildSection(1, 0, 0).getFaceCount());
+    }
+
+    /**
+     * One packed corner of a single block, decoded the way the shader does it.
+     */
+    private static void checkPackedVertices() {
+        SyntheticBlocks single = new SyntheticBlocks(Chunk.SIZE, Chunk.SECTION_HEIGHT);
+        single.fill(4, 4, 4, 4, 4, 4, TerrainGeneration.BlockType.STONE);
+        MeshData mesh = new ChunkMesher(single, true).buildSection(0, 0, 0);
+        ShortBuffer packed = BufferUtils.createShortBuffer(mesh.getVertexCount() * 2);
+        PackedVertices.pack(mesh.vertices, 0, mesh.getVertexCount(), -0.5f, -0.5f, -0.5f, packed);
+        mesh.release();
+
+        // The first vertex is the top face's corner at the low x and z edges of the block
+        short position = packed.get(0);
+        short texture = packed.get(1);
+        check("Packed bytes per vertex", 4, PackedVertices.BYTES_PER_VERTEX);
+        check("Packed x", 4, PackedVertices.getX(position));
+        check("Packed y", 5, PackedVertices.getY(position));
+        check("Packed z", 4, PackedVertices.getZ(position));
+        check("Packed u", 0, PackedVertices.getU(texture));
+        check("Packed layer", ChunkMesher.STONE, PackedVertices.getLayer(texture));
+        check("Packed light", PackedVertices.FULL_LIGHT, PackedVertices.getLight(texture));
+    }
+
+    /**
+     * Corner light on a stone floor with blocks standing on it: fully lit in the
+     * open, darker at each solid neighbour, dark in the crease between two.
+     */
+    private static void checkAmbientOcclusion() {
+        SyntheticBlocks single = new SyntheticBlocks(Chunk.SIZE, Chunk.SECTION_HEIGHT);
+        single.fill(4, 4, 4, 4, 4, 4, TerrainGeneration.BlockType.STONE);
+        MeshData singleMesh = new ChunkMesher(single, true).buildSection(0, 0, 0);
+        int lit = 0;
+        for (int vertex = 0; vertex < singleMesh.getVertexCount(); vertex++) {
+            if (lightOf(singleMesh, vertex) == PackedVertices.FULL_LIGHT) {
+                lit++;
+            }
+        }
+        check("AO: lone block fully lit corners", 24, lit);
+        singleMesh.release();
+
+        // One block on the floor darkens the floor corner diagonally across from it by one step
+        SyntheticBlocks floor = new SyntheticBlocks(Chunk.SIZE, Chunk.SECTION_HEIGHT);
+        floor.fill(0, 0, 0, 15, 15, 0, TerrainGeneration.BlockType.STONE);
+        floor.fill(8, 8, 1, 8, 8, 1, TerrainGeneration.BlockType.STONE);
+        MeshData floorMesh = new ChunkMesher(floor).buildSection(0, 0, 0);
+        int diagonal = floorVertex(floorMesh, 8.5f, 8.5f, 9, 9);
+        check("AO: floor corner by a block's edge", 2, lightOf(floorMesh, diagonal));
+        // Triangles share the quad's vertices 0 and 2, so the lone dark corner must be 1 or 3
+        check("AO: split along the brighter diagonal", 1, diagonal % 2);
+        check("AO: floor corner beside a block", 2, lightOf(floorMesh, floorVertex(floorMesh, 7.5f, 8.5f, 8, 9)));
+        floorMesh.release();
+
+        // Blocks on both sides of a floor corner leave it dark
+        floor.fill(9, 9, 1, 9, 9, 1, TerrainGeneration.BlockType.STONE);
+        MeshData creaseMesh = new ChunkMesher(floor).buildSection(0, 0, 0);
+        check("AO: floor corner between two blocks", 0, lightOf(creaseMesh, floorVertex(creaseMesh, 8.5f, 8.5f, 9, 8)));
+        creaseMesh.release();
+        floor.fill(9, 9, 1, 9, 9, 1, null);
+
+        // Shading splits the floor's greedy quads around the block, but nothing else
+        ChunkMesher shaded = new ChunkMesher(floor, true, true);
+        ChunkMesher flat = new ChunkMesher(floor, true, false);
+        MeshData shadedMesh = shaded.buildSection(0, 0, 0);
+        MeshData flatMesh = flat.buildSection(0, 0, 0);
+        check("AO: greedy quads, floor and block", 22, shadedMesh.getFaceCount());
+        check("AO off: greedy quads, floor and block", 14, flatMesh.getFaceCount());
+        shadedMesh.release();
+        flatMesh.release();
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean)threads;
+            // The JIT allocates now and then; take the quietest of a few rounds
+            long shadedBytes = Long.MAX_VALUE;
+            long flatBytes = Long.MAX_VALUE;
+            for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+                long start = allocations.getCurrentThreadAllocatedBytes();
+                shaded.buildSection(0, 0, 0).release();
+                long middle = allocations.getCurrentThreadAllocatedBytes();
+                flat.buildSection(0, 0, 0).release();
+                long end = allocations.getCurrentThreadAllocatedBytes();
+                shadedBytes = Math.min(shadedBytes, middle - start);
+                flatBytes = Math.min(flatBytes, end - middle);
+            }
+            check("AO: extra bytes allocated per section", 0, (int)(shadedBytes - flatBytes));
+        }
+    }
+
+    // Light of a mesh vertex as the shaders decode it
+    private static int lightOf(MeshData mesh, int vertex) {
+        return (int)mesh.vertices.get(vertex * MeshData.FLOATS_PER_VERTEX + 5) / MeshData.LIGHT_STEP;
+    }
+
+    /**
+     * Index of the vertex at (x, 0.5, z) of the floor's top face over block
+     * (blockX, 0, blockZ), on the naive mesher's one quad per block face.
+     * Quads start at multiples of four, so index % 4 is the corner's place in its quad.
+     */
+    private static int floorVertex(MeshData mesh, float x, float z, int blockX, int blockZ) {
+        FloatBuffer vertices = mesh.vertices;
+        for (int quad = 0; quad < mesh.getFaceCount(); quad++) {
+            int first = quad * MeshData.VERTICES_PER_FACE;
+            boolean top = true;
+            float sumX = 0;
+            float sumZ = 0;
+            for (int corner = 0; corner < MeshData.VERTICES_PER_FACE; corner++) {
+                int base = (first + corner) * MeshData.FLOATS_PER_VERTEX;
+                top &= vertices.get(base + 1) == 0.5f;
+                sumX += vertices.get(base);
+                sumZ += vertices.get(base + 2);
+            }
+            if (!top || sumX != 4 * blockX || sumZ != 4 * blockZ) {
+                continue;
+            }
+            for (int corner = 0; corner < MeshData.VERTICES_PER_FACE; corner++) {
+                int base = (first + corner) * MeshData.FLOATS_PER_VERTEX;
+                if (vertices.get(base) == x && vertices.get(base + 2) == z) {
+                    return first + corner;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Meshes the whole world the way the loader threads do: snapshot a chunk, then mesh its sections.
+     */
+    private static void meshWorld(TerrainGeneration terrain, boolean greedy, boolean ambientOcclusion) {
+        int perSide = TerrainGeneration.CHUNKS_PER_SIDE;
+        BlockSnapshot snapshot = new BlockSnapshot(terrain.getMaxHeight());
+        ChunkMesher mesher = new ChunkMesher(snapshot, greedy, ambientOcclusion);
+        String name = (greedy ? "Greedy" : "Naive") + (ambientOcclusion ? "" : " without AO");
+        int sections = (terrain.getMaxHeight() + Chunk.SECTION_HEIGHT - 1) / Chunk.SECTION_HEIGHT;
+        long faces = 0;
+        long captureNanos = 0;
+        long meshNanos = 0;
+        long sink = 0;
+        long meshes = 0;
+        ShortBuffer packed = BufferUtils.createShortBuffer(1 << 16);
+        int rounds = 3;
+        for (int round = 0; round < 1 + rounds; round++) {
+            long roundFaces = 0;
+            long roundCapture = 0;
+            long roundMesh = 0;
+            for (int chunkX = 0; chunkX < perSide; chunkX++) {
+                for (int chunkZ = 0; chunkZ < perSide; chunkZ++) {
+                    long t0 = System.nanoTime();
+                    snapshot.capture(terrain.getChunkStore(), chunkX, chunkZ);
+                    long t1 = System.nanoTime();
+                    for (int sectionY = 0; sectionY < sections; sectionY++) {
+                        MeshData mesh = mesher.buildSection(chunkX, chunkZ, sectionY);
+                        roundFaces += mesh.getFaceCount();
+                        sink += mesh.getVertexCount();
+                        if (round == 0 && !mesh.isEmpty()) {
+                            // Packing throws if a vertex doesn't fit the format
+                            if (packed.capacity() < mesh.getVertexCount() * 2) {
+                                packed = BufferUtils.createShortBuffer(mesh.getVertexCount() * 2);
+                            }
+                            packed.clear();
+                            PackedVertices.pack(mesh.vertices, 0, mesh.getVertexCount(),
+                                chunkX * Chunk.SIZE - 0.5f, sectionY * Chunk.SECTION_HEIGHT - 0.5f, chunkZ * Chunk.SIZE - 0.5f, packed);
+                            meshes++;
+                        }
+                        mesh.release();
+                    }
+                    roundCapture += t1 - t0;
+                    roundMesh += System.nanoTime() - t1;
+                }
+            }
+            if (round > 0) {
+                captureNanos += roundCapture;
+                meshNanos += roundMesh;
+                faces = roundFaces;
+            }
+        }
+        long sectionCount = (long)perSide * perSide * sections;
+        System.out.printf("%s world: %d quads, %.1f MB of vertices, %.1f ms per full rebuild " +
+            "(snapshots %.1f ms, meshing %.1f us/section), pooled buffers %d KB (checksum %d)%n",
+            name, faces, faces * MeshData.VERTICES_PER_FACE * MeshData.FLOATS_PER_VERTEX * 4 / 1048576.0,
+            (captureNanos + meshNanos) / 1e6 / rounds, captureNanos / 1e6 / rounds, meshNanos / 1e3 / rounds / sectionCount,
+            ChunkMesher.getVertexBufferPool().getAllocatedBytes() / 1024, sink);
+        long vertices = faces * MeshData.VERTICES_PER_FACE;
+        System.out.printf("%s vertex memory per non-empty section: %.1f KB as floats, %.1f KB packed (%d sections)%n",
+            name, vertices * MeshData.FLOATS_PER_VERTEX * Float.BYTES / 1024.0 / meshes,
+            vertices * PackedVertices.BYTES_PER_VERTEX / 1024.0 / meshes, meshes);
+    }
+
+    /**
+     * Frame time percentiles and camera path interpolation used by HeadlessBenchmark.
+     */
+    private static void frames() {
+        System.out.println("== Headless benchmark helpers ==");
+        FrameTimes times = new FrameTimes();
+        // 1 to 2000 microseconds, shuffled; growing past the initial capacity on the way
+        int[] order = new int[2000];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i + 1;
+        }
+        Random random = new Random(SEED);
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        for (int micros : order) {
+            times.add(micros * 1000L);
+        }
+        check("Frames recorded", 2000, times.getCount());
+        check("p50 microseconds", 1000, (int)Math.round(times.getPercentileMillis(50) * 1000));
+        check("p95 microseconds", 1900, (int)Math.round(times.getPercentileMillis(95) * 1000));
+        check("p99 microseconds", 1980, (int)Math.round(times.getPercentileMillis(99) * 1000));
+        check("Max microseconds", 2000, (int)Math.round(times.getMaxMillis() * 1000));
+
+        // Quarter circles of radius 100 around (200, 200): halfway along the first segment lies
+        // on its chord, and yaw follows the direction of travel
+        CameraPath path = CameraPath.circle(200, 200, 100, 40, 25, 4);
+        Camera camera = new Camera(0, 0, 0);
+        path.apply(camera, 0);
+        check("Path start x", 300, Math.round(camera.getX()));
+        check("Path start z", 200, Math.round(camera.getZ()));
+        check("Path start yaw", 180, Math.round(Math.abs(camera.getYaw())));
+        path.apply(camera, 0.125f);
+        check("Path halfway along segment x", 250, Math.round(camera.getX()));
+        check("Path halfway along segment z", 250, Math.round(camera.getZ()));
+        check("Path halfway along segment yaw", 135, Math.round(Math.abs(camera.getYaw())));
+        check("Path pitch", 25, Math.round(camera.getPitch()));
+        path.apply(camera, 1);
+        check("Path end x", 300, Math.round(camera.getX()));
+        check("Path end y", 40, Math.round(camera.getY()));
+
+        checkFrameProfiler();
+    }
+
+    /**
+     * CPU side of the frame profiler: history wrap-around, CSV rows, and no allocation per frame.
+     */
+    /**
+     * Player model mesh checks: the baked parts, posed at rest, stand where the model always has.
+     */
+    private static void player() {
+        System.out.println("== Player model ==");
+        float[] vertices = PlayerModel.bake(new MinecraftSkinProcessor());
+        int count = vertices.length / PlayerModel.FLOATS_PER_VERTEX;
+        check("Vertices (6 boxes, 36 each)", 216, count);
+
+        Matrix4f[] pose = new Matrix4f[PlayerModel.PART_COUNT];
+        for (int part = 0; part < pose.length; part++) {
+            pose[part] = PlayerModel.poseMatrix(part, 0, 0, new Matrix4f());
+        }
+        float[] min = {Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE};
+        float[] max = {-Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE};
+        int[] partVertices = new int[PlayerModel.PART_COUNT];
+        Vector3f position = new Vector3f();
+        for (int i = 0; i < vertices.length; i += PlayerModel.FLOATS_PER_VERTEX) {
+            int part = (int)vertices[i + 5];
+            partVertices[part]++;
+            pose[part].transformPosition(vertices[i], vertices[i + 1], vertices[i + 2], position);
+            for (int axis = 0; axis < 3; axis++) {
+                min[axis] = Math.min(min[axis], position.get(axis));
+                max[axis] = Math.max(max[axis], position.get(axis));
+            }
+        }
+        check("Head vertices", 36, partVertices[PlayerModel.HEAD]);
+        check("Left leg vertices", 36, partVertices[PlayerModel.LEFT_LEG]);
+        check("Rest pose, min x", -8, Math.round(min[0]));
+        check("Rest pose, max x", 8, Math.round(max[0]));
+        check("Rest pose, min y (feet)", 0, Math.round(min[1]));
+        check("Rest pose, max y (top of head)", 32, Math.round(max[1]));
+        check("Rest pose, min z", -4, Math.round(min[2]));
+        check("Rest pose, max z", 4, Math.round(max[2]));
+
+        // Pitching the head turns it about the neck, not about its own middle
+        Vector3f face = PlayerModel.poseMatrix(PlayerModel.HEAD, 0, 90, new Matrix4f()).transformPosition(0, 8, 0, new Vector3f());
+        check("Head pitched 90, top of head y", 24, Math.round(face.y));
+        check("Head pitched 90, top of head z", 8, Math.round(face.z));
+    }
+
+    /**
+     * HUD text checks: TextLine numbers against String.format, the glyph atlas,
+     * then the cost of building the debug lines both ways.
+     */
+    private static void text() {
+        System.out.println("== HUD text ==");
+        Random random = new Random(SEED);
+        TextLine line = new TextLine();
+        int differences = 0;
+        for (int i = 0; i < 100_000; i++) {
+            // Coordinates, milliseconds and the odd small negative
+            float value = (random.nextFloat() - 0.5f) * (i % 3 == 0 ? 0.2f : i % 3 == 1 ? 50 : 20_000);
+            int decimals = 1 + i % 2;
+            String expected = String.format(Locale.ROOT, decimals == 1 ? "%.1f" : "%.2f", value);
+            if (!expected.contentEquals(line.clear().append(value, decimals))) {
+                if (differences++ < 3) {
+                    System.out.println("  " + expected + " written as " + line);
+                }
+            }
+            long whole = random.nextLong() >> random.nextInt(64);
+            if (!Long.toString(whole).contentEquals(line.clear().append(whole))) {
+                differences++;
+            }
+        }
+        check("TextLine differences from String.format", 0, differences);
+        check("Long.MIN_VALUE", 1, Long.toString(Long.MIN_VALUE).contentEquals(line.clear().append(Long.MIN_VALUE)) ? 1 : 0);
+        check("Zero, no decimals", 1, "0".contentEquals(line.clear().append(0.4f, 0)) ? 1 : 0);
+
+        byte[] atlas = BitmapFont.rasterize();
+        // The middle of the 1's stem is solid, the corner of its cell empty
+        int stemX = BitmapFont.cellX('1') + BitmapFont.PADDING + 4 * BitmapFont.SCALE;
+        int stemY = BitmapFont.cellY('1') + BitmapFont.CELL_HEIGHT / 2;
+        check("Atlas, middle of 1", 255, atlas[stemY * BitmapFont.ATLAS_WIDTH + stemX] & 0xff);
+        check("Atlas, corner of 1", 0, atlas[BitmapFont.cellY('1') * BitmapFont.ATLAS_WIDTH + BitmapFont.cellX('1')] & 0xff);
+        check("Atlas, last row fits", 1, BitmapFont.cellY(BitmapFont.LAST_CHAR) + BitmapFont.CELL_HEIGHT <= BitmapFont.ATLAS_HEIGHT ? 1 : 0);
+        int visible = 0;
+        for (char c : "X: 12.5 Y: -3.0".toCharArray()) {
+            visible += BitmapFont.isVisible(c) ? 1 : 0;
+        }
+        check("Quads for X: 12.5 Y: -3.0", 12, visible);
+
+        RenderStats stats = new RenderStats();
+        int lines = 10_000;
+        long formatSink = 0;
+        long lineSink = 0;
+        long formatNanos = 0;
+        long lineNanos = 0;
+        long lineBytes = Long.MAX_VALUE;
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocations = threads instanceof com.sun.management.ThreadMXBean
+            ? (com.sun.management.ThreadMXBean)threads : null;
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            long t0 = System.nanoTime();
+            for (int i = 0; i < lines; i++) {
+                formatSink += String.format("X: %.1f Y: %.1f Z: %.1f", i * 0.37f, 64.5f, -i * 1.3f).length();
+                formatSink += String.format("UPLOAD %.2f MS %d KB - %d CHUNKS %d WAITING - %d EDITED IN %d FRAMES",
+                    stats.getUploadMillis(), i, stats.getUploadedChunks(), stats.getPendingUploads(), stats.getEditedSections(),
+                    stats.getEditLatencyFrames()).length();
+            }
+            long t1 = System.nanoTime();
+            long allocated = allocations != null ? allocations.getCurrentThreadAllocatedBytes() : 0;
+            for (int i = 0; i < lines; i++) {
+                lineSink += line.clear().append("X: ").append(i * 0.37f, 1).append(" Y: ").append(64.5f, 1)
+                    .append(" Z: ").append(-i * 1.3f, 1).length();
+                lineSink += line.clear().append("UPLOAD ").append(stats.getUploadMillis(), 2).append(" MS ").append(i)
+                    .append(" KB - ").append(stats.getUploadedChunks()).append(" CHUNKS ").append(stats.getPendingUploads())
+                    .append(" WAITING - ").append(stats.getEditedSections()).append(" EDITED IN ")
+                    .append(stats.getEditLatencyFrames()).append(" FRAMES").length();
+            }
+            if (allocations != null) {
+                // The JIT allocates now and then; take the quietest round
+                lineBytes = Math.min(lineBytes, allocations.getCurrentThreadAllocatedBytes() - allocated);
+            }
+            long t2 = System.nanoTime();
+            if (round >= WARMUP_ROUNDS) {
+                formatNanos += t1 - t0;
+                lineNanos += t2 - t1;
+            }
+        }
+        check("Same text length both ways", 1, formatSink == lineSink ? 1 : 0);
+        if (allocations != null) {
+            check("TextLine bytes allocated, 20000 lines", 0, (int)lineBytes);
+        }
+        long built = (long)ROUNDS * lines * 2;
+        System.out.printf("String.format: %.0f ns/line, TextLine: %.0f ns/line%n",
+            (double)formatNanos / built, (double)lineNanos / built);
+    }
+
+    private static void checkFrameProfiler() {
+        FrameProfiler profiler = new FrameProfiler(false, "FIRST", "SECOND");
+        int frames = FrameProfiler.HISTORY + 60;
+        int runs = 5;
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean)threads;
+            // The first run loads classes and the JIT allocates now and then; take the quietest of a few
+            long profilerBytes = Long.MAX_VALUE;
+            for (int run = 0; run < runs; run++) {
+                long allocated = allocations.getCurrentThreadAllocatedBytes();
+                profileFrames(profiler, frames);
+                profilerBytes = Math.min(profilerBytes, allocations.getCurrentThreadAllocatedBytes() - allocated);
+            }
+            check("Profiler bytes allocated, 300 frames", 0, (int)profilerBytes);
+        } else {
+            for (int run = 0; run < runs; run++) {
+                profileFrames(profiler, frames);
+            }
+        }
+        check("Profiler frames kept", FrameProfiler.HISTORY, profiler.getFrameCount());
+        check("Profiler GPU time unknown", 1, profiler.getGpuMillis(0, 0) < 0 ? 1 : 0);
+        check("Profiler running frame unknown", 1, profiler.getFrameMillis(profiler.getFrameCount() - 1) < 0 ? 1 : 0);
+        try {
+            Path csv = Files.createTempFile("profile", ".csv");
+            profiler.writeCsv(csv);
+            List<String> lines = Files.readAllLines(csv);
+            Files.delete(csv);
+            check("Profiler CSV rows", FrameProfiler.HISTORY + 1, lines.size());
+            check("Profiler CSV first frame", runs * frames - FrameProfiler.HISTORY, Integer.parseInt(lines.get(1).split(",")[0]));
+        } catch (IOException e) {
+            System.out.println("Profiler CSV failed: " + e);
+        }
+    }
+
+    private static void profileFrames(FrameProfiler profiler, int frames) {
+        for (int frame = 0; frame < frames; frame++) {
+            profiler.beginFrame();
+            for (int section = 0; section < profiler.getSectionCount(); section++) {
+                profiler.begin(section);
+                profiler.end(section);
+            }
+        }
+    }
+
+    private static void edits(TerrainGeneration terrain) {
+        System.out.println("== Block edits ==");
+        checkEditPublishing(terrain);
+        rebuildAfterEdit(terrain);
+        urgentBehindLoads();
+    }
+
+    /**
+     * Sections published by edits inside a section, on its borders, and by edits that change nothing.
+     */
+    private static void checkEditPublishing(TerrainGeneration terrain) {
+        DirtySections dirty = new DirtySections();
+        long[] keys = new long[16];
+        terrain.addSectionListener(dirty);
+
+        // Chunk (5, 5), section 1 spans y 8 to 15
+        int baseX = 5 * Chunk.SIZE;
+        int baseZ = 5 * Chunk.SIZE;
+        TerrainGeneration.BlockType inside = terrain.getBlock(baseX + 8, baseZ + 8, 12);
+        terrain.setBlock(baseX + 8, baseZ + 8, 12, inside);
+        check("Unchanged block publishes nothing", 0, dirty.size());
+        for (int x = 4; x < 12; x++) {
+            terrain.setBlock(baseX + x, baseZ + 8, 12, TerrainGeneration.BlockType.LOG);
+        }
+        int count = dirty.drain(keys);
+        check("Edits in one section coalesce", 1, count);
+        check("Edited section, chunk x", 5, DirtySections.getChunkX(keys[0]));
+        check("Edited section, y", 1, DirtySections.getSectionY(keys[0]));
+
+        // Low x, high z and low y corner of the section touches seven neighbours, across faces, edges and the corner
+        TerrainGeneration.BlockType corner = terrain.getBlock(baseX, baseZ + Chunk.SIZE - 1, 8);
+        terrain.setBlock(baseX, baseZ + Chunk.SIZE - 1, 8, corner == null ? TerrainGeneration.BlockType.LOG : null);
+        count = dirty.drain(keys);
+        check("Corner edit marks section and neighbours", 8, count);
+        long[] expected = {
+            DirtySections.key(5, 5, 1), DirtySections.key(4, 5, 1), DirtySections.key(5, 6, 1), DirtySections.key(5, 5, 0),
+            DirtySections.key(4, 6, 1), DirtySections.key(4, 5, 0), DirtySections.key(5, 6, 0), DirtySections.key(4, 6, 0)
+        };
+        int found = 0;
+        for (long key : expected) {
+            for (int i = 0; i < count; i++) {
+                if (keys[i] == key) {
+                    found++;
+                }
+            }
+        }
+        check("Corner edit neighbours", 8, found);
+
+        terrain.removeSectionListener(dirty);
+        terrain.setBlock(baseX, baseZ + Chunk.SIZE - 1, 8, corner);
+        for (int x = 4; x < 12; x++) {
+            terrain.setBlock(baseX + x, baseZ + 8, 12, inside);
+        }
+    }
+
+    /**
+     * What a loader thread spends on an edit job: one section remeshed, against the whole chunk.
+     */
+    private static void rebuildAfterEdit(TerrainGeneration terrain) {
+        BlockSnapshot snapshot = new BlockSnapshot(terrain.getMaxHeight());
+        ChunkMesher mesher = new ChunkMesher(snapshot, true);
+        SectionConnectivity connectivity = new SectionConnectivity(snapshot);
+        int sections = (terrain.getMaxHeight() + Chunk.SECTION_HEIGHT - 1) / Chunk.SECTION_HEIGHT;
+        int perSide = TerrainGeneration.CHUNKS_PER_SIDE;
+        long sectionNanos = 0;
+        long chunkNanos = 0;
+        long sink = 0;
+        int samples = 0;
+        for (int round = 0; round < 1 + 2; round++) {
+            for (int chunkX = 0; chunkX < perSide; chunkX += 2) {
+                for (int chunkZ = 0; chunkZ < perSide; chunkZ += 2) {
+                    long t0 = System.nanoTime();
+                    snapshot.capture(terrain.getChunkStore(), chunkX, chunkZ);
+                    sink += connectivity.compute(chunkX, chunkZ, 1);
+                    MeshData mesh = mesher.buildSection(chunkX, chunkZ, 1);
+                    sink += mesh.getVertexCount();
+                    mesh.release();
+                    long t1 = System.nanoTime();
+                    snapshot.capture(terrain.getChunkStore(), chunkX, chunkZ);
+                    for (int sectionY = 0; sectionY < sections; sectionY++) {
+                        sink += connectivity.compute(chunkX, chunkZ, sectionY);
+                        mesh = mesher.buildSection(chunkX, chunkZ, sectionY);
+                        sink += mesh.getVertexCount();
+                        mesh.release();
+                    }
+                    long t2 = System.nanoTime();
+                    if (round > 0) {
+                        sectionNanos += t1 - t0;
+                        chunkNanos += t2 - t1;
+                        samples++;
+                    }
+                }
+            }
+        }
+        System.out.printf("Remesh after an edit: %.1f us for the edited section, %.1f us for its whole chunk (checksum %d)%n",
+            sectionNanos / 1e3 / samples, chunkNanos / 1e3 / samples, sink);
+    }
+
+    /**
+     * How long an urgent job waits to start while every loader is busy with a
+     * slow chunk, as when the player edits during a flight.
+     */
+    private static void urgentBehindLoads() {
+        long loadNanos = 20_000_000;
+        int workers = ChunkLoadQueue.defaultWorkerCount();
+        ChunkLoadQueue queue = new ChunkLoadQueue((chunkX, chunkZ) -> {
+            long end = System.nanoTime() + loadNanos;
+            while (System.nanoTime() < end) {
+                Thread.onSpinWait();
+            }
+        }, workers);
+        Camera camera = new Camera(0, 0, 0);
+        long worstNanos = 0;
+        long totalNanos = 0;
+        int samples = 10;
+        for (int sample = 0; sample < samples; sample++) {
+            for (int chunkZ = 0; chunkZ < workers; chunkZ++) {
+                queue.request(sample, chunkZ);
+            }
+            queue.update(camera, TerrainGeneration.WORLD_SIZE * 2);
+            long[] started = new long[1];
+            long requested = System.nanoTime();
+            queue.requestUrgent(sample, 0, (chunkX, chunkZ) -> started[0] = System.nanoTime());
+            while (queue.getInFlightCount() > 0) {
+                Thread.yield();  // Leave the cores to the workers, as the render thread mostly waits on the GPU
+            }
+            worstNanos = Math.max(worstNanos, started[0] - requested);
+            totalNanos += started[0] - requested;
+        }
+        queue.shutdown();
+        System.out.printf("Urgent job start behind %d busy loaders: mean %.1f us, worst %.1f us (a load takes %.0f ms)%n",
+            workers, totalNanos / 1e3 / samples, worstNanos / 1e3, loadNanos / 1e6);
+        check("Urgent jobs start before busy loads finish", 1, worstNanos < loadNanos ? 1 : 0);
+    }
+
+    private static void arenas(TerrainGeneration terrain) {
+        System.out.println("== Vertex arenas ==");
+        checkArenaAllocator();
+        churnArena(terrain);
+    }
+
+    /**
+     * First fit, merging of freed neighbours and running out of room.
+     */
+    private static void checkArenaAllocator() {
+        ArenaAllocator arena = new ArenaAllocator(100);
+        int a = arena.allocate(10);
+        int b = arena.allocate(20);
+        int c = arena.allocate(30);
+        check("First allocation at start", 0, a);
+        check("Next allocation follows", 10, b);
+        check("Used", 60, arena.getUsed());
+        check("Too large fails", -1, arena.allocate(41));
+
+        arena.free(a);
+        check("Free blocks, gap at start", 2, arena.getFreeBlockCount());
+        check("First fit reuses the gap", 0, arena.allocate(5));
+        arena.free(b);
+        check("Freed range merges with the gap before", 2, arena.getFreeBlockCount());
+        arena.free(c);
+        check("Freed range merges on both sides", 1, arena.getFreeBlockCount());
+        check("Merged block size", 95, arena.getLargestFreeBlock());
+        arena.free(0);
+        check("Everything free, one block", 1, arena.getFreeBlockCount());
+        check("Everything free, full size", 100, arena.getLargestFreeBlock());
+    }
+
+    /**
+     * Fills an arena with the world's sections as packed vertices, meshed as the
+     * game does by default, then remeshes random sections to a somewhat
+     * different size and reports how fragmented the free space gets. The figures
+     * follow the mesh sizes, so they move whenever the mesher changes.
+     */
+    private static void churnArena(TerrainGeneration terrain) {
+        int perSide = TerrainGeneration.CHUNKS_PER_SIDE;
+        BlockSnapshot snapshot = new BlockSnapshot(terrain.getMaxHeight());
+        ChunkMesher mesher = new ChunkMesher(snapshot, true, true);  // Greedy, with ambient occlusion
+        int sections = (terrain.getMaxHeight() + Chunk.SECTION_HEIGHT - 1) / Chunk.SECTION_HEIGHT;
+        int[] sizes = new int[perSide * perSide * sections];
+        int meshes = 0;
+        for (int chunkX = 0; chunkX < perSide; chunkX++) {
+            for (int chunkZ = 0; chunkZ < perSide; chunkZ++) {
+                snapshot.capture(terrain.getChunkStore(), chunkX, chunkZ);
+                for (int sectionY = 0; sectionY < sections; sectionY++) {
+                    MeshData mesh = mesher.buildSection(chunkX, chunkZ, sectionY);
+                    if (!mesh.isEmpty()) {
+                        sizes[meshes++] = mesh.getVertexCount();
+                    }
+                    mesh.release();
+                }
+            }
+        }
+
+        ArenaAllocator arena = new ArenaAllocator(VertexArenas.ARENA_BYTES / PackedVertices.BYTES_PER_VERTEX);
+        int[] offsets = new int[meshes];
+        int[] current = new int[meshes];
+        for (int i = 0; i < meshes; i++) {
+            offsets[i] = arena.allocate(sizes[i]);
+            current[i] = sizes[i];
+        }
+        check("World fits one arena", meshes, arena.getAllocationCount());
+
+        // Remeshing changes a section's size by up to a fifth either way
+        Random random = new Random(SEED);
+        int operations = 200_000;
+        int failures = 0;
+        long start = System.nanoTime();
+        for (int op = 0; op < operations; op++) {
+            int i = random.nextInt(meshes);
+            arena.free(offsets[i]);
+            int size = Math.max(MeshData.VERTICES_PER_FACE, sizes[i] + (int)(sizes[i] * (random.nextFloat() - 0.5f) * 0.4f));
+            size -= size % MeshData.VERTICES_PER_FACE;
+            offsets[i] = arena.allocate(size);
+            if (offsets[i] < 0) {
+                failures++;
+                offsets[i] = arena.allocate(current[i]);
+                size = current[i];
+            }
+            current[i] = size;
+        }
+        long nanos = System.nanoTime() - start;
+        check("Failed allocations", 0, failures);
+        int free = arena.getFree();
+        System.out.printf("Arena after %d remeshes of %d sections: %.1f of %.1f MB used, %d free blocks, " +
+                "largest %.1f MB, fragmentation %.1f%%, %.0f ns per free and allocate%n",
+            operations, meshes, arena.getUsed() * (double)PackedVertices.BYTES_PER_VERTEX / 1048576,
+            arena.getCapacity() * (double)PackedVertices.BYTES_PER_VERTEX / 1048576, arena.getFreeBlockCount(),
+            arena.getLargestFreeBlock() * (double)PackedVertices.BYTES_PER_VERTEX / 1048576,
+            100.0 - 100.0 * arena.getLargestFreeBlock() / free, (double)nanos / operations);
+    }
+
+    private static void occlusion(TerrainGeneration terrain) {
+        System.out.println("== Occlusion culling ==");
+        checkConnectivity();
+        checkVisibilityGraph();
+        occludeWorld(terrain);
+    }
+
+    private static int connectedPairs(SyntheticBlocks blocks) {
+        return SectionConnectivity.countConnectedPairs(new SectionConnectivity(blocks).compute(0, 0, 0));
+    }
+
+    /**
+     * Face pairs found by the flood fill on hand-made sections.
+     */
+    private static void checkConnectivity() {
+        SyntheticBlocks empty = new SyntheticBlocks(Chunk.SIZE, Chunk.SECTION_HEIGHT);
+        check("Empty section, pairs", 15, connectedPairs(empty));
+
+        SyntheticBlocks solid = new SyntheticBlocks(Chunk.SIZE, Chunk.SECTION_HEIGHT);
+        solid.fill(0, 0, 0, 15, 15, 7, TerrainGeneration.BlockType.STONE);
+        check("Solid section, pairs", 0, connectedPairs(solid));
+
+        // Water doesn't block the view
+        SyntheticBlocks flooded = new SyntheticBlocks(Chunk.SIZE, Chunk.SECTION_HEIGHT);
+        flooded.fill(0, 0, 0, 15, 15, 7, TerrainGeneration.BlockType.WATER);
+        check("Water section, pairs", 15, connectedPairs(flooded));
+
+        // A floor splits the section into the space above and below it
+        SyntheticBlocks floor = new SyntheticBlocks(Chunk.SIZE, Chunk.SECTION_HEIGHT);
+        floor.fill(0, 0, 3, 15, 15, 3, TerrainGeneration.BlockType.STONE);
+        long floorLinks = new SectionConnectivity(floor).compute(0, 0, 0);
+        check("Floor, pairs", 14, SectionConnectivity.countConnectedPairs(floorLinks));
+        check("Floor, top sees bottom", 0, SectionConnectivity.isConnected(floorLinks, ChunkMesher.TOP, ChunkMesher.BOTTOM) ? 1 : 0);
+        check("Floor, top sees north", 1, SectionConnectivity.isConnected(floorLinks, ChunkMesher.TOP, ChunkMesher.NORTH) ? 1 : 0);
+
+        // A wall blocks east from west until a single block is dug out of it
+        SyntheticBlocks wall = new SyntheticBlocks(Chunk.SIZE, Chunk.SECTION_HEIGHT);
+        wall.fill(8, 0, 0, 8, 15, 7, TerrainGeneration.BlockType.STONE);
+        long wallLinks = new SectionConnectivity(wall).compute(0, 0, 0);
+        check("Wall, east sees west", 0, SectionConnectivity.isConnected(wallLinks, ChunkMesher.EAST, ChunkMesher.WEST) ? 1 : 0);
+        wall.fill(8, 5, 2, 8, 5, 2, null);
+        wallLinks = new SectionConnectivity(wall).compute(0, 0, 0);
+        check("Wall with a hole, east sees west", 1, SectionConnectivity.isConnected(wallLinks, ChunkMesher.EAST, ChunkMesher.WEST) ? 1 : 0);
+
+        // A cave that touches no face connects nothing
+        SyntheticBlocks pocket = new SyntheticBlocks(Chunk.SIZE, Chunk.SECTION_HEIGHT);
+        pocket.fill(0, 0, 0, 15, 15, 7, TerrainGeneration.BlockType.STONE);
+        pocket.fill(6, 6, 3, 7, 7, 4, null);
+        check("Sealed cave, pairs", 0, connectedPairs(pocket));
+    }
+
+    /**
+     * Sections reached from the camera on small hand-made graphs, without a frustum.
+     */
+    private static void checkVisibilityGraph() {
+        int chunks = 5;
+        int sections = 3;
+        float centre = 2 * Chunk.SIZE;
+        float radius = 1000;
+
+        VisibilityGraph open = new VisibilityGraph(chunks, sections);
+        check("Open world, sections reached", chunks * chunks * sections, open.update(centre, 12, centre, radius, null));
+
+        // Sealed in: the camera sees the walls of its room and nothing past them
+        VisibilityGraph sealed = new VisibilityGraph(chunks, sections);
+        sealed.setSection(1, 2, 1, SectionConnectivity.NONE);
+        sealed.setSection(3, 2, 1, SectionConnectivity.NONE);
+        sealed.setSection(2, 1, 1, SectionConnectivity.NONE);
+        sealed.setSection(2, 3, 1, SectionConnectivity.NONE);
+        sealed.setSection(2, 2, 0, SectionConnectivity.NONE);
+        sealed.setSection(2, 2, 2, SectionConnectivity.NONE);
+        check("Sealed room, sections reached", 7, sealed.update(centre, 12, centre, radius, null));
+        check("Sealed room, beyond the wall", 0, sealed.isReached(4, 2, 1) ? 1 : 0);
+
+        // A solid wall across the world hides everything behind it
+        VisibilityGraph wall = new VisibilityGraph(chunks, sections);
+        for (int chunkZ = 0; chunkZ < chunks; chunkZ++) {
+            for (int sectionY = 0; sectionY < sections; sectionY++) {
+                wall.setSection(3, chunkZ, sectionY, SectionConnectivity.NONE);
+            }
+        }
+        check("Wall, sections reached", 4 * chunks * sections, wall.update(Chunk.SIZE, 12, centre, radius, null));
+
+        // From above the world only the solid top layer is seen
+        VisibilityGraph roofed = new VisibilityGraph(chunks, sections);
+        for (int chunkX = 0; chunkX < chunks; chunkX++) {
+            for (int chunkZ = 0; chunkZ < chunks; chunkZ++) {
+                roofed.setSection(chunkX, chunkZ, sections - 1, SectionConnectivity.NONE);
+            }
+        }
+        check("Roofed world from above, reached", chunks * chunks, roofed.update(centre, 100, centre, radius, null));
+    }
+
+    /**
+     * Connectivity of the whole generated world, then how much the graph hides
+     * beyond the frustum from a few viewpoints.
+     */
+    private static void occludeWorld(TerrainGeneration terrain) {
+        int perSide = TerrainGeneration.CHUNKS_PER_SIDE;
+        int sections = (terrain.getMaxHeight() + Chunk.SECTION_HEIGHT - 1) / Chunk.SECTION_HEIGHT;
+        BlockSnapshot snapshot = new BlockSnapshot(terrain.getMaxHeight());
+        SectionConnectivity connectivity = new SectionConnectivity(snapshot);
+        VisibilityGraph graph = new VisibilityGraph(perSide, sections);
+
+        long start = System.nanoTime();
+        for (int chunkX = 0; chunkX < perSide; chunkX++) {
+            for (int chunkZ = 0; chunkZ < perSide; chunkZ++) {
+                snapshot.capture(terrain.getChunkStore(), chunkX, chunkZ);
+                for (int sectionY = 0; sectionY < sections; sectionY++) {
+                    graph.setSection(chunkX, chunkZ, sectionY, connectivity.compute(chunkX, chunkZ, sectionY));
+                }
+            }
+        }
+        System.out.printf("Connectivity of %d sections: %.1f ms%n", perSide * perSide * sections, (System.nanoTime() - start) / 1e6);
+
+        int centre = TerrainGeneration.WORLD_SIZE / 2;
+        int surface = terrain.getMaxHeight() - 1;
+        while (surface > 0 && terrain.getBlock(centre, centre, surface) == null) {
+            surface--;
+        }
+        occludeFrom(graph, sections, "Surface, looking level", centre, surface + 2, centre, 0, 0);
+        occludeFrom(graph, sections, "Surface, looking down", centre, surface + 2, centre, 0, 60);
+        // Deep underground: below the highest ground near the centre
+        int hillX = centre;
+        int hillZ = centre;
+        int hillHeight = surface;
+        for (int x = centre - 64; x <= centre + 64; x++) {
+            for (int z = centre - 64; z <= centre + 64; z++) {
+                int height = terrain.getMaxHeight() - 1;
+                while (height > 0 && terrain.getBlock(x, z, height) == null) {
+                    height--;
+                }
+                if (height > hillHeight) {
+                    hillX = x;
+                    hillZ = z;
+                    hillHeight = height;
+                }
+            }
+        }
+        occludeFrom(graph, sections, "Underground, looking level", hillX, 3, hillZ, 0, 0);
+        occludeFrom(graph, sections, "Above the world, looking down", centre, terrain.getMaxHeight() + 10, centre, 0, 60);
+    }
+
+    private static void occludeFrom(VisibilityGraph graph, int sections, String name, float x, float y, float z, float yaw, float pitch) {
+        int perSide = TerrainGeneration.CHUNKS_PER_SIDE;
+        float radius = 48;  // Renderer's render distance
+        Matrix4f viewProjection = new Matrix4f().setFrustum(-16f / 9, 16f / 9, -1, 1, 1, 1000)
+            .rotateX((float)Math.toRadians(pitch))
+            .rotateY((float)Math.toRadians(yaw))
+            .translate(-x, -y, -z);
+        FrustumIntersection frustum = new FrustumIntersection(viewProjection);
+
+        int inFrustum = 0;
+        int occluded = 0;
+        long nanos = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            long start = System.nanoTime();
+            graph.update(x, y, z, radius, frustum);
+            if (round >= WARMUP_ROUNDS) {
+                nanos += System.nanoTime() - start;
+            }
+        }
+        for (int chunkX = 0; chunkX < perSide; chunkX++) {
+            for (int chunkZ = 0; chunkZ < perSide; chunkZ++) {
+                if (ChunkLoadQueue.distanceSqToChunk(chunkX, chunkZ, x, z) > radius * radius) {
+                    continue;
+                }
+                for (int sectionY = 0; sectionY < sections; sectionY++) {
+                    float minX = chunkX * Chunk.SIZE - 0.5f;
+                    float minY = sectionY * Chunk.SECTION_HEIGHT - 0.5f;
+                    float minZ = chunkZ * Chunk.SIZE - 0.5f;
+                    if (!frustum.testAab(minX, minY, minZ, minX + Chunk.SIZE, minY + Chunk.SECTION_HEIGHT, minZ + Chunk.SIZE)) {
+                        continue;
+                    }
+                    inFrustum++;
+                    if (!graph.isReached(chunkX, chunkZ, sectionY)) {
+                        occluded++;
+                    }
+                }
+            }
+        }
+        System.out.printf("%-32s %4d sections in the frustum, %4d occluded (%.0f%%), search %.1f us%n",
+            name, inFrustum, occluded, inFrustum == 0 ? 0.0 : 100.0 * occluded / inFrustum, nanos / 1e3 / ROUNDS);
+    }
+
+    /**
+     * Chunk lookups in the pattern of Renderer.isBlockVisible: every block in
+     * the render radius plus its six neighbours.
+     */
+    private static void lookup(TerrainGeneration terrain) {
+        System.out.println("== Chunk lookup ==");
+        ChunkStore store = terrain.getChunkStore();
+        int perSide = TerrainGeneration.CHUNKS_PER_SIDE;
+        Map<Long, Chunk> hashMap = new HashMap<>();
+        ChunkMap chunkMap = new ChunkMap();
+        for (int chunkX = 0; chunkX < perSide; chunkX++) {
+            for (int chunkZ = 0; chunkZ < perSide; chunkZ++) {
+                Chunk chunk = store.getChunk(chunkX, chunkZ);
+                hashMap.put(ChunkMap.key(chunkX, chunkZ), chunk);
+                chunkMap.put(chunkX, chunkZ, chunk);
+            }
+        }
+
+        int[] offsets = {0, 0, 0, 0, 1, 0, -1, 0, 0, 1, 0, -1, 0, 0};  // Self, up, down and four sides (x, z pairs)
+        int centre = TerrainGeneration.WORLD_SIZE / 2;
+        int radius = 48;
+        int height = terrain.getMaxHeight();
+
+        long hashNanos = 0;
+        long mapNanos = 0;
+        long storeNanos = 0;
+        long cacheNanos = 0;
+        long lookups = 0;
+        long sink = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            long t0 = System.nanoTime();
+            for (int x = centre - radius; x <= centre + radius; x++) {
+                for (int z = centre - radius; z <= centre + radius; z++) {
+                    for (int y = 0; y < height; y++) {
+                        for (int i = 0; i < offsets.length; i += 2) {
+                            int nx = x + offsets[i];
+                            int nz = z + offsets[i + 1];
+                            sink += hashMap.get(ChunkMap.key(nx >> 4, nz >> 4)).getChunkX();
+                        }
+                    }
+                }
+            }
+            long t1 = System.nanoTime();
+            for (int x = centre - radius; x <= centre + radius; x++) {
+                for (int z = centre - radius; z <= centre + radius; z++) {
+                    for (int y = 0; y < height; y++) {
+                        for (int i = 0; i < offsets.length; i += 2) {
+                            int nx = x + offsets[i];
+                            int nz = z + offsets[i + 1];
+                            sink += chunkMap.get(nx >> 4, nz >> 4).getChunkX();
+                        }
+                    }
+                }
+            }
+            long t2 = System.nanoTime();
+            for (int x = centre - radius; x <= centre + radius; x++) {
+                for (int z = centre - radius; z <= centre + radius; z++) {
+                    for (int y = 0; y < height; y++) {
+                        for (int i = 0; i < offsets.length; i += 2) {
+                            int nx = x + offsets[i];
+                            int nz = z + offsets[i + 1];
+                            sink += store.getChunk(nx >> 4, nz >> 4).getChunkX();
+                        }
+                    }
+                }
+            }
+            long t3 = System.nanoTime();
+            ChunkStore.Cache cache = store.newCache();
+            for (int x = centre - radius; x <= centre + radius; x++) {
+                for (int z = centre - radius; z <= centre + radius; z++) {
+                    for (int y = 0; y < height; y++) {
+                        for (int i = 0; i < offsets.length; i += 2) {
+                            int nx = x + offsets[i];
+                            int nz = z + offsets[i + 1];
+                            sink += cache.getChunk(nx >> 4, nz >> 4).getChunkX();
+                        }
+                    }
+                }
+            }
+            long t4 = System.nanoTime();
+            if (round >= WARMUP_ROUNDS) {
+                hashNanos += t1 - t0;
+                mapNanos += t2 - t1;
+                storeNanos += t3 - t2;
+                cacheNanos += t4 - t3;
+                lookups += (long)(2 * radius + 1) * (2 * radius + 1) * height * (offsets.length / 2);
+            }
+        }
+        System.out.printf("HashMap<Long, Chunk>: %.2f ns/lookup%n", (double)hashNanos / lookups);
+        System.out.printf("ChunkMap: %.2f ns/lookup%n", (double)mapNanos / lookups);
+        System.out.printf("ChunkStore (ChunkMap + LRU touch): %.2f ns/lookup%n", (double)storeNanos / lookups);
+        System.out.printf("ChunkStore.Cache (last chunk, then ChunkStore): %.2f ns/lookup (checksum %d)%n",
+            (double)cacheNanos / lookups, sink);
+    }
+
+    private static void compression(TerrainGeneration terrain) {
+        System.out.println("== Chunk compression ==");
+        int perSide = TerrainGeneration.CHUNKS_PER_SIDE;
+        int height = terrain.getMaxHeight();
+        byte[][] encoded = new byte[perSide * perSide][];
+
+        long denseBytes = 0;
+        long sectionBytes = 0;
+        long encodedBytes = 0;
+        int uniformSections = 0;
+        int sectionCount = 0;
+        int roundTripDifferences = 0;
+        byte[] before = new byte[Chunk.SIZE * Chunk.SIZE * height];
+        byte[] after = new byte[before.length];
+        for (int chunkX = 0; chunkX < perSide; chunkX++) {
+            for (int chunkZ = 0; chunkZ < perSide; chunkZ++) {
+                int index = chunkX * perSide + chunkZ;
+                Chunk chunk = terrain.getChunkStore().getChunk(chunkX, chunkZ);
+                encoded[index] = chunk.serialize();
+                denseBytes += Chunk.SIZE * Chunk.SIZE * height;
+                sectionBytes += chunk.getSizeInBytes();
+                encodedBytes += encoded[index].length;
+                for (int sectionY = 0; sectionY < chunk.getSectionCount(); sectionY++) {
+                    uniformSections += chunk.isSectionUniform(sectionY) ? 1 : 0;
+                }
+                sectionCount += chunk.getSectionCount();
+
+                chunk.copyIds(0, 0, Chunk.SIZE, Chunk.SIZE, before, 0, Chunk.SIZE * height, height);
+                Chunk.deserialize(chunkX, chunkZ, height, encoded[index])
+                    .copyIds(0, 0, Chunk.SIZE, Chunk.SIZE, after, 0, Chunk.SIZE * height, height);
+                roundTripDifferences += Arrays.equals(before, after) ? 0 : 1;
+            }
+        }
+        System.out.printf("Chunks: %d, dense %d KB, sparse sections %d KB, compacted %d KB, ratio vs dense %.2fx%n",
+            encoded.length, denseBytes / 1024, sectionBytes / 1024, encodedBytes / 1024, (double)denseBytes / encodedBytes);
+        System.out.printf("Uniform sections: %d of %d%n", uniformSections, sectionCount);
+        check("Chunks changed by a swap round trip", 0, roundTripDifferences);
+        check("Sparse sections no larger than dense", 1, sectionBytes <= denseBytes ? 1 : 0);
+
+        Chunk[] chunks = new Chunk[encoded.length];
+        long sink = 0;
+        long inflateNanos = 0;
+        long compactNanos = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            for (int i = 0; i < chunks.length; i++) {
+                chunks[i] = Chunk.deserialize(0, 0, height, encoded[i]);
+            }
+            // The first getBlock on a compacted chunk inflates it
+            long t0 = System.nanoTime();
+            for (Chunk chunk : chunks) {
+                sink += chunk.getBlock(0, 0, 0) == null ? 0 : 1;
+            }
+            long t1 = System.nanoTime();
+            for (Chunk chunk : chunks) {
+                chunk.compact();
+            }
+            long t2 = System.nanoTime();
+            if (round >= WARMUP_ROUNDS) {
+                inflateNanos += t1 - t0;
+                compactNanos += t2 - t1;
+            }
+        }
+        long operations = (long)ROUNDS * chunks.length;
+        System.out.printf("Inflate: %.2f us/chunk, compact: %.2f us/chunk (checksum %d)%n",
+            inflateNanos / 1e3 / operations, compactNanos / 1e3 / operations, sink);
+    }
+}
@@ -0,0 +1,150 @@
+package com.craftmine;
+
+/**
+ * The HUD's stroke font, rasterised once into a glyph atlas: one cell per
+ * printable ASCII character, 16 to a row, as white texels whose alpha is the
+ * stroke's coverage. Needs no OpenGL context; {@link UiSprites} uploads it.
+ *
+ * Glyphs are drawn on an 8 by 12 unit grid, y up, with a stroke as wide as the
+ * old GL_LINES font's 5 pixel lines at its 3 pixels per unit, so text keeps its
+ * look at {@link #SCALE} and costs one textured quad per character.
+ */
+public class BitmapFont {
+    public static final char FIRST_CHAR = ' ';
+    public static final char LAST_CHAR = '~';
+    public static final int SCALE = 3;  // Texels per glyph unit
+    public static final int ADVANCE = 12 * SCALE;  // Pixels from one character to the next
+    public static final int ASCENT = 12 * SCALE;  // Pixels from the baseline to the top of a capital
+    private static final float STROKE_WIDTH = 5.0f;
+    public static final int PADDING = 3;  // Texels around the grid for the stroke's overhang
+    public static final int CELL_WIDTH = 8 * SCALE + 2 * PADDING;
+    public static final int CELL_HEIGHT = 12 * SCALE + 2 * PADDING;
+    public static final int COLUMNS = 16;
+    public static final int ATLAS_WIDTH = 512;
+    public static final int ATLAS_HEIGHT = 256;
+
+    // Line segments of each glyph as x0, y0, x1, y1, ...; null draws nothing
+    private static final float[][] STROKES = new float[LAST_CHAR + 1][];
+
+    static {
+        float[] zero = {
+            0, 0, 8, 0,    // Bottom
+            8, 0, 8, 12,   // Right
+            8, 12, 0, 12,  // Top
+            0, 12, 0, 0    // Left
+        };
+        float[] five = {
+            8, 12, 0, 12,  // Top
+            0, 12, 0, 6,   // Left top
+            0, 6, 8, 6,    // Middle
+            8, 6, 8, 0,    // Right bottom
+            8, 0, 0, 0     // Bottom
+        };
+        STROKES['0'] = zero;
+        STROKES['1'] = new float[] { 4, 0, 4, 12 };
+        STROKES['2'] = new float[] { 0, 12, 8, 12, 8, 12, 8, 6, 8, 6, 0, 6, 0, 6, 0, 0, 0, 0, 8, 0 };
+        STROKES['3'] = new float[] { 0, 12, 8, 12, 8, 12, 8, 0, 8, 0, 0, 0, 0, 6, 8, 6 };
+        STROKES['4'] = new float[] { 0, 12, 0, 6, 0, 6, 8, 6, 8, 12, 8, 0 };
+        STROKES['5'] = five;
+        STROKES['6'] = new float[] { 8, 12, 0, 12, 0, 12, 0, 0, 0, 0, 8, 0, 8, 0, 8, 6, 8, 6, 0, 6 };
+        STROKES['7'] = new float[] { 0, 12, 8, 12, 8, 12, 8, 0 };
+        STROKES['8'] = new float[] { 0, 0, 8, 0, 8, 0, 8, 12, 8, 12, 0, 12, 0, 12, 0, 0, 0, 6, 8, 6 };
+        STROKES['9'] = new float[] { 8, 0, 8, 12, 8, 12, 0, 12, 0, 12, 0, 6, 0, 6, 8, 6 };
+
+        STROKES['A'] = new float[] { 0, 0, 0, 8, 0, 8, 4, 12, 4, 12, 8, 8, 8, 8, 8, 0, 0, 6, 8, 6 };
+        STROKES['B'] = new float[] { 0, 0, 0, 12, 0, 12, 6, 12, 6, 12, 8, 9, 8, 9, 6, 6, 0, 6, 6, 6, 6, 6, 8, 3, 8, 3, 6, 0, 6, 0, 0, 0 };
+        STROKES['C'] = new float[] { 8, 12, 0, 12, 0, 12, 0, 0, 0, 0, 8, 0 };
+        STROKES['D'] = new float[] { 0, 0, 0, 12, 0, 12, 5, 12, 5, 12, 8, 9, 8, 9, 8, 3, 8, 3, 5, 0, 5, 0, 0, 0 };
+        STROKES['E'] = new float[] { 8, 12, 0, 12, 0, 12, 0, 0, 0, 0, 8, 0, 0, 6, 6, 6 };
+        STROKES['F'] = new float[] { 0, 0, 0, 12, 0, 12, 8, 12, 0, 6, 6, 6 };
+        STROKES['G'] = new float[] { 8, 12, 0, 12, 0, 12, 0, 0, 0, 0, 8, 0, 8, 0, 8, 6, 8, 6, 4, 6 };
+        STROKES['H'] = new float[] { 0, 0, 0, 12, 8, 0, 8, 12, 0, 6, 8, 6 };
+        STROKES['I'] = new float[] { 4, 0, 4, 12, 2, 12, 6, 12, 2, 0, 6, 0 };
+        STROKES['J'] = new float[] { 8, 12, 8, 0, 8, 0, 0, 0, 0, 0, 0, 4 };
+        STROKES['K'] = new float[] { 0, 0, 0, 12, 0, 6, 8, 12, 0, 6, 8, 0 };
+        STROKES['L'] = new float[] { 0, 12, 0, 0, 0, 0, 8, 0 };
+        STROKES['M'] = new float[] { 0, 0, 0, 12, 0, 12, 4, 6, 4, 6, 8, 12, 8, 12, 8, 0 };
+        STROKES['N'] = new float[] { 0, 0, 0, 12, 0, 12, 8, 0, 8, 0, 8, 12 };
+        STROKES['O'] = zero;
+        STROKES['P'] = new float[] { 0, 0, 0, 12, 0, 12, 8, 12, 8, 12, 8, 6, 8, 6, 0, 6 };
+        STROKES['Q'] = new float[] { 0, 0, 8, 0, 8, 0, 8, 12, 8, 12, 0, 12, 0, 12, 0, 0, 4, 4, 8, 0 };
+        STROKES['R'] = new float[] { 0, 0, 0, 12, 0, 12, 8, 12, 8, 12, 8, 6, 8, 6, 0, 6, 0, 6, 8, 0 };
+        STROKES['S'] = five;
+        STROKES['T'] = new float[] { 0, 12, 8, 12, 4, 12, 4, 0 };
+        STROKES['U'] = new float[] { 0, 12, 0, 0, 0, 0, 8, 0, 8, 0, 8, 12 };
+        STROKES['V'] = new float[] { 0, 12, 4, 0, 4, 0, 8, 12 };
+        STROKES['W'] = new float[] { 0, 12, 2, 0, 2, 0, 4, 6, 4, 6, 6, 0, 6, 0, 8, 12 };
+        STROKES['X'] = new float[] { 0, 0, 8, 12, 0, 12, 8, 0 };
+        STROKES['Y'] = new float[] { 0, 12, 4, 6, 8, 12, 4, 6, 4, 6, 4, 0 };
+        STROKES['Z'] = new float[] { 0, 12, 8, 12, 8, 12, 0, 0, 0, 0, 8, 0 };
+
+        STROKES[':'] = new float[] { 4, 8, 4, 9, 4, 3, 4, 4 };
+        STROKES['.'] = new float[] { 4, 0, 4, 1 };
+        STROKES['-'] = new float[] { 2, 6, 6, 6 };
+        STROKES['/'] = new float[] { 0, 0, 8, 12 };
+
+        // Lower case shares the capitals
+        for (char c = 'a'; c <= 'z'; c++) {
+            STROKES[c] = STROKES[c - 'a' + 'A'];
+        }
+    }
+
+    /**
+     * Whether c leaves a mark; spaces and characters outside the atlas only advance.
+     */
+    public static boolean isVisible(char c) {
+        return c >= FIRST_CHAR && c <= LAST_CHAR && STROKES[c] != null;
+    }
+
+    /**
+     * Left edge of c's cell in the atlas, in texels.
+     */
+    public static int cellX(char c) {
+        return (c - FIRST_CHAR) % COLUMNS * CELL_WIDTH;
+    }
+
+    public static int cellY(char c) {
+        return (c - FIRST_CHAR) / COLUMNS * CELL_HEIGHT;
+    }
+
+    /**
+     * The atlas as alpha coverage, ATLAS_WIDTH by ATLAS_HEIGHT bytes, top row first.
+     */
+    public static byte[] rasterize() {
+        byte[] alpha = new byte[ATLAS_WIDTH * ATLAS_HEIGHT];
+        for (char c = FIRST_CHAR; c <= LAST_CHAR; c++) {
+            float[] strokes = STROKES[c];
+            if (strokes == null) {
+                continue;
+            }
+            int cellX = cellX(c);
+            int cellY = cellY(c);
+            for (int y = 0; y < CELL_HEIGHT; y++) {
+                for (int x = 0; x < CELL_WIDTH; x++) {
+                    // Texel centre on the glyph grid; rows run down, the grid's y up
+                    float gridX = (x + 0.5f - PADDING) / SCALE;
+                    float gridY = (CELL_HEIGHT - PADDING - y - 0.5f) / SCALE;
+                    float distance = Float.MAX_VALUE;
+                    for (int i = 0; i < strokes.length; i += 4) {
+                        distance = Math.min(distance, distanceToSegment(gridX, gridY,
+                            strokes[i], strokes[i + 1], strokes[i + 2], strokes[i + 3]));
+                    }
+                    // A one texel ramp at the stroke's edge
+                    float coverage = Math.max(0, Math.min(1, STROKE_WIDTH / 2 + 0.5f - distance * SCALE));
+                    alpha[(cellY + y) * ATLAS_WIDTH + cellX + x] = (byte)Math.round(coverage * 255);
+                }
+            }
+        }
+        return alpha;
+    }
+
+    private static float distanceToSegment(float px, float py, float x0, float y0, float x1, float y1) {
+        float dx = x1 - x0;
+        float dy = y1 - y0;
+        float lengthSquared = dx * dx + dy * dy;
+        float t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, ((px - x0) * dx + (py - y0) * dy) / lengthSquared));
+        float ex = px - (x0 + t * dx);
+        float ey = py - (y0 + t * dy);
+        return (float)Math.sqrt(ex * ex + ey * ey);
+    }
+}
@@ -0,0 +1,14 @@
+package com.craftmine;
+
+/**
+ * Read-only view of blocks by world coordinates. The mesher only needs this,
+ * so it can run against the real world or a small hand-made one.
+ */
+public interface BlockAccess {
+    /**
+     * Block at the position, or null for air and anything outside the world.
+     */
+    TerrainGeneration.BlockType getBlock(int x, int z, int y);
+
+    int getMaxHeight();
+}
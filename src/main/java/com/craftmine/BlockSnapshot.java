@@ -0,0 +1,65 @@
+package com.craftmine;
+
+import java.util.Arrays;
+
+/**
+ * Copy of one chunk column plus a one-block border taken from its eight
+ * neighbours. Meshers read this instead of the live chunk store, so they see
+ * a consistent picture of every chunk even while the game edits it, and block
+ * lookups are plain array reads.
+ *
+ * Reused between captures; not thread-safe.
+ */
+public class BlockSnapshot implements BlockAccess {
+    private static final TerrainGeneration.BlockType[] BLOCK_TYPES = TerrainGeneration.BlockType.values();
+    private static final int SIDE = Chunk.SIZE + 2;
+
+    private final int height;
+    private final int columnStride;  // One spare block below and above every column
+    private final byte[] ids;
+    private int originX;  // World position of the first interior column
+    private int originZ;
+
+    public BlockSnapshot(int height) {
+        this.height = height;
+        this.columnStride = height + 2;
+        this.ids = new byte[SIDE * SIDE * columnStride];
+    }
+
+    public void capture(ChunkStore store, int chunkX, int chunkZ) {
+        Arrays.fill(ids, (byte)0);
+        originX = chunkX * Chunk.SIZE;
+        originZ = chunkZ * Chunk.SIZE;
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dz = -1; dz <= 1; dz++) {
+                Chunk chunk = store.getChunk(chunkX + dx, chunkZ + dz);
+                if (chunk == null) {
+                    continue;  // Outside the world, stays air
+                }
+                // Only the edge columns of a neighbour fall inside the border
+                int minX = dx < 0 ? Chunk.SIZE - 1 : 0;
+                int maxX = dx > 0 ? 1 : Chunk.SIZE;
+                int minZ = dz < 0 ? Chunk.SIZE - 1 : 0;
+                int maxZ = dz > 0 ? 1 : Chunk.SIZE;
+                int column = (dx * Chunk.SIZE + minX + 1) * SIDE + (dz * Chunk.SIZE + minZ + 1);
+                chunk.copyIds(minX, minZ, maxX, maxZ, ids, column * columnStride + 1, SIDE * columnStride, columnStride);
+            }
+        }
+    }
+
+    @Override
+    public TerrainGeneration.BlockType getBlock(int x, int z, int y) {
+        int lx = x - originX + 1;
+        int lz = z - originZ + 1;
+        if (lx < 0 || lx >= SIDE || lz < 0 || lz >= SIDE || y < -1 || y > height) {
+            throw new IndexOutOfBoundsException("Block " + x + "," + z + "," + y + " is outside the snapshot");
+        }
+        int id = ids[(lx * SIDE + lz) * columnStride + y + 1];
+        return id == 0 ? null : BLOCK_TYPES[id - 1];
+    }
+
+    @Override
+    public int getMaxHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,73 @@
+package com.craftmine;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.lwjgl.BufferUtils;
+
+/**
+ * Recycles direct float buffers between mesh builds on the loader threads and
+ * uploads on the render thread, so streaming doesn't churn native memory.
+ *
+ * Buffers are bucketed by power-of-two capacity. Once the pool holds
+ * maxPooledBytes, further released buffers are left to the garbage collector.
+ */
+public class BufferPool {
+    private static final int MIN_SHIFT = 10;  // Smallest bucket holds 1024 floats
+    private static final int MAX_SHIFT = 24;
+
+    private final List<ConcurrentLinkedQueue<FloatBuffer>> buckets;
+    private final long maxPooledBytes;
+    private final AtomicLong pooledBytes = new AtomicLong();
+    private final AtomicLong allocatedBytes = new AtomicLong();
+
+    public BufferPool(long maxPooledBytes) {
+        this.maxPooledBytes = maxPooledBytes;
+        this.buckets = new ArrayList<>(MAX_SHIFT - MIN_SHIFT + 1);
+        for (int shift = MIN_SHIFT; shift <= MAX_SHIFT; shift++) {
+            buckets.add(new ConcurrentLinkedQueue<>());
+        }
+    }
+
+    /**
+     * A cleared buffer with room for at least the given number of floats.
+     */
+    public FloatBuffer acquire(int floats) {
+        int shift = Math.max(MIN_SHIFT, 32 - Integer.numberOfLeadingZeros(Math.max(1, floats) - 1));
+        if (shift > MAX_SHIFT) {
+            throw new IllegalArgumentException("Buffer of " + floats + " floats is larger than the pool supports");
+        }
+        FloatBuffer buffer = buckets.get(shift - MIN_SHIFT).poll();
+        if (buffer != null) {
+            pooledBytes.addAndGet(-(long)buffer.capacity() * Float.BYTES);
+            buffer.clear();
+            return buffer;
+        }
+        allocatedBytes.addAndGet((long)Float.BYTES << shift);
+        return BufferUtils.createFloatBuffer(1 << shift);
+    }
+
+    public void release(FloatBuffer buffer) {
+        long bytes = (long)buffer.capacity() * Float.BYTES;
+        if (pooledBytes.addAndGet(bytes) > maxPooledBytes) {
+            pooledBytes.addAndGet(-bytes);
+            allocatedBytes.addAndGet(-bytes);
+            return;
+        }
+        buckets.get(Integer.numberOfTrailingZeros(buffer.capacity()) - MIN_SHIFT).add(buffer);
+    }
+
+    public long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    /**
+     * Bytes of buffers handed out by the pool that were not dropped again.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+}
@@ -0,0 +1,97 @@
+package com.craftmine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A scripted camera flight through waypoints, each a position and a rotation.
+ * Positions and rotations are interpolated linearly, yaw the short way round;
+ * every segment between two waypoints takes the same share of the flight.
+ *
+ * Path files hold one waypoint per line, "x y z yaw pitch", with blank lines
+ * and lines starting with # ignored.
+ */
+public class CameraPath {
+    private static final int FLOATS_PER_WAYPOINT = 5;
+
+    private final float[] waypoints;  // x, y, z, yaw, pitch of each waypoint
+    private final int count;
+
+    private CameraPath(float[] waypoints) {
+        this.waypoints = waypoints;
+        this.count = waypoints.length / FLOATS_PER_WAYPOINT;
+        if (count < 2) {
+            throw new IllegalArgumentException("A camera path needs at least two waypoints");
+        }
+    }
+
+    public static CameraPath load(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file);
+        float[] waypoints = new float[lines.size() * FLOATS_PER_WAYPOINT];
+        int floats = 0;
+        for (int line = 0; line < lines.size(); line++) {
+            String text = lines.get(line).trim();
+            if (text.isEmpty() || text.startsWith("#")) {
+                continue;
+            }
+            String[] fields = text.split("\\s+");
+            if (fields.length != FLOATS_PER_WAYPOINT) {
+                throw new IOException(file + ":" + (line + 1) + ": expected x y z yaw pitch, got \"" + text + "\"");
+            }
+            try {
+                for (String field : fields) {
+                    waypoints[floats++] = Float.parseFloat(field);
+                }
+            } catch (NumberFormatException e) {
+                throw new IOException(file + ":" + (line + 1) + ": " + e.getMessage(), e);
+            }
+        }
+        return new CameraPath(Arrays.copyOf(waypoints, floats));
+    }
+
+    /**
+     * A closed loop at a fixed height, looking along the direction of travel
+     * and pitched down by pitch degrees.
+     */
+    public static CameraPath circle(float centerX, float centerZ, float radius, float height, float pitch, int segments) {
+        float[] waypoints = new float[(segments + 1) * FLOATS_PER_WAYPOINT];
+        for (int i = 0; i <= segments; i++) {
+            double angle = 2 * Math.PI * i / segments;
+            int base = i * FLOATS_PER_WAYPOINT;
+            waypoints[base] = centerX + radius * (float)Math.cos(angle);
+            waypoints[base + 1] = height;
+            waypoints[base + 2] = centerZ + radius * (float)Math.sin(angle);
+            // The view looks along (sin yaw, 0, -cos yaw); travel is along the tangent (-sin, 0, cos)
+            waypoints[base + 3] = (float)Math.toDegrees(Math.atan2(-Math.sin(angle), -Math.cos(angle)));
+            waypoints[base + 4] = pitch;
+        }
+        return new CameraPath(waypoints);
+    }
+
+    public int getWaypointCount() {
+        return count;
+    }
+
+    /**
+     * Moves the camera to a point of the flight, from 0 at the first waypoint to 1 at the last.
+     */
+    public void apply(Camera camera, float progress) {
+        float position = Math.max(0, Math.min(1, progress)) * (count - 1);
+        int segment = Math.min((int)position, count - 2);
+        float t = position - segment;
+        int from = segment * FLOATS_PER_WAYPOINT;
+        int to = from + FLOATS_PER_WAYPOINT;
+
+        camera.setPosition(lerp(from, to, 0, t), lerp(from, to, 1, t), lerp(from, to, 2, t));
+        float yawDelta = waypoints[to + 3] - waypoints[from + 3];
+        yawDelta -= 360 * Math.round(yawDelta / 360);
+        camera.setRotation(lerp(from, to, 4, t), waypoints[from + 3] + yawDelta * t);
+    }
+
+    private float lerp(int from, int to, int field, float t) {
+        return waypoints[from + field] + (waypoints[to + field] - waypoints[from + field]) * t;
+    }
+}
@@ -0,0 +1,79 @@
+package com.craftmine;
+
+import java.nio.FloatBuffer;
+
+import org.joml.Matrix4fc;
+import org.lwjgl.BufferUtils;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.glUniformMatrix4fv;
+import static org.lwjgl.opengl.GL31.GL_UNIFORM_BUFFER;
+
+/**
+ * The camera matrix every world shader reads. With GLSL 3.30 it lives in one
+ * uniform buffer bound to the Camera block of each program and is written once
+ * per frame; older GLSL has no uniform blocks, so each program gets a plain
+ * viewProjection uniform set whenever it is used.
+ *
+ * Must be used on the render thread.
+ */
+public class CameraUniforms {
+    public static final int BINDING = 0;
+
+    private static final String BLOCK_NAME = "Camera";
+    private static final String UNIFORM_NAME = "viewProjection";
+
+    private final boolean uniformBuffer;
+    private final int buffer;  // 0 without uniform buffers
+    private final FloatBuffer viewProjection = BufferUtils.createFloatBuffer(16);
+
+    public CameraUniforms() {
+        uniformBuffer = ShaderProgram.isCoreGlsl();
+        if (uniformBuffer) {
+            buffer = glGenBuffers();
+            GLState.bindBuffer(GL_UNIFORM_BUFFER, buffer);
+            glBufferData(GL_UNIFORM_BUFFER, viewProjection.capacity() * Float.BYTES, GL_DYNAMIC_DRAW);
+            GLState.bindBuffer(GL_UNIFORM_BUFFER, 0);
+            GLState.bindBufferBase(GL_UNIFORM_BUFFER, BINDING, buffer);
+        } else {
+            buffer = 0;
+        }
+    }
+
+    /**
+     * Connects a program's camera uniforms.
+     *
+     * @return the location to pass to {@link #apply}, -1 with a uniform buffer
+     */
+    public int attach(ShaderProgram program) {
+        if (uniformBuffer) {
+            program.bindUniformBlock(BLOCK_NAME, BINDING);
+            return -1;
+        }
+        return program.getUniformLocation(UNIFORM_NAME);
+    }
+
+    public void update(Matrix4fc viewProjection) {
+        viewProjection.get(this.viewProjection);
+        if (uniformBuffer) {
+            GLState.bindBuffer(GL_UNIFORM_BUFFER, buffer);
+            glBufferSubData(GL_UNIFORM_BUFFER, 0, this.viewProjection);
+            GLState.bindBuffer(GL_UNIFORM_BUFFER, 0);
+        }
+    }
+
+    /**
+     * Sets the camera on the program in use; nothing to do with a uniform buffer.
+     */
+    public void apply(int location) {
+        if (!uniformBuffer) {
+            glUniformMatrix4fv(location, false, viewProjection);
+        }
+    }
+
+    public void delete() {
+        if (buffer != 0) {
+            GLState.deleteBuffer(buffer);
+        }
+    }
+}
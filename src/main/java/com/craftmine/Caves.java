@@ -18,10 +18,12 @@ public class Caves {
 
     private final Random random;
     private final TerrainGeneration terrain;
+    private final ChunkStore.Cache chunks;  // The column scans below stay in one chunk for many lookups
 
     public Caves(TerrainGeneration terrain, int seed) {
         this.terrain = terrain;
         this.random = new Random(seed);
+        this.chunks = terrain.getChunkStore().newCache();
     }
 
     public void generateCaves() {
@@ -52,11 +54,14 @@ public class Caves {
                 
                 // Check the column for any tree blocks
                 for (int y = 0; y < terrain.getMaxHeight(); y++) {
-                    TerrainGeneration.BlockType block = terrain.getBlock(checkX, checkZ, y);
+                    TerrainGeneration.BlockType block = terrain.getBlock(chunks, checkX, checkZ, y);
                     if (block == TerrainGeneration.BlockType.LOG || 
                         block == TerrainGeneration.BlockType.LEAVES) {
                         return true;
                     }
+                    if (y % Chunk.SECTION_HEIGHT == 0 && terrain.isUniformSection(chunks, checkX, checkZ, y)) {
+                        y = TerrainGeneration.sectionEnd(y) - 1;  // Rest of the section is the same block
+                    }
                 }
             }
         }
@@ -79,9 +84,12 @@ public class Caves {
                 
                 // Check the column for any sand blocks
                 for (int y = 0; y < terrain.getMaxHeight(); y++) {
-                    if (terrain.getBlock(checkX, checkZ, y) == TerrainGeneration.BlockType.SAND) {
+                    if (terrain.getBlock(chunks, checkX, checkZ, y) == TerrainGeneration.BlockType.SAND) {
                         return true;
                     }
+                    if (y % Chunk.SECTION_HEIGHT == 0 && terrain.isUniformSection(chunks, checkX, checkZ, y)) {
+                        y = TerrainGeneration.sectionEnd(y) - 1;  // Rest of the section is the same block
+                    }
                 }
             }
         }
@@ -91,11 +99,14 @@ public class Caves {
     private boolean isUnderTree(int x, int y, int z) {
         // Check the column above for any tree blocks
         for (int checkY = y; checkY < terrain.getMaxHeight(); checkY++) {
-            TerrainGeneration.BlockType block = terrain.getBlock(x, z, checkY);
+            TerrainGeneration.BlockType block = terrain.getBlock(chunks, x, z, checkY);
             if (block == TerrainGeneration.BlockType.LOG || 
                 block == TerrainGeneration.BlockType.LEAVES) {
                 return true;
             }
+            if (checkY % Chunk.SECTION_HEIGHT == 0 && terrain.isUniformSection(chunks, x, z, checkY)) {
+                checkY = TerrainGeneration.sectionEnd(checkY) - 1;  // Rest of the section is the same block
+            }
         }
         return false;
     }
@@ -140,7 +151,7 @@ public class Caves {
     
             int radius = (int) (MIN_RADIUS + (MAX_RADIUS - MIN_RADIUS) * (random.nextDouble() * 0.7 + 0.3));
     
-            if (terrain.getBlock((int)x, (int)z, (int)y) == TerrainGeneration.BlockType.SAND) {
+            if (terrain.getBlock(chunks, (int)x, (int)z, (int)y) == TerrainGeneration.BlockType.SAND) {
                 x += dx * lastRadius;
                 y += dy * lastRadius;
                 z += dz * lastRadius;
@@ -196,7 +207,7 @@ public class Caves {
                                 continue;
                             }
                             
-                            TerrainGeneration.BlockType block = terrain.getBlock(worldX, worldZ, worldY);
+                            TerrainGeneration.BlockType block = terrain.getBlock(chunks, worldX, worldZ, worldY);
                             if (block != null && 
                                 block != TerrainGeneration.BlockType.WATER &&
                                 block != TerrainGeneration.BlockType.LOG &&
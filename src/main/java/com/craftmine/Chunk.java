@@ -0,0 +1,375 @@
+package com.craftmine;
+
+import java.util.Arrays;
+
+/**
+ * A 16x16 column of blocks covering the full world height.
+ * Blocks are stored as bytes: 0 is air, otherwise the block type ordinal + 1.
+ *
+ * The column is split into 16x8x16 sections. A section made of a single block
+ * type (sky, or solid stone) has no backing array at all, and callers can ask
+ * {@link #isSectionUniform} to skip it in O(1). The top section only spans the
+ * layers left below the world height, and its array is no taller.
+ *
+ * Idle chunks can be compacted to a run-length encoding per column, which
+ * suits our stone/dirt/grass/air columns well. A compacted chunk is inflated
+ * again transparently by the next getBlock or setBlock.
+ */
+public class Chunk {
+    public static final int SIZE = TerrainGeneration.CHUNK_SIZE;
+    public static final int SECTION_HEIGHT = 8;
+
+    private static final TerrainGeneration.BlockType[] BLOCK_TYPES = TerrainGeneration.BlockType.values();
+    private static final int MAX_RUN = 255;  // Run lengths are stored in one unsigned byte
+
+    /**
+     * Blocks of one section. Uniform sections are shared instances without an array.
+     */
+    private static final class Section {
+        private static final Section[] UNIFORM = new Section[256];
+
+        static {
+            for (int id = 0; id < UNIFORM.length; id++) {
+                UNIFORM[id] = new Section((byte)id, 0, null);
+            }
+        }
+
+        final byte uniformId;
+        final int height;  // Layers in blocks; 0 when uniform
+        final byte[] blocks;  // [x][z][y] flattened, y fastest; null when uniform
+
+        private Section(byte uniformId, int height, byte[] blocks) {
+            this.uniformId = uniformId;
+            this.height = height;
+            this.blocks = blocks;
+        }
+
+        static Section uniform(byte id) {
+            return UNIFORM[id & 0xff];
+        }
+
+        static Section filled(byte id, int height) {
+            byte[] blocks = new byte[SIZE * SIZE * height];
+            Arrays.fill(blocks, id);
+            return new Section((byte)0, height, blocks);
+        }
+
+        byte get(int localX, int localZ, int y) {
+            return blocks == null ? uniformId : blocks[index(localX, localZ, y)];
+        }
+
+        int index(int localX, int localZ, int y) {
+            return (localX * SIZE + localZ) * height + y % SECTION_HEIGHT;
+        }
+    }
+
+    private final int chunkX;
+    private final int chunkZ;
+    private final int height;
+    private final int sectionCount;
+    private volatile Section[] sections;  // null while compacted
+    private volatile byte[] runs;  // (id, length) pairs column by column; null while inflated
+    private volatile boolean dirty;  // Changed since it was last written to disk
+    private volatile long lastAccess;  // System.nanoTime() of the last frame this chunk was used
+    private volatile boolean evicted;  // Dropped from the store; holders must look it up again
+    private volatile int version;  // Bumped by every block change so meshes know when to rebuild
+
+    public Chunk(int chunkX, int chunkZ, int height) {
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+        this.height = height;
+        this.sectionCount = (height + SECTION_HEIGHT - 1) / SECTION_HEIGHT;
+        this.sections = new Section[sectionCount];
+        Arrays.fill(sections, Section.uniform((byte)0));  // Starts out as all air
+        this.dirty = true;  // Never saved yet
+    }
+
+    private Chunk(int chunkX, int chunkZ, int height, byte[] runs) {
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+        this.height = height;
+        this.sectionCount = (height + SECTION_HEIGHT - 1) / SECTION_HEIGHT;
+        this.runs = runs;
+    }
+
+    /**
+     * Recreates a chunk from {@link #serialize()} output. It stays compacted until first used.
+     */
+    static Chunk deserialize(int chunkX, int chunkZ, int height, byte[] data) {
+        int total = 0;
+        for (int i = 1; i < data.length; i += 2) {
+            total += data[i] & 0xff;
+        }
+        if (total != SIZE * SIZE * height) {
+            throw new IllegalArgumentException("Chunk data has wrong size for " + chunkX + "," + chunkZ);
+        }
+        return new Chunk(chunkX, chunkZ, height, data);
+    }
+
+    public TerrainGeneration.BlockType getBlock(int localX, int localZ, int y) {
+        Section[] data = sections;
+        if (data == null) {
+            data = inflate();
+        }
+        int id = data[y / SECTION_HEIGHT].get(localX, localZ, y);
+        return id == 0 ? null : BLOCK_TYPES[id - 1];
+    }
+
+    /**
+     * @return true if the block changed, false if it already was of that type
+     */
+    public synchronized boolean setBlock(int localX, int localZ, int y, TerrainGeneration.BlockType type) {
+        // Locked so a concurrent compact() can't encode the sections while we write to them
+        Section[] data = sections;
+        if (data == null) {
+            data = inflate();
+        }
+        byte id = (byte)(type == null ? 0 : type.ordinal() + 1);
+        int sectionY = y / SECTION_HEIGHT;
+        Section section = data[sectionY];
+        if (section.blocks == null) {
+            if (section.uniformId == id) {
+                return false;
+            }
+            // First differing block - give the section its own array
+            section = Section.filled(section.uniformId, sectionHeight(sectionY, height));
+            data[sectionY] = section;
+        }
+        int index = section.index(localX, localZ, y);
+        if (section.blocks[index] == id) {
+            return false;
+        }
+        section.blocks[index] = id;
+        dirty = true;
+        version++;
+        return true;
+    }
+
+    /**
+     * Copies the raw ids of the columns [minX, maxX) x [minZ, maxZ) into out.
+     * The id at (x, z, y) lands at offset + (x - minX) * xStride + (z - minZ) * zStride + y.
+     * Holds the chunk lock, so the copy never contains half of a concurrent edit.
+     */
+    public synchronized void copyIds(int minX, int minZ, int maxX, int maxZ, byte[] out, int offset, int xStride, int zStride) {
+        Section[] data = sections;
+        if (data == null) {
+            data = inflate();
+        }
+        for (int localX = minX; localX < maxX; localX++) {
+            for (int localZ = minZ; localZ < maxZ; localZ++) {
+                int base = offset + (localX - minX) * xStride + (localZ - minZ) * zStride;
+                for (int y = 0; y < height; y++) {
+                    out[base + y] = data[y / SECTION_HEIGHT].get(localX, localZ, y);
+                }
+            }
+        }
+    }
+
+    // Layers in the section; the top one stops at the world height
+    private static int sectionHeight(int sectionY, int height) {
+        return Math.min(SECTION_HEIGHT, height - sectionY * SECTION_HEIGHT);
+    }
+
+    public int getSectionCount() {
+        return sectionCount;
+    }
+
+    /**
+     * True if every block in the section is the same type, in which case
+     * {@link #getUniformBlock} tells which one.
+     */
+    public boolean isSectionUniform(int sectionY) {
+        Section[] data = sections;
+        if (data == null) {
+            data = inflate();
+        }
+        return data[sectionY].blocks == null;
+    }
+
+    public TerrainGeneration.BlockType getUniformBlock(int sectionY) {
+        Section[] data = sections;
+        if (data == null) {
+            data = inflate();
+        }
+        int id = data[sectionY].uniformId;
+        return id == 0 ? null : BLOCK_TYPES[id - 1];
+    }
+
+    /**
+     * Drops the backing array of every section that ended up holding a single block type.
+     */
+    public synchronized void optimize() {
+        Section[] data = sections;
+        if (data == null) {
+            return;
+        }
+        for (int sectionY = 0; sectionY < data.length; sectionY++) {
+            byte[] blocks = data[sectionY].blocks;
+            if (blocks != null && isUniform(blocks)) {
+                data[sectionY] = Section.uniform(blocks[0]);
+            }
+        }
+    }
+
+    private static boolean isUniform(byte[] blocks) {
+        byte first = blocks[0];
+        for (int i = 1; i < blocks.length; i++) {
+            if (blocks[i] != first) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Switches to the run-length representation. Readers that already hold the
+     * old sections keep reading valid data.
+     */
+    public synchronized void compact() {
+        Section[] data = sections;
+        if (data == null) {
+            return;
+        }
+        runs = encode(data, height);
+        sections = null;
+    }
+
+    private synchronized Section[] inflate() {
+        Section[] data = sections;
+        if (data == null) {
+            data = decode(runs, height);
+            sections = data;
+            runs = null;
+        }
+        return data;
+    }
+
+    public boolean isCompacted() {
+        return sections == null;
+    }
+
+    /**
+     * Run-length encoded copy of the blocks, used for the swap files.
+     */
+    synchronized byte[] serialize() {
+        byte[] encoded = runs;
+        return encoded != null ? encoded : encode(sections, height);
+    }
+
+    private static byte[] encode(Section[] data, int height) {
+        byte[] out = new byte[SIZE * SIZE * height * 2];
+        int length = 0;
+        for (int localX = 0; localX < SIZE; localX++) {
+            for (int localZ = 0; localZ < SIZE; localZ++) {
+                int y = 0;
+                while (y < height) {
+                    byte id = data[y / SECTION_HEIGHT].get(localX, localZ, y);
+                    int run = 1;
+                    while (y + run < height && run < MAX_RUN &&
+                           data[(y + run) / SECTION_HEIGHT].get(localX, localZ, y + run) == id) {
+                        run++;
+                    }
+                    out[length++] = id;
+                    out[length++] = (byte)run;
+                    y += run;
+                }
+            }
+        }
+        return Arrays.copyOf(out, length);
+    }
+
+    private static Section[] decode(byte[] encoded, int height) {
+        int sectionCount = (height + SECTION_HEIGHT - 1) / SECTION_HEIGHT;
+        Section[] data = new Section[sectionCount];
+        for (int sectionY = 0; sectionY < sectionCount; sectionY++) {
+            data[sectionY] = Section.filled((byte)0, sectionHeight(sectionY, height));
+        }
+        int column = 0;
+        int y = 0;
+        for (int i = 0; i + 1 < encoded.length; i += 2) {
+            byte id = encoded[i];
+            int run = encoded[i + 1] & 0xff;
+            if (column >= SIZE * SIZE || y + run > height) {
+                throw new IllegalArgumentException("Run-length data overflows the chunk");
+            }
+            int localX = column / SIZE;
+            int localZ = column % SIZE;
+            for (int end = y + run; y < end; y++) {
+                Section section = data[y / SECTION_HEIGHT];
+                section.blocks[section.index(localX, localZ, y)] = id;
+            }
+            if (y == height) {
+                column++;
+                y = 0;
+            }
+        }
+        if (column != SIZE * SIZE) {
+            throw new IllegalArgumentException("Run-length data covers " + column + " columns, expected " + SIZE * SIZE);
+        }
+
+        for (int sectionY = 0; sectionY < sectionCount; sectionY++) {
+            byte[] blocks = data[sectionY].blocks;
+            if (isUniform(blocks)) {
+                data[sectionY] = Section.uniform(blocks[0]);
+            }
+        }
+        return data;
+    }
+
+    public int getChunkX() {
+        return chunkX;
+    }
+
+    public int getChunkZ() {
+        return chunkZ;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    void markSaved() {
+        dirty = false;
+    }
+
+    public boolean isEvicted() {
+        return evicted;
+    }
+
+    void markEvicted() {
+        evicted = true;
+    }
+
+    public long getLastAccess() {
+        return lastAccess;
+    }
+
+    void touch(long now) {
+        // Only write when the frame changed so worker threads don't fight over the field
+        if (lastAccess != now) {
+            lastAccess = now;
+        }
+    }
+
+    /**
+     * Heap used by the block data in its current representation.
+     */
+    public synchronized int getSizeInBytes() {
+        Section[] data = sections;
+        if (data == null) {
+            byte[] encoded = runs;
+            return encoded != null ? encoded.length : 0;
+        }
+        int size = 0;
+        for (Section section : data) {
+            if (section.blocks != null) {
+                size += section.blocks.length;
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,254 @@
+package com.craftmine;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Schedules per-chunk load work around the camera.
+ *
+ * Pending requests are ordered by distance to the camera, weighted so that
+ * chunks in front of the player win over chunks behind it. Priorities are
+ * recomputed every update, and requests whose chunk left the load radius
+ * before a worker picked them up are dropped. Only a bounded number of tasks
+ * is ever handed to the worker pool, so fast flight cannot pile up stale work.
+ *
+ * Urgent work, such as remeshing what the player just edited, skips the
+ * queue: it runs on a worker of its own, so it never waits behind chunk loads
+ * already in flight.
+ */
+public class ChunkLoadQueue {
+    /**
+     * Does the actual work for one chunk. Called on a worker thread.
+     */
+    public interface Loader {
+        void load(int chunkX, int chunkZ);
+    }
+
+    private static final class Task implements Runnable {
+        final int chunkX;
+        final int chunkZ;
+        float priority;
+        private final ChunkLoadQueue queue;
+        private final Loader loader;
+        private final boolean urgent;
+
+        Task(ChunkLoadQueue queue, int chunkX, int chunkZ, Loader loader, boolean urgent) {
+            this.queue = queue;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.loader = loader;
+            this.urgent = urgent;
+        }
+
+        @Override
+        public void run() {
+            try {
+                loader.load(chunkX, chunkZ);
+            } catch (RuntimeException e) {
+                System.err.println("Chunk load failed at " + chunkX + "," + chunkZ);
+                e.printStackTrace();
+            } finally {
+                queue.finish(this);
+            }
+        }
+    }
+
+    // Lower priority value runs first
+    private static final Comparator<Task> BY_PRIORITY = (a, b) -> Float.compare(a.priority, b.priority);
+
+    // Chunks behind the camera cost up to this many times their distance
+    private static final float BEHIND_PENALTY = 3.0f;
+
+    private final Loader loader;
+    private final ExecutorService workers;
+    private final ExecutorService urgentWorker;
+    private final int maxInFlight;
+    private final List<Task> pending = new ArrayList<>();
+    private final Map<Long, Task> queued = new HashMap<>();  // Pending and in-flight tasks by chunk
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger urgentInFlight = new AtomicInteger();
+    private final Object lock = new Object();
+
+    private int completedCount = 0;
+    private int cancelledCount = 0;
+
+    public ChunkLoadQueue(Loader loader, int workerCount) {
+        this.loader = loader;
+        this.maxInFlight = Math.max(1, workerCount);
+        this.workers = Executors.newFixedThreadPool(maxInFlight, runnable -> {
+            Thread thread = new Thread(runnable, "chunk-loader");
+            thread.setDaemon(true);  // Never keep the game alive after the window closes
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+        // Idle unless the player edits, and then it should win over the loaders
+        this.urgentWorker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chunk-loader-urgent");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static int defaultWorkerCount() {
+        // Leave one core for the render thread
+        return Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    /**
+     * Queues a chunk for loading unless it is already pending or running.
+     */
+    public void request(int chunkX, int chunkZ) {
+        synchronized (lock) {
+            long key = key(chunkX, chunkZ);
+            if (queued.containsKey(key)) {
+                return;
+            }
+            Task task = new Task(this, chunkX, chunkZ, loader, false);
+            queued.put(key, task);
+            pending.add(task);
+        }
+    }
+
+    /**
+     * Runs urgentLoader for a chunk on the urgent worker, ahead of all pending
+     * and in-flight requests; urgent jobs run one at a time in request order.
+     * Urgent work is neither merged with other requests nor cancelled, so the
+     * loader must find out for itself what is left to do.
+     */
+    public void requestUrgent(int chunkX, int chunkZ, Loader urgentLoader) {
+        urgentInFlight.incrementAndGet();
+        urgentWorker.execute(new Task(this, chunkX, chunkZ, urgentLoader, true));
+    }
+
+    public boolean isQueued(int chunkX, int chunkZ) {
+        synchronized (lock) {
+            return queued.containsKey(key(chunkX, chunkZ));
+        }
+    }
+
+    /**
+     * Re-prioritises pending work for the current camera, cancels requests that
+     * are now outside the radius and hands the best tasks to idle workers.
+     * Call once per frame from the render thread.
+     */
+    public void update(Camera camera, float loadRadius) {
+        float camX = camera.getX();
+        float camZ = camera.getZ();
+
+        // Forward vector on the ground plane, matching the view set up in Renderer.render
+        float yawRad = (float)Math.toRadians(camera.getYaw());
+        float forwardX = (float)Math.sin(yawRad);
+        float forwardZ = -(float)Math.cos(yawRad);
+
+        float radiusSq = loadRadius * loadRadius;
+
+        synchronized (lock) {
+            Iterator<Task> it = pending.iterator();
+            while (it.hasNext()) {
+                Task task = it.next();
+                if (distanceSqToChunk(task.chunkX, task.chunkZ, camX, camZ) > radiusSq) {
+                    // Left the radius before it started - drop it
+                    it.remove();
+                    queued.remove(key(task.chunkX, task.chunkZ));
+                    cancelledCount++;
+                    continue;
+                }
+                task.priority = priority(task.chunkX, task.chunkZ, camX, camZ, forwardX, forwardZ);
+            }
+
+            pending.sort(BY_PRIORITY);
+
+            // Only dispatch what the workers can start right away so nothing goes stale in the executor
+            int dispatched = 0;
+            while (dispatched < pending.size() && inFlight.get() < maxInFlight) {
+                Task task = pending.get(dispatched++);
+                inFlight.incrementAndGet();
+                workers.execute(task);
+            }
+            if (dispatched > 0) {
+                pending.subList(0, dispatched).clear();
+            }
+        }
+    }
+
+    private void finish(Task task) {
+        if (task.urgent) {
+            urgentInFlight.decrementAndGet();
+            return;
+        }
+        synchronized (lock) {
+            queued.remove(key(task.chunkX, task.chunkZ));
+            completedCount++;
+        }
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Squared distance from the camera to the nearest point of the chunk's footprint.
+     */
+    public static float distanceSqToChunk(int chunkX, int chunkZ, float camX, float camZ) {
+        float minX = chunkX * TerrainGeneration.CHUNK_SIZE;
+        float minZ = chunkZ * TerrainGeneration.CHUNK_SIZE;
+        float dx = Math.max(0, Math.max(minX - camX, camX - (minX + TerrainGeneration.CHUNK_SIZE)));
+        float dz = Math.max(0, Math.max(minZ - camZ, camZ - (minZ + TerrainGeneration.CHUNK_SIZE)));
+        return dx * dx + dz * dz;
+    }
+
+    private static float priority(int chunkX, int chunkZ, float camX, float camZ, float forwardX, float forwardZ) {
+        float half = TerrainGeneration.CHUNK_SIZE / 2.0f;
+        float dx = chunkX * TerrainGeneration.CHUNK_SIZE + half - camX;
+        float dz = chunkZ * TerrainGeneration.CHUNK_SIZE + half - camZ;
+        float distance = (float)Math.sqrt(dx * dx + dz * dz);
+        if (distance < TerrainGeneration.CHUNK_SIZE) {
+            return distance;  // The chunk we stand in and its neighbours always go first
+        }
+        // 1 straight ahead, 0 to the side, -1 behind
+        float facing = (dx * forwardX + dz * forwardZ) / distance;
+        return distance * (1.0f + (BEHIND_PENALTY - 1.0f) * (1.0f - facing) / 2.0f);
+    }
+
+    private static long key(int chunkX, int chunkZ) {
+        return ((long)chunkX << 32) | (chunkZ & 0xffffffffL);
+    }
+
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Tasks handed to the workers and not finished yet, urgent ones included.
+     */
+    public int getInFlightCount() {
+        return inFlight.get() + urgentInFlight.get();
+    }
+
+    public int getCompletedCount() {
+        synchronized (lock) {
+            return completedCount;
+        }
+    }
+
+    public int getCancelledCount() {
+        synchronized (lock) {
+            return cancelledCount;
+        }
+    }
+
+    public void shutdown() {
+        synchronized (lock) {
+            pending.clear();
+            queued.clear();
+        }
+        workers.shutdownNow();
+        urgentWorker.shutdownNow();
+    }
+}
@@ -0,0 +1,180 @@
+package com.craftmine;
+
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Open-addressing hash map from packed chunk coordinates to chunks.
+ *
+ * Keys are plain longs (see {@link #key}), so lookups never box. Writers take
+ * a lock; readers probe optimistically and only fall back to the read lock if
+ * a write raced with them, which keeps the hot getBlock path lock-free.
+ */
+public class ChunkMap {
+    private static final int MIN_CAPACITY = 16;
+
+    /**
+     * Keys and values swapped together on resize so readers always see a matching pair.
+     */
+    private static final class Table {
+        final long[] keys;
+        final Chunk[] values;  // null marks an empty slot
+        final int shift;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new Chunk[capacity];
+            shift = 64 - Integer.numberOfTrailingZeros(capacity);
+        }
+
+        int slot(long key) {
+            // Fibonacci hashing spreads neighbouring chunk coordinates across the table
+            return (int)((key * 0x9E3779B97F4A7C15L) >>> shift);
+        }
+    }
+
+    private final StampedLock lock = new StampedLock();
+    private volatile Table table = new Table(MIN_CAPACITY);
+    private int size;  // Guarded by the write lock
+
+    public static long key(int chunkX, int chunkZ) {
+        return ((long)chunkX << 32) | (chunkZ & 0xffffffffL);
+    }
+
+    public Chunk get(int chunkX, int chunkZ) {
+        long key = key(chunkX, chunkZ);
+        long stamp = lock.tryOptimisticRead();
+        Chunk chunk = find(table, key);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                chunk = find(table, key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return chunk;
+    }
+
+    private static Chunk find(Table table, long key) {
+        int mask = table.keys.length - 1;
+        int slot = table.slot(key);
+        // Bounded so a torn optimistic read can never spin forever
+        for (int probes = 0; probes <= mask; probes++) {
+            Chunk chunk = table.values[slot];
+            if (chunk == null) {
+                return null;
+            }
+            if (table.keys[slot] == key) {
+                return chunk;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    public void put(int chunkX, int chunkZ, Chunk chunk) {
+        long key = key(chunkX, chunkZ);
+        long stamp = lock.writeLock();
+        try {
+            Table current = table;
+            if ((size + 1) * 2 > current.keys.length) {
+                current = resize(current, current.keys.length * 2);
+            }
+            int mask = current.keys.length - 1;
+            int slot = current.slot(key);
+            while (current.values[slot] != null && current.keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (current.values[slot] == null) {
+                size++;
+            }
+            current.keys[slot] = key;
+            current.values[slot] = chunk;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public Chunk remove(int chunkX, int chunkZ) {
+        long key = key(chunkX, chunkZ);
+        long stamp = lock.writeLock();
+        try {
+            Table current = table;
+            int mask = current.keys.length - 1;
+            int slot = current.slot(key);
+            while (current.values[slot] != null) {
+                if (current.keys[slot] == key) {
+                    Chunk removed = current.values[slot];
+                    deleteSlot(current, slot);
+                    size--;
+                    return removed;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private static void deleteSlot(Table table, int slot) {
+        // Backward-shift deletion keeps probe chains intact without tombstones
+        int mask = table.keys.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (table.values[next] != null) {
+            int home = table.slot(table.keys[next]);
+            // Move the entry into the hole unless its home lies cyclically in (hole, next]
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                table.keys[hole] = table.keys[next];
+                table.values[hole] = table.values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        table.values[hole] = null;
+    }
+
+    private Table resize(Table old, int capacity) {
+        Table resized = new Table(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < old.keys.length; i++) {
+            if (old.values[i] != null) {
+                int slot = resized.slot(old.keys[i]);
+                while (resized.values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                resized.keys[slot] = old.keys[i];
+                resized.values[slot] = old.values[i];
+            }
+        }
+        table = resized;
+        return resized;
+    }
+
+    /**
+     * Adds every chunk in the map to out.
+     */
+    public void values(List<Chunk> out) {
+        long stamp = lock.readLock();
+        try {
+            for (Chunk chunk : table.values) {
+                if (chunk != null) {
+                    out.add(chunk);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.craftmine;
+
+import java.util.Arrays;
+
+/**
+ * Turns the blocks of a chunk section into a {@link MeshData}.
+ *
+ * The naive mesher emits one quad per visible block face. The greedy mesher
+ * merges coplanar visible faces with the same texture into larger rectangles;
+ * their texture coordinates run past 1 so a repeat-wrapped texture tiles once
+ * per block, exactly like the naive output.
+ *
+ * Opaque faces get ambient occlusion: each corner is darkened by the solid
+ * blocks among the three that touch it in front of the face. The greedy mesher
+ * only merges faces whose corners match, and neighbouring faces agree on the
+ * corners they share, so merged quads shade exactly like the faces they replace.
+ *
+ * Needs no OpenGL context, so it runs on the chunk loader threads. An instance
+ * reuses its scratch buffers between sections and must not be shared between threads.
+ */
+public class ChunkMesher {
+    // Texture slots, in the order Renderer loads the block textures
+    public static final int GRASS_TOP = 0;
+    public static final int GRASS_SIDE = 1;
+    public static final int DIRT = 2;
+    public static final int STONE = 3;
+    public static final int WATER = 4;
+    public static final int SAND = 5;
+    public static final int LOG_SIDE = 6;
+    public static final int LOG_TOP = 7;
+    public static final int LEAVES = 8;
+    public static final int COAL_ORE = 9;
+    public static final int IRON_ORE = 10;
+    public static final int DIAMOND_ORE = 11;
+    public static final int TEXTURE_COUNT = 12;
+
+    // Faces of a block
+    public static final int TOP = 0;
+    public static final int BOTTOM = 1;
+    public static final int NORTH = 2;  // +z
+    public static final int SOUTH = 3;  // -z
+    public static final int EAST = 4;   // +x
+    public static final int WEST = 5;   // -x
+    public static final int FACE_COUNT = 6;
+
+    // Direction to the neighbour each face looks at
+    private static final int[] FACE_DX = { 0, 0, 0, 0, 1, -1 };
+    private static final int[] FACE_DY = { 1, -1, 0, 0, 0, 0 };
+    private static final int[] FACE_DZ = { 0, 0, 1, -1, 0, 0 };
+
+    // Axes (0 = x, 1 = y, 2 = z) of each face's normal and of its texture's u and v,
+    // which are also the two axes the greedy mask spans
+    private static final int[] NORMAL_AXIS = { 1, 1, 2, 2, 0, 0 };
+    private static final int[] U_AXIS = { 0, 0, 0, 0, 2, 2 };
+    private static final int[] V_AXIS = { 2, 2, 1, 1, 1, 1 };
+
+    // Sign of each face corner along the face's u and v axes, indexed face * 4 + corner
+    private static final int[] CORNER_U = new int[FACE_COUNT * MeshData.VERTICES_PER_FACE];
+    private static final int[] CORNER_V = new int[FACE_COUNT * MeshData.VERTICES_PER_FACE];
+
+    static {
+        for (int face = 0; face < FACE_COUNT; face++) {
+            for (int corner = 0; corner < MeshData.VERTICES_PER_FACE; corner++) {
+                CORNER_U[face * MeshData.VERTICES_PER_FACE + corner] = MeshBuilder.cornerSign(face, corner, U_AXIS[face]);
+                CORNER_V[face * MeshData.VERTICES_PER_FACE + corner] = MeshBuilder.cornerSign(face, corner, V_AXIS[face]);
+            }
+        }
+    }
+
+    private static final float H = 0.5f;  // Blocks are unit cubes centred on their coordinates
+    private static final int GROUP_BITS = 5;  // Group + 1 in the low bits of a mask key, corner light above
+
+    private final BlockAccess blocks;
+    private final boolean greedy;
+    private final boolean ambientOcclusion;
+    private final MeshBuilder builder = new MeshBuilder();
+    private final int[] mask = new int[TerrainGeneration.CHUNK_SIZE * TerrainGeneration.CHUNK_SIZE];  // Key per face, 0 for none
+    private final int[] min = new int[3];
+    private final int[] max = new int[3];
+    private final int[] origin = new int[3];
+    private final int[] dims = new int[3];
+    private final int[] pos = new int[3];
+    private final int[] around = new int[3];
+
+    public ChunkMesher(BlockAccess blocks) {
+        this(blocks, false);
+    }
+
+    public ChunkMesher(BlockAccess blocks, boolean greedy) {
+        this(blocks, greedy, true);
+    }
+
+    public ChunkMesher(BlockAccess blocks, boolean greedy, boolean ambientOcclusion) {
+        this.blocks = blocks;
+        this.greedy = greedy;
+        this.ambientOcclusion = ambientOcclusion;
+    }
+
+    /**
+     * Texture slot for one face of a block type.
+     */
+    public static int textureFor(TerrainGeneration.BlockType type, int face) {
+        switch (type) {
+            case GRASS:
+                return face == TOP ? GRASS_TOP : face == BOTTOM ? DIRT : GRASS_SIDE;
+            case DIRT:
+                return DIRT;
+            case STONE:
+                return STONE;
+            case SAND:
+                return SAND;
+            case LOG:
+                return face == TOP || face == BOTTOM ? LOG_TOP : LOG_SIDE;
+            case LEAVES:
+                return LEAVES;
+            case WATER:
+                return WATER;
+            case COAL_ORE:
+                return COAL_ORE;
+            case IRON_ORE:
+                return IRON_ORE;
+            case DIAMOND_ORE:
+                return DIAMOND_ORE;
+            default:
+                throw new IllegalArgumentException("No texture for " + type);
+        }
+    }
+
+    /**
+     * Builds the mesh of the 16x8x16 section at (chunkX, sectionY, chunkZ).
+     */
+    public MeshData buildSection(int chunkX, int chunkZ, int sectionY) {
+        builder.clear();
+        if (greedy) {
+            buildGreedy(chunkX, chunkZ, sectionY);
+        } else {
+            buildNaive(chunkX, chunkZ, sectionY);
+        }
+        return builder.build();
+    }
+
+    public static BufferPool getVertexBufferPool() {
+        return MeshBuilder.getVertexBufferPool();
+    }
+
+    public boolean isGreedy() {
+        return greedy;
+    }
+
+    private void buildNaive(int chunkX, int chunkZ, int sectionY) {
+        int size = TerrainGeneration.CHUNK_SIZE;
+        int minY = sectionY * Chunk.SECTION_HEIGHT;
+        int maxY = Math.min(minY + Chunk.SECTION_HEIGHT, blocks.getMaxHeight());
+
+        for (int lx = 0; lx < size; lx++) {
+            for (int lz = 0; lz < size; lz++) {
+                int x = chunkX * size + lx;
+                int z = chunkZ * size + lz;
+                for (int y = minY; y < maxY; y++) {
+                    TerrainGeneration.BlockType block = blocks.getBlock(x, z, y);
+                    if (block == null) {
+                        continue;
+                    }
+                    int pass = block == TerrainGeneration.BlockType.WATER ? MeshData.TRANSPARENT : MeshData.OPAQUE;
+                    for (int face = 0; face < FACE_COUNT; face++) {
+                        // Only faces that look into air or water can be seen; this reads across chunk borders too
+                        if (isFaceVisible(block, blocks.getBlock(x + FACE_DX[face], z + FACE_DZ[face], y + FACE_DY[face]))) {
+                            min[0] = max[0] = x;
+                            min[1] = max[1] = y;
+                            min[2] = max[2] = z;
+                            addQuad(pass * TEXTURE_COUNT + textureFor(block, face), face, light(pass, face, x, y, z));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void buildGreedy(int chunkX, int chunkZ, int sectionY) {
+        int minY = sectionY * Chunk.SECTION_HEIGHT;
+        origin[0] = chunkX * TerrainGeneration.CHUNK_SIZE;
+        origin[1] = minY;
+        origin[2] = chunkZ * TerrainGeneration.CHUNK_SIZE;
+        dims[0] = TerrainGeneration.CHUNK_SIZE;
+        dims[1] = Math.min(Chunk.SECTION_HEIGHT, blocks.getMaxHeight() - minY);
+        dims[2] = TerrainGeneration.CHUNK_SIZE;
+
+        for (int face = 0; face < FACE_COUNT; face++) {
+            int n = NORMAL_AXIS[face];
+            int a = U_AXIS[face];
+            int b = V_AXIS[face];
+            int width = dims[a];
+            int height = dims[b];
+
+            for (int slice = 0; slice < dims[n]; slice++) {
+                // Mark which faces of this slice are visible and what they look like
+                pos[n] = origin[n] + slice;
+                for (int j = 0; j < height; j++) {
+                    pos[b] = origin[b] + j;
+                    for (int i = 0; i < width; i++) {
+                        pos[a] = origin[a] + i;
+                        TerrainGeneration.BlockType block = blocks.getBlock(pos[0], pos[2], pos[1]);
+                        int key = 0;
+                        if (block != null &&
+                            isFaceVisible(block, blocks.getBlock(pos[0] + FACE_DX[face], pos[2] + FACE_DZ[face], pos[1] + FACE_DY[face]))) {
+                            int pass = block == TerrainGeneration.BlockType.WATER ? MeshData.TRANSPARENT : MeshData.OPAQUE;
+                            key = pass * TEXTURE_COUNT + textureFor(block, face) + 1
+                                | light(pass, face, pos[0], pos[1], pos[2]) << GROUP_BITS;
+                        }
+                        mask[j * width + i] = key;
+                    }
+                }
+
+                // Grow each unclaimed face into the widest, then tallest, rectangle of equal faces
+                for (int j = 0; j < height; j++) {
+                    for (int i = 0; i < width; ) {
+                        int key = mask[j * width + i];
+                        if (key == 0) {
+                            i++;
+                            continue;
+                        }
+                        int w = 1;
+                        while (i + w < width && mask[j * width + i + w] == key) {
+                            w++;
+                        }
+                        int h = 1;
+                        grow:
+                        while (j + h < height) {
+                            for (int k = 0; k < w; k++) {
+                                if (mask[(j + h) * width + i + k] != key) {
+                                    break grow;
+                                }
+                            }
+                            h++;
+                        }
+                        for (int dj = 0; dj < h; dj++) {
+                            Arrays.fill(mask, (j + dj) * width + i, (j + dj) * width + i + w, 0);
+                        }
+
+                        min[n] = max[n] = origin[n] + slice;
+                        min[a] = origin[a] + i;
+                        max[a] = min[a] + w - 1;
+                        min[b] = origin[b] + j;
+                        max[b] = min[b] + h - 1;
+                        addQuad((key & (1 << GROUP_BITS) - 1) - 1, face, key >>> GROUP_BITS);
+                        i += w;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Solid faces show against air and water; water faces only against air, so
+     * a body of water is drawn as its outer surface alone.
+     */
+    private static boolean isFaceVisible(TerrainGeneration.BlockType block, TerrainGeneration.BlockType neighbour) {
+        if (block == TerrainGeneration.BlockType.WATER) {
+            return neighbour == null;
+        }
+        return neighbour == null || neighbour == TerrainGeneration.BlockType.WATER;
+    }
+
+    /**
+     * Blocks that shade the corners next to them; water lets the light through.
+     */
+    private static boolean occludes(TerrainGeneration.BlockType block) {
+        return block != null && block != TerrainGeneration.BlockType.WATER;
+    }
+
+    /**
+     * Corner light of a visible face of the block at (x, y, z), packed for
+     * {@link MeshBuilder#addQuad}. Water is always fully lit.
+     *
+     * A corner loses one step of light for each solid block of the three that
+     * touch it in the layer the face looks into: the two beside the face and the
+     * one diagonally across. With both side blocks solid it is fully dark, as the
+     * diagonal block is then hidden in the crease anyway.
+     */
+    private int light(int pass, int face, int x, int y, int z) {
+        if (!ambientOcclusion || pass != MeshData.OPAQUE) {
+            return MeshBuilder.ALL_CORNERS_LIT;
+        }
+        int a = U_AXIS[face];
+        int b = V_AXIS[face];
+        around[0] = x + FACE_DX[face];
+        around[1] = y + FACE_DY[face];
+        around[2] = z + FACE_DZ[face];
+        int centreA = around[a];
+        int centreB = around[b];
+
+        // The eight blocks around the one in front of the face, bit (da + 1) * 3 + db + 1 if solid
+        int solid = 0;
+        for (int da = -1; da <= 1; da++) {
+            for (int db = -1; db <= 1; db++) {
+                if (da == 0 && db == 0) {
+                    continue;  // In front of a visible face, so never solid
+                }
+                around[a] = centreA + da;
+                around[b] = centreB + db;
+                if (occludes(blocks.getBlock(around[0], around[2], around[1]))) {
+                    solid |= 1 << (da + 1) * 3 + db + 1;
+                }
+            }
+        }
+
+        int light = 0;
+        for (int corner = 0; corner < MeshData.VERTICES_PER_FACE; corner++) {
+            int du = CORNER_U[face * MeshData.VERTICES_PER_FACE + corner];
+            int dv = CORNER_V[face * MeshData.VERTICES_PER_FACE + corner];
+            int side1 = solid >> (du + 1) * 3 + 1 & 1;
+            int side2 = solid >> 3 + dv + 1 & 1;
+            int diagonal = solid >> (du + 1) * 3 + dv + 1 & 1;
+            int cornerLight = side1 + side2 == 2 ? 0 : PackedVertices.FULL_LIGHT - side1 - side2 - diagonal;
+            light |= cornerLight << 2 * corner;
+        }
+        return light;
+    }
+
+    /**
+     * Adds one face covering the blocks from min to max (inclusive) to a group.
+     */
+    private void addQuad(int group, int face, int light) {
+        // Texture coordinates scale with the quad so the texture repeats once per block
+        float repeatU = max[U_AXIS[face]] - min[U_AXIS[face]] + 1;
+        float repeatV = max[V_AXIS[face]] - min[V_AXIS[face]] + 1;
+        builder.addQuad(group, face, min[0] - H, min[1] - H, min[2] - H, max[0] + H, max[1] + H, max[2] + H, repeatU, repeatV, light);
+    }
+}
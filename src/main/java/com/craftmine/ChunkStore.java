@@ -0,0 +1,297 @@
+package com.craftmine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Owns the resident chunks of the world and keeps them within a memory budget.
+ *
+ * When the budget is exceeded, chunks outside the view distance are evicted in
+ * least-recently-accessed order. Dirty chunks are written to the swap directory
+ * before they are dropped, and evicted chunks are read back transparently the
+ * next time something asks for them.
+ *
+ * Before that, chunks outside the view distance that were not touched for a
+ * while are compacted in memory (see {@link Chunk#compact()}), which keeps a
+ * much larger working set resident without going to disk.
+ *
+ * Resident chunks are found through a {@link ChunkMap}. Callers that make long
+ * runs of lookups in the same chunk, like column scans, can hold a {@link Cache}
+ * that remembers the last chunk it returned and skips the hash.
+ *
+ * The budget is configured with -Dcraftmine.chunkBudgetMB (default 32) and/or
+ * -Dcraftmine.chunkBudgetChunks (default 0, meaning no chunk count limit).
+ * The idle time before compaction is -Dcraftmine.compactAfterSeconds (default 10).
+ */
+public class ChunkStore {
+    /**
+     * Notified on the thread that runs {@link #evict} after a chunk has left memory.
+     */
+    public interface Listener {
+        void chunkUnloaded(int chunkX, int chunkZ);
+    }
+
+    private static final int DEFAULT_BUDGET_MB = 32;
+    private static final int DEFAULT_COMPACT_AFTER_SECONDS = 10;
+    private static final long COMPACT_SCAN_INTERVAL = 1_000_000_000L;  // Look for idle chunks once a second
+
+    private final int chunksPerSide;
+    private final int height;
+    private final ChunkMap chunks = new ChunkMap();  // Resident chunks only
+    private final List<Chunk> scratch = new ArrayList<>();  // Reused by the per-frame scans
+    private final boolean[] onDisk;  // Guarded by this
+    private final Path swapDirectory;
+    private final long budgetBytes;
+    private final int budgetChunks;
+    private final long compactAfterNanos;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicInteger residentCount = new AtomicInteger();
+    private volatile long now = System.nanoTime();
+    private long lastCompactScan = now;
+
+    private int evictedCount = 0;
+    private int reloadedCount = 0;
+
+    public ChunkStore(int chunksPerSide, int height, int seed) {
+        this.chunksPerSide = chunksPerSide;
+        this.height = height;
+        this.onDisk = new boolean[chunksPerSide * chunksPerSide];
+        this.budgetBytes = Long.getLong("craftmine.chunkBudgetMB", DEFAULT_BUDGET_MB) * 1024L * 1024L;
+        this.budgetChunks = Integer.getInteger("craftmine.chunkBudgetChunks", 0);
+        this.compactAfterNanos = Integer.getInteger("craftmine.compactAfterSeconds", DEFAULT_COMPACT_AFTER_SECONDS) * 1_000_000_000L;
+        this.swapDirectory = Paths.get(System.getProperty("craftmine.swapDir",
+            Paths.get(System.getProperty("java.io.tmpdir"), "craftmine", "world-" + seed).toString()));
+        clearSwapDirectory();
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Returns the chunk at the given chunk coordinates, reading it back from
+     * disk if it was evicted, or null outside the world.
+     */
+    public Chunk getChunk(int chunkX, int chunkZ) {
+        if (chunkX < 0 || chunkX >= chunksPerSide || chunkZ < 0 || chunkZ >= chunksPerSide) {
+            return null;
+        }
+        Chunk chunk = chunks.get(chunkX, chunkZ);
+        if (chunk == null) {
+            chunk = loadOrCreate(chunkX, chunkZ, chunkX * chunksPerSide + chunkZ);
+        }
+        chunk.touch(now);
+        return chunk;
+    }
+
+    public Cache newCache() {
+        return new Cache();
+    }
+
+    /**
+     * Remembers the last chunk it returned. Only pays off for runs of lookups
+     * that stay in one chunk; a plain {@link #getChunk} probe is nearly as
+     * cheap. Not thread-safe; each caller keeps its own.
+     */
+    public final class Cache {
+        private Chunk last;
+
+        private Cache() {
+        }
+
+        /**
+         * Same as {@link ChunkStore#getChunk}.
+         */
+        public Chunk getChunk(int chunkX, int chunkZ) {
+            Chunk chunk = last;
+            if (chunk == null || chunk.getChunkX() != chunkX || chunk.getChunkZ() != chunkZ || chunk.isEvicted()) {
+                chunk = ChunkStore.this.getChunk(chunkX, chunkZ);
+                last = chunk;
+                return chunk;
+            }
+            chunk.touch(now);
+            return chunk;
+        }
+    }
+
+    private synchronized Chunk loadOrCreate(int chunkX, int chunkZ, int index) {
+        // Another thread may have brought it in while we waited for the lock
+        Chunk chunk = chunks.get(chunkX, chunkZ);
+        if (chunk != null) {
+            return chunk;
+        }
+        if (onDisk[index]) {
+            try {
+                chunk = Chunk.deserialize(chunkX, chunkZ, height, Files.readAllBytes(chunkFile(chunkX, chunkZ)));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read chunk " + chunkX + "," + chunkZ, e);
+            }
+            chunk.markSaved();
+            reloadedCount++;
+        } else {
+            chunk = new Chunk(chunkX, chunkZ, height);
+        }
+        chunks.put(chunkX, chunkZ, chunk);
+        residentCount.incrementAndGet();
+        return chunk;
+    }
+
+    /**
+     * Compacts idle chunks and evicts least-recently-used chunks outside
+     * keepRadius blocks of the camera until the store is back within budget.
+     * Call once per frame.
+     */
+    public void evict(float camX, float camZ, float keepRadius) {
+        now = System.nanoTime();
+        float keepRadiusSq = keepRadius * keepRadius;
+
+        if (now - lastCompactScan >= COMPACT_SCAN_INTERVAL) {
+            lastCompactScan = now;
+            compactIdleChunks(camX, camZ, keepRadiusSq);
+        }
+
+        scratch.clear();
+        chunks.values(scratch);
+        long residentBytes = sumSizes(scratch);
+        if (!isOverBudget(residentBytes)) {
+            return;
+        }
+
+        List<Chunk> candidates = new ArrayList<>();
+        for (Chunk chunk : scratch) {
+            if (ChunkLoadQueue.distanceSqToChunk(chunk.getChunkX(), chunk.getChunkZ(), camX, camZ) > keepRadiusSq) {
+                candidates.add(chunk);
+            }
+        }
+        candidates.sort(Comparator.comparingLong(Chunk::getLastAccess));
+
+        // Counted in getEvictedCount for the overlay rather than logged, as walking under a tight budget evicts every frame
+        for (Chunk chunk : candidates) {
+            if (!isOverBudget(residentBytes)) {
+                break;
+            }
+            int size = chunk.getSizeInBytes();
+            if (unload(chunk)) {
+                residentBytes -= size;
+            }
+        }
+    }
+
+    /**
+     * Drops the arrays of all sections that hold a single block type.
+     */
+    public void optimizeAll() {
+        List<Chunk> resident = new ArrayList<>();
+        chunks.values(resident);
+        for (Chunk chunk : resident) {
+            chunk.optimize();
+        }
+    }
+
+    private void compactIdleChunks(float camX, float camZ, float keepRadiusSq) {
+        scratch.clear();
+        chunks.values(scratch);
+        for (Chunk chunk : scratch) {
+            if (!chunk.isCompacted() && now - chunk.getLastAccess() >= compactAfterNanos &&
+                ChunkLoadQueue.distanceSqToChunk(chunk.getChunkX(), chunk.getChunkZ(), camX, camZ) > keepRadiusSq) {
+                chunk.compact();
+            }
+        }
+    }
+
+    private boolean unload(Chunk chunk) {
+        int index = chunk.getChunkX() * chunksPerSide + chunk.getChunkZ();
+        synchronized (this) {
+            // Dirty chunks go to disk first so nothing is lost
+            if (chunk.isDirty() || !onDisk[index]) {
+                try {
+                    Files.write(chunkFile(chunk.getChunkX(), chunk.getChunkZ()), chunk.serialize());
+                } catch (IOException e) {
+                    System.err.println("Failed to save chunk " + chunk.getChunkX() + "," + chunk.getChunkZ() + ", keeping it resident");
+                    e.printStackTrace();
+                    return false;
+                }
+                chunk.markSaved();
+                onDisk[index] = true;
+            }
+            chunks.remove(chunk.getChunkX(), chunk.getChunkZ());
+            chunk.markEvicted();  // Invalidates any Cache holding it
+            residentCount.decrementAndGet();
+            evictedCount++;
+        }
+        for (Listener listener : listeners) {
+            listener.chunkUnloaded(chunk.getChunkX(), chunk.getChunkZ());
+        }
+        return true;
+    }
+
+    private boolean isOverBudget(long residentBytes) {
+        return residentBytes > budgetBytes ||
+            (budgetChunks > 0 && getResidentChunkCount() > budgetChunks);
+    }
+
+    private Path chunkFile(int chunkX, int chunkZ) {
+        return swapDirectory.resolve("c." + chunkX + "." + chunkZ + ".bin");
+    }
+
+    private void clearSwapDirectory() {
+        // The swap area only holds chunks of this session, so leftovers from an old run are stale
+        try {
+            Files.createDirectories(swapDirectory);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(swapDirectory, "c.*.bin")) {
+                for (Path file : files) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to prepare chunk swap directory " + swapDirectory, e);
+        }
+    }
+
+    public int getResidentChunkCount() {
+        return residentCount.get();
+    }
+
+    public long getResidentBytes() {
+        List<Chunk> resident = new ArrayList<>();
+        chunks.values(resident);
+        return sumSizes(resident);
+    }
+
+    private static long sumSizes(List<Chunk> resident) {
+        long total = 0;
+        for (Chunk chunk : resident) {
+            total += chunk.getSizeInBytes();
+        }
+        return total;
+    }
+
+    public int getCompactedChunkCount() {
+        List<Chunk> resident = new ArrayList<>();
+        chunks.values(resident);
+        int count = 0;
+        for (Chunk chunk : resident) {
+            if (chunk.isCompacted()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public synchronized int getEvictedCount() {
+        return evictedCount;
+    }
+
+    public synchronized int getReloadedCount() {
+        return reloadedCount;
+    }
+}
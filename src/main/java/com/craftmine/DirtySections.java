@@ -0,0 +1,56 @@
+package com.craftmine;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Collects the sections changed by block edits until the renderer picks them
+ * up. Any number of edits to one section in between count once, so it is
+ * rebuilt a single time however many of its blocks changed.
+ *
+ * Thread-safe.
+ */
+public class DirtySections implements TerrainGeneration.SectionListener {
+    private final Set<Long> dirty = new LinkedHashSet<>();  // In the order first changed
+
+    @Override
+    public synchronized void sectionChanged(int chunkX, int chunkZ, int sectionY) {
+        dirty.add(key(chunkX, chunkZ, sectionY));
+    }
+
+    /**
+     * Moves up to out.length dirty sections into out, oldest first.
+     *
+     * @return the number of sections moved
+     */
+    public synchronized int drain(long[] out) {
+        int count = 0;
+        Iterator<Long> keys = dirty.iterator();
+        while (count < out.length && keys.hasNext()) {
+            out[count++] = keys.next();
+            keys.remove();
+        }
+        return count;
+    }
+
+    public synchronized int size() {
+        return dirty.size();
+    }
+
+    public static long key(int chunkX, int chunkZ, int sectionY) {
+        return (long)chunkX << 40 | (long)chunkZ << 20 | sectionY;
+    }
+
+    public static int getChunkX(long key) {
+        return (int)(key >>> 40);
+    }
+
+    public static int getChunkZ(long key) {
+        return (int)(key >>> 20) & 0xfffff;
+    }
+
+    public static int getSectionY(long key) {
+        return (int)key & 0xfffff;
+    }
+}
@@ -0,0 +1,46 @@
+package com.craftmine;
+
+import java.util.Arrays;
+
+/**
+ * Orders the faces of a translucent mesh back to front for a camera position,
+ * so blending composites them correctly. Faces are ranked by the distance from
+ * the camera to their centre.
+ *
+ * Needs no OpenGL context. Reuses its scratch keys; not thread-safe.
+ */
+public class FaceSorter {
+    private static final int FLOATS_PER_FACE = MeshData.VERTICES_PER_FACE * MeshData.FLOATS_PER_VERTEX;
+
+    private long[] keys = new long[64];
+
+    /**
+     * Copies the faces of vertices (MeshData layout) into out, farthest from the camera first.
+     */
+    public void sort(float[] vertices, float[] out, float camX, float camY, float camZ) {
+        int faces = vertices.length / FLOATS_PER_FACE;
+        if (keys.length < faces) {
+            keys = new long[Math.max(faces, keys.length * 2)];
+        }
+        for (int face = 0; face < faces; face++) {
+            float dx = -camX;
+            float dy = -camY;
+            float dz = -camZ;
+            int base = face * FLOATS_PER_FACE;
+            for (int corner = 0; corner < MeshData.VERTICES_PER_FACE; corner++) {
+                int vertex = base + corner * MeshData.FLOATS_PER_VERTEX;
+                dx += vertices[vertex] / MeshData.VERTICES_PER_FACE;
+                dy += vertices[vertex + 1] / MeshData.VERTICES_PER_FACE;
+                dz += vertices[vertex + 2] / MeshData.VERTICES_PER_FACE;
+            }
+            // Non-negative floats sort like their bits; negate so the largest distance sorts first
+            long distance = Float.floatToIntBits(dx * dx + dy * dy + dz * dz);
+            keys[face] = -distance << 32 | face;
+        }
+        Arrays.sort(keys, 0, faces);
+        for (int i = 0; i < faces; i++) {
+            int face = (int)keys[i];
+            System.arraycopy(vertices, face * FLOATS_PER_FACE, out, i * FLOATS_PER_FACE, FLOATS_PER_FACE);
+        }
+    }
+}
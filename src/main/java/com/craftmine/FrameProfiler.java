@@ -0,0 +1,233 @@
+package com.craftmine;
+
+import org.lwjgl.opengl.GL;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL33.GL_TIME_ELAPSED;
+import static org.lwjgl.opengl.GL33.glGetQueryObjecti64;
+
+/**
+ * CPU and GPU time of named sections of each frame, kept for the last
+ * {@link #HISTORY} frames for the debug graph and CSV export.
+ *
+ * CPU time is taken with System.nanoTime between begin and end. With timer
+ * queries (OpenGL 3.3), a GL_TIME_ELAPSED query around the section measures
+ * the GPU time too. Queries are read back a frame or more later, and only once
+ * their result is available, so the profiler never waits for the GPU; a result
+ * still missing when its query is needed again is dropped. Time-elapsed
+ * queries cannot nest, so neither can sections.
+ *
+ * Sections are fixed when the profiler is made; frames allocate nothing.
+ * Render thread only.
+ */
+public class FrameProfiler {
+    public static final int HISTORY = 240;
+    private static final int QUERY_FRAMES = 3;  // Frames of queries in flight at once
+    private static final long UNKNOWN = -1;
+
+    private final String[] names;
+    private final int sections;
+    private final boolean gpuTiming;
+    private final int[] queries;  // By query frame, then section
+    private final long[] queryIssuedFrame;  // Frame each query was last issued in, or UNKNOWN
+    private final long[] sectionCpuNanos;  // By history slot, then section
+    private final long[] sectionGpuNanos;  // UNKNOWN until read back
+    private final long[] frameNanos = new long[HISTORY];  // Whole frame, start to start
+    private final long[] sectionStart;
+    private long frame = -1;
+    private long frameStart;
+
+    /**
+     * @param gpuTiming whether to time sections on the GPU too; needs a current context, see {@link #isGpuTimingSupported}
+     */
+    public FrameProfiler(boolean gpuTiming, String... names) {
+        this.names = names.clone();
+        this.sections = names.length;
+        this.gpuTiming = gpuTiming;
+        this.sectionCpuNanos = new long[HISTORY * sections];
+        this.sectionGpuNanos = new long[HISTORY * sections];
+        this.sectionStart = new long[sections];
+        Arrays.fill(sectionGpuNanos, UNKNOWN);
+        Arrays.fill(frameNanos, UNKNOWN);
+        this.queryIssuedFrame = new long[QUERY_FRAMES * sections];
+        Arrays.fill(queryIssuedFrame, UNKNOWN);
+        this.queries = new int[gpuTiming ? QUERY_FRAMES * sections : 0];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = glGenQueries();
+        }
+    }
+
+    public static boolean isGpuTimingSupported() {
+        return GL.getCapabilities().OpenGL33;
+    }
+
+    /**
+     * Starts a frame: closes the previous one and collects whichever GPU times have arrived.
+     */
+    public void beginFrame() {
+        long now = System.nanoTime();
+        if (frame >= 0) {
+            frameNanos[slot(frame)] = now - frameStart;
+        }
+        frame++;
+        frameStart = now;
+
+        int slot = slot(frame);
+        Arrays.fill(sectionCpuNanos, slot * sections, (slot + 1) * sections, 0);
+        Arrays.fill(sectionGpuNanos, slot * sections, (slot + 1) * sections, UNKNOWN);
+        frameNanos[slot] = UNKNOWN;
+        if (gpuTiming) {
+            collectQueries();
+        }
+    }
+
+    private void collectQueries() {
+        for (int i = 0; i < queries.length; i++) {
+            long issued = queryIssuedFrame[i];
+            if (issued == UNKNOWN || issued == frame) {
+                continue;
+            }
+            if (glGetQueryObjecti(queries[i], GL_QUERY_RESULT_AVAILABLE) == GL_FALSE) {
+                continue;  // Next frame, or dropped if the query is reused first
+            }
+            if (frame - issued < HISTORY) {
+                sectionGpuNanos[slot(issued) * sections + i % sections] = glGetQueryObjecti64(queries[i], GL_QUERY_RESULT);
+            }
+            queryIssuedFrame[i] = UNKNOWN;
+        }
+    }
+
+    public void begin(int section) {
+        if (gpuTiming) {
+            int query = (int)(frame % QUERY_FRAMES) * sections + section;
+            glBeginQuery(GL_TIME_ELAPSED, queries[query]);
+            queryIssuedFrame[query] = frame;
+        }
+        sectionStart[section] = System.nanoTime();
+    }
+
+    public void end(int section) {
+        // Sections may run more than once a frame; their CPU times add up, the GPU time is the last run's
+        sectionCpuNanos[slot(frame) * sections + section] += System.nanoTime() - sectionStart[section];
+        if (gpuTiming) {
+            glEndQuery(GL_TIME_ELAPSED);
+        }
+    }
+
+    private static int slot(long frame) {
+        return (int)(frame % HISTORY);
+    }
+
+    public int getSectionCount() {
+        return sections;
+    }
+
+    public String getName(int section) {
+        return names[section];
+    }
+
+    public boolean hasGpuTiming() {
+        return gpuTiming;
+    }
+
+    /**
+     * Frames with times so far, up to {@link #HISTORY}; frame 0 is the oldest.
+     */
+    public int getFrameCount() {
+        return (int)Math.min(frame + 1, HISTORY);
+    }
+
+    private int historySlot(int index) {
+        return slot(frame - getFrameCount() + 1 + index);
+    }
+
+    public float getCpuMillis(int index, int section) {
+        return sectionCpuNanos[historySlot(index) * sections + section] / 1e6f;
+    }
+
+    /**
+     * GPU time of a section in a frame, or a negative number where it is not known (yet).
+     */
+    public float getGpuMillis(int index, int section) {
+        long nanos = sectionGpuNanos[historySlot(index) * sections + section];
+        return nanos == UNKNOWN ? -1 : nanos / 1e6f;
+    }
+
+    /**
+     * Whole frame time, start to start, or a negative number for the frame still running.
+     */
+    public float getFrameMillis(int index) {
+        long nanos = frameNanos[historySlot(index)];
+        return nanos == UNKNOWN ? -1 : nanos / 1e6f;
+    }
+
+    public float getAverageCpuMillis(int section) {
+        long total = 0;
+        int count = getFrameCount();
+        for (int i = 0; i < count; i++) {
+            total += sectionCpuNanos[historySlot(i) * sections + section];
+        }
+        return count == 0 ? 0 : total / 1e6f / count;
+    }
+
+    /**
+     * Mean over the frames whose GPU time is known, or a negative number if none is.
+     */
+    public float getAverageGpuMillis(int section) {
+        long total = 0;
+        int known = 0;
+        for (int i = 0; i < getFrameCount(); i++) {
+            long nanos = sectionGpuNanos[historySlot(i) * sections + section];
+            if (nanos != UNKNOWN) {
+                total += nanos;
+                known++;
+            }
+        }
+        return known == 0 ? -1 : total / 1e6f / known;
+    }
+
+    /**
+     * Writes the frames in the history, oldest first, one row each; unknown times are left empty.
+     */
+    public void writeCsv(Path file) throws IOException {
+        try (PrintWriter csv = new PrintWriter(Files.newBufferedWriter(file))) {
+            csv.print("frame,frame_ms");
+            for (String name : names) {
+                csv.print("," + name + "_cpu_ms," + name + "_gpu_ms");
+            }
+            csv.println();
+            int count = getFrameCount();
+            for (int i = 0; i < count; i++) {
+                csv.print(frame - count + 1 + i);
+                csv.print(',');
+                printMillis(csv, getFrameMillis(i));
+                for (int section = 0; section < sections; section++) {
+                    csv.print(',');
+                    printMillis(csv, getCpuMillis(i, section));
+                    csv.print(',');
+                    printMillis(csv, getGpuMillis(i, section));
+                }
+                csv.println();
+            }
+        }
+    }
+
+    private static void printMillis(PrintWriter csv, float millis) {
+        if (millis >= 0) {
+            csv.printf(Locale.ROOT, "%.3f", millis);
+        }
+    }
+
+    public void delete() {
+        for (int query : queries) {
+            glDeleteQueries(query);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.craftmine;
+
+import java.util.Arrays;
+
+/**
+ * Durations of a run of frames, summarized as percentiles.
+ *
+ * Needs no OpenGL context.
+ */
+public class FrameTimes {
+    private long[] nanos = new long[1024];
+    private int count;
+
+    public void add(long frameNanos) {
+        if (count == nanos.length) {
+            nanos = Arrays.copyOf(nanos, count * 2);
+        }
+        nanos[count++] = frameNanos;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public double getMillis(int frame) {
+        return nanos[frame] / 1e6;
+    }
+
+    /**
+     * Nearest-rank percentile: the shortest frame time at least percentile% of frames do not exceed.
+     */
+    public double getPercentileMillis(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(nanos, count);
+        Arrays.sort(sorted);
+        int rank = (int)Math.ceil(percentile / 100 * count);
+        return sorted[Math.max(0, Math.min(count - 1, rank - 1))] / 1e6;
+    }
+
+    public double getMeanMillis() {
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            total += nanos[i];
+        }
+        return count == 0 ? 0 : total / 1e6 / count;
+    }
+
+    public double getMaxMillis() {
+        long max = 0;
+        for (int i = 0; i < count; i++) {
+            max = Math.max(max, nanos[i]);
+        }
+        return max / 1e6;
+    }
+}
@@ -0,0 +1,288 @@
+package com.craftmine;
+
+import java.util.Arrays;
+
+import static org.lwjgl.opengl.EXTTextureArray.GL_TEXTURE_2D_ARRAY_EXT;
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.GL_TEXTURE0;
+import static org.lwjgl.opengl.GL13.glActiveTexture;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.glUseProgram;
+import static org.lwjgl.opengl.GL30.glBindBufferBase;
+import static org.lwjgl.opengl.GL30.glBindVertexArray;
+import static org.lwjgl.opengl.GL30.glDeleteVertexArrays;
+import static org.lwjgl.opengl.GL31.GL_UNIFORM_BUFFER;
+import static org.lwjgl.opengl.GL40.GL_DRAW_INDIRECT_BUFFER;
+
+/**
+ * Shadows the OpenGL state the renderers change - capabilities, the blend
+ * function, bound textures, program, buffers and vertex array - and skips
+ * calls that would set what is already set. It never asks the driver, since
+ * glIsEnabled and glGet can stall until queued commands have run; everything
+ * starts out unknown and is learnt from the calls made through it.
+ *
+ * All rendering code must change this state through here, or call
+ * {@link #reset} after changing it behind its back. Objects must be deleted
+ * through here too, as deleting a bound object unbinds it and its name may be
+ * handed out again. Render thread only, for one context at a time.
+ */
+public final class GLState {
+    private static final int UNKNOWN = -1;
+    private static final int TEXTURE_UNITS = 8;
+
+    private static final int[] TEXTURE_TARGETS = { GL_TEXTURE_2D, GL_TEXTURE_2D_ARRAY_EXT };
+    private static final int[] BUFFER_TARGETS = { GL_ARRAY_BUFFER, GL_ELEMENT_ARRAY_BUFFER, GL_UNIFORM_BUFFER, GL_DRAW_INDIRECT_BUFFER };
+    private static final int ELEMENT_ARRAY = 1;  // Index of GL_ELEMENT_ARRAY_BUFFER above
+
+    // Capabilities seen so far and whether each is on: 1, off: 0, or UNKNOWN
+    private static int[] capabilities = new int[8];
+    private static int[] enabled = new int[8];
+    private static int capabilityCount;
+
+    private static int blendSource;
+    private static int blendDestination;
+    private static int cullFace;
+    private static int activeUnit;  // 0 for GL_TEXTURE0
+    private static final int[] textures = new int[TEXTURE_UNITS * TEXTURE_TARGETS.length];
+    private static int program;
+    private static final int[] buffers = new int[BUFFER_TARGETS.length];
+    private static int vertexArray;
+
+    private static int issued;
+    private static int skipped;
+    private static int lastFrameIssued;
+    private static int lastFrameSkipped;
+
+    static {
+        reset();
+    }
+
+    private GLState() {
+    }
+
+    /**
+     * Forgets everything, so the next call of each kind is issued. Needed once a
+     * new context is current, or after state was changed without this class.
+     */
+    public static void reset() {
+        for (int i = 0; i < capabilityCount; i++) {
+            enabled[i] = UNKNOWN;
+        }
+        blendSource = UNKNOWN;
+        blendDestination = UNKNOWN;
+        cullFace = UNKNOWN;
+        activeUnit = UNKNOWN;
+        Arrays.fill(textures, UNKNOWN);
+        program = UNKNOWN;
+        Arrays.fill(buffers, UNKNOWN);
+        vertexArray = UNKNOWN;
+    }
+
+    /**
+     * Ends a frame: its counts become the last frame's and counting starts over.
+     */
+    public static void endFrame() {
+        lastFrameIssued = issued;
+        lastFrameSkipped = skipped;
+        issued = 0;
+        skipped = 0;
+    }
+
+    /**
+     * State changes passed on to the driver in the last frame.
+     */
+    public static int getLastFrameIssued() {
+        return lastFrameIssued;
+    }
+
+    /**
+     * State changes dropped in the last frame, as they set what was already set.
+     */
+    public static int getLastFrameSkipped() {
+        return lastFrameSkipped;
+    }
+
+    public static void enable(int capability) {
+        int index = capabilityIndex(capability);
+        if (enabled[index] == 1) {
+            skipped++;
+            return;
+        }
+        glEnable(capability);
+        enabled[index] = 1;
+        issued++;
+    }
+
+    public static void disable(int capability) {
+        int index = capabilityIndex(capability);
+        if (enabled[index] == 0) {
+            skipped++;
+            return;
+        }
+        glDisable(capability);
+        enabled[index] = 0;
+        issued++;
+    }
+
+    private static int capabilityIndex(int capability) {
+        for (int i = 0; i < capabilityCount; i++) {
+            if (capabilities[i] == capability) {
+                return i;
+            }
+        }
+        if (capabilityCount == capabilities.length) {
+            capabilities = Arrays.copyOf(capabilities, capabilityCount * 2);
+            enabled = Arrays.copyOf(enabled, capabilityCount * 2);
+        }
+        capabilities[capabilityCount] = capability;
+        enabled[capabilityCount] = UNKNOWN;
+        return capabilityCount++;
+    }
+
+    public static void blendFunc(int source, int destination) {
+        if (source == blendSource && destination == blendDestination) {
+            skipped++;
+            return;
+        }
+        glBlendFunc(source, destination);
+        blendSource = source;
+        blendDestination = destination;
+        issued++;
+    }
+
+    public static void cullFace(int mode) {
+        if (mode == cullFace) {
+            skipped++;
+            return;
+        }
+        glCullFace(mode);
+        cullFace = mode;
+        issued++;
+    }
+
+    /**
+     * Selects the texture unit {@link #bindTexture} binds to, GL_TEXTURE0 and up.
+     */
+    public static void activeTexture(int unit) {
+        if (unit - GL_TEXTURE0 == activeUnit) {
+            skipped++;
+            return;
+        }
+        glActiveTexture(unit);
+        activeUnit = unit - GL_TEXTURE0;
+        issued++;
+    }
+
+    public static void bindTexture(int target, int texture) {
+        int index = textureIndex(target);
+        if (index >= 0 && textures[index] == texture) {
+            skipped++;
+            return;
+        }
+        glBindTexture(target, texture);
+        if (index >= 0) {
+            textures[index] = texture;
+        }
+        issued++;
+    }
+
+    // Slot of target on the active unit, or -1 if it isn't shadowed
+    private static int textureIndex(int target) {
+        if (activeUnit < 0 || activeUnit >= TEXTURE_UNITS) {
+            return -1;
+        }
+        for (int i = 0; i < TEXTURE_TARGETS.length; i++) {
+            if (TEXTURE_TARGETS[i] == target) {
+                return activeUnit * TEXTURE_TARGETS.length + i;
+            }
+        }
+        return -1;
+    }
+
+    public static void deleteTexture(int texture) {
+        glDeleteTextures(texture);
+        // Deleting unbinds it from every unit
+        for (int i = 0; i < textures.length; i++) {
+            if (textures[i] == texture) {
+                textures[i] = 0;
+            }
+        }
+    }
+
+    public static void useProgram(int program) {
+        if (program == GLState.program) {
+            skipped++;
+            return;
+        }
+        glUseProgram(program);
+        GLState.program = program;
+        issued++;
+    }
+
+    /**
+     * Binds buffer to target; GL_ELEMENT_ARRAY_BUFFER binds it into the vertex
+     * array object that is bound, if any.
+     */
+    public static void bindBuffer(int target, int buffer) {
+        int index = bufferIndex(target);
+        if (index >= 0 && buffers[index] == buffer) {
+            skipped++;
+            return;
+        }
+        glBindBuffer(target, buffer);
+        if (index >= 0) {
+            buffers[index] = buffer;
+        }
+        issued++;
+    }
+
+    /**
+     * Binds buffer to an indexed binding point, which binds it to target as well.
+     */
+    public static void bindBufferBase(int target, int binding, int buffer) {
+        glBindBufferBase(target, binding, buffer);
+        int index = bufferIndex(target);
+        if (index >= 0) {
+            buffers[index] = buffer;
+        }
+        issued++;
+    }
+
+    private static int bufferIndex(int target) {
+        for (int i = 0; i < BUFFER_TARGETS.length; i++) {
+            if (BUFFER_TARGETS[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public static void deleteBuffer(int buffer) {
+        glDeleteBuffers(buffer);
+        for (int i = 0; i < buffers.length; i++) {
+            if (buffers[i] == buffer) {
+                buffers[i] = 0;
+            }
+        }
+    }
+
+    public static void bindVertexArray(int vertexArray) {
+        if (vertexArray == GLState.vertexArray) {
+            skipped++;
+            return;
+        }
+        glBindVertexArray(vertexArray);
+        GLState.vertexArray = vertexArray;
+        // The element buffer binding belongs to the vertex array object
+        buffers[ELEMENT_ARRAY] = UNKNOWN;
+        issued++;
+    }
+
+    public static void deleteVertexArray(int vertexArray) {
+        glDeleteVertexArrays(vertexArray);
+        if (vertexArray == GLState.vertexArray) {
+            GLState.vertexArray = 0;
+            buffers[ELEMENT_ARRAY] = UNKNOWN;
+        }
+    }
+}
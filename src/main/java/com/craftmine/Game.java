@@ -1,10 +1,15 @@
 package com.craftmine;
 
+import org.joml.Matrix4f;
 import org.lwjgl.glfw.GLFWVidMode;
 import org.lwjgl.opengl.GL;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL20;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 import static org.lwjgl.glfw.GLFW.*;
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.system.MemoryUtil.NULL;
@@ -15,6 +20,8 @@ public class Game {
     private Renderer renderer;
     private UI ui;
     private HomeScreen homeScreen;
+    private QuadBatch uiBatch;  // Shared by the home screen and the UI
+    private UiSprites uiSprites;
     private MinecraftSkinProcessor skinProcessor;  // Add skin processor
     private PlayerModel playerModel;  // Add player model
     private boolean[] keys;
@@ -35,6 +42,18 @@ public class Game {
     private static final int WIDTH = 1600;
     private static final int HEIGHT = 750;
 
+    // -Dcraftmine.coreProfile=true asks for a 3.3 core profile; off until it has been run on llvmpipe
+    private static final boolean CORE_PROFILE = Boolean.getBoolean("craftmine.coreProfile");
+
+    // Profiled parts of an in-game frame, in FrameProfiler section order
+    private static final String[] PROFILE_SECTIONS = { "INPUT", "PHYSICS", "WORLD", "PLAYER", "UI" };
+    private static final int PROFILE_INPUT = 0;
+    private static final int PROFILE_PHYSICS = 1;
+    private static final int PROFILE_WORLD = 2;
+    private static final int PROFILE_PLAYER = 3;
+    private static final int PROFILE_UI = 4;
+    private FrameProfiler profiler;
+
     private void init() {
         if (!glfwInit()) {
             throw new IllegalStateException("Unable to initialize GLFW");
@@ -43,10 +62,8 @@ public class Game {
         glfwDefaultWindowHints();
         glfwWindowHint(GLFW_VISIBLE, GLFW_FALSE);
         glfwWindowHint(GLFW_RESIZABLE, GLFW_TRUE);
-        glfwWindowHint(GLFW_CONTEXT_VERSION_MAJOR, 2);
-        glfwWindowHint(GLFW_CONTEXT_VERSION_MINOR, 1);
 
-        window = glfwCreateWindow(WIDTH, HEIGHT, "Craftmine", NULL, NULL);
+        window = createWindow(WIDTH, HEIGHT, "Craftmine");
         if (window == NULL) {
             throw new RuntimeException("Failed to create the GLFW window");
         }
@@ -62,13 +79,14 @@ public class Game {
 
         glfwMakeContextCurrent(window);
         GL.createCapabilities();
+        GLState.reset();
 
         glfwSwapInterval(1);
         glfwShowWindow(window);
 
-        glEnable(GL_DEPTH_TEST);
-        glEnable(GL_BLEND);
-        glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+        GLState.enable(GL_DEPTH_TEST);
+        GLState.enable(GL_BLEND);
+        GLState.blendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
 
         glClearColor(0.529f, 0.808f, 0.922f, 0.0f);
 
@@ -107,6 +125,12 @@ public class Game {
                     if (key == GLFW_KEY_M) {
                         ui.toggleCoordinates();
                     }
+                    if (key == GLFW_KEY_F3 && isInGame) {
+                        ui.toggleProfiler();
+                    }
+                    if (key == GLFW_KEY_F4 && isInGame) {
+                        exportProfile();
+                    }
                     keys[key] = true;
                     System.out.println("Key pressed: " + key);  // Debug print
                 } else if (action == GLFW_RELEASE) {
@@ -199,7 +223,9 @@ public class Game {
         // Initialize game objects - start player closer to ground
         camera = new Camera(TerrainGeneration.WORLD_SIZE / 2, 20, TerrainGeneration.WORLD_SIZE / 2);
         renderer = new Renderer(camera);
-        ui = new UI(camera);
+        ui = new UI(camera, uiBatch, uiSprites);
+        ui.setRenderStats(renderer.getStats());
+        ui.setProfiler(profiler);
 
         // Setup collision handler (initially enabled)
         CollisionHandler collisionHandler = new CollisionHandler(renderer.getTerrain());
@@ -225,16 +251,50 @@ public class Game {
         ui.setTint(0); // Ensure tint is cleared at the very end
     }
 
+    /**
+     * Creates a window with a 2.1 context, which most drivers answer with their
+     * newest compatibility version. With craftmine.coreProfile set it asks for a
+     * 3.3 core profile first and falls back to 2.1 where the driver has none.
+     * Hints set before the call are kept.
+     *
+     * @return the window, or NULL if no context could be created
+     */
+    static long createWindow(int width, int height, String title) {
+        if (CORE_PROFILE) {
+            // Forward compatible too, the only kind of core profile macOS hands out
+            glfwWindowHint(GLFW_CONTEXT_VERSION_MAJOR, 3);
+            glfwWindowHint(GLFW_CONTEXT_VERSION_MINOR, 3);
+            glfwWindowHint(GLFW_OPENGL_PROFILE, GLFW_OPENGL_CORE_PROFILE);
+            glfwWindowHint(GLFW_OPENGL_FORWARD_COMPAT, GLFW_TRUE);
+            long window = glfwCreateWindow(width, height, title, NULL, NULL);
+            if (window != NULL) {
+                return window;
+            }
+        }
+
+        glfwWindowHint(GLFW_CONTEXT_VERSION_MAJOR, 2);
+        glfwWindowHint(GLFW_CONTEXT_VERSION_MINOR, 1);
+        glfwWindowHint(GLFW_OPENGL_PROFILE, GLFW_OPENGL_ANY_PROFILE);
+        glfwWindowHint(GLFW_OPENGL_FORWARD_COMPAT, GLFW_FALSE);
+        return glfwCreateWindow(width, height, title, NULL, NULL);
+    }
+
     public void run() {
         init();
 
         float aspectRatio = (float) WIDTH / HEIGHT;
+        // Kept as a JOML matrix so the renderer can cull against exactly what GL draws with
+        Matrix4f projection = new Matrix4f().setFrustum(-aspectRatio, aspectRatio, -1.0f, 1.0f, 1.0f, 1000.0f);
+        Matrix4f modelView = new Matrix4f();
         long lastTime = System.nanoTime();
         
         // Initialize game objects after OpenGL context is created
         keys = new boolean[1024];  // Initialize keys array
         lastKeys = new boolean[1024];  // Initialize last keys array
-        homeScreen = new HomeScreen();
+        uiBatch = new QuadBatch(4096);
+        uiSprites = new UiSprites();
+        homeScreen = new HomeScreen(uiBatch, uiSprites);
+        profiler = new FrameProfiler(FrameProfiler.isGpuTimingSupported(), PROFILE_SECTIONS);
 
         // Set initial cursor mode to normal for home screen
         glfwSetInputMode(window, GLFW_CURSOR, GLFW_CURSOR_NORMAL);
@@ -243,6 +303,7 @@ public class Game {
             long currentTime = System.nanoTime();
             float deltaTime = (currentTime - lastTime) / 1_000_000_000.0f; // Convert to seconds
             lastTime = currentTime;
+            profiler.beginFrame();
 
             glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
 
@@ -251,55 +312,33 @@ public class Game {
                 homeScreen.render(WIDTH, HEIGHT);
             } else {
                 // Set up 3D projection for game
-                glMatrixMode(GL_PROJECTION);
-                glLoadIdentity();
-                glFrustum(-aspectRatio, aspectRatio, -1.0f, 1.0f, 1.0f, 1000.0f);
-                glMatrixMode(GL_MODELVIEW);
-                glLoadIdentity();
-
-                // Ensure proper OpenGL state for 3D rendering
-                glEnable(GL_DEPTH_TEST);
-                glEnable(GL_TEXTURE_2D);
-                glEnable(GL_BLEND);
-                glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+                renderer.setProjection(projection);
+
+                // Ensure proper OpenGL state for 3D rendering; GLState skips what is already set
+                GLState.enable(GL_DEPTH_TEST);
+                GLState.enable(GL_BLEND);
+                GLState.blendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
 
                 if (!isPaused) {
+                    profiler.begin(PROFILE_INPUT);
                     handleInput();
+                    profiler.end(PROFILE_INPUT);
+                    profiler.begin(PROFILE_PHYSICS);
                     camera.updatePhysics(deltaTime, isCreativeMode);
+                    profiler.end(PROFILE_PHYSICS);
                 }
                 
+                profiler.begin(PROFILE_WORLD);
                 renderer.render();
+                profiler.end(PROFILE_WORLD);
 
                 // Render player model in world space
+                profiler.begin(PROFILE_PLAYER);
                 if (skinProcessor != null && skinProcessor.hasSkin()) {
-                    System.out.println("=== Rendering Player Model ===");
-                    
-                    // Set in-game flag for correct head positioning
-                    playerModel.setInGame(true);
-                    
-                    // Save current matrices and states
-                    glPushAttrib(GL_ALL_ATTRIB_BITS);
-                    glMatrixMode(GL_PROJECTION);
-                    glPushMatrix();
-                    glLoadIdentity();
-                    
-                    // Use the same perspective as the world
-                    glFrustum(-aspectRatio, aspectRatio, -1.0f, 1.0f, 1.0f, 1000.0f);
-                    
-                    glMatrixMode(GL_MODELVIEW);
-                    glPushMatrix();
-                    glLoadIdentity();
-                    
                     // Apply camera transformation
-                    glRotatef(camera.getPitch(), 1.0f, 0.0f, 0.0f);
-                    glRotatef(camera.getYaw() + 180.0f, 0.0f, 1.0f, 0.0f);
-                    glTranslatef((float)-camera.getX(), (float)-camera.getY(), (float)-camera.getZ());
-                    
-                    // Enable states for model rendering
-                    glEnable(GL_DEPTH_TEST);
-                    glEnable(GL_TEXTURE_2D);
-                    glEnable(GL_CULL_FACE);
-                    glCullFace(GL_BACK);
+                    modelView.rotationX((float)Math.toRadians(camera.getPitch()))
+                        .rotateY((float)Math.toRadians(camera.getYaw() + 180.0f))
+                        .translate(-camera.getX(), -camera.getY(), -camera.getZ());
                     
                     // Position model in world space
                     float playerX, playerY, playerZ;
@@ -321,45 +360,34 @@ public class Game {
                     float offsetX = (float)Math.sin(angle) * 2.0f;  // 2 blocks in front
                     float offsetZ = (float)Math.cos(angle) * 2.0f;
                     
-                    glTranslatef(playerX + offsetX, playerY, playerZ + offsetZ);
                     float modelYaw = camera.getYaw();  // Body rotates with camera
-                    
-                    glRotatef(modelYaw, 0.0f, 1.0f, 0.0f);
-                    glScalef(0.15f, 0.15f, 0.15f);
+                    modelView.translate(playerX + offsetX, playerY, playerZ + offsetZ)
+                        .rotateY((float)Math.toRadians(modelYaw))
+                        .scale(0.15f);
                     
                     // Render the model with head rotation
                     float headYaw = 0;  // Head stays aligned with body since body rotates
                     float headPitch = camera.getPitch();  // Head pitch follows camera
                     
-                    skinProcessor.bindSkinTexture();
-                    playerModel.renderWithHeadRotation(1.0f, headYaw, headPitch);
-                    
-                    // Restore states
-                    glPopMatrix();
-                    glMatrixMode(GL_PROJECTION);
-                    glPopMatrix();
-                    glPopAttrib();
-                    
-                    glMatrixMode(GL_MODELVIEW);
-                } else {
-                    if (skinProcessor == null) {
-                        System.out.println("Not rendering player model: skinProcessor is null");
-                    } else {
-                        System.out.println("Not rendering player model: no skin loaded");
-                    }
+                    GLState.enable(GL_DEPTH_TEST);
+                    GLState.enable(GL_CULL_FACE);
+                    GLState.cullFace(GL_BACK);
+                    playerModel.renderWithHeadRotation(projection, modelView, 1.0f, headYaw, headPitch);
+                    GLState.disable(GL_CULL_FACE);
                 }
+                profiler.end(PROFILE_PLAYER);
 
                 // Now render UI (coordinates and pause menu if needed)
-                glDisable(GL_DEPTH_TEST);
-                glDisable(GL_TEXTURE_2D);
+                profiler.begin(PROFILE_UI);
+                GLState.disable(GL_DEPTH_TEST);
                 if (isPaused) {
                     ui.renderPauseMenu(WIDTH, HEIGHT);  // Render pause menu
                 } else {
                     ui.render(WIDTH, HEIGHT);  // Render coordinates
                 }
-                glEnable(GL_DEPTH_TEST);
-                glEnable(GL_TEXTURE_2D);
+                profiler.end(PROFILE_UI);
             }
+            GLState.endFrame();
 
             glfwSwapBuffers(window);
             glfwPollEvents();
@@ -368,10 +396,26 @@ public class Game {
             System.arraycopy(keys, 0, lastKeys, 0, keys.length);
         }
 
+        profiler.delete();
+        if (isInGame) {
+            playerModel.delete();
+        }
+        uiBatch.delete();
+        uiSprites.delete();
         glfwDestroyWindow(window);
         glfwTerminate();
     }
 
+    private void exportProfile() {
+        Path file = Paths.get("profile-" + System.currentTimeMillis() + ".csv");
+        try {
+            profiler.writeCsv(file);
+            System.out.println("Wrote frame profile to " + file.toAbsolutePath());
+        } catch (IOException e) {
+            System.err.println("Failed to write frame profile: " + e.getMessage());
+        }
+    }
+
     private void handleInput() {
         // Handle third-person toggle with J key
         boolean isJPressed = keys[GLFW_KEY_J];
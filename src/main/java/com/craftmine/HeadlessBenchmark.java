@@ -0,0 +1,165 @@
+package com.craftmine;
+
+import org.joml.Matrix4f;
+import org.lwjgl.glfw.GLFW;
+import org.lwjgl.glfw.GLFWErrorCallback;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.system.Configuration;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+import static org.lwjgl.glfw.GLFW.*;
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.system.MemoryUtil.NULL;
+
+/**
+ * Renders the world without a window or a GPU, into an offscreen framebuffer
+ * of a GLFW context created through OSMesa or EGL (Mesa's llvmpipe on a CI
+ * machine, or a real driver). Flies the camera along a scripted path, then
+ * writes every frame time and their p50/p95/p99 to the output directory,
+ * with PNG snapshots spread over the flight if asked for.
+ *
+ * Frames are timed from the start of the frame until glFinish returns, so
+ * GPU work counts. Chunks in view at the start are loaded before timing;
+ * those the flight reaches later stream in as they would in the game.
+ * Run with:
+ * java -cp target/craftmine-1.0-SNAPSHOT-jar-with-dependencies.jar com.craftmine.HeadlessBenchmark output-dir [camera-path-file]
+ */
+public class HeadlessBenchmark {
+    // -Dcraftmine.headless.context=egl uses an EGL context instead of OSMesa
+    private static final String CONTEXT_API = System.getProperty("craftmine.headless.context", "osmesa");
+    private static final int WIDTH = Integer.getInteger("craftmine.headless.width", 1280);
+    private static final int HEIGHT = Integer.getInteger("craftmine.headless.height", 720);
+    private static final int FRAMES = Integer.getInteger("craftmine.headless.frames", 600);
+    // PNGs saved, evenly spaced from the first frame to the last; none by default
+    private static final int SNAPSHOTS = Integer.getInteger("craftmine.headless.snapshots", 0);
+
+    // Give up waiting for the starting view after this long and time whatever has loaded
+    private static final long LOAD_TIMEOUT_NANOS = 120_000_000_000L;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: HeadlessBenchmark output-dir [camera-path-file]");
+            System.exit(2);
+        }
+        Path output = Paths.get(args[0]);
+        Files.createDirectories(output);
+        // The default path circles the middle of the world above the hills
+        CameraPath path = args.length > 1
+            ? CameraPath.load(Paths.get(args[1]))
+            : CameraPath.circle(TerrainGeneration.WORLD_SIZE / 2f, TerrainGeneration.WORLD_SIZE / 2f, 96, 40, 25, 16);
+
+        long window = createContext();
+        try {
+            run(path, output);
+        } finally {
+            glfwDestroyWindow(window);
+            glfwTerminate();
+        }
+    }
+
+    private static long createContext() {
+        GLFWErrorCallback.createPrint(System.err).set();
+        // No display to connect to; the null platform still creates OSMesa and EGL contexts
+        if (glfwPlatformSupported(GLFW_PLATFORM_NULL)) {
+            glfwInitHint(GLFW_PLATFORM, GLFW_PLATFORM_NULL);
+        }
+        if (!glfwInit()) {
+            throw new IllegalStateException("Unable to initialize GLFW");
+        }
+
+        glfwDefaultWindowHints();
+        glfwWindowHint(GLFW_VISIBLE, GLFW_FALSE);
+        glfwWindowHint(GLFW_CONTEXT_CREATION_API, "egl".equals(CONTEXT_API) ? GLFW_EGL_CONTEXT_API : GLFW_OSMESA_CONTEXT_API);
+        // Same request as the game; run with -Dcraftmine.coreProfile=true to time the core profile too
+        long window = Game.createWindow(WIDTH, HEIGHT, "Craftmine");
+        if (window == NULL) {
+            glfwTerminate();
+            throw new RuntimeException("Failed to create an offscreen " + CONTEXT_API + " context; is Mesa installed?");
+        }
+        glfwMakeContextCurrent(window);
+
+        // LWJGL would load GL functions from libGL through GLX, which knows nothing of
+        // OSMesa or EGL contexts; ask GLFW, which asks the context's own library
+        Configuration.OPENGL_EXPLICIT_INIT.set(true);
+        GL.create(GLFW::glfwGetProcAddress);
+        GL.createCapabilities();
+        GLState.reset();
+        System.out.println("OpenGL " + glGetString(GL_VERSION) + " on " + glGetString(GL_RENDERER)
+            + (ShaderProgram.isCoreProfile() ? ", core profile" : ", legacy context"));
+        return window;
+    }
+
+    private static void run(CameraPath path, Path output) throws IOException {
+        OffscreenTarget target = new OffscreenTarget(WIDTH, HEIGHT);
+        target.bind();
+
+        GLState.enable(GL_DEPTH_TEST);
+        GLState.enable(GL_BLEND);
+        GLState.blendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+        glClearColor(0.529f, 0.808f, 0.922f, 0.0f);
+
+        // Same projection as the game
+        float aspectRatio = (float) WIDTH / HEIGHT;
+        Matrix4f projection = new Matrix4f().setFrustum(-aspectRatio, aspectRatio, -1.0f, 1.0f, 1.0f, 1000.0f);
+
+        Camera camera = new Camera(0, 0, 0);
+        path.apply(camera, 0);
+        Renderer renderer = new Renderer(camera);
+        renderer.setProjection(projection);
+        RenderStats stats = renderer.getStats();
+
+        long loadStart = System.nanoTime();
+        do {
+            renderFrame(renderer);
+        } while (renderer.isLoading() && System.nanoTime() - loadStart < LOAD_TIMEOUT_NANOS);
+        System.out.printf("Starting view loaded in %.1f s%s%n", (System.nanoTime() - loadStart) / 1e9,
+            renderer.isLoading() ? " (timed out, still loading)" : "");
+
+        FrameTimes times = new FrameTimes();
+        try (PrintWriter csv = new PrintWriter(Files.newBufferedWriter(output.resolve("frame-times.csv")))) {
+            csv.println("frame,millis,sections_drawn,distant_chunks_drawn,draw_calls,uploaded_chunks,edited_sections,state_changes,state_changes_skipped");
+            int nextSnapshot = 0;
+            for (int frame = 0; frame < FRAMES; frame++) {
+                path.apply(camera, FRAMES == 1 ? 0 : (float)frame / (FRAMES - 1));
+                long start = System.nanoTime();
+                renderFrame(renderer);
+                glFinish();
+                times.add(System.nanoTime() - start);
+                csv.printf(Locale.ROOT, "%d,%.3f,%d,%d,%d,%d,%d,%d,%d%n", frame, times.getMillis(frame), stats.getSectionsDrawn(),
+                    stats.getDistantChunksDrawn(), stats.getDrawCalls(), stats.getUploadedChunks(), stats.getEditedSections(),
+                    GLState.getLastFrameIssued(), GLState.getLastFrameSkipped());
+
+                // Saving is left out of the frame time
+                if (nextSnapshot < SNAPSHOTS && frame == snapshotFrame(nextSnapshot)) {
+                    target.writePng(output.resolve(String.format("snapshot-%03d.png", nextSnapshot)));
+                    nextSnapshot++;
+                }
+            }
+        }
+
+        String summary = String.format("%d frames at %dx%d: p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, mean %.2f ms, max %.2f ms",
+            times.getCount(), WIDTH, HEIGHT, times.getPercentileMillis(50), times.getPercentileMillis(95),
+            times.getPercentileMillis(99), times.getMeanMillis(), times.getMaxMillis());
+        Files.writeString(output.resolve("summary.txt"), summary + System.lineSeparator());
+        System.out.println(summary);
+
+        renderer.shutdown();
+        target.delete();
+    }
+
+    private static int snapshotFrame(int snapshot) {
+        return SNAPSHOTS == 1 ? 0 : (int)((long)snapshot * (FRAMES - 1) / (SNAPSHOTS - 1));
+    }
+
+    private static void renderFrame(Renderer renderer) {
+        glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+        renderer.render();
+        GLState.endFrame();
+    }
+}
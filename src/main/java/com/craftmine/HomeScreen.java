@@ -1,18 +1,15 @@
 package com.craftmine;
 
+import org.joml.Matrix4f;
+
 import static org.lwjgl.opengl.GL11.*;
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.io.File;
 
 public class HomeScreen {
-    private int backgroundTexture;
-    private int singleplayerTexture;
-    private int multiplayerTexture;
-    private int optionsTexture;
-    private int chooseSkinTexture;
-    private int gamemodeCreativeTexture;
-    private int gamemodeSurvivalTexture;
+    private final QuadBatch batch;
+    private final UiSprites sprites;
     private float buttonX;
     private float buttonY;
     private float buttonWidth;
@@ -30,12 +27,25 @@ public class HomeScreen {
     private UI ui;
     private MinecraftSkinProcessor skinProcessor;
     private PlayerModel playerModel;
+    // Both projections are redone only when the window size changes
+    private final Matrix4f projection = new Matrix4f();
+    private final Matrix4f screenProjection = new Matrix4f();  // Pixels, y down
+    // Camera back from the origin, model off to the right and turned for a better view
+    private final Matrix4f modelView = new Matrix4f().translation(0.0f, -100.0f, -400.0f)
+        .translate(200.0f, 100.0f, 0.0f)
+        .rotateY((float) Math.toRadians(45.0f));
     private float lastMouseX;
     private boolean isDragging;
     private int windowWidth;
     private int windowHeight;
 
-    public HomeScreen() {
+    /**
+     * @param batch  the batch the screen's sprites are drawn with, shared with the UI
+     * @param sprites  the menu atlas, also shared
+     */
+    public HomeScreen(QuadBatch batch, UiSprites sprites) {
+        this.batch = batch;
+        this.sprites = sprites;
         this.buttonWidth = 200;
         this.wideButtonWidth = 400;  // Twice as wide
         this.buttonHeight = 50;
@@ -48,7 +58,6 @@ public class HomeScreen {
         this.skinProcessor = new MinecraftSkinProcessor();
         this.playerModel = new PlayerModel(skinProcessor);
         this.isDragging = false;
-        loadTextures();
         
         // Try multiple possible paths for the default skin
         String[] possiblePaths = {
@@ -80,47 +89,15 @@ public class HomeScreen {
         }
     }
 
-    private void loadTextures() {
-        backgroundTexture = TextureLoader.loadTexture("assets/homescreen.png");
-        singleplayerTexture = TextureLoader.loadTexture("assets/singleplayerbutton.png");
-        multiplayerTexture = TextureLoader.loadTexture("assets/multiplayerbutton.png");
-        optionsTexture = TextureLoader.loadTexture("assets/optionsbutton.png");
-        chooseSkinTexture = TextureLoader.loadTexture("assets/choosenewskinbutton.png");
-        gamemodeCreativeTexture = TextureLoader.loadTexture("assets/gamemodecreativebutton.png");
-        gamemodeSurvivalTexture = TextureLoader.loadTexture("assets/gamemodesurvivalbutton.png");
-    }
-
-    private void setPerspectiveProjection(float fovY, float aspect, float zNear, float zFar) {
-        float f = (float) (1.0f / Math.tan(fovY * Math.PI / 360.0f));
-        float[] perspective = new float[16];
-        
-        perspective[0] = f / aspect;
-        perspective[5] = f;
-        perspective[10] = (zFar + zNear) / (zNear - zFar);
-        perspective[11] = -1.0f;
-        perspective[14] = (2.0f * zFar * zNear) / (zNear - zFar);
-        perspective[15] = 0.0f;
-        
-        glLoadMatrixf(perspective);
-    }
-
     public void render(int windowWidth, int windowHeight) {
+        if (windowWidth != this.windowWidth || windowHeight != this.windowHeight) {
+            screenProjection.setOrtho2D(0, windowWidth, windowHeight, 0);
+            projection.setPerspective((float) Math.toRadians(45.0f), (float) windowWidth / windowHeight, 0.1f, 1000.0f);
+        }
         // Store window dimensions
         this.windowWidth = windowWidth;
         this.windowHeight = windowHeight;
-        // Save OpenGL state
-        boolean depthEnabled = glIsEnabled(GL_DEPTH_TEST);
-        boolean textureEnabled = glIsEnabled(GL_TEXTURE_2D);
-        
-        // Set up OpenGL state for 2D rendering
-        glDisable(GL_DEPTH_TEST);
-        glMatrixMode(GL_PROJECTION);
-        glPushMatrix();
-        glLoadIdentity();
-        glOrtho(0, windowWidth, windowHeight, 0, -1, 1);
-        glMatrixMode(GL_MODELVIEW);
-        glPushMatrix();
-        glLoadIdentity();
+        GLState.disable(GL_DEPTH_TEST);
 
         // Calculate total height of all buttons including spacing
         float totalButtonsHeight = (4 * buttonHeight) + (3 * buttonSpacing);
@@ -129,121 +106,43 @@ public class HomeScreen {
         buttonX = (windowWidth - wideButtonWidth) / 2;  // Use wide button width for centering
         buttonY = (windowHeight - totalButtonsHeight) / 2;
 
-        // Draw background
-        glEnable(GL_TEXTURE_2D);
-        glBindTexture(GL_TEXTURE_2D, backgroundTexture);
-        glColor4f(1.0f, 1.0f, 1.0f, 1.0f);
-        
-        glBegin(GL_QUADS);
-        glTexCoord2f(0.0f, 0.0f); glVertex2f(0, 0);
-        glTexCoord2f(1.0f, 0.0f); glVertex2f(windowWidth, 0);
-        glTexCoord2f(1.0f, 1.0f); glVertex2f(windowWidth, windowHeight);
-        glTexCoord2f(0.0f, 1.0f); glVertex2f(0, windowHeight);
-        glEnd();
+        // Background and buttons, one draw
+        batch.begin(screenProjection);
+        sprites.draw(batch, UiSprites.BACKGROUND, 0, 0, windowWidth, windowHeight, 0xffffffff);
 
         // Draw Singleplayer button (wide)
-        drawButton(buttonX, buttonY, singleplayerTexture, isSingleplayerHovered, wideButtonWidth);
+        drawButton(buttonX, buttonY, UiSprites.SINGLEPLAYER, isSingleplayerHovered, wideButtonWidth);
         
         // Draw Multiplayer button (wide)
-        drawButton(buttonX, buttonY + buttonHeight + buttonSpacing, multiplayerTexture, isMultiplayerHovered, wideButtonWidth);
+        drawButton(buttonX, buttonY + buttonHeight + buttonSpacing, UiSprites.MULTIPLAYER, isMultiplayerHovered, wideButtonWidth);
         
         // Draw Options button (normal width, centered) and Choose Skin button
         float optionsX = (windowWidth - (2 * buttonWidth + 20)) / 2;  // Center both buttons with 20px spacing
-        drawButton(optionsX, buttonY + (2 * (buttonHeight + buttonSpacing)), optionsTexture, isOptionsHovered, buttonWidth);
-        drawButton(optionsX + buttonWidth + 20, buttonY + (2 * (buttonHeight + buttonSpacing)), chooseSkinTexture, isChooseSkinHovered, buttonWidth);
+        drawButton(optionsX, buttonY + (2 * (buttonHeight + buttonSpacing)), UiSprites.OPTIONS, isOptionsHovered, buttonWidth);
+        drawButton(optionsX + buttonWidth + 20, buttonY + (2 * (buttonHeight + buttonSpacing)), UiSprites.CHOOSE_SKIN, isChooseSkinHovered, buttonWidth);
 
         // Draw Gamemode button (normal width, centered)
         float gamemodeY = buttonY + (3 * (buttonHeight + buttonSpacing));
-        drawButton(optionsX, gamemodeY, isCreativeMode ? gamemodeCreativeTexture : gamemodeSurvivalTexture, isGamemodeHovered, buttonWidth);
-
-        glDisable(GL_TEXTURE_2D);
+        drawButton(optionsX, gamemodeY, isCreativeMode ? UiSprites.GAMEMODE_CREATIVE : UiSprites.GAMEMODE_SURVIVAL, isGamemodeHovered, buttonWidth);
+        batch.end();
 
         // After drawing all 2D elements, render the 3D player model
         if (skinProcessor != null && skinProcessor.hasSkin()) {
-            System.out.println("=== Starting 3D Model Render ===");
-            System.out.println("Window dimensions: " + windowWidth + "x" + windowHeight);
-            
-            // Save matrices
-            glPushAttrib(GL_ALL_ATTRIB_BITS);
-            
-            // Set up 3D rendering
-            glEnable(GL_DEPTH_TEST);
-            glEnable(GL_TEXTURE_2D);
-            glEnable(GL_CULL_FACE);  // Enable face culling
-            glCullFace(GL_BACK);     // Cull back faces
-            
-            // Clear only depth buffer
+            GLState.enable(GL_DEPTH_TEST);
+            GLState.enable(GL_CULL_FACE);
+            GLState.cullFace(GL_BACK);
             glClear(GL_DEPTH_BUFFER_BIT);
-            
-            glMatrixMode(GL_PROJECTION);
-            glPushMatrix();
-            glLoadIdentity();
-            
-            // Set up perspective with a wider field of view
-            float aspectRatio = (float) windowWidth / windowHeight;
-            setPerspectiveProjection(45.0f, aspectRatio, 0.1f, 1000.0f);
-            
-            glMatrixMode(GL_MODELVIEW);
-            glPushMatrix();
-            glLoadIdentity();
-            
-            // Position camera
-            glTranslatef(0.0f, -100.0f, -400.0f);
-            
-            // Render the player model
-            glPushMatrix();
-            glTranslatef(200.0f, 100.0f, 0.0f); // Position model
-            glRotatef(45.0f, 0.0f, 1.0f, 0.0f); // Rotate for better view
+
             float modelScale = windowHeight / 400.0f;
-            playerModel.render(modelScale);
-            glPopMatrix();
-            
-            // Restore matrices and states
-            glMatrixMode(GL_PROJECTION);
-            glPopMatrix();
-            glMatrixMode(GL_MODELVIEW);
-            glPopMatrix();
-            
-            glPopAttrib();
-            
-            System.out.println("=== 3D Model Render Complete ===");
-        } else {
-            System.out.println("Not rendering model. SkinProcessor: " + (skinProcessor != null) + 
-                             ", HasSkin: " + (skinProcessor != null ? skinProcessor.hasSkin() : "null"));
-        }
+            playerModel.render(projection, modelView, modelScale);
 
-        // Restore OpenGL state
-        glMatrixMode(GL_PROJECTION);
-        glPopMatrix();
-        glMatrixMode(GL_MODELVIEW);
-        glPopMatrix();
-        
-        if (depthEnabled) {
-            glEnable(GL_DEPTH_TEST);
-        } else {
-            glDisable(GL_DEPTH_TEST);
-        }
-        if (textureEnabled) {
-            glEnable(GL_TEXTURE_2D);
+            GLState.disable(GL_CULL_FACE);
         }
     }
 
-    private void drawButton(float x, float y, int texture, boolean isHovered, float width) {
-        glBindTexture(GL_TEXTURE_2D, texture);
-        
-        // Set color based on hover state
-        if (isHovered) {
-            glColor4f(1.0f, 1.0f, 1.0f, 1.0f);  // Full brightness when hovered
-        } else {
-            glColor4f(0.8f, 0.8f, 0.8f, 1.0f);  // Slightly dimmed when not hovered
-        }
-
-        glBegin(GL_QUADS);
-        glTexCoord2f(0.0f, 0.0f); glVertex2f(x, y);
-        glTexCoord2f(1.0f, 0.0f); glVertex2f(x + width, y);
-        glTexCoord2f(1.0f, 1.0f); glVertex2f(x + width, y + buttonHeight);
-        glTexCoord2f(0.0f, 1.0f); glVertex2f(x, y + buttonHeight);
-        glEnd();
+    private void drawButton(float x, float y, int sprite, boolean isHovered, float width) {
+        // Full brightness when hovered, slightly dimmed when not
+        sprites.draw(batch, sprite, x, y, width, buttonHeight, isHovered ? 0xffffffff : 0xccccccff);
     }
 
     public void handleMousePosition(double mouseX, double mouseY) {
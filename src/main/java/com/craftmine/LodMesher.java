@@ -0,0 +1,143 @@
+package com.craftmine;
+
+import java.util.Arrays;
+
+/**
+ * Builds low-detail meshes of a whole chunk column for distant terrain.
+ *
+ * The chunk's surface (height and top block of every column) is averaged over
+ * square cells of 2, 4 or 8 columns. Each cell becomes a flat top with walls
+ * down to lower neighbouring cells. Along the chunk's edges the walls run down
+ * to the bottom of the world as skirts, so chunks drawn at different levels,
+ * or next to full-detail chunks, never leave cracks between them.
+ *
+ * Needs no OpenGL context. An instance reuses its scratch buffers and must not
+ * be shared between threads.
+ */
+public class LodMesher {
+    // Columns per cell side at each level of detail
+    public static final int[] DECIMATION = { 2, 4, 8 };
+
+    private static final TerrainGeneration.BlockType[] BLOCK_TYPES = TerrainGeneration.BlockType.values();
+    private static final int SIZE = Chunk.SIZE;
+    private static final float H = 0.5f;  // Blocks are unit cubes centred on their coordinates
+
+    private final BlockAccess blocks;
+    private final MeshBuilder builder = new MeshBuilder();
+    private final int[] heights = new int[SIZE * SIZE];  // Top block of each column, -1 for none
+    private final TerrainGeneration.BlockType[] tops = new TerrainGeneration.BlockType[SIZE * SIZE];
+    private final int[] cellHeights = new int[SIZE * SIZE];
+    private final TerrainGeneration.BlockType[] cellTops = new TerrainGeneration.BlockType[SIZE * SIZE];
+    private final int[] typeCounts = new int[BLOCK_TYPES.length];
+
+    public LodMesher(BlockAccess blocks) {
+        this.blocks = blocks;
+    }
+
+    /**
+     * Reads the surface of a chunk; call before {@link #build} for its levels.
+     */
+    public void scanSurface(int chunkX, int chunkZ) {
+        for (int x = 0; x < SIZE; x++) {
+            for (int z = 0; z < SIZE; z++) {
+                int y = blocks.getMaxHeight() - 1;
+                TerrainGeneration.BlockType top = null;
+                while (y >= 0 && (top = blocks.getBlock(chunkX * SIZE + x, chunkZ * SIZE + z, y)) == null) {
+                    y--;
+                }
+                heights[x * SIZE + z] = y;
+                tops[x * SIZE + z] = top;
+            }
+        }
+    }
+
+    /**
+     * Mesh of the last scanned chunk at one level (an index into {@link #DECIMATION}).
+     */
+    public MeshData build(int chunkX, int chunkZ, int level) {
+        int cellSize = DECIMATION[level];
+        int cells = SIZE / cellSize;
+        for (int i = 0; i < cells; i++) {
+            for (int j = 0; j < cells; j++) {
+                summarizeCell(i, j, cellSize, cells);
+            }
+        }
+
+        for (int i = 0; i < cells; i++) {
+            for (int j = 0; j < cells; j++) {
+                int height = cellHeights[i * cells + j];
+                if (height < 0) {
+                    continue;  // No blocks at all in this cell
+                }
+                TerrainGeneration.BlockType top = cellTops[i * cells + j];
+                int pass = top == TerrainGeneration.BlockType.WATER ? MeshData.TRANSPARENT : MeshData.OPAQUE;
+                float minX = chunkX * SIZE + i * cellSize - H;
+                float minZ = chunkZ * SIZE + j * cellSize - H;
+                float maxX = minX + cellSize;
+                float maxZ = minZ + cellSize;
+                float topY = height + H;
+
+                builder.addQuad(pass * ChunkMesher.TEXTURE_COUNT + ChunkMesher.textureFor(top, ChunkMesher.TOP),
+                    ChunkMesher.TOP, minX, topY, minZ, maxX, topY, maxZ, cellSize, cellSize);
+
+                // Walls down to lower neighbours, and skirts to the world's bottom on the chunk edge
+                int north = j + 1 < cells ? cellHeights[i * cells + j + 1] : -1;
+                int south = j > 0 ? cellHeights[i * cells + j - 1] : -1;
+                int east = i + 1 < cells ? cellHeights[(i + 1) * cells + j] : -1;
+                int west = i > 0 ? cellHeights[(i - 1) * cells + j] : -1;
+                if (north < height) {
+                    addWall(pass, top, ChunkMesher.NORTH, minX, north + H, maxZ, maxX, topY, maxZ, cellSize);
+                }
+                if (south < height) {
+                    addWall(pass, top, ChunkMesher.SOUTH, minX, south + H, minZ, maxX, topY, minZ, cellSize);
+                }
+                if (east < height) {
+                    addWall(pass, top, ChunkMesher.EAST, maxX, east + H, minZ, maxX, topY, maxZ, cellSize);
+                }
+                if (west < height) {
+                    addWall(pass, top, ChunkMesher.WEST, minX, west + H, minZ, minX, topY, maxZ, cellSize);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private void addWall(int pass, TerrainGeneration.BlockType top, int face,
+                         float minX, float minY, float minZ, float maxX, float maxY, float maxZ, int cellSize) {
+        builder.addQuad(pass * ChunkMesher.TEXTURE_COUNT + ChunkMesher.textureFor(top, face),
+            face, minX, minY, minZ, maxX, maxY, maxZ, cellSize, maxY - minY);
+    }
+
+    /**
+     * Height of a cell is the rounded mean of its columns, its top block the most common one.
+     */
+    private void summarizeCell(int i, int j, int cellSize, int cells) {
+        Arrays.fill(typeCounts, 0);
+        int sum = 0;
+        int columns = 0;
+        for (int x = i * cellSize; x < (i + 1) * cellSize; x++) {
+            for (int z = j * cellSize; z < (j + 1) * cellSize; z++) {
+                int column = x * SIZE + z;
+                if (heights[column] < 0) {
+                    continue;
+                }
+                sum += heights[column];
+                columns++;
+                typeCounts[tops[column].ordinal()]++;
+            }
+        }
+        if (columns == 0) {
+            cellHeights[i * cells + j] = -1;
+            cellTops[i * cells + j] = null;
+            return;
+        }
+        int mostCommon = 0;
+        for (int type = 1; type < typeCounts.length; type++) {
+            if (typeCounts[type] > typeCounts[mostCommon]) {
+                mostCommon = type;
+            }
+        }
+        cellHeights[i * cells + j] = Math.round((float)sum / columns);
+        cellTops[i * cells + j] = BLOCK_TYPES[mostCommon];
+    }
+}
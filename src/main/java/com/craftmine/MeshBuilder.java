@@ -0,0 +1,125 @@
+package com.craftmine;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * Collects textured quads by pass and texture slot and packs them into a
+ * pooled {@link MeshData}. Shared by {@link ChunkMesher} and {@link LodMesher}.
+ *
+ * Reuses its scratch arrays between meshes; not thread-safe.
+ */
+public class MeshBuilder {
+    public static final int GROUPS = 2 * ChunkMesher.TEXTURE_COUNT;
+
+    // Corner signs and texture coordinates of each face, four x, y, z, u, v corners per face
+    private static final float[][] FACE_VERTICES = {
+        { -1,  1, -1, 0, 0,    1,  1, -1, 1, 0,    1,  1,  1, 1, 1,   -1,  1,  1, 0, 1 },  // Top
+        { -1, -1, -1, 0, 1,    1, -1, -1, 1, 1,    1, -1,  1, 1, 0,   -1, -1,  1, 0, 0 },  // Bottom
+        { -1, -1,  1, 0, 1,    1, -1,  1, 1, 1,    1,  1,  1, 1, 0,   -1,  1,  1, 0, 0 },  // North
+        { -1, -1, -1, 1, 1,   -1,  1, -1, 1, 0,    1,  1, -1, 0, 0,    1, -1, -1, 0, 1 },  // South
+        {  1, -1, -1, 1, 1,    1,  1, -1, 1, 0,    1,  1,  1, 0, 0,    1, -1,  1, 0, 1 },  // East
+        { -1, -1, -1, 0, 1,   -1, -1,  1, 1, 1,   -1,  1,  1, 1, 0,   -1,  1, -1, 0, 0 },  // West
+    };
+
+    // Light of all four corners, two bits each in the corner order above, as addQuad takes it
+    public static final int ALL_CORNERS_LIT = 0xff;
+
+    private static final int FLOATS_PER_CORNER = 5;
+    private static final int FLOATS_PER_FACE = MeshData.VERTICES_PER_FACE * MeshData.FLOATS_PER_VERTEX;
+
+    // Vertex buffers travel from the loader threads to the render thread and back
+    private static final BufferPool VERTEX_BUFFERS = new BufferPool(32L * 1024 * 1024);
+
+    private final float[][] groups = new float[GROUPS][];  // Scratch vertices per pass and texture
+    private final int[] groupSizes = new int[GROUPS];
+
+    public MeshBuilder() {
+        for (int i = 0; i < GROUPS; i++) {
+            groups[i] = new float[FLOATS_PER_FACE * 64];
+        }
+    }
+
+    public static BufferPool getVertexBufferPool() {
+        return VERTEX_BUFFERS;
+    }
+
+    public void clear() {
+        Arrays.fill(groupSizes, 0);
+    }
+
+    /**
+     * Sign, -1 or 1, of a face corner's offset from the face centre along axis (0 = x, 1 = y, 2 = z).
+     */
+    public static int cornerSign(int face, int corner, int axis) {
+        return FACE_VERTICES[face][corner * FLOATS_PER_CORNER + axis] < 0 ? -1 : 1;
+    }
+
+    /**
+     * Adds one face of the box from min to max to a group (pass * TEXTURE_COUNT + texture),
+     * fully lit. The texture repeats repeatU times along the face's u axis and repeatV times along v.
+     */
+    public void addQuad(int group, int face, float minX, float minY, float minZ, float maxX, float maxY, float maxZ,
+                        float repeatU, float repeatV) {
+        addQuad(group, face, minX, minY, minZ, maxX, maxY, maxZ, repeatU, repeatV, ALL_CORNERS_LIT);
+    }
+
+    /**
+     * Adds a face with the given light per corner, 0 to 3, packed as for {@link #ALL_CORNERS_LIT}.
+     *
+     * Quads are drawn as the triangles 0, 1, 2 and 2, 3, 0. Starting the quad at
+     * its second corner moves that split to the other diagonal, so the split
+     * always joins the pair of corners brighter together. A lone dark corner
+     * then only darkens its own triangle, and a quad shades the same whichever
+     * way it faces.
+     */
+    public void addQuad(int group, int face, float minX, float minY, float minZ, float maxX, float maxY, float maxZ,
+                        float repeatU, float repeatV, int light) {
+        float[] out = groups[group];
+        int length = groupSizes[group];
+        if (length + FLOATS_PER_FACE > out.length) {
+            out = Arrays.copyOf(out, out.length * 2);
+            groups[group] = out;
+        }
+        float layer = group % ChunkMesher.TEXTURE_COUNT;
+        float[] corners = FACE_VERTICES[face];
+        int first = cornerLight(light, 0) + cornerLight(light, 2) < cornerLight(light, 1) + cornerLight(light, 3) ? 1 : 0;
+        for (int k = 0; k < MeshData.VERTICES_PER_FACE; k++) {
+            int corner = (first + k) % MeshData.VERTICES_PER_FACE;
+            int i = corner * FLOATS_PER_CORNER;
+            out[length++] = corners[i] < 0 ? minX : maxX;
+            out[length++] = corners[i + 1] < 0 ? minY : maxY;
+            out[length++] = corners[i + 2] < 0 ? minZ : maxZ;
+            out[length++] = corners[i + 3] * repeatU;
+            out[length++] = corners[i + 4] * repeatV;
+            out[length++] = layer + MeshData.LIGHT_STEP * cornerLight(light, corner);
+        }
+        groupSizes[group] = length;
+    }
+
+    private static int cornerLight(int light, int corner) {
+        return light >> 2 * corner & 3;
+    }
+
+    /**
+     * Packs the collected quads into one pooled buffer and clears the builder.
+     */
+    public MeshData build() {
+        int total = 0;
+        for (int length : groupSizes) {
+            total += length;
+        }
+        // Concatenate the groups so the whole mesh fits one vertex buffer
+        FloatBuffer vertices = VERTEX_BUFFERS.acquire(total);
+        int[] first = new int[GROUPS];
+        int[] count = new int[GROUPS];
+        for (int group = 0; group < GROUPS; group++) {
+            first[group] = vertices.position() / MeshData.FLOATS_PER_VERTEX;
+            count[group] = groupSizes[group] / MeshData.FLOATS_PER_VERTEX;
+            vertices.put(groups[group], 0, groupSizes[group]);
+        }
+        vertices.flip();
+        clear();
+        return new MeshData(vertices, first, count, VERTEX_BUFFERS);
+    }
+}
@@ -0,0 +1,83 @@
+package com.craftmine;
+
+import java.nio.FloatBuffer;
+
+/**
+ * CPU-side mesh of one chunk section, as built by {@link ChunkMesher}.
+ *
+ * Vertices are interleaved x, y, z, u, v, layer floats in world space, drawn
+ * as quads; layer is the block texture array layer (the texture slot) plus
+ * {@link #LIGHT_STEP} times the corner's light, 0 to 3 as in
+ * {@link PackedVertices}, so ambient occlusion costs no extra vertex data. They
+ * are grouped by pass (opaque, then transparent) and within a pass by texture
+ * slot, so a whole pass is one draw call with the texture array, and one per
+ * texture without it.
+ *
+ * The vertices live in a pooled direct buffer; call {@link #release()} once
+ * they are uploaded or no longer needed.
+ */
+public class MeshData {
+    public static final int FLOATS_PER_VERTEX = 6;
+    public static final int VERTICES_PER_FACE = 4;
+    public static final int OPAQUE = 0;
+    public static final int TRANSPARENT = 1;
+    public static final int LIGHT_STEP = 16;  // Above the highest texture layer
+
+    final FloatBuffer vertices;  // Position 0, limit at the last vertex
+    final int[] first;  // First vertex of each group, indexed pass * TEXTURE_COUNT + texture
+    final int[] count;  // Vertex count of each group
+    private final BufferPool pool;
+
+    MeshData(FloatBuffer vertices, int[] first, int[] count, BufferPool pool) {
+        this.vertices = vertices;
+        this.first = first;
+        this.count = count;
+        this.pool = pool;
+    }
+
+    /**
+     * Hands the vertex buffer back to its pool. The mesh must not be used afterwards.
+     */
+    public void release() {
+        pool.release(vertices);
+    }
+
+    public int getByteSize() {
+        return vertices.limit() * Float.BYTES;
+    }
+
+    /**
+     * First vertex of a pass; its vertices are contiguous.
+     */
+    public int getFirst(int pass) {
+        return first[pass * ChunkMesher.TEXTURE_COUNT];
+    }
+
+    public int getVertexCount(int pass) {
+        int vertices = 0;
+        for (int texture = 0; texture < ChunkMesher.TEXTURE_COUNT; texture++) {
+            vertices += count[pass * ChunkMesher.TEXTURE_COUNT + texture];
+        }
+        return vertices;
+    }
+
+    public int getVertexCount() {
+        return vertices.limit() / FLOATS_PER_VERTEX;
+    }
+
+    public int getFaceCount() {
+        return getVertexCount() / VERTICES_PER_FACE;
+    }
+
+    public int getFaceCount(int pass) {
+        return getVertexCount(pass) / VERTICES_PER_FACE;
+    }
+
+    public int getFaceCount(int pass, int texture) {
+        return count[pass * ChunkMesher.TEXTURE_COUNT + texture] / VERTICES_PER_FACE;
+    }
+
+    public boolean isEmpty() {
+        return vertices.limit() == 0;
+    }
+}
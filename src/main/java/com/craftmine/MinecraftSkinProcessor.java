@@ -1,6 +1,7 @@
 package com.craftmine;
 
 import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.GL_CLAMP_TO_EDGE;
 import java.awt.image.BufferedImage;
 import javax.imageio.ImageIO;
 import java.io.File;
@@ -220,18 +221,18 @@ public class MinecraftSkinProcessor {
             
             // Delete existing texture if there is one
             if (skinTexture != -1) {
-                glDeleteTextures(skinTexture);
+                GLState.deleteTexture(skinTexture);
             }
             
             // Generate and bind the texture
             skinTexture = glGenTextures();
-            glBindTexture(GL_TEXTURE_2D, skinTexture);
+            GLState.bindTexture(GL_TEXTURE_2D, skinTexture);
             
             // Set texture parameters
             glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
             glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
-            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP);
-            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP);
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
             
             // Upload the texture to GPU
             glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, SKIN_WIDTH, SKIN_HEIGHT, 
@@ -274,16 +275,13 @@ public class MinecraftSkinProcessor {
 
     public void bindSkinTexture() {
         if (hasLoadedSkin && skinTexture != -1) {
-            glBindTexture(GL_TEXTURE_2D, skinTexture);
-            System.out.println("Binding skin texture: " + skinTexture);
-        } else {
-            System.out.println("Cannot bind skin texture. HasLoadedSkin: " + hasLoadedSkin + ", TextureID: " + skinTexture);
+            GLState.bindTexture(GL_TEXTURE_2D, skinTexture);
         }
     }
 
     public void cleanup() {
         if (skinTexture != -1) {
-            glDeleteTextures(skinTexture);
+            GLState.deleteTexture(skinTexture);
             skinTexture = -1;
         }
     }
@@ -326,11 +324,5 @@ public class MinecraftSkinProcessor {
     public float[] getLeftLegBackUV() { return LEFT_LEG_BACK_UV; }
     public float[] getLeftLegRightUV() { return LEFT_LEG_RIGHT_UV; }
     public float[] getLeftLegLeftUV() { return LEFT_LEG_LEFT_UV; }
-    
-    public void applyUVToQuad(float[] uvCoords) {
-        glTexCoord2f(uvCoords[0], uvCoords[1]); // Top-left
-        glTexCoord2f(uvCoords[2], uvCoords[1]); // Top-right
-        glTexCoord2f(uvCoords[2], uvCoords[3]); // Bottom-right
-        glTexCoord2f(uvCoords[0], uvCoords[3]); // Bottom-left
-    }
+
 }
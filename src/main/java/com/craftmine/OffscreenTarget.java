@@ -0,0 +1,94 @@
+package com.craftmine;
+
+import org.lwjgl.opengl.GL;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.stb.STBImageWrite.stbi_flip_vertically_on_write;
+import static org.lwjgl.stb.STBImageWrite.stbi_write_png;
+import static org.lwjgl.system.MemoryUtil.memAlloc;
+import static org.lwjgl.system.MemoryUtil.memFree;
+
+/**
+ * A framebuffer object with colour and depth renderbuffers, drawn into instead
+ * of a window, whose pixels can be saved as PNG. Needs OpenGL 3.0.
+ */
+public class OffscreenTarget {
+    private final int width;
+    private final int height;
+    private final int framebuffer;
+    private final int colorBuffer;
+    private final int depthBuffer;
+
+    public OffscreenTarget(int width, int height) {
+        if (!GL.getCapabilities().OpenGL30) {
+            throw new IllegalStateException("Offscreen rendering needs OpenGL 3.0 framebuffer objects");
+        }
+        this.width = width;
+        this.height = height;
+
+        colorBuffer = glGenRenderbuffers();
+        glBindRenderbuffer(GL_RENDERBUFFER, colorBuffer);
+        glRenderbufferStorage(GL_RENDERBUFFER, GL_RGBA8, width, height);
+        depthBuffer = glGenRenderbuffers();
+        glBindRenderbuffer(GL_RENDERBUFFER, depthBuffer);
+        glRenderbufferStorage(GL_RENDERBUFFER, GL_DEPTH_COMPONENT24, width, height);
+        glBindRenderbuffer(GL_RENDERBUFFER, 0);
+
+        framebuffer = glGenFramebuffers();
+        glBindFramebuffer(GL_FRAMEBUFFER, framebuffer);
+        glFramebufferRenderbuffer(GL_FRAMEBUFFER, GL_COLOR_ATTACHMENT0, GL_RENDERBUFFER, colorBuffer);
+        glFramebufferRenderbuffer(GL_FRAMEBUFFER, GL_DEPTH_ATTACHMENT, GL_RENDERBUFFER, depthBuffer);
+        int status = glCheckFramebufferStatus(GL_FRAMEBUFFER);
+        glBindFramebuffer(GL_FRAMEBUFFER, 0);
+        if (status != GL_FRAMEBUFFER_COMPLETE) {
+            delete();
+            throw new IllegalStateException("Offscreen framebuffer incomplete: 0x" + Integer.toHexString(status));
+        }
+    }
+
+    /**
+     * Directs drawing into this target, over all of it.
+     */
+    public void bind() {
+        glBindFramebuffer(GL_FRAMEBUFFER, framebuffer);
+        glViewport(0, 0, width, height);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Saves what has been drawn so far as an opaque PNG. Waits for the GPU to finish.
+     */
+    public void writePng(Path file) {
+        ByteBuffer pixels = memAlloc(width * height * 3);
+        try {
+            glBindFramebuffer(GL_READ_FRAMEBUFFER, framebuffer);
+            glPixelStorei(GL_PACK_ALIGNMENT, 1);
+            // The clear colour's alpha is 0, so leave alpha out rather than save a transparent sky
+            glReadPixels(0, 0, width, height, GL_RGB, GL_UNSIGNED_BYTE, pixels);
+            // GL rows run bottom to top, PNG rows top to bottom
+            stbi_flip_vertically_on_write(true);
+            if (!stbi_write_png(file.toString(), width, height, 3, pixels, width * 3)) {
+                throw new IllegalStateException("Failed to write " + file);
+            }
+        } finally {
+            memFree(pixels);
+        }
+    }
+
+    public void delete() {
+        glDeleteFramebuffers(framebuffer);
+        glDeleteRenderbuffers(colorBuffer);
+        glDeleteRenderbuffers(depthBuffer);
+    }
+}
@@ -0,0 +1,92 @@
+package com.craftmine;
+
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Compact GPU vertex format for terrain: 4 bytes per vertex instead of the 24
+ * of {@link MeshData}'s floats, unpacked by shaders/terrain_packed.vert.
+ *
+ * Every mesh corner lies on a block edge and every texture coordinate is a
+ * whole number of block repeats, so a vertex fits two unsigned shorts:
+ * <pre>
+ *   position: x | y << 5 | z << 10            (block edges from the mesh origin, 0-31)
+ *   texture:  u | v << 5 | layer << 10 | light << 14
+ * </pre>
+ * The mesh origin (the low corner of its box) is passed to the shader per draw.
+ * Light is 0-3, scaling the colour by (light + 1) / 4; it comes from the layer
+ * float of {@link MeshData}, where the mesher puts its ambient occlusion.
+ *
+ * Needs no OpenGL context.
+ */
+public class PackedVertices {
+    public static final int BYTES_PER_VERTEX = 2 * Short.BYTES;
+    public static final int FULL_LIGHT = 3;
+
+    private static final int FIELD_BITS = 5;
+    private static final int FIELD_MAX = (1 << FIELD_BITS) - 1;
+    private static final int LAYER_MAX = 15;
+
+    private PackedVertices() {
+    }
+
+    /**
+     * Packs count vertices starting at vertex first of a MeshData-layout buffer into out.
+     */
+    public static void pack(FloatBuffer vertices, int first, int count, float originX, float originY, float originZ, ShortBuffer out) {
+        for (int vertex = first; vertex < first + count; vertex++) {
+            int base = vertex * MeshData.FLOATS_PER_VERTEX;
+            int x = field(vertices.get(base) - originX);
+            int y = field(vertices.get(base + 1) - originY);
+            int z = field(vertices.get(base + 2) - originZ);
+            int u = field(vertices.get(base + 3));
+            int v = field(vertices.get(base + 4));
+            int layerAndLight = Math.round(vertices.get(base + 5));
+            int layer = layerAndLight % MeshData.LIGHT_STEP;
+            int light = layerAndLight / MeshData.LIGHT_STEP;
+            if (layer < 0 || layer > LAYER_MAX || light > FULL_LIGHT) {
+                throw new IllegalArgumentException("Texture layer " + layerAndLight + " does not fit the packed format");
+            }
+            out.put((short)(x | y << FIELD_BITS | z << 2 * FIELD_BITS));
+            out.put((short)(u | v << FIELD_BITS | layer << 2 * FIELD_BITS | light << 14));
+        }
+    }
+
+    private static int field(float value) {
+        int rounded = Math.round(value);
+        if (rounded < 0 || rounded > FIELD_MAX) {
+            throw new IllegalArgumentException("Value " + value + " does not fit the packed format");
+        }
+        return rounded;
+    }
+
+    // Decoding, as the shader does it
+
+    public static int getX(short position) {
+        return position & FIELD_MAX;
+    }
+
+    public static int getY(short position) {
+        return position >> FIELD_BITS & FIELD_MAX;
+    }
+
+    public static int getZ(short position) {
+        return position >> 2 * FIELD_BITS & FIELD_MAX;
+    }
+
+    public static int getU(short texture) {
+        return texture & FIELD_MAX;
+    }
+
+    public static int getV(short texture) {
+        return texture >> FIELD_BITS & FIELD_MAX;
+    }
+
+    public static int getLayer(short texture) {
+        return texture >> 2 * FIELD_BITS & LAYER_MAX;
+    }
+
+    public static int getLight(short texture) {
+        return (texture & 0xffff) >> 14;
+    }
+}
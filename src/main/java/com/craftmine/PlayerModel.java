@@ -1,13 +1,30 @@
 package com.craftmine;
 
+import org.joml.Matrix4f;
+import org.joml.Matrix4fc;
+import org.joml.Vector3f;
+import org.lwjgl.BufferUtils;
+
+import java.nio.FloatBuffer;
+
 import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.GL_TEXTURE0;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.glGenVertexArrays;
 
+/**
+ * The player's body, drawn with the skin of a {@link MinecraftSkinProcessor}.
+ *
+ * Every box of the model is baked once into a vertex buffer, each vertex
+ * relative to the pivot of its part (the neck for the head, shoulders for the
+ * arms, hips for the legs) and tagged with the part. A pose is then nothing
+ * but one matrix per part, uploaded to shaders/player.vert with the draw, so
+ * a frame sends 7 matrices instead of re-emitting every quad. Drawing many
+ * models the same way only needs those matrices per instance.
+ */
 public class PlayerModel {
-    private MinecraftSkinProcessor skinProcessor;
-    private float rotationY = 0;
-    private boolean isInGame = false;  // Add flag for in-game model
-    
-    // Standard Minecraft dimensions (in blocks)
+    // Standard Minecraft dimensions (in skin pixels)
     private static final float HEAD_SIZE = 8.0f;
     private static final float BODY_WIDTH = 8.0f;
     private static final float BODY_HEIGHT = 12.0f;
@@ -16,444 +33,244 @@ public class PlayerModel {
     private static final float ARM_HEIGHT = 12.0f;
     private static final float LEG_WIDTH = 4.0f;
     private static final float LEG_HEIGHT = 12.0f;
-    
+
+    // Parts, in the order of their matrices
+    static final int HEAD = 0;
+    static final int BODY = 1;
+    static final int RIGHT_ARM = 2;
+    static final int LEFT_ARM = 3;
+    static final int RIGHT_LEG = 4;
+    static final int LEFT_LEG = 5;
+    static final int PART_COUNT = 6;
+
+    // Where each part turns, in model space, feet at the origin
+    private static final float[][] PIVOTS = {
+        { 0, ARM_HEIGHT + BODY_HEIGHT, 0 },
+        { 0, ARM_HEIGHT, 0 },
+        { -BODY_WIDTH / 2 - ARM_WIDTH / 2, 2 * ARM_HEIGHT, 0 },
+        { BODY_WIDTH / 2 + ARM_WIDTH / 2, 2 * ARM_HEIGHT, 0 },
+        { -LEG_WIDTH / 2, LEG_HEIGHT, 0 },
+        { LEG_WIDTH / 2, LEG_HEIGHT, 0 }
+    };
+
+    // Baked vertices: position relative to the part's pivot, skin u and v, part
+    static final int FLOATS_PER_VERTEX = 6;
+    private static final int BYTES_PER_VERTEX = FLOATS_PER_VERTEX * Float.BYTES;
+    private static final String[] ATTRIBUTES = { "position", "skinTexCoord", "part" };
+
+    private final MinecraftSkinProcessor skinProcessor;
+    private float rotationY = 0;
+    private ShaderProgram shader;
+    private int modelViewProjectionLocation;
+    private int partsLocation;
+    private int vbo;
+    private int vao;  // Only with GLSL 3.30, which needs one
+    private int vertexCount;
+
+    // Per draw, reused
+    private final Matrix4f modelViewProjection = new Matrix4f();
+    private final Matrix4f part = new Matrix4f();
+    private final FloatBuffer modelViewProjectionBuffer = BufferUtils.createFloatBuffer(16);
+    private final FloatBuffer partsBuffer = BufferUtils.createFloatBuffer(16 * PART_COUNT);
+
     public PlayerModel(MinecraftSkinProcessor skinProcessor) {
         this.skinProcessor = skinProcessor;
+        if (skinProcessor == null) {
+            return;  // Nothing to draw
+        }
+        float[] vertices = bake(skinProcessor);
+        vertexCount = vertices.length / FLOATS_PER_VERTEX;
+
+        shader = new ShaderProgram("shaders/player.vert", "shaders/player.frag", ATTRIBUTES);
+        shader.use();
+        modelViewProjectionLocation = shader.getUniformLocation("modelViewProjection");
+        partsLocation = shader.getUniformLocation("parts");
+        glUniform1i(shader.getUniformLocation("skin"), 0);
+        ShaderProgram.useNone();
+
+        vbo = glGenBuffers();
+        GLState.bindBuffer(GL_ARRAY_BUFFER, vbo);
+        FloatBuffer buffer = BufferUtils.createFloatBuffer(vertices.length);
+        buffer.put(vertices).flip();
+        glBufferData(GL_ARRAY_BUFFER, buffer, GL_STATIC_DRAW);
+        if (ShaderProgram.isCoreGlsl()) {
+            vao = glGenVertexArrays();
+            GLState.bindVertexArray(vao);
+            enableArrays();
+            setPointers();
+            GLState.bindVertexArray(0);
+        }
+        GLState.bindBuffer(GL_ARRAY_BUFFER, 0);
     }
-    
+
     public void setRotationY(float rotation) {
         this.rotationY = rotation;
     }
-    
-    public void setInGame(boolean inGame) {
-        this.isInGame = inGame;
+
+    public void updateRotation(float deltaY) {
+        rotationY += deltaY;
+        if (rotationY > 360) rotationY -= 360;
+        if (rotationY < 0) rotationY += 360;
     }
-    
-    public void render(float scale) {
-        if (skinProcessor == null) {
-            System.out.println("Cannot render: skinProcessor is null");
-            return;
-        }
-        
-        System.out.println("=== Starting Player Model Render ===");
-        
-        glPushMatrix();
-        glEnable(GL_TEXTURE_2D);
-        glEnable(GL_DEPTH_TEST);
-        
-        // Apply model rotation
-        glRotatef(rotationY, 0, 1, 0);
-        
-        // Scale the entire model
-        glScalef(scale, scale, scale);
-        
-        // Bind texture
-        skinProcessor.bindSkinTexture();
-        glColor4f(1.0f, 1.0f, 1.0f, 1.0f);
-        
-        // Render head with all faces
-        renderHead(scale);
-        
-        // Body
-        glPushMatrix();
-        glTranslatef(-BODY_WIDTH/2, ARM_HEIGHT, -BODY_DEPTH/2);
-        renderTorso(BODY_WIDTH, BODY_HEIGHT, BODY_DEPTH);
-        glPopMatrix();
-        
-        // Right Arm
-        glPushMatrix();
-        glTranslatef(-BODY_WIDTH/2 - ARM_WIDTH, ARM_HEIGHT, -ARM_WIDTH/2);
-        renderLimb(ARM_WIDTH, ARM_HEIGHT, ARM_WIDTH, true, true);
-        glPopMatrix();
-        
-        // Left Arm
-        glPushMatrix();
-        glTranslatef(BODY_WIDTH/2, ARM_HEIGHT, -ARM_WIDTH/2);
-        renderLimb(ARM_WIDTH, ARM_HEIGHT, ARM_WIDTH, true, false);
-        glPopMatrix();
-        
-        // Right Leg - moved right by half leg width
-        glPushMatrix();
-        glTranslatef(-LEG_WIDTH/2 - LEG_WIDTH/2, 0, -LEG_WIDTH/2);
-        renderLimb(LEG_WIDTH, LEG_HEIGHT, LEG_WIDTH, false, true);
-        glPopMatrix();
-        
-        // Left Leg - moved right by half leg width
-        glPushMatrix();
-        glTranslatef(LEG_WIDTH/2 - LEG_WIDTH/2, 0, -LEG_WIDTH/2);
-        renderLimb(LEG_WIDTH, LEG_HEIGHT, LEG_WIDTH, false, false);
-        glPopMatrix();
-        
-        glPopMatrix();
-        
-        System.out.println("=== Player Model Render Complete ===");
+
+    /**
+     * Draws the model turned by its own rotation, looking straight ahead.
+     */
+    public void render(Matrix4fc projection, Matrix4fc modelView, float scale) {
+        projection.mul(modelView, modelViewProjection)
+            .rotateY((float)Math.toRadians(rotationY))
+            .scale(scale);
+        draw(0, 0);
     }
-    
-    public void renderWithHeadRotation(float scale, float headYaw, float headPitch) {
-        if (skinProcessor == null) {
-            System.out.println("Cannot render: skinProcessor is null");
+
+    /**
+     * Draws the model with the head turned by yaw and pitch degrees at the neck.
+     */
+    public void renderWithHeadRotation(Matrix4fc projection, Matrix4fc modelView, float scale, float headYaw, float headPitch) {
+        projection.mul(modelView, modelViewProjection).scale(scale);
+        draw(headYaw, headPitch);
+    }
+
+    private void draw(float headYaw, float headPitch) {
+        if (shader == null) {
             return;
         }
-        
-        glPushMatrix();
-        glEnable(GL_TEXTURE_2D);
-        
-        // Scale the entire model
-        glScalef(scale, scale, scale);
-        
-        // Bind texture
+        for (int i = 0; i < PART_COUNT; i++) {
+            poseMatrix(i, headYaw, headPitch, part).get(16 * i, partsBuffer);
+        }
+
+        shader.use();
+        glUniformMatrix4fv(modelViewProjectionLocation, false, modelViewProjection.get(modelViewProjectionBuffer));
+        glUniformMatrix4fv(partsLocation, false, partsBuffer);
+        GLState.activeTexture(GL_TEXTURE0);
         skinProcessor.bindSkinTexture();
-        glColor4f(1.0f, 1.0f, 1.0f, 1.0f);
-        
-        // Render body parts (no rotation)
-        renderBody(1.0f);
-        renderArms(1.0f);
-        renderLegs(1.0f);
-        
-        // Render head with rotation - fixed positioning
-        glPushMatrix();
-        // Position the head at the top of the body
-        glTranslatef(0.0f, ARM_HEIGHT + BODY_HEIGHT, 0.0f);
-        // Apply head rotation at this position (after translation)
-        glRotatef(headYaw, 0.0f, 1.0f, 0.0f);  // Apply yaw
-        glRotatef(headPitch, 1.0f, 0.0f, 0.0f);  // Apply pitch
-        // Translate to the corner of the head cube for rendering
-        glTranslatef(-HEAD_SIZE/2, 0, -HEAD_SIZE/2);
-        
-        // Render each face of the head
-        // Front face
-        glPushMatrix();
-        glTranslatef(0, 0, HEAD_SIZE);
-        renderFace(HEAD_SIZE, HEAD_SIZE, 0, skinProcessor.getHeadFrontUV(), true);
-        glPopMatrix();
-        
-        // Back face
-        glPushMatrix();
-        glTranslatef(HEAD_SIZE, 0, 0);
-        glRotatef(180, 0, 1, 0);
-        renderFace(HEAD_SIZE, HEAD_SIZE, 0, skinProcessor.getHeadBackUV(), true);
-        glPopMatrix();
-        
-        // Right face
-        glPushMatrix();
-        glTranslatef(HEAD_SIZE, 0, HEAD_SIZE);
-        glRotatef(90, 0, 1, 0);
-        renderFace(HEAD_SIZE, HEAD_SIZE, 0, skinProcessor.getHeadRightUV(), true);
-        glPopMatrix();
-        
-        // Left face
-        glPushMatrix();
-        glTranslatef(0, 0, 0);
-        glRotatef(-90, 0, 1, 0);
-        renderFace(HEAD_SIZE, HEAD_SIZE, 0, skinProcessor.getHeadLeftUV(), true);
-        glPopMatrix();
-        
-        // Top face
-        glPushMatrix();
-        glTranslatef(0, HEAD_SIZE, HEAD_SIZE);
-        glRotatef(-90, 1, 0, 0);
-        renderFace(HEAD_SIZE, HEAD_SIZE, 0, skinProcessor.getHeadTopUV(), true);
-        glPopMatrix();
-        
-        // Bottom face
-        glPushMatrix();
-        glTranslatef(0, 0, 0);
-        glRotatef(90, 1, 0, 0);
-        renderFace(HEAD_SIZE, HEAD_SIZE, 0, skinProcessor.getHeadBottomUV(), true);
-        glPopMatrix();
-        
-        glPopMatrix(); // Pop head matrix
-        
-        glPopMatrix(); // Pop main matrix
-    }
-    
-    private void renderHead(float scale) {
-        glPushMatrix();
-        // Move head above body but lower than before
-        glTranslatef(-HEAD_SIZE/2, BODY_HEIGHT + ARM_HEIGHT, -HEAD_SIZE/2);
-        
-        // Front face - moved forward
-        glPushMatrix();
-        glTranslatef(0, 0, HEAD_SIZE);
-        renderFace(HEAD_SIZE, HEAD_SIZE, 0, skinProcessor.getHeadFrontUV(), true);
-        glPopMatrix();
-        
-        // Back face
-        glPushMatrix();
-        glTranslatef(HEAD_SIZE, 0, 0);
-        glRotatef(180, 0, 1, 0);
-        renderFace(HEAD_SIZE, HEAD_SIZE, 0, skinProcessor.getHeadBackUV(), true);
-        glPopMatrix();
-        
-        // Right face
-        glPushMatrix();
-        glTranslatef(HEAD_SIZE, 0, HEAD_SIZE);
-        glRotatef(90, 0, 1, 0);
-        renderFace(HEAD_SIZE, HEAD_SIZE, 0, skinProcessor.getHeadRightUV(), true);
-        glPopMatrix();
-        
-        // Left face
-        glPushMatrix();
-        glTranslatef(0, 0, 0);
-        glRotatef(-90, 0, 1, 0);
-        renderFace(HEAD_SIZE, HEAD_SIZE, 0, skinProcessor.getHeadLeftUV(), true);
-        glPopMatrix();
-        
-        // Top face
-        glPushMatrix();
-        glTranslatef(0, HEAD_SIZE, HEAD_SIZE);
-        glRotatef(-90, 1, 0, 0);
-        renderFace(HEAD_SIZE, HEAD_SIZE, 0, skinProcessor.getHeadTopUV(), true);
-        glPopMatrix();
-        
-        // Bottom face
-        glPushMatrix();
-        glTranslatef(0, 0, 0);
-        glRotatef(90, 1, 0, 0);
-        renderFace(HEAD_SIZE, HEAD_SIZE, 0, skinProcessor.getHeadBottomUV(), true);
-        glPopMatrix();
-        
-        glPopMatrix();
+
+        if (vao != 0) {
+            GLState.bindVertexArray(vao);
+        } else {
+            GLState.bindBuffer(GL_ARRAY_BUFFER, vbo);
+            enableArrays();
+            setPointers();
+        }
+        glDrawArrays(GL_TRIANGLES, 0, vertexCount);
+        if (vao != 0) {
+            GLState.bindVertexArray(0);
+        } else {
+            disableArrays();
+        }
     }
-    
-    private void renderTorso(float width, float height, float depth) {
-        // Front face
-        glPushMatrix();
-        glTranslatef(0, 0, depth);
-        renderFace(width, height, 0, skinProcessor.getTorsoFrontUV(), true);
-        glPopMatrix();
-        
-        // Back face
-        glPushMatrix();
-        glTranslatef(width, 0, 0);
-        glRotatef(180, 0, 1, 0);
-        renderFace(width, height, 0, skinProcessor.getTorsoBackUV(), true);
-        glPopMatrix();
-        
-        // Right face
-        glPushMatrix();
-        glTranslatef(width, 0, depth);
-        glRotatef(90, 0, 1, 0);
-        renderFace(depth, height, 0, skinProcessor.getTorsoRightUV(), true);
-        glPopMatrix();
-        
-        // Left face
-        glPushMatrix();
-        glRotatef(-90, 0, 1, 0);
-        renderFace(depth, height, 0, skinProcessor.getTorsoLeftUV(), true);
-        glPopMatrix();
-        
-        // Top face
-        glPushMatrix();
-        glTranslatef(0, height, depth);
-        glRotatef(-90, 1, 0, 0);
-        renderFace(width, depth, 0, skinProcessor.getTorsoTopUV(), true);
-        glPopMatrix();
-        
-        // Bottom face
-        glPushMatrix();
-        glRotatef(90, 1, 0, 0);
-        renderFace(width, depth, 0, skinProcessor.getTorsoBottomUV(), true);
-        glPopMatrix();
+
+    /**
+     * Matrix taking a part's baked vertices to model space for a pose.
+     */
+    static Matrix4f poseMatrix(int part, float headYaw, float headPitch, Matrix4f dest) {
+        dest.translation(PIVOTS[part][0], PIVOTS[part][1], PIVOTS[part][2]);
+        if (part == HEAD) {
+            dest.rotateY((float)Math.toRadians(headYaw)).rotateX((float)Math.toRadians(headPitch));
+        }
+        return dest;
     }
-    
-    private void renderLimb(float width, float height, float depth, boolean isArm, boolean isRight) {
-        // Front face
-        glPushMatrix();
-        glTranslatef(0, 0, depth);
-        renderFace(width, height, 0, isArm ? 
-            (isRight ? skinProcessor.getRightArmFrontUV() : skinProcessor.getLeftArmFrontUV()) :
-            (isRight ? skinProcessor.getRightLegFrontUV() : skinProcessor.getLeftLegFrontUV()), 
-            true);
-        glPopMatrix();
-        
-        // Back face
-        glPushMatrix();
-        glTranslatef(width, 0, 0);
-        glRotatef(180, 0, 1, 0);
-        renderFace(width, height, 0, isArm ? 
-            (isRight ? skinProcessor.getRightArmBackUV() : skinProcessor.getLeftArmBackUV()) :
-            (isRight ? skinProcessor.getRightLegBackUV() : skinProcessor.getLeftLegBackUV()), 
-            true);
-        glPopMatrix();
-        
-        // Right face
-        glPushMatrix();
-        glTranslatef(width, 0, depth);
-        glRotatef(90, 0, 1, 0);
-        renderFace(depth, height, 0, isArm ? 
-            (isRight ? skinProcessor.getRightArmRightUV() : skinProcessor.getLeftArmRightUV()) :
-            (isRight ? skinProcessor.getRightLegRightUV() : skinProcessor.getLeftLegRightUV()), 
-            true);
-        glPopMatrix();
-        
-        // Left face
-        glPushMatrix();
-        glRotatef(-90, 0, 1, 0);
-        renderFace(depth, height, 0, isArm ? 
-            (isRight ? skinProcessor.getRightArmLeftUV() : skinProcessor.getLeftArmLeftUV()) :
-            (isRight ? skinProcessor.getRightLegLeftUV() : skinProcessor.getLeftLegLeftUV()), 
-            true);
-        glPopMatrix();
-        
-        // Top face
-        glPushMatrix();
-        glTranslatef(0, height, depth);
-        glRotatef(-90, 1, 0, 0);
-        renderFace(width, depth, 0, isArm ? 
-            (isRight ? skinProcessor.getRightArmFrontUV() : skinProcessor.getLeftArmFrontUV()) :
-            (isRight ? skinProcessor.getRightLegFrontUV() : skinProcessor.getLeftLegFrontUV()), 
-            true);
-        glPopMatrix();
-        
-        // Bottom face
-        glPushMatrix();
-        glRotatef(90, 1, 0, 0);
-        renderFace(width, depth, 0, isArm ? 
-            (isRight ? skinProcessor.getRightArmFrontUV() : skinProcessor.getLeftArmFrontUV()) :
-            (isRight ? skinProcessor.getRightLegFrontUV() : skinProcessor.getLeftLegFrontUV()), 
-            true);
-        glPopMatrix();
+
+    private static void enableArrays() {
+        for (int location = 0; location < ATTRIBUTES.length; location++) {
+            glEnableVertexAttribArray(location);
+        }
     }
-    
-    private void renderFace(float width, float height, float depth, float[] uvCoords, boolean rotate180) {
-        float u1 = uvCoords[0];
-        float v1 = uvCoords[1];
-        float u2 = uvCoords[2];
-        float v2 = uvCoords[3];
-        
-        if (rotate180) {
-            // Swap UV coordinates to rotate texture 180 degrees
-            float temp = u1;
-            u1 = u2;
-            u2 = temp;
-            temp = v1;
-            v1 = v2;
-            v2 = temp;
+
+    private static void disableArrays() {
+        for (int location = 0; location < ATTRIBUTES.length; location++) {
+            glDisableVertexAttribArray(location);
         }
-        
-        glBegin(GL_QUADS);
-        glTexCoord2f(u1, v1);
-        glVertex3f(0, 0, depth);
-        glTexCoord2f(u2, v1);
-        glVertex3f(width, 0, depth);
-        glTexCoord2f(u2, v2);
-        glVertex3f(width, height, depth);
-        glTexCoord2f(u1, v2);
-        glVertex3f(0, height, depth);
-        glEnd();
     }
-    
-    private void renderBox(float width, float height, float depth, float[] uvCoords) {
-        float u1 = uvCoords[0];
-        float v1 = uvCoords[1];
-        float u2 = uvCoords[2];
-        float v2 = uvCoords[3];
-        
-        glBegin(GL_QUADS);
-        
-        // Front face (rotated 180 degrees)
-        glTexCoord2f(u2, v2);
-        glVertex3f(0, 0, depth);
-        glTexCoord2f(u1, v2);
-        glVertex3f(width, 0, depth);
-        glTexCoord2f(u1, v1);
-        glVertex3f(width, height, depth);
-        glTexCoord2f(u2, v1);
-        glVertex3f(0, height, depth);
-        
-        // Back face (rotated 180 degrees)
-        glTexCoord2f(u1, v2);
-        glVertex3f(0, 0, 0);
-        glTexCoord2f(u2, v2);
-        glVertex3f(width, 0, 0);
-        glTexCoord2f(u2, v1);
-        glVertex3f(width, height, 0);
-        glTexCoord2f(u1, v1);
-        glVertex3f(0, height, 0);
-        
-        // Top face (rotated 180 degrees)
-        glTexCoord2f(u2, v2);
-        glVertex3f(0, height, 0);
-        glTexCoord2f(u1, v2);
-        glVertex3f(width, height, 0);
-        glTexCoord2f(u1, v1);
-        glVertex3f(width, height, depth);
-        glTexCoord2f(u2, v1);
-        glVertex3f(0, height, depth);
-        
-        // Bottom face (rotated 180 degrees)
-        glTexCoord2f(u2, v1);
-        glVertex3f(0, 0, depth);
-        glTexCoord2f(u1, v1);
-        glVertex3f(width, 0, depth);
-        glTexCoord2f(u1, v2);
-        glVertex3f(width, 0, 0);
-        glTexCoord2f(u2, v2);
-        glVertex3f(0, 0, 0);
-        
-        // Right face (rotated 180 degrees)
-        glTexCoord2f(u1, v2);
-        glVertex3f(width, 0, 0);
-        glTexCoord2f(u2, v2);
-        glVertex3f(width, 0, depth);
-        glTexCoord2f(u2, v1);
-        glVertex3f(width, height, depth);
-        glTexCoord2f(u1, v1);
-        glVertex3f(width, height, 0);
-        
-        // Left face (rotated 180 degrees)
-        glTexCoord2f(u2, v2);
-        glVertex3f(0, 0, 0);
-        glTexCoord2f(u1, v2);
-        glVertex3f(0, 0, depth);
-        glTexCoord2f(u1, v1);
-        glVertex3f(0, height, depth);
-        glTexCoord2f(u2, v1);
-        glVertex3f(0, height, 0);
-        
-        glEnd();
+
+    private static void setPointers() {
+        glVertexAttribPointer(0, 3, GL_FLOAT, false, BYTES_PER_VERTEX, 0L);
+        glVertexAttribPointer(1, 2, GL_FLOAT, false, BYTES_PER_VERTEX, 3L * Float.BYTES);
+        glVertexAttribPointer(2, 1, GL_FLOAT, false, BYTES_PER_VERTEX, 5L * Float.BYTES);
     }
-    
-    private void renderBody(float scale) {
-        // Body
-        glPushMatrix();
-        glTranslatef(-BODY_WIDTH/2, ARM_HEIGHT, -BODY_DEPTH/2);
-        renderTorso(BODY_WIDTH, BODY_HEIGHT, BODY_DEPTH);
-        glPopMatrix();
+
+    /**
+     * Triangles of every box of the model, as {@link #FLOATS_PER_VERTEX} floats each.
+     * Needs no OpenGL context.
+     */
+    static float[] bake(MinecraftSkinProcessor skin) {
+        float[] vertices = new float[PART_COUNT * 6 * 6 * FLOATS_PER_VERTEX];
+        int[] count = new int[1];
+        // Offsets put each box's low corner where it sat in the model, relative to the pivot
+        addBox(vertices, count, HEAD, -HEAD_SIZE / 2, 0, -HEAD_SIZE / 2, HEAD_SIZE, HEAD_SIZE, HEAD_SIZE,
+            skin.getHeadFrontUV(), skin.getHeadBackUV(), skin.getHeadRightUV(), skin.getHeadLeftUV(),
+            skin.getHeadTopUV(), skin.getHeadBottomUV());
+        addBox(vertices, count, BODY, -BODY_WIDTH / 2, 0, -BODY_DEPTH / 2, BODY_WIDTH, BODY_HEIGHT, BODY_DEPTH,
+            skin.getTorsoFrontUV(), skin.getTorsoBackUV(), skin.getTorsoRightUV(), skin.getTorsoLeftUV(),
+            skin.getTorsoTopUV(), skin.getTorsoBottomUV());
+        // Limbs hang from their pivot; their ends show the front of the skin, as they always have
+        addBox(vertices, count, RIGHT_ARM, -ARM_WIDTH / 2, -ARM_HEIGHT, -ARM_WIDTH / 2, ARM_WIDTH, ARM_HEIGHT, ARM_WIDTH,
+            skin.getRightArmFrontUV(), skin.getRightArmBackUV(), skin.getRightArmRightUV(), skin.getRightArmLeftUV(),
+            skin.getRightArmFrontUV(), skin.getRightArmFrontUV());
+        addBox(vertices, count, LEFT_ARM, -ARM_WIDTH / 2, -ARM_HEIGHT, -ARM_WIDTH / 2, ARM_WIDTH, ARM_HEIGHT, ARM_WIDTH,
+            skin.getLeftArmFrontUV(), skin.getLeftArmBackUV(), skin.getLeftArmRightUV(), skin.getLeftArmLeftUV(),
+            skin.getLeftArmFrontUV(), skin.getLeftArmFrontUV());
+        addBox(vertices, count, RIGHT_LEG, -LEG_WIDTH / 2, -LEG_HEIGHT, -LEG_WIDTH / 2, LEG_WIDTH, LEG_HEIGHT, LEG_WIDTH,
+            skin.getRightLegFrontUV(), skin.getRightLegBackUV(), skin.getRightLegRightUV(), skin.getRightLegLeftUV(),
+            skin.getRightLegFrontUV(), skin.getRightLegFrontUV());
+        addBox(vertices, count, LEFT_LEG, -LEG_WIDTH / 2, -LEG_HEIGHT, -LEG_WIDTH / 2, LEG_WIDTH, LEG_HEIGHT, LEG_WIDTH,
+            skin.getLeftLegFrontUV(), skin.getLeftLegBackUV(), skin.getLeftLegRightUV(), skin.getLeftLegLeftUV(),
+            skin.getLeftLegFrontUV(), skin.getLeftLegFrontUV());
+        return vertices;
     }
-    
-    private void renderArms(float scale) {
-        // Right Arm
-        glPushMatrix();
-        glTranslatef(-BODY_WIDTH/2 - ARM_WIDTH, ARM_HEIGHT, -ARM_WIDTH/2);
-        renderLimb(ARM_WIDTH, ARM_HEIGHT, ARM_WIDTH, true, true);
-        glPopMatrix();
-        
-        // Left Arm
-        glPushMatrix();
-        glTranslatef(BODY_WIDTH/2, ARM_HEIGHT, -ARM_WIDTH/2);
-        renderLimb(ARM_WIDTH, ARM_HEIGHT, ARM_WIDTH, true, false);
-        glPopMatrix();
+
+    /**
+     * Six faces of a box with its low corner at (x, y, z), each placed the way
+     * the model's old glTranslatef/glRotatef face code placed it.
+     */
+    private static void addBox(float[] vertices, int[] count, int part, float x, float y, float z,
+                               float width, float height, float depth,
+                               float[] front, float[] back, float[] right, float[] left, float[] top, float[] bottom) {
+        Matrix4f face = new Matrix4f();
+        addFace(vertices, count, part, face.translation(x, y, z + depth), width, height, front);
+        addFace(vertices, count, part, face.translation(x + width, y, z).rotateY((float)Math.PI), width, height, back);
+        addFace(vertices, count, part, face.translation(x + width, y, z + depth).rotateY((float)Math.PI / 2), depth, height, right);
+        addFace(vertices, count, part, face.translation(x, y, z).rotateY(-(float)Math.PI / 2), depth, height, left);
+        addFace(vertices, count, part, face.translation(x, y + height, z + depth).rotateX(-(float)Math.PI / 2), width, depth, top);
+        addFace(vertices, count, part, face.translation(x, y, z).rotateX((float)Math.PI / 2), width, depth, bottom);
     }
-    
-    private void renderLegs(float scale) {
-        // Right Leg - moved right by half leg width
-        glPushMatrix();
-        glTranslatef(-LEG_WIDTH/2 - LEG_WIDTH/2, 0, -LEG_WIDTH/2);
-        renderLimb(LEG_WIDTH, LEG_HEIGHT, LEG_WIDTH, false, true);
-        glPopMatrix();
-        
-        // Left Leg - moved right by half leg width
-        glPushMatrix();
-        glTranslatef(LEG_WIDTH/2 - LEG_WIDTH/2, 0, -LEG_WIDTH/2);
-        renderLimb(LEG_WIDTH, LEG_HEIGHT, LEG_WIDTH, false, false);
-        glPopMatrix();
+
+    /**
+     * A width by height quad in the face's xy plane as two triangles, its
+     * texture turned 180 degrees so the skin reads the right way up.
+     */
+    private static void addFace(float[] vertices, int[] count, int part, Matrix4f face, float width, float height, float[] uv) {
+        float u1 = uv[2];
+        float v1 = uv[3];
+        float u2 = uv[0];
+        float v2 = uv[1];
+        float[] corners = {
+            0, 0, u1, v1,
+            width, 0, u2, v1,
+            width, height, u2, v2,
+            0, height, u1, v2
+        };
+        Vector3f position = new Vector3f();
+        for (int corner : new int[] { 0, 1, 2, 0, 2, 3 }) {
+            face.transformPosition(corners[corner * 4], corners[corner * 4 + 1], 0, position);
+            int base = count[0]++ * FLOATS_PER_VERTEX;
+            vertices[base] = position.x;
+            vertices[base + 1] = position.y;
+            vertices[base + 2] = position.z;
+            vertices[base + 3] = corners[corner * 4 + 2];
+            vertices[base + 4] = corners[corner * 4 + 3];
+            vertices[base + 5] = part;
+        }
     }
-    
-    public void updateRotation(float deltaY) {
-        rotationY += deltaY;
-        if (rotationY > 360) rotationY -= 360;
-        if (rotationY < 0) rotationY += 360;
+
+    public void delete() {
+        if (shader == null) {
+            return;
+        }
+        shader.delete();
+        GLState.deleteBuffer(vbo);
+        if (vao != 0) {
+            GLState.deleteVertexArray(vao);
+        }
     }
 }
@@ -0,0 +1,184 @@
+package com.craftmine;
+
+import org.joml.Matrix4fc;
+import org.lwjgl.BufferUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.GL_TEXTURE0;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.glGenVertexArrays;
+
+/**
+ * Collects textured, tinted 2D quads and draws them together, one draw call
+ * per run of quads sharing a texture, through shaders/quad.vert. Quads are
+ * drawn in the order added once the batch is flushed: when the texture
+ * changes, when it is full, or at {@link #end}. Nothing is drawn in between,
+ * so immediate-mode drawing between begin and end lands underneath.
+ *
+ * Each flush respecifies the vertex buffer's storage, so the driver never has
+ * to wait for the previous draw to finish reading it. The shader, texture and
+ * buffer stay bound afterwards; {@link GLState} skips rebinding them on the
+ * next flush. Render thread only.
+ */
+public class QuadBatch {
+    // x, y, u, v as floats, then red, green, blue, alpha as normalized bytes
+    private static final int BYTES_PER_VERTEX = 4 * Float.BYTES + 4;
+    private static final String[] ATTRIBUTES = { "position", "quadTexCoord", "quadColor" };
+
+    private final int capacity;  // Quads per draw
+    private final ByteBuffer vertices;
+    private final ShaderProgram shader;
+    private final int projectionLocation;
+    private final QuadIndexBuffer indices;
+    private final int vbo;
+    private int vao;  // Only with GLSL 3.30, which needs one
+    private final FloatBuffer projectionBuffer = BufferUtils.createFloatBuffer(16);
+
+    private int texture;
+    private int quads;
+    private int drawCalls;
+
+    public QuadBatch(int capacity) {
+        this.capacity = capacity;
+        this.vertices = BufferUtils.createByteBuffer(capacity * MeshData.VERTICES_PER_FACE * BYTES_PER_VERTEX);
+
+        shader = new ShaderProgram("shaders/quad.vert", "shaders/quad.frag", ATTRIBUTES);
+        shader.use();
+        projectionLocation = shader.getUniformLocation("projection");
+        glUniform1i(shader.getUniformLocation("image"), 0);
+        ShaderProgram.useNone();
+
+        indices = new QuadIndexBuffer();
+        indices.ensureCapacity(capacity);
+        vbo = glGenBuffers();
+        if (ShaderProgram.isCoreGlsl()) {
+            vao = glGenVertexArrays();
+            GLState.bindVertexArray(vao);
+            bindArrays();
+            GLState.bindVertexArray(0);
+            GLState.bindBuffer(GL_ARRAY_BUFFER, 0);
+        }
+    }
+
+    /**
+     * Starts a batch drawn with projection, which maps quad coordinates to clip space.
+     */
+    public void begin(Matrix4fc projection) {
+        projection.get(projectionBuffer);
+        quads = 0;
+        drawCalls = 0;
+        texture = 0;
+    }
+
+    /**
+     * Texture for the quads added next; changing it flushes the quads so far.
+     */
+    public void setTexture(int texture) {
+        if (texture != this.texture) {
+            flush();
+            this.texture = texture;
+        }
+    }
+
+    /**
+     * Queues a quad from (x0, y0) to (x1, y1) showing the texture from (u0, v0)
+     * to (u1, v1), multiplied by rgba, packed as 0xRRGGBBAA.
+     */
+    public void add(float x0, float y0, float x1, float y1, float u0, float v0, float u1, float v1, int rgba) {
+        if (quads == capacity) {
+            flush();
+        }
+        putVertex(x0, y0, u0, v0, rgba);
+        putVertex(x1, y0, u1, v0, rgba);
+        putVertex(x1, y1, u1, v1, rgba);
+        putVertex(x0, y1, u0, v1, rgba);
+        quads++;
+    }
+
+    private void putVertex(float x, float y, float u, float v, int rgba) {
+        vertices.putFloat(x).putFloat(y).putFloat(u).putFloat(v);
+        vertices.put((byte)(rgba >>> 24)).put((byte)(rgba >>> 16)).put((byte)(rgba >>> 8)).put((byte)rgba);
+    }
+
+    /**
+     * Packs a colour, components from 0 to 1, as {@link #add} takes it.
+     */
+    public static int rgba(float red, float green, float blue, float alpha) {
+        return toByte(red) << 24 | toByte(green) << 16 | toByte(blue) << 8 | toByte(alpha);
+    }
+
+    private static int toByte(float component) {
+        return Math.round(Math.max(0, Math.min(1, component)) * 255);
+    }
+
+    /**
+     * Draws whatever is still queued.
+     */
+    public void end() {
+        flush();
+    }
+
+    /**
+     * Draw calls made since {@link #begin}.
+     */
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+
+    private void flush() {
+        if (quads == 0) {
+            return;
+        }
+        vertices.flip();
+        shader.use();
+        glUniformMatrix4fv(projectionLocation, false, projectionBuffer);
+        GLState.activeTexture(GL_TEXTURE0);
+        GLState.bindTexture(GL_TEXTURE_2D, texture);
+
+        GLState.bindBuffer(GL_ARRAY_BUFFER, vbo);
+        glBufferData(GL_ARRAY_BUFFER, vertices, GL_STREAM_DRAW);
+        if (vao != 0) {
+            GLState.bindVertexArray(vao);
+        } else {
+            bindArrays();
+        }
+        glDrawElements(GL_TRIANGLES, quads * QuadIndexBuffer.INDICES_PER_QUAD, GL_UNSIGNED_INT, 0L);
+        if (vao != 0) {
+            GLState.bindVertexArray(0);
+        } else {
+            for (int location = 0; location < ATTRIBUTES.length; location++) {
+                glDisableVertexAttribArray(location);
+            }
+            GLState.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, 0);
+        }
+
+        vertices.clear();
+        quads = 0;
+        drawCalls++;
+    }
+
+    // Binds the vertex buffer and the shared quad indices, and sets up the layout
+    private void bindArrays() {
+        GLState.bindBuffer(GL_ARRAY_BUFFER, vbo);
+        GLState.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, indices.getBuffer());
+        for (int location = 0; location < ATTRIBUTES.length; location++) {
+            glEnableVertexAttribArray(location);
+        }
+        glVertexAttribPointer(0, 2, GL_FLOAT, false, BYTES_PER_VERTEX, 0L);
+        glVertexAttribPointer(1, 2, GL_FLOAT, false, BYTES_PER_VERTEX, 2L * Float.BYTES);
+        glVertexAttribPointer(2, 4, GL_UNSIGNED_BYTE, true, BYTES_PER_VERTEX, 4L * Float.BYTES);
+    }
+
+    public void delete() {
+        shader.delete();
+        indices.delete();
+        GLState.deleteBuffer(vbo);
+        if (vao != 0) {
+            GLState.deleteVertexArray(vao);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.craftmine;
+
+import java.nio.IntBuffer;
+
+import org.lwjgl.BufferUtils;
+
+import static org.lwjgl.opengl.GL15.*;
+
+/**
+ * One element buffer that draws quads 0, 1, 2, ... as indexed triangles, for
+ * contexts without GL_QUADS. Quad q becomes the triangles (4q, 4q+1, 4q+2) and
+ * (4q+2, 4q+3, 4q), the same split GL_QUADS makes. Meshes draw from index 0
+ * with a base vertex, so every mesh shares the buffer; it grows to the largest
+ * mesh, keeping its name so vertex array objects that reference it stay valid.
+ *
+ * Must be used on the render thread.
+ */
+public class QuadIndexBuffer {
+    public static final int INDICES_PER_QUAD = 6;
+
+    private final int buffer;
+    private int quadCapacity;
+
+    public QuadIndexBuffer() {
+        buffer = glGenBuffers();
+        ensureCapacity(4096);
+    }
+
+    public int getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Indices that draw vertexCount quad vertices.
+     */
+    public static int indexCount(int vertexCount) {
+        return vertexCount / MeshData.VERTICES_PER_FACE * INDICES_PER_QUAD;
+    }
+
+    /**
+     * Grows the buffer to cover at least quads quads. No vertex array object may
+     * be bound, since the element buffer binding is part of its state.
+     */
+    public void ensureCapacity(int quads) {
+        if (quads <= quadCapacity) {
+            return;
+        }
+        int capacity = Math.max(quads, quadCapacity * 2);
+        IntBuffer indices = BufferUtils.createIntBuffer(capacity * INDICES_PER_QUAD);
+        for (int quad = 0; quad < capacity; quad++) {
+            int corner = quad * MeshData.VERTICES_PER_FACE;
+            indices.put(corner).put(corner + 1).put(corner + 2);
+            indices.put(corner + 2).put(corner + 3).put(corner);
+        }
+        indices.flip();
+        GLState.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, buffer);
+        glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
+        GLState.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, 0);
+        quadCapacity = capacity;
+    }
+
+    public void delete() {
+        GLState.deleteBuffer(buffer);
+    }
+}
@@ -0,0 +1,150 @@
+package com.craftmine;
+
+/**
+ * Counters for the last rendered frame, shown by the debug overlay.
+ * Written and read on the render thread only.
+ */
+public class RenderStats {
+    // Mesh uploads
+    long uploadNanos;
+    int uploadBytes;
+    int uploadedChunks;
+    int pendingUploads;  // Finished meshes left for later frames
+
+    // Sections swapped in after block edits, and the most frames one of them
+    // waited between its edit and its upload (1 is the next frame)
+    int editedSections;
+    int editLatencyFrames;
+
+    // Frustum and occlusion culling of the sections in range
+    int sectionsTested;
+    int sectionsCulled;
+    int sectionsOccluded;  // Inside the frustum but hidden behind solid ground
+    int sectionsDrawn;
+
+    // Chunks outside the render distance drawn from low-detail meshes
+    int distantChunksDrawn;
+
+    // Sections drawn in the water pass, and how many had their faces re-sorted
+    int translucentSections;
+    int translucentResorted;
+
+    // Draw calls issued for the world, a multi-draw counting as one
+    int drawCalls;
+
+    // Vertex buffer memory currently held by full-detail and distant meshes; not reset per frame
+    long vertexBufferBytes;
+    long distantVertexBufferBytes;
+
+    // Shared vertex arenas, when sections draw from them; not reset per frame
+    int arenaCount;
+    long arenaCapacityBytes;
+    long arenaUsedBytes;
+    int arenaFreeBlocks;  // Gaps between live ranges
+    long arenaLargestFreeBytes;
+
+    void beginFrame() {
+        uploadNanos = 0;
+        uploadBytes = 0;
+        uploadedChunks = 0;
+        pendingUploads = 0;
+        editedSections = 0;
+        editLatencyFrames = 0;
+        sectionsTested = 0;
+        sectionsCulled = 0;
+        sectionsOccluded = 0;
+        sectionsDrawn = 0;
+        distantChunksDrawn = 0;
+        translucentSections = 0;
+        translucentResorted = 0;
+        drawCalls = 0;
+    }
+
+    public float getUploadMillis() {
+        return uploadNanos / 1e6f;
+    }
+
+    public int getUploadBytes() {
+        return uploadBytes;
+    }
+
+    public int getUploadedChunks() {
+        return uploadedChunks;
+    }
+
+    public int getPendingUploads() {
+        return pendingUploads;
+    }
+
+    public int getEditedSections() {
+        return editedSections;
+    }
+
+    public int getEditLatencyFrames() {
+        return editLatencyFrames;
+    }
+
+    public int getSectionsTested() {
+        return sectionsTested;
+    }
+
+    public int getSectionsCulled() {
+        return sectionsCulled;
+    }
+
+    public int getSectionsOccluded() {
+        return sectionsOccluded;
+    }
+
+    public int getSectionsDrawn() {
+        return sectionsDrawn;
+    }
+
+    public int getDistantChunksDrawn() {
+        return distantChunksDrawn;
+    }
+
+    public long getVertexBufferBytes() {
+        return vertexBufferBytes;
+    }
+
+    public long getDistantVertexBufferBytes() {
+        return distantVertexBufferBytes;
+    }
+
+    public int getTranslucentSections() {
+        return translucentSections;
+    }
+
+    public int getTranslucentResorted() {
+        return translucentResorted;
+    }
+
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+
+    public int getArenaCount() {
+        return arenaCount;
+    }
+
+    public long getArenaCapacityBytes() {
+        return arenaCapacityBytes;
+    }
+
+    public long getArenaUsedBytes() {
+        return arenaUsedBytes;
+    }
+
+    public int getArenaFreeBlocks() {
+        return arenaFreeBlocks;
+    }
+
+    /**
+     * Share of the arenas' free space outside the largest free block, 0 to 100.
+     */
+    public int getArenaFragmentationPercent() {
+        long free = arenaCapacityBytes - arenaUsedBytes;
+        return free == 0 ? 0 : (int)(100 - 100 * arenaLargestFreeBytes / free);
+    }
+}
@@ -1,314 +1,978 @@
 package com.craftmine;
 
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.joml.FrustumIntersection;
+import org.joml.Matrix4f;
+import org.joml.Matrix4fc;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+
+import static org.lwjgl.opengl.EXTTextureArray.GL_TEXTURE_2D_ARRAY_EXT;
 import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.GL_TEXTURE0;
+import static org.lwjgl.opengl.GL20.glUniform1i;
+import static org.lwjgl.opengl.GL20.glUniform4f;
 
 public class Renderer {
+    // Render a 48 block radius around the camera
+    private static final int RENDER_DISTANCE = 48;
+
+    // -Dcraftmine.mesher=naive switches back to one quad per block face
+    private static final boolean GREEDY_MESHING = !"naive".equals(System.getProperty("craftmine.mesher", "greedy"));
+
+    // -Dcraftmine.ao=false meshes without ambient occlusion
+    private static final boolean AMBIENT_OCCLUSION = Boolean.parseBoolean(System.getProperty("craftmine.ao", "true"));
+
+    // Mesh uploads per frame stop after this many bytes or this much time, whichever comes first
+    private static final long UPLOAD_BUDGET_BYTES = Integer.getInteger("craftmine.uploadBudgetKB", 2048) * 1024L;
+    private static final long UPLOAD_BUDGET_NANOS = 2_000_000L;
+
+    // Chunks outside the render distance are drawn from low-detail meshes, coarser with distance:
+    // 2x2 columns per cell up to the first distance, 4x4 up to the second, 8x8 beyond.
+    // -Dcraftmine.lod=false limits the view to full-detail chunks again.
+    private static final boolean DISTANT_TERRAIN = Boolean.parseBoolean(System.getProperty("craftmine.lod", "true"));
+    private static final int[] LOD_DISTANCES = { 2 * RENDER_DISTANCE, 4 * RENDER_DISTANCE };
+
+    // With the terrain shaders, vertices go to the GPU in 4 bytes instead of 24;
+    // -Dcraftmine.packedVertices=false uploads the mesher's floats unchanged
+    private static final boolean PACKED_VERTICES = Boolean.parseBoolean(System.getProperty("craftmine.packedVertices", "true"));
+
+    // Where the driver can, sections share a few persistently mapped buffers and each pass is
+    // one glMultiDrawElementsIndirect; -Dcraftmine.multiDrawIndirect=false draws them one by one
+    private static final boolean MULTI_DRAW_INDIRECT = Boolean.parseBoolean(System.getProperty("craftmine.multiDrawIndirect", "true"));
+
+    // -Dcraftmine.occlusionCulling=false draws every section in the frustum, even behind hills
+    private static final boolean OCCLUSION_CULLING = Boolean.parseBoolean(System.getProperty("craftmine.occlusionCulling", "true"));
+
+    // Block textures in ChunkMesher texture slot order
+    private static final String[] BLOCK_TEXTURE_FILES = {
+        "assets/grassblocktop.jpg",
+        "assets/grassblockside.png",
+        "assets/dirtblock.jpg",
+        "assets/stoneblock.png",
+        "assets/water.jpg",
+        "assets/sand.png",
+        "assets/oaklogside.jpg",
+        "assets/oaklogtop.jpg",
+        "assets/oakleaves.png",
+        "assets/coalore.png",
+        "assets/ironorefinal.png",
+        "assets/diamondore.png"
+    };
+
+    // Water colour and opacity, multiplied with its texture
+    private static final float[] WATER_TINT = { 0.2f, 0.3f, 0.9f, 0.7f };
+
+    // Translucent sections draw back to front
+    private static final Comparator<SectionMesh> FARTHEST_FIRST = (a, b) -> Float.compare(b.viewDistanceSq, a.viewDistanceSq);
+
     private Camera camera;
     private TerrainGeneration terrain;
-    private int grassTopTexture;
-    private int grassSideTexture;
-    private int dirtTexture;
-    private int stoneTexture;
-    private int waterTexture;
-    private int sandTexture;
-    private int logSideTexture;
-    private int logTopTexture;
-    private int leavesTexture;
-    private int coalOreTexture;
-    private int ironOreTexture;
-    private int diamondOreTexture;
+    private final ChunkLoadQueue loadQueue;
+    private final ChunkLoadQueue lodQueue;
+    private final ThreadLocal<BlockSnapshot> snapshots;
+    private final ThreadLocal<ChunkMesher> meshers;
+    private final ThreadLocal<SectionConnectivity> connectivity;
+    private final ThreadLocal<LodMesher> lodMeshers;
+    private final VisibilityGraph visibilityGraph;
+    private final DirtySections dirtySections = new DirtySections();
+    private final long[] dirtyKeys = new long[64];
+    // Per chunk, a bit for each section waiting for an edit job to remesh it; taken by the job when it starts
+    private final AtomicLongArray editedSections = new AtomicLongArray(TerrainGeneration.CHUNKS_PER_SIDE * TerrainGeneration.CHUNKS_PER_SIDE);
+    private final int[] editJobs = new int[TerrainGeneration.CHUNKS_PER_SIDE * TerrainGeneration.CHUNKS_PER_SIDE];  // Not yet uploaded
+    private final ConcurrentLinkedQueue<SectionEdits> finishedEdits = new ConcurrentLinkedQueue<>();
+    private int frame;  // Counts rendered frames, for the edit latency
+    private final ChunkMeshes[] chunkMeshes = new ChunkMeshes[TerrainGeneration.CHUNKS_PER_SIDE * TerrainGeneration.CHUNKS_PER_SIDE];
+    private final ConcurrentLinkedQueue<ChunkMeshes> finishedChunks = new ConcurrentLinkedQueue<>();
+    private final ChunkLod[] chunkLods = new ChunkLod[TerrainGeneration.CHUNKS_PER_SIDE * TerrainGeneration.CHUNKS_PER_SIDE];
+    private final ConcurrentLinkedQueue<ChunkLod> finishedLods = new ConcurrentLinkedQueue<>();
+    private final int[] blockTextures = new int[ChunkMesher.TEXTURE_COUNT];  // Only used without texture arrays
+    private boolean useTextureArray;  // Drawn with the terrain and water programs, else fixed-function
+    private int blockTextureArray;
+    private final CameraUniforms cameraUniforms;
+    private WorldProgram terrainProgram;
+    private WorldProgram waterProgram;
+    private SectionMesh.Storage storage = new SectionMesh.Storage(VertexFormat.FIXED_FUNCTION, null, null);
+    private final RenderStats stats = new RenderStats();
+    private final Matrix4f projection = new Matrix4f();
+    private final Matrix4f view = new Matrix4f();
+    private final Matrix4f viewProjection = new Matrix4f();
+    private final FrustumIntersection frustum = new FrustumIntersection();
+    private final FloatBuffer matrixBuffer = BufferUtils.createFloatBuffer(16);
+    private SectionMesh[] visibleSections = new SectionMesh[256];  // Sections that passed culling this frame
+    private int visibleCount;
+    private SectionMesh[] translucentSections = new SectionMesh[64];  // Visible sections with water, far to near
 
     public Renderer(Camera camera) {
         this.camera = camera;
         this.terrain = new TerrainGeneration(123); // You can change the seed
         
-        // Enable texture state before loading
-        glEnable(GL_TEXTURE_2D);
         glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
-        
+
+        cameraUniforms = new CameraUniforms();
+
         // Load textures
         loadTextures();
         
         // Verify textures loaded correctly
         verifyTextures();
+
+        // Meshes are built off the render thread from a snapshot of the chunk, closest chunks first
+        this.snapshots = ThreadLocal.withInitial(() -> new BlockSnapshot(terrain.getMaxHeight()));
+        this.meshers = ThreadLocal.withInitial(() -> new ChunkMesher(snapshots.get(), GREEDY_MESHING, AMBIENT_OCCLUSION));
+        this.connectivity = ThreadLocal.withInitial(() -> new SectionConnectivity(snapshots.get()));
+        int sectionCount = (terrain.getMaxHeight() + Chunk.SECTION_HEIGHT - 1) / Chunk.SECTION_HEIGHT;
+        this.visibilityGraph = new VisibilityGraph(TerrainGeneration.CHUNKS_PER_SIDE, sectionCount);
+        this.loadQueue = new ChunkLoadQueue(this::buildChunk, ChunkLoadQueue.defaultWorkerCount());
+
+        // Distant terrain is rebuilt in the background by a worker of its own, so it never delays nearby chunks
+        this.lodMeshers = ThreadLocal.withInitial(() -> new LodMesher(snapshots.get()));
+        this.lodQueue = new ChunkLoadQueue(this::buildLod, 1);
+
+        // Free the meshes together with the chunk when the store evicts it
+        terrain.getChunkStore().addListener(this::chunkUnloaded);
+        terrain.addSectionListener(dirtySections);
+    }
+
+    private void chunkUnloaded(int chunkX, int chunkZ) {
+        int index = chunkX * TerrainGeneration.CHUNKS_PER_SIDE + chunkZ;
+        if (chunkMeshes[index] != null) {
+            deleteMeshes(chunkMeshes[index]);
+            chunkMeshes[index] = null;
+        }
+        visibilityGraph.clearChunk(chunkX, chunkZ);
+    }
+
+    /**
+     * Meshes of one chunk, one per section (null where there is nothing to draw).
+     * Built on a loader thread, uploaded to the GPU on the render thread.
+     */
+    private static final class ChunkMeshes {
+        final Chunk chunk;
+        int version;  // Chunk version the meshes were built from, or last brought up to date with
+        final int[] sectionVersions;  // Chunk version each section was last built from
+        final long[] connectivity;  // Which faces of each section see each other
+        MeshData[] data;  // Dropped once uploaded
+        SectionMesh[] sections;
+
+        ChunkMeshes(Chunk chunk, int version, long[] connectivity, MeshData[] data) {
+            this.chunk = chunk;
+            this.version = version;
+            this.sectionVersions = new int[data.length];
+            Arrays.fill(sectionVersions, version);
+            this.connectivity = connectivity;
+            this.data = data;
+        }
+
+        int getByteSize() {
+            int bytes = 0;
+            for (MeshData section : data) {
+                if (section != null) {
+                    bytes += section.getByteSize();
+                }
+            }
+            return bytes;
+        }
+
+        void upload(SectionMesh.Storage storage) {
+            sections = new SectionMesh[data.length];
+            for (int sectionY = 0; sectionY < data.length; sectionY++) {
+                if (data[sectionY] != null) {
+                    sections[sectionY] = new SectionMesh(data[sectionY], chunk.getChunkX(), chunk.getChunkZ(), sectionY, storage);
+                }
+            }
+            data = null;
+        }
+
+        int getGpuByteSize() {
+            int bytes = 0;
+            for (SectionMesh section : sections) {
+                if (section != null) {
+                    bytes += section.getByteSize();
+                }
+            }
+            return bytes;
+        }
+
+        /**
+         * Swaps in a rebuilt section (null if it has nothing to draw) for an uploaded chunk.
+         *
+         * @return the change in GPU bytes
+         */
+        int replaceSection(int sectionY, MeshData data, long sectionConnectivity, SectionMesh.Storage storage) {
+            int bytes = 0;
+            if (sections[sectionY] != null) {
+                bytes -= sections[sectionY].getByteSize();
+                sections[sectionY].delete();
+                sections[sectionY] = null;
+            }
+            if (data != null) {
+                sections[sectionY] = new SectionMesh(data, chunk.getChunkX(), chunk.getChunkZ(), sectionY, storage);
+                bytes += sections[sectionY].getByteSize();
+            }
+            connectivity[sectionY] = sectionConnectivity;
+            return bytes;
+        }
+
+        void discard() {
+            for (MeshData section : data) {
+                if (section != null) {
+                    section.release();
+                }
+            }
+            data = null;
+        }
+
+        void delete() {
+            if (sections != null) {
+                for (SectionMesh section : sections) {
+                    if (section != null) {
+                        section.delete();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Sections of one chunk remeshed after block edits, on a loader thread.
+     * Data and connectivity hold entries only for the sections in the mask;
+     * chunk stays null if the build failed.
+     */
+    private static final class SectionEdits {
+        final int chunkX;
+        final int chunkZ;
+        final int queuedFrame;  // Frame the job was handed to the urgent worker
+        Chunk chunk;
+        int version;  // Chunk version the snapshot was taken at
+        long mask;  // Bit per rebuilt section
+        long[] connectivity;
+        MeshData[] data;
+
+        SectionEdits(int chunkX, int chunkZ, int queuedFrame) {
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.queuedFrame = queuedFrame;
+        }
+
+        int getByteSize() {
+            int bytes = 0;
+            if (data != null) {
+                for (MeshData section : data) {
+                    if (section != null) {
+                        bytes += section.getByteSize();
+                    }
+                }
+            }
+            return bytes;
+        }
+
+        void discard() {
+            if (data != null) {
+                for (MeshData section : data) {
+                    if (section != null) {
+                        section.release();
+                    }
+                }
+            }
+            data = null;
+        }
+    }
+
+    /**
+     * Low-detail meshes of one chunk, one per level in {@link LodMesher#DECIMATION}.
+     * Kept for every chunk in the world, also while the chunk itself is unloaded.
+     */
+    private static final class ChunkLod {
+        final int chunkX;
+        final int chunkZ;
+        final int version;  // Chunk version the meshes were built from
+        MeshData[] data;  // Dropped once uploaded
+        SectionMesh[] levels;
+
+        ChunkLod(int chunkX, int chunkZ, int version, MeshData[] data) {
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.version = version;
+            this.data = data;
+        }
+
+        int getByteSize() {
+            int bytes = 0;
+            for (MeshData level : data) {
+                bytes += level.getByteSize();
+            }
+            return bytes;
+        }
+
+        void upload(float maxHeight, SectionMesh.Storage storage) {
+            levels = new SectionMesh[data.length];
+            for (int level = 0; level < data.length; level++) {
+                levels[level] = new SectionMesh(data[level], chunkX, chunkZ, -0.5f, maxHeight - 0.5f, storage);
+            }
+            data = null;
+        }
+
+        int getGpuByteSize() {
+            int bytes = 0;
+            for (SectionMesh level : levels) {
+                bytes += level.getByteSize();
+            }
+            return bytes;
+        }
+
+        void delete() {
+            for (SectionMesh level : levels) {
+                level.delete();
+            }
+        }
+    }
+
+    /**
+     * A terrain or water shader program with the uniforms the renderer sets.
+     */
+    private static final class WorldProgram {
+        final ShaderProgram shader;
+        final int camera;  // Location for CameraUniforms.apply
+        final int sectionOrigin;  // Packed vertices only
+
+        WorldProgram(String fragmentResource, SectionMesh.Storage storage, CameraUniforms cameraUniforms) {
+            VertexFormat format = storage.format;
+            String vertexResource = format == VertexFormat.PACKED ? "shaders/terrain_packed.vert" : "shaders/terrain.vert";
+            if (storage.arenas != null && format == VertexFormat.PACKED) {
+                // Packed meshes in arenas read their origin from an attribute per draw
+                String[] attributes = Arrays.copyOf(format.getAttributes(), format.getAttributes().length + 1);
+                attributes[attributes.length - 1] = VertexArenas.getOriginAttribute();
+                shader = new ShaderProgram(vertexResource, fragmentResource, new String[] { "DRAW_INDIRECT" }, attributes);
+            } else {
+                shader = new ShaderProgram(vertexResource, fragmentResource, format.getAttributes());
+            }
+            camera = cameraUniforms.attach(shader);
+            sectionOrigin = shader.getUniformLocation("sectionOrigin");
+            shader.use();
+            glUniform1i(shader.getUniformLocation("blockTextures"), 0);
+            ShaderProgram.useNone();
+        }
     }
 
     private void loadTextures() {
         // Delete any existing textures first
         deleteTextures();
-        
-        // Load new textures
-        grassTopTexture = TextureLoader.loadTexture("assets/grassblocktop.jpg");
-        grassSideTexture = TextureLoader.loadTexture("assets/grassblockside.png");
-        dirtTexture = TextureLoader.loadTexture("assets/dirtblock.jpg");
-        stoneTexture = TextureLoader.loadTexture("assets/stoneblock.png");
-        waterTexture = TextureLoader.loadTexture("assets/water.jpg");
-        sandTexture = TextureLoader.loadTexture("assets/sand.png");
-        logSideTexture = TextureLoader.loadTexture("assets/oaklogside.jpg");  // Oak log side texture
-        logTopTexture = TextureLoader.loadTexture("assets/oaklogtop.jpg");    // Oak log top texture
-        leavesTexture = TextureLoader.loadTexture("assets/oakleaves.png");    // Oak leaves texture
-        coalOreTexture = TextureLoader.loadTexture("assets/coalore.png");     // Coal ore texture
-        ironOreTexture = TextureLoader.loadTexture("assets/ironorefinal.png");     // Iron ore texture
-        diamondOreTexture = TextureLoader.loadTexture("assets/diamondore.png"); // Diamond ore texture
+
+        // All block textures in one array, so terrain draws without rebinding. GL 3.3 draws
+        // from vertex array objects in indexed triangles, all a core profile allows.
+        // Texture arrays are core since 3.0, where drivers need not list the extension.
+        GLCapabilities caps = GL.getCapabilities();
+        if (caps.OpenGL30 || (caps.OpenGL20 && caps.GL_EXT_texture_array)) {
+            try {
+                VertexFormat format = PACKED_VERTICES ? VertexFormat.PACKED : VertexFormat.FLOATS;
+                QuadIndexBuffer indices = null;
+                VertexArenas arenas = null;
+                if (ShaderProgram.isCoreGlsl()) {
+                    indices = new QuadIndexBuffer();
+                    if (MULTI_DRAW_INDIRECT && VertexArenas.isSupported(caps)) {
+                        arenas = new VertexArenas(format, indices);
+                    }
+                }
+                storage = new SectionMesh.Storage(format, indices, arenas);
+                terrainProgram = new WorldProgram("shaders/terrain.frag", storage, cameraUniforms);
+                waterProgram = new WorldProgram("shaders/water.frag", storage, cameraUniforms);
+                waterProgram.shader.use();
+                glUniform4f(waterProgram.shader.getUniformLocation("tint"), WATER_TINT[0], WATER_TINT[1], WATER_TINT[2], WATER_TINT[3]);
+                ShaderProgram.useNone();
+                blockTextureArray = TextureLoader.loadTextureArray(BLOCK_TEXTURE_FILES);
+                useTextureArray = true;
+                return;
+            } catch (RuntimeException e) {
+                if (ShaderProgram.isCoreProfile()) {
+                    throw e;  // A core profile has no fixed-function pipeline to fall back to
+                }
+                System.err.println("Texture array setup failed, using separate textures: " + e.getMessage());
+                deleteTextures();
+            }
+        }
+
+        // Fallback: one texture per slot, bound per draw
+        for (int slot = 0; slot < blockTextures.length; slot++) {
+            blockTextures[slot] = TextureLoader.loadTexture(BLOCK_TEXTURE_FILES[slot]);
+            // Greedy quads span several blocks and tile the texture across them
+            GLState.bindTexture(GL_TEXTURE_2D, blockTextures[slot]);
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_REPEAT);
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_REPEAT);
+        }
+        GLState.bindTexture(GL_TEXTURE_2D, 0);
     }
     
     private void deleteTextures() {
         // Delete existing textures if they exist
-        if (grassTopTexture > 0) glDeleteTextures(grassTopTexture);
-        if (grassSideTexture > 0) glDeleteTextures(grassSideTexture);
-        if (dirtTexture > 0) glDeleteTextures(dirtTexture);
-        if (stoneTexture > 0) glDeleteTextures(stoneTexture);
-        if (waterTexture > 0) glDeleteTextures(waterTexture);
-        if (sandTexture > 0) glDeleteTextures(sandTexture);
-        if (logSideTexture > 0) glDeleteTextures(logSideTexture);
-        if (logTopTexture > 0) glDeleteTextures(logTopTexture);
-        if (leavesTexture > 0) glDeleteTextures(leavesTexture);
-        if (coalOreTexture > 0) glDeleteTextures(coalOreTexture);
-        if (ironOreTexture > 0) glDeleteTextures(ironOreTexture);
-        if (diamondOreTexture > 0) glDeleteTextures(diamondOreTexture);
+        for (int slot = 0; slot < blockTextures.length; slot++) {
+            if (blockTextures[slot] > 0) {
+                GLState.deleteTexture(blockTextures[slot]);
+                blockTextures[slot] = 0;
+            }
+        }
+        if (blockTextureArray > 0) {
+            GLState.deleteTexture(blockTextureArray);
+            blockTextureArray = 0;
+        }
+        if (terrainProgram != null) {
+            terrainProgram.shader.delete();
+            terrainProgram = null;
+        }
+        if (waterProgram != null) {
+            waterProgram.shader.delete();
+            waterProgram = null;
+        }
+        if (storage.arenas != null) {
+            storage.arenas.delete();
+        }
+        if (storage.indices != null) {
+            storage.indices.delete();
+        }
+        storage = new SectionMesh.Storage(VertexFormat.FIXED_FUNCTION, null, null);
+        useTextureArray = false;
     }
     
     private void verifyTextures() {
         // Verify each texture was loaded successfully
-        if (grassTopTexture == 0 || grassSideTexture == 0 || dirtTexture == 0 ||
-            stoneTexture == 0 || waterTexture == 0 || sandTexture == 0 ||
-            logSideTexture == 0 || logTopTexture == 0 || leavesTexture == 0 ||
-            coalOreTexture == 0 || ironOreTexture == 0 || diamondOreTexture == 0) {
-            throw new RuntimeException("Failed to load one or more textures");
+        if (useTextureArray) {
+            return;  // loadTextureArray throws if any image is missing
+        }
+        for (int texture : blockTextures) {
+            if (texture == 0) {
+                throw new RuntimeException("Failed to load one or more textures");
+            }
         }
     }
 
-    private boolean isBlockVisible(int x, int z, int y) {
-        // Check if block exists at this position
-        if (terrain.getBlock(x, z, y) == null) {
-            return false;
+    // Runs on a chunk loader thread
+    private void buildChunk(int chunkX, int chunkZ) {
+        Chunk chunk = terrain.getChunkStore().getChunk(chunkX, chunkZ);
+        // Read the version first so an edit racing with the build triggers another one
+        int version = chunk.getVersion();
+        snapshots.get().capture(terrain.getChunkStore(), chunkX, chunkZ);
+        ChunkMesher mesher = meshers.get();
+
+        MeshData[] sections = new MeshData[chunk.getSectionCount()];
+        long[] sectionConnectivity = new long[sections.length];
+        for (int sectionY = 0; sectionY < sections.length; sectionY++) {
+            sectionConnectivity[sectionY] = computeConnectivity(chunk, chunkX, chunkZ, sectionY);
+            sections[sectionY] = buildSection(chunk, chunkX, chunkZ, sectionY);
+        }
+
+        finishedChunks.add(new ChunkMeshes(chunk, version, sectionConnectivity, sections));
+    }
+
+    // Both read the calling thread's snapshot, which must hold the chunk
+    private long computeConnectivity(Chunk chunk, int chunkX, int chunkZ, int sectionY) {
+        return chunk.isSectionUniform(sectionY)
+            ? SectionConnectivity.uniform(chunk.getUniformBlock(sectionY))
+            : connectivity.get().compute(chunkX, chunkZ, sectionY);
+    }
+
+    private MeshData buildSection(Chunk chunk, int chunkX, int chunkZ, int sectionY) {
+        // Whole sections of sky or buried stone have nothing to draw
+        if (chunk.isSectionUniform(sectionY) &&
+            (chunk.getUniformBlock(sectionY) == null || isSectionBuried(chunkX, chunkZ, sectionY))) {
+            return null;
+        }
+        MeshData mesh = meshers.get().buildSection(chunkX, chunkZ, sectionY);
+        if (mesh.isEmpty()) {
+            mesh.release();
+            return null;
         }
+        return mesh;
+    }
 
-        // Helper function to check if a block is either null (air) or water
-        TerrainGeneration.BlockType blockType;
+    /**
+     * Hands the sections block edits changed since the last frame to the urgent
+     * loader worker, one job per chunk, so they never wait behind chunk loads.
+     * The result is uploaded first thing in a later frame; RenderStats reports
+     * how many frames that took. Sections of chunks without meshes are skipped;
+     * their first build sees the edit anyway.
+     */
+    private void queueDirtySections() {
+        int count;
+        while ((count = dirtySections.drain(dirtyKeys)) > 0) {
+            for (int i = 0; i < count; i++) {
+                int chunkX = DirtySections.getChunkX(dirtyKeys[i]);
+                int chunkZ = DirtySections.getChunkZ(dirtyKeys[i]);
+                int index = chunkX * TerrainGeneration.CHUNKS_PER_SIDE + chunkZ;
+                if (chunkMeshes[index] == null) {
+                    continue;
+                }
+                long section = 1L << DirtySections.getSectionY(dirtyKeys[i]);
+                // A job that has not started yet picks the section up along with its own
+                if (editedSections.getAndAccumulate(index, section, (a, b) -> a | b) == 0) {
+                    editJobs[index]++;
+                    SectionEdits edits = new SectionEdits(chunkX, chunkZ, frame);
+                    loadQueue.requestUrgent(chunkX, chunkZ, (x, z) -> buildEdits(edits));
+                }
+            }
+        }
+    }
 
-        // Check all six sides
-        // Top
-        blockType = y + 1 >= terrain.getMaxHeight() ? null : terrain.getBlock(x, z, y + 1);
-        if (blockType == null || blockType == TerrainGeneration.BlockType.WATER) {
-            return true;
+    // Runs on the urgent chunk loader thread
+    private void buildEdits(SectionEdits edits) {
+        int chunkX = edits.chunkX;
+        int chunkZ = edits.chunkZ;
+        try {
+            long mask = editedSections.getAndSet(chunkX * TerrainGeneration.CHUNKS_PER_SIDE + chunkZ, 0);
+            Chunk chunk = terrain.getChunkStore().getChunk(chunkX, chunkZ);
+            // Read the version first, as in buildChunk
+            int version = chunk.getVersion();
+            snapshots.get().capture(terrain.getChunkStore(), chunkX, chunkZ);
+            MeshData[] sections = new MeshData[chunk.getSectionCount()];
+            long[] sectionConnectivity = new long[sections.length];
+            for (int sectionY = 0; sectionY < sections.length; sectionY++) {
+                if ((mask & 1L << sectionY) != 0) {
+                    sectionConnectivity[sectionY] = computeConnectivity(chunk, chunkX, chunkZ, sectionY);
+                    sections[sectionY] = buildSection(chunk, chunkX, chunkZ, sectionY);
+                }
+            }
+            edits.version = version;
+            edits.mask = mask;
+            edits.connectivity = sectionConnectivity;
+            edits.data = sections;
+            edits.chunk = chunk;
+        } finally {
+            // Always handed back, so the render thread knows the job is over
+            finishedEdits.add(edits);
         }
-        // Bottom
-        blockType = y - 1 < 0 ? null : terrain.getBlock(x, z, y - 1);
-        if (blockType == null || blockType == TerrainGeneration.BlockType.WATER) {
-            return true;
+    }
+
+    /**
+     * Swaps the sections of a finished edit job into the chunk's meshes, unless
+     * the chunk was reloaded or remeshed from a newer snapshot in the meantime.
+     */
+    private void applyEdits(SectionEdits edits) {
+        int index = edits.chunkX * TerrainGeneration.CHUNKS_PER_SIDE + edits.chunkZ;
+        editJobs[index]--;
+        stats.editLatencyFrames = Math.max(stats.editLatencyFrames, frame - edits.queuedFrame);
+        ChunkMeshes meshes = chunkMeshes[index];
+        if (edits.chunk == null || meshes == null || meshes.chunk != edits.chunk || edits.chunk.isEvicted()) {
+            edits.discard();
+            return;
         }
-        // North
-        blockType = z + 1 >= TerrainGeneration.WORLD_SIZE ? null : terrain.getBlock(x, z + 1, y);
-        if (blockType == null || blockType == TerrainGeneration.BlockType.WATER) {
-            return true;
+        for (int sectionY = 0; sectionY < edits.data.length; sectionY++) {
+            if ((edits.mask & 1L << sectionY) == 0) {
+                continue;
+            }
+            MeshData mesh = edits.data[sectionY];
+            if (edits.version < meshes.sectionVersions[sectionY]) {
+                // Jobs finish in any order; a later one already put up a newer mesh
+                if (mesh != null) {
+                    mesh.release();
+                }
+                continue;
+            }
+            stats.vertexBufferBytes += meshes.replaceSection(sectionY, mesh, edits.connectivity[sectionY], storage);
+            meshes.sectionVersions[sectionY] = edits.version;
+            visibilityGraph.setSection(edits.chunkX, edits.chunkZ, sectionY, edits.connectivity[sectionY]);
+            stats.editedSections++;
         }
-        // South
-        blockType = z - 1 < 0 ? null : terrain.getBlock(x, z - 1, y);
-        if (blockType == null || blockType == TerrainGeneration.BlockType.WATER) {
-            return true;
+        edits.data = null;
+        // Every change to the chunk published its sections, so they are all rebuilt or queued
+        meshes.version = Math.max(meshes.version, edits.version);
+        if (chunkLods[index] != null && chunkLods[index].version != meshes.version) {
+            lodQueue.request(edits.chunkX, edits.chunkZ);
         }
-        // East
-        blockType = x + 1 >= TerrainGeneration.WORLD_SIZE ? null : terrain.getBlock(x + 1, z, y);
-        if (blockType == null || blockType == TerrainGeneration.BlockType.WATER) {
-            return true;
+    }
+
+    // Runs on the distant terrain worker
+    private void buildLod(int chunkX, int chunkZ) {
+        int version = terrain.getChunkStore().getChunk(chunkX, chunkZ).getVersion();
+        snapshots.get().capture(terrain.getChunkStore(), chunkX, chunkZ);
+        LodMesher mesher = lodMeshers.get();
+        mesher.scanSurface(chunkX, chunkZ);
+        MeshData[] levels = new MeshData[LodMesher.DECIMATION.length];
+        for (int level = 0; level < levels.length; level++) {
+            levels[level] = mesher.build(chunkX, chunkZ, level);
         }
-        // West
-        blockType = x - 1 < 0 ? null : terrain.getBlock(x - 1, z, y);
-        if (blockType == null || blockType == TerrainGeneration.BlockType.WATER) {
-            return true;
+        finishedLods.add(new ChunkLod(chunkX, chunkZ, version, levels));
+    }
+
+    /**
+     * True if a uniform section and all six neighbouring sections are solid,
+     * so none of its blocks can have an exposed side.
+     */
+    private boolean isSectionBuried(int chunkX, int chunkZ, int sectionY) {
+        Chunk chunk = terrain.getChunkStore().getChunk(chunkX, chunkZ);
+        if (sectionY == 0 || sectionY + 1 >= chunk.getSectionCount()) {
+            return false;  // The world's bottom and top faces are always visible
         }
+        return isSolidSection(chunk, sectionY) &&
+            isSolidSection(chunk, sectionY - 1) &&
+            isSolidSection(chunk, sectionY + 1) &&
+            isSolidSection(terrain.getChunkStore().getChunk(chunkX - 1, chunkZ), sectionY) &&
+            isSolidSection(terrain.getChunkStore().getChunk(chunkX + 1, chunkZ), sectionY) &&
+            isSolidSection(terrain.getChunkStore().getChunk(chunkX, chunkZ - 1), sectionY) &&
+            isSolidSection(terrain.getChunkStore().getChunk(chunkX, chunkZ + 1), sectionY);
+    }
 
-        // If we get here, all sides are covered by non-water blocks
-        return false;
+    private static boolean isSolidSection(Chunk chunk, int sectionY) {
+        if (chunk == null || !chunk.isSectionUniform(sectionY)) {
+            return false;
+        }
+        TerrainGeneration.BlockType block = chunk.getUniformBlock(sectionY);
+        return block != null && block != TerrainGeneration.BlockType.WATER;
     }
 
-    private void drawBlock(float x, float y, float z, TerrainGeneration.BlockType blockType) {
-        float size = 1.0f;
-
-        // Select textures based on block type
-        int topTex, sideTex, bottomTex;
-        switch (blockType) {
-            case GRASS:
-                topTex = grassTopTexture;
-                sideTex = grassSideTexture;
-                bottomTex = dirtTexture;
-                break;
-            case DIRT:
-                topTex = dirtTexture;
-                sideTex = dirtTexture;
-                bottomTex = dirtTexture;
-                break;
-            case STONE:
-                topTex = stoneTexture;
-                sideTex = stoneTexture;
-                bottomTex = stoneTexture;
-                break;
-            case SAND:
-                topTex = sandTexture;
-                sideTex = sandTexture;
-                bottomTex = sandTexture;
-                glColor3f(1.0f, 1.0f, 1.0f);  // No tint needed since we have proper texture
-                break;
-            case LOG:
-                topTex = logTopTexture;     // Top of log
-                sideTex = logSideTexture;   // Sides of log
-                bottomTex = logTopTexture;  // Bottom of log (same as top)
-                break;
-            case LEAVES:
-                topTex = leavesTexture;
-                sideTex = leavesTexture;
-                bottomTex = leavesTexture;
-                break;
-            case WATER:
-                topTex = waterTexture;
-                sideTex = waterTexture;
-                bottomTex = waterTexture;
-                glColor4f(0.2f, 0.3f, 0.9f, 0.7f);  // Slightly less transparent blue
-                break;
-            case COAL_ORE:
-                topTex = coalOreTexture;
-                sideTex = coalOreTexture;
-                bottomTex = coalOreTexture;
-                break;
-            case IRON_ORE:
-                topTex = ironOreTexture;
-                sideTex = ironOreTexture;
-                bottomTex = ironOreTexture;
-                break;
-            case DIAMOND_ORE:
-                topTex = diamondOreTexture;
-                sideTex = diamondOreTexture;
-                bottomTex = diamondOreTexture;
-                break;
-            default:
-                return;
+    private void updateChunks() {
+        uploadFinishedChunks();
+        queueDirtySections();
+
+        float camX = camera.getX();
+        float camZ = camera.getZ();
+        float radiusSq = RENDER_DISTANCE * RENDER_DISTANCE;
+        int minChunkX = Math.max(0, (int)Math.floor((camX - RENDER_DISTANCE) / TerrainGeneration.CHUNK_SIZE));
+        int maxChunkX = Math.min(TerrainGeneration.CHUNKS_PER_SIDE - 1, (int)Math.floor((camX + RENDER_DISTANCE) / TerrainGeneration.CHUNK_SIZE));
+        int minChunkZ = Math.max(0, (int)Math.floor((camZ - RENDER_DISTANCE) / TerrainGeneration.CHUNK_SIZE));
+        int maxChunkZ = Math.min(TerrainGeneration.CHUNKS_PER_SIDE - 1, (int)Math.floor((camZ + RENDER_DISTANCE) / TerrainGeneration.CHUNK_SIZE));
+
+        // Request every chunk in range that has no mesh yet. Edits normally bring meshes up to
+        // date section by section; a version mismatch with no edit job under way catches any that slipped past.
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                if (ChunkLoadQueue.distanceSqToChunk(chunkX, chunkZ, camX, camZ) > radiusSq) {
+                    continue;
+                }
+                int index = chunkX * TerrainGeneration.CHUNKS_PER_SIDE + chunkZ;
+                ChunkMeshes meshes = chunkMeshes[index];
+                if (meshes == null ||
+                    (editJobs[index] == 0 && meshes.version != terrain.getChunkStore().getChunk(chunkX, chunkZ).getVersion())) {
+                    loadQueue.request(chunkX, chunkZ);
+                }
+            }
         }
 
-        // Draw the block faces
-        drawBlockFaces(x, y, z, size, topTex, sideTex, bottomTex);
+        loadQueue.update(camera, RENDER_DISTANCE);
 
-        // Reset color
-        if (blockType == TerrainGeneration.BlockType.SAND || blockType == TerrainGeneration.BlockType.WATER) {
-            glColor4f(1.0f, 1.0f, 1.0f, 1.0f);
+        if (DISTANT_TERRAIN) {
+            // Every chunk gets a low-detail mesh once; edits nearby refresh it when the chunk is remeshed
+            for (int index = 0; index < chunkLods.length; index++) {
+                if (chunkLods[index] == null) {
+                    lodQueue.request(index / TerrainGeneration.CHUNKS_PER_SIDE, index % TerrainGeneration.CHUNKS_PER_SIDE);
+                }
+            }
+            lodQueue.update(camera, 2 * TerrainGeneration.WORLD_SIZE);
+        }
+
+        // Keep a chunk of margin so chunks right at the edge don't thrash in and out
+        terrain.getChunkStore().evict(camX, camZ, RENDER_DISTANCE + TerrainGeneration.CHUNK_SIZE);
+    }
+
+    private void deleteMeshes(ChunkMeshes meshes) {
+        stats.vertexBufferBytes -= meshes.getGpuByteSize();
+        meshes.delete();
+    }
+
+    /**
+     * Uploads meshes finished by the loader threads, within the per-frame budget.
+     * Edited sections go first, and at least one edit job and one chunk go up
+     * every frame so the queues always drain.
+     */
+    private void uploadFinishedChunks() {
+        long start = System.nanoTime();
+        long bytes = 0;
+        SectionEdits edits;
+        int editUploads = 0;
+        while ((editUploads == 0 || (bytes < UPLOAD_BUDGET_BYTES && System.nanoTime() - start < UPLOAD_BUDGET_NANOS)) &&
+               (edits = finishedEdits.poll()) != null) {
+            bytes += edits.getByteSize();
+            applyEdits(edits);
+            editUploads++;
+        }
+
+        ChunkMeshes finished;
+        while ((stats.uploadedChunks == 0 || (bytes < UPLOAD_BUDGET_BYTES && System.nanoTime() - start < UPLOAD_BUDGET_NANOS)) &&
+               (finished = finishedChunks.poll()) != null) {
+            if (finished.chunk.isEvicted()) {
+                finished.discard();  // Unloaded while it was being meshed
+                continue;
+            }
+            int index = finished.chunk.getChunkX() * TerrainGeneration.CHUNKS_PER_SIDE + finished.chunk.getChunkZ();
+            bytes += finished.getByteSize();
+            finished.upload(storage);
+            stats.vertexBufferBytes += finished.getGpuByteSize();
+            if (chunkMeshes[index] != null) {
+                deleteMeshes(chunkMeshes[index]);
+            }
+            chunkMeshes[index] = finished;
+            visibilityGraph.setChunk(finished.chunk.getChunkX(), finished.chunk.getChunkZ(), finished.connectivity);
+            if (finished.version != finished.chunk.getVersion()) {
+                // Edited after the snapshot was taken; catch up section by section next frame
+                for (int sectionY = 0; sectionY < finished.sections.length; sectionY++) {
+                    dirtySections.sectionChanged(finished.chunk.getChunkX(), finished.chunk.getChunkZ(), sectionY);
+                }
+            }
+            if (chunkLods[index] != null && chunkLods[index].version != finished.version) {
+                lodQueue.request(finished.chunk.getChunkX(), finished.chunk.getChunkZ());  // Edited since
+            }
+            stats.uploadedChunks++;
+        }
+
+        // Distant terrain shares what is left of the budget, but also always gets one chunk in
+        ChunkLod lod;
+        int lodUploads = 0;
+        while ((lodUploads == 0 || (bytes < UPLOAD_BUDGET_BYTES && System.nanoTime() - start < UPLOAD_BUDGET_NANOS)) &&
+               (lod = finishedLods.poll()) != null) {
+            int index = lod.chunkX * TerrainGeneration.CHUNKS_PER_SIDE + lod.chunkZ;
+            bytes += lod.getByteSize();
+            lod.upload(terrain.getMaxHeight(), storage);
+            stats.distantVertexBufferBytes += lod.getGpuByteSize();
+            if (chunkLods[index] != null) {
+                stats.distantVertexBufferBytes -= chunkLods[index].getGpuByteSize();
+                chunkLods[index].delete();
+            }
+            chunkLods[index] = lod;
+            lodUploads++;
         }
+        stats.uploadNanos = System.nanoTime() - start;
+        stats.uploadBytes = (int)bytes;
+        stats.pendingUploads = finishedChunks.size() + finishedLods.size() + finishedEdits.size();
     }
 
-    private void drawBlockFaces(float x, float y, float z, float size, int topTex, int sideTex, int bottomTex) {
-        // Top face
-        glBindTexture(GL_TEXTURE_2D, topTex);
-        glBegin(GL_QUADS);
-        glTexCoord2f(0.0f, 0.0f); glVertex3f(x - size/2, y + size/2, z - size/2);
-        glTexCoord2f(1.0f, 0.0f); glVertex3f(x + size/2, y + size/2, z - size/2);
-        glTexCoord2f(1.0f, 1.0f); glVertex3f(x + size/2, y + size/2, z + size/2);
-        glTexCoord2f(0.0f, 1.0f); glVertex3f(x - size/2, y + size/2, z + size/2);
-        glEnd();
-
-        // Side faces
-        glBindTexture(GL_TEXTURE_2D, sideTex);
-        glBegin(GL_QUADS);
-        // Front
-        glTexCoord2f(0.0f, 1.0f); glVertex3f(x - size/2, y - size/2, z + size/2);
-        glTexCoord2f(1.0f, 1.0f); glVertex3f(x + size/2, y - size/2, z + size/2);
-        glTexCoord2f(1.0f, 0.0f); glVertex3f(x + size/2, y + size/2, z + size/2);
-        glTexCoord2f(0.0f, 0.0f); glVertex3f(x - size/2, y + size/2, z + size/2);
-        // Back
-        glTexCoord2f(1.0f, 1.0f); glVertex3f(x - size/2, y - size/2, z - size/2);
-        glTexCoord2f(1.0f, 0.0f); glVertex3f(x - size/2, y + size/2, z - size/2);
-        glTexCoord2f(0.0f, 0.0f); glVertex3f(x + size/2, y + size/2, z - size/2);
-        glTexCoord2f(0.0f, 1.0f); glVertex3f(x + size/2, y - size/2, z - size/2);
-        // Right
-        glTexCoord2f(1.0f, 1.0f); glVertex3f(x + size/2, y - size/2, z - size/2);
-        glTexCoord2f(1.0f, 0.0f); glVertex3f(x + size/2, y + size/2, z - size/2);
-        glTexCoord2f(0.0f, 0.0f); glVertex3f(x + size/2, y + size/2, z + size/2);
-        glTexCoord2f(0.0f, 1.0f); glVertex3f(x + size/2, y - size/2, z + size/2);
-        // Left
-        glTexCoord2f(0.0f, 1.0f); glVertex3f(x - size/2, y - size/2, z - size/2);
-        glTexCoord2f(1.0f, 1.0f); glVertex3f(x - size/2, y - size/2, z + size/2);
-        glTexCoord2f(1.0f, 0.0f); glVertex3f(x - size/2, y + size/2, z + size/2);
-        glTexCoord2f(0.0f, 0.0f); glVertex3f(x - size/2, y + size/2, z - size/2);
-        glEnd();
-
-        // Bottom face
-        glBindTexture(GL_TEXTURE_2D, bottomTex);
-        glBegin(GL_QUADS);
-        glTexCoord2f(0.0f, 1.0f); glVertex3f(x - size/2, y - size/2, z - size/2);
-        glTexCoord2f(1.0f, 1.0f); glVertex3f(x + size/2, y - size/2, z - size/2);
-        glTexCoord2f(1.0f, 0.0f); glVertex3f(x + size/2, y - size/2, z + size/2);
-        glTexCoord2f(0.0f, 0.0f); glVertex3f(x - size/2, y - size/2, z + size/2);
-        glEnd();
+    /**
+     * Projection the world is drawn with.
+     */
+    public void setProjection(Matrix4fc projection) {
+        this.projection.set(projection);
     }
 
     public void render() {
-        // Save the current matrix
-        glPushMatrix();
-        
-        // Reset the matrix
-        glLoadIdentity();
-        
-        // Apply camera rotation
-        glRotatef(camera.getPitch(), 1.0f, 0.0f, 0.0f);
-        glRotatef(camera.getYaw(), 0.0f, 1.0f, 0.0f);
-        
-        // Apply camera translation
-        glTranslatef(-camera.getX(), -camera.getY(), -camera.getZ());
+        stats.beginFrame();
+        frame++;
+
+        // Camera rotation, then translation, same as glRotatef/glTranslatef would apply them
+        view.rotationX((float)Math.toRadians(camera.getPitch()))
+            .rotateY((float)Math.toRadians(camera.getYaw()))
+            .translate(-camera.getX(), -camera.getY(), -camera.getZ());
+        projection.mul(view, viewProjection);
+        frustum.set(viewProjection);
+        if (useTextureArray) {
+            cameraUniforms.update(viewProjection);
+        } else {
+            // The fixed-function fallback still reads the matrix stack, which nothing else uses
+            glMatrixMode(GL_PROJECTION);
+            glLoadMatrixf(projection.get(matrixBuffer));
+            glMatrixMode(GL_MODELVIEW);
+            glLoadMatrixf(view.get(matrixBuffer));
+            ShaderProgram.useNone();
+            GLState.enable(GL_TEXTURE_2D);
+        }
+
+        updateChunks();
+        collectVisibleSections();
 
-        // Enable texturing
-        glEnable(GL_TEXTURE_2D);
-        
         // First render pass - solid blocks
-        glDisable(GL_BLEND);
+        GLState.disable(GL_BLEND);
         renderBlocks(false);
         
         // Second render pass - transparent blocks
-        glEnable(GL_BLEND);
-        glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+        GLState.enable(GL_BLEND);
+        GLState.blendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
         renderBlocks(true);
-        
-        // Restore the matrix
-        glPopMatrix();
+
+        VertexArenas arenas = storage.arenas;
+        if (arenas != null) {
+            arenas.endFrame();
+            stats.arenaCount = arenas.getArenaCount();
+            stats.arenaCapacityBytes = arenas.getCapacityBytes();
+            stats.arenaUsedBytes = arenas.getUsedBytes();
+            stats.arenaFreeBlocks = arenas.getFreeBlockCount();
+            stats.arenaLargestFreeBytes = arenas.getLargestFreeBytes();
+        }
     }
-    
-    private void renderBlocks(boolean transparentPass) {
-        // Get camera position to determine which chunks to render
-        int camX = (int)camera.getX();
-        int camZ = (int)camera.getZ();
-        
-        // Render a 48x48 area around the camera
-        int renderDistance = 48;
-        
+
+    /**
+     * Tests every built section in range against the view frustum, then against
+     * what the visibility graph can see from the camera, once per frame; both
+     * passes then draw only the survivors. Chunks without full-detail meshes
+     * add their low-detail mesh for their distance instead.
+     */
+    private void collectVisibleSections() {
+        float camX = camera.getX();
+        float camZ = camera.getZ();
+        float radiusSq = RENDER_DISTANCE * RENDER_DISTANCE;
+        if (OCCLUSION_CULLING) {
+            visibilityGraph.update(camX, camera.getY(), camZ, RENDER_DISTANCE, frustum);
+        }
+
         // Calculate bounds once
-        int minX = Math.max(0, camX - renderDistance);
-        int maxX = Math.min(TerrainGeneration.WORLD_SIZE - 1, camX + renderDistance);
-        int minZ = Math.max(0, camZ - renderDistance);
-        int maxZ = Math.min(TerrainGeneration.WORLD_SIZE - 1, camZ + renderDistance);
-        
-        // Pre-calculate some values
-        float cameraDistanceThreshold = renderDistance * renderDistance;
-        
-        // Render blocks from front to back for better transparency
-        for (int x = minX; x <= maxX; x++) {
-            for (int z = minZ; z <= maxZ; z++) {
-                // Skip blocks too far from camera
-                float dx = x - camX;
-                float dz = z - camZ;
-                if (dx * dx + dz * dz > cameraDistanceThreshold) {
+        int minChunkX = Math.max(0, (int)Math.floor((camX - RENDER_DISTANCE) / TerrainGeneration.CHUNK_SIZE));
+        int maxChunkX = Math.min(TerrainGeneration.CHUNKS_PER_SIDE - 1, (int)Math.floor((camX + RENDER_DISTANCE) / TerrainGeneration.CHUNK_SIZE));
+        int minChunkZ = Math.max(0, (int)Math.floor((camZ - RENDER_DISTANCE) / TerrainGeneration.CHUNK_SIZE));
+        int maxChunkZ = Math.min(TerrainGeneration.CHUNKS_PER_SIDE - 1, (int)Math.floor((camZ + RENDER_DISTANCE) / TerrainGeneration.CHUNK_SIZE));
+
+        visibleCount = 0;
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                // Chunks still waiting on the loader are simply not drawn yet
+                ChunkMeshes meshes = chunkMeshes[chunkX * TerrainGeneration.CHUNKS_PER_SIDE + chunkZ];
+                if (meshes == null || ChunkLoadQueue.distanceSqToChunk(chunkX, chunkZ, camX, camZ) > radiusSq) {
                     continue;
                 }
-                
-                // Render each block in the column
-                for (int y = 0; y < terrain.getMaxHeight(); y++) {
-                    TerrainGeneration.BlockType block = terrain.getBlock(x, z, y);
-                    if (block != null) {
-                        boolean isTransparent = block == TerrainGeneration.BlockType.WATER;
-                        if (isTransparent == transparentPass && isBlockVisible(x, z, y)) {
-                            drawBlock(x, y, z, block);
-                        }
+                for (int sectionY = 0; sectionY < meshes.sections.length; sectionY++) {
+                    SectionMesh section = meshes.sections[sectionY];
+                    if (section == null) {
+                        continue;
+                    }
+                    stats.sectionsTested++;
+                    if (!section.isVisible(frustum)) {
+                        stats.sectionsCulled++;
+                        continue;
                     }
+                    if (OCCLUSION_CULLING && !visibilityGraph.isReached(chunkX, chunkZ, sectionY)) {
+                        stats.sectionsOccluded++;
+                        continue;
+                    }
+                    if (visibleCount == visibleSections.length) {
+                        visibleSections = Arrays.copyOf(visibleSections, visibleCount * 2);
+                    }
+                    visibleSections[visibleCount++] = section;
+                }
+            }
+        }
+        stats.sectionsDrawn = visibleCount;
+
+        if (DISTANT_TERRAIN) {
+            collectDistantChunks(camX, camZ, radiusSq);
+        }
+    }
+
+    private void collectDistantChunks(float camX, float camZ, float radiusSq) {
+        for (int chunkX = 0; chunkX < TerrainGeneration.CHUNKS_PER_SIDE; chunkX++) {
+            for (int chunkZ = 0; chunkZ < TerrainGeneration.CHUNKS_PER_SIDE; chunkZ++) {
+                int index = chunkX * TerrainGeneration.CHUNKS_PER_SIDE + chunkZ;
+                ChunkLod lod = chunkLods[index];
+                float distanceSq = ChunkLoadQueue.distanceSqToChunk(chunkX, chunkZ, camX, camZ);
+                // Full detail wins wherever it is ready; until then the low-detail mesh fills the gap
+                if (lod == null || (distanceSq <= radiusSq && chunkMeshes[index] != null)) {
+                    continue;
+                }
+                int level = 0;
+                while (level < LOD_DISTANCES.length && distanceSq > (float)LOD_DISTANCES[level] * LOD_DISTANCES[level]) {
+                    level++;
+                }
+                SectionMesh mesh = lod.levels[level];
+                if (!mesh.isVisible(frustum)) {
+                    continue;
+                }
+                if (visibleCount == visibleSections.length) {
+                    visibleSections = Arrays.copyOf(visibleSections, visibleCount * 2);
                 }
+                visibleSections[visibleCount++] = mesh;
+                stats.distantChunksDrawn++;
             }
         }
     }
+    
+    private void renderBlocks(boolean transparentPass) {
+        int pass = transparentPass ? MeshData.TRANSPARENT : MeshData.OPAQUE;
+
+        // Vertex array objects carry their own enabled arrays
+        if (storage.indices == null) {
+            storage.format.enableArrays();
+        }
+        WorldProgram program = transparentPass ? waterProgram : terrainProgram;
+        if (useTextureArray) {
+            program.shader.use();
+            cameraUniforms.apply(program.camera);
+            GLState.activeTexture(GL_TEXTURE0);
+            GLState.bindTexture(GL_TEXTURE_2D_ARRAY_EXT, blockTextureArray);
+        } else if (transparentPass) {
+            glColor4f(WATER_TINT[0], WATER_TINT[1], WATER_TINT[2], WATER_TINT[3]);
+        }
+
+        SectionMesh[] sections = visibleSections;
+        int count = visibleCount;
+        if (transparentPass) {
+            count = sortTranslucentSections();
+            sections = translucentSections;
+        }
+        for (int i = 0; i < count; i++) {
+            if (useTextureArray) {
+                stats.drawCalls += sections[i].draw(pass, program.sectionOrigin);
+            } else {
+                stats.drawCalls += sections[i].drawPerTexture(pass, blockTextures);
+            }
+        }
+        if (storage.arenas != null) {
+            storage.arenas.submit();
+            stats.drawCalls += storage.arenas.takeDrawCalls();
+        }
+
+        // The program and texture stay bound for whoever draws next to replace; the
+        // vertex array object is unbound so no later element buffer binding lands in it
+        if (!useTextureArray) {
+            glColor4f(1.0f, 1.0f, 1.0f, 1.0f);
+        }
+        if (storage.indices != null) {
+            GLState.bindVertexArray(0);
+        } else {
+            storage.format.disableArrays();
+        }
+    }
+
+    /**
+     * Orders the visible sections with water back to front, and their water
+     * faces too where the camera has moved into another block.
+     *
+     * @return the number of sections in translucentSections
+     */
+    private int sortTranslucentSections() {
+        float camX = camera.getX();
+        float camY = camera.getY();
+        float camZ = camera.getZ();
+        int count = 0;
+        for (int i = 0; i < visibleCount; i++) {
+            SectionMesh section = visibleSections[i];
+            if (!section.hasPass(MeshData.TRANSPARENT)) {
+                continue;
+            }
+            section.viewDistanceSq = section.distanceSq(camX, camY, camZ);
+            if (count == translucentSections.length) {
+                translucentSections = Arrays.copyOf(translucentSections, count * 2);
+            }
+            translucentSections[count++] = section;
+        }
+        Arrays.sort(translucentSections, 0, count, FARTHEST_FIRST);
+        for (int i = 0; i < count; i++) {
+            if (translucentSections[i].sortTranslucent(camX, camY, camZ)) {
+                stats.translucentResorted++;
+            }
+        }
+        stats.translucentSections = count;
+        return count;
+    }
+
+    /**
+     * Whether meshes requested so far are still being built or waiting to be uploaded.
+     */
+    public boolean isLoading() {
+        return loadQueue.getPendingCount() + loadQueue.getInFlightCount() > 0
+            || lodQueue.getPendingCount() + lodQueue.getInFlightCount() > 0
+            || !finishedChunks.isEmpty() || !finishedLods.isEmpty() || !finishedEdits.isEmpty();
+    }
+
+    /**
+     * Stops the mesh loader threads; the renderer draws nothing new afterwards.
+     */
+    public void shutdown() {
+        loadQueue.shutdown();
+        lodQueue.shutdown();
+    }
+
+    public RenderStats getStats() {
+        return stats;
+    }
 
     public TerrainGeneration getTerrain() {
         return terrain;
@@ -0,0 +1,147 @@
+package com.craftmine;
+
+/**
+ * Works out which faces of a 16x8x16 section can see each other through the
+ * blocks inside it. Two faces are connected when a flood fill through air and
+ * water reaches both; {@link VisibilityGraph} walks these links to skip
+ * sections hidden behind solid ground.
+ *
+ * The result packs the 6x6 face pairs into a long, bit (from * 6 + to), using
+ * the face numbering of {@link ChunkMesher}. A face connected to itself has
+ * at least one open block on it.
+ *
+ * Needs no OpenGL context. An instance reuses its scratch buffers and must not
+ * be shared between threads.
+ */
+public class SectionConnectivity {
+    public static final int FACES = 6;
+    public static final long NONE = 0L;
+    public static final long ALL = (1L << (FACES * FACES)) - 1;
+
+    private static final int SIZE = Chunk.SIZE;
+    private static final int HEIGHT = Chunk.SECTION_HEIGHT;
+
+    private final BlockAccess blocks;
+    private final boolean[] open = new boolean[SIZE * SIZE * HEIGHT];  // [x][z][y] flattened, y fastest
+    private final boolean[] visited = new boolean[SIZE * SIZE * HEIGHT];
+    private final int[] queue = new int[SIZE * SIZE * HEIGHT];
+
+    public SectionConnectivity(BlockAccess blocks) {
+        this.blocks = blocks;
+    }
+
+    public static boolean isConnected(long connectivity, int from, int to) {
+        return (connectivity & (1L << (from * FACES + to))) != 0;
+    }
+
+    /**
+     * Number of distinct face pairs that see each other, 15 at most.
+     */
+    public static int countConnectedPairs(long connectivity) {
+        int pairs = 0;
+        for (int from = 0; from < FACES; from++) {
+            for (int to = from + 1; to < FACES; to++) {
+                if (isConnected(connectivity, from, to)) {
+                    pairs++;
+                }
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * Connectivity of a section made of a single block type.
+     */
+    public static long uniform(TerrainGeneration.BlockType block) {
+        return isOpen(block) ? ALL : NONE;
+    }
+
+    public long compute(int chunkX, int chunkZ, int sectionY) {
+        int minX = chunkX * SIZE;
+        int minY = sectionY * HEIGHT;
+        int minZ = chunkZ * SIZE;
+        int height = Math.min(HEIGHT, blocks.getMaxHeight() - minY);
+
+        int openCount = 0;
+        for (int x = 0; x < SIZE; x++) {
+            for (int z = 0; z < SIZE; z++) {
+                for (int y = 0; y < HEIGHT; y++) {
+                    int index = (x * SIZE + z) * HEIGHT + y;
+                    open[index] = y < height && isOpen(blocks.getBlock(minX + x, minZ + z, minY + y));
+                    visited[index] = false;
+                    if (open[index]) {
+                        openCount++;
+                    }
+                }
+            }
+        }
+        if (openCount == 0) {
+            return NONE;
+        }
+
+        long connectivity = NONE;
+        for (int start = 0; start < open.length && connectivity != ALL; start++) {
+            if (open[start] && !visited[start]) {
+                connectivity |= pairsOf(fill(start, height));
+            }
+        }
+        return connectivity;
+    }
+
+    /**
+     * Flood fills the open region around start and returns the faces it touches as a bit mask.
+     */
+    private int fill(int start, int height) {
+        int faces = 0;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        visited[start] = true;
+        while (head < tail) {
+            int index = queue[head++];
+            int y = index % HEIGHT;
+            int z = index / HEIGHT % SIZE;
+            int x = index / (HEIGHT * SIZE);
+            faces |= (y == height - 1 ? 1 << ChunkMesher.TOP : 0) | (y == 0 ? 1 << ChunkMesher.BOTTOM : 0) |
+                (z == SIZE - 1 ? 1 << ChunkMesher.NORTH : 0) | (z == 0 ? 1 << ChunkMesher.SOUTH : 0) |
+                (x == SIZE - 1 ? 1 << ChunkMesher.EAST : 0) | (x == 0 ? 1 << ChunkMesher.WEST : 0);
+
+            // Six neighbours inside the section
+            tail = visit(y + 1 < height, index + 1, tail);
+            tail = visit(y > 0, index - 1, tail);
+            tail = visit(z + 1 < SIZE, index + HEIGHT, tail);
+            tail = visit(z > 0, index - HEIGHT, tail);
+            tail = visit(x + 1 < SIZE, index + SIZE * HEIGHT, tail);
+            tail = visit(x > 0, index - SIZE * HEIGHT, tail);
+        }
+        return faces;
+    }
+
+    private int visit(boolean inside, int index, int tail) {
+        if (inside && open[index] && !visited[index]) {
+            visited[index] = true;
+            queue[tail++] = index;
+        }
+        return tail;
+    }
+
+    private static long pairsOf(int faces) {
+        long pairs = 0;
+        for (int from = 0; from < FACES; from++) {
+            if ((faces & (1 << from)) == 0) {
+                continue;
+            }
+            for (int to = 0; to < FACES; to++) {
+                if ((faces & (1 << to)) != 0) {
+                    pairs |= 1L << (from * FACES + to);
+                }
+            }
+        }
+        return pairs;
+    }
+
+    // The same blocks the mesher draws faces against
+    private static boolean isOpen(TerrainGeneration.BlockType block) {
+        return block == null || block == TerrainGeneration.BlockType.WATER;
+    }
+}
@@ -0,0 +1,307 @@
+package com.craftmine;
+
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+import org.joml.FrustumIntersection;
+import org.lwjgl.BufferUtils;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.glUniform3f;
+import static org.lwjgl.opengl.GL30.glGenVertexArrays;
+import static org.lwjgl.opengl.GL32.glDrawElementsBaseVertex;
+
+/**
+ * A section's {@link MeshData} uploaded to a vertex buffer in one of the
+ * {@link VertexFormat}s. Distant chunks use one for a low-detail mesh of the
+ * whole column.
+ *
+ * Given a {@link QuadIndexBuffer}, the mesh keeps its vertex layout in a vertex
+ * array object and draws indexed triangles, as a core profile needs; without
+ * one it sets its pointers on every draw and draws GL_QUADS. Given
+ * {@link VertexArenas}, each pass instead takes a range of a shared arena and
+ * drawing only queues it for the arena's multi-draw.
+ *
+ * The translucent pass keeps a CPU copy of its faces, which are re-sorted back
+ * to front and re-uploaded whenever the camera has moved into another block.
+ *
+ * Must be created, drawn and deleted on the render thread. Creating one
+ * releases the MeshData's buffer back to its pool.
+ */
+public class SectionMesh {
+    /**
+     * How sections are uploaded and drawn, chosen once by the renderer for the context.
+     */
+    public static final class Storage {
+        final VertexFormat format;
+        final QuadIndexBuffer indices;  // Null to draw GL_QUADS without vertex array objects
+        final VertexArenas arenas;  // Null to give every section a vertex buffer of its own
+
+        public Storage(VertexFormat format, QuadIndexBuffer indices, VertexArenas arenas) {
+            this.format = format;
+            this.indices = indices;
+            this.arenas = arenas;
+        }
+    }
+
+    private final int vbo;  // 0 in an arena
+    private final int vao;  // 0 when drawn without vertex array objects, or from an arena
+    private final VertexArenas arenas;
+    private final VertexArenas.Range[] ranges = new VertexArenas.Range[2];  // Arena ranges per pass
+    private final VertexFormat format;
+    private final int stride;
+    private final int byteSize;
+    private final int[] first;
+    private final int[] count;
+    private final int[] passFirst = new int[2];
+    private final int[] passCount = new int[2];
+    private final int chunkX;
+    private final int chunkZ;
+    private final float minX;  // Low corner of the box used for culling, and the packed vertices' origin
+    private final float minY;
+    private final float minZ;
+    private final float maxY;
+    private final float[] translucent;  // Faces of the translucent pass, null without any
+    private long sortedFor = Long.MIN_VALUE;  // Camera block the translucent faces are sorted for
+    float viewDistanceSq;  // Set by the renderer to order sections back to front
+
+    // Scratch for re-sorting; sections are only sorted on the render thread
+    private static final FaceSorter SORTER = new FaceSorter();
+    private static float[] sorted = new float[0];
+    private static FloatBuffer sortedBuffer = BufferUtils.createFloatBuffer(1024);
+    private static ShortBuffer packBuffer = BufferUtils.createShortBuffer(4096);
+
+    public SectionMesh(MeshData data, int chunkX, int chunkZ, int sectionY, Storage storage) {
+        // Blocks are unit cubes centred on their integer coordinates
+        this(data, chunkX, chunkZ, sectionY * Chunk.SECTION_HEIGHT - 0.5f, (sectionY + 1) * Chunk.SECTION_HEIGHT - 0.5f, storage);
+    }
+
+    public SectionMesh(MeshData data, int chunkX, int chunkZ, float minY, float maxY, Storage storage) {
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+        this.minX = chunkX * Chunk.SIZE - 0.5f;
+        this.minY = minY;
+        this.minZ = chunkZ * Chunk.SIZE - 0.5f;
+        this.maxY = maxY;
+        this.format = storage.format;
+        this.arenas = storage.arenas;
+        this.stride = format.getBytesPerVertex();
+        this.byteSize = data.getVertexCount() * stride;
+        this.first = data.first;
+        this.count = data.count;
+        for (int pass = MeshData.OPAQUE; pass <= MeshData.TRANSPARENT; pass++) {
+            passFirst[pass] = data.getFirst(pass);
+            passCount[pass] = data.getVertexCount(pass);
+        }
+        if (passCount[MeshData.TRANSPARENT] > 0) {
+            translucent = new float[passCount[MeshData.TRANSPARENT] * MeshData.FLOATS_PER_VERTEX];
+            FloatBuffer vertices = data.vertices.duplicate();
+            vertices.position(passFirst[MeshData.TRANSPARENT] * MeshData.FLOATS_PER_VERTEX);
+            vertices.get(translucent);
+        } else {
+            translucent = null;
+        }
+        if (arenas != null) {
+            vbo = 0;
+            vao = 0;
+            for (int pass = MeshData.OPAQUE; pass <= MeshData.TRANSPARENT; pass++) {
+                if (passCount[pass] > 0) {
+                    ranges[pass] = arenas.allocate(passCount[pass]);
+                    write(ranges[pass], data.vertices, passFirst[pass], passCount[pass]);
+                }
+            }
+            data.release();
+            return;
+        }
+
+        this.vbo = glGenBuffers();
+        GLState.bindBuffer(GL_ARRAY_BUFFER, vbo);
+        if (format == VertexFormat.PACKED) {
+            glBufferData(GL_ARRAY_BUFFER, pack(data.vertices, 0, data.getVertexCount()), GL_STATIC_DRAW);
+        } else {
+            glBufferData(GL_ARRAY_BUFFER, data.vertices, GL_STATIC_DRAW);
+        }
+        if (storage.indices != null) {
+            storage.indices.ensureCapacity(data.getVertexCount() / MeshData.VERTICES_PER_FACE);
+            vao = glGenVertexArrays();
+            GLState.bindVertexArray(vao);
+            format.enableArrays();
+            format.setPointers();
+            GLState.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, storage.indices.getBuffer());
+            GLState.bindVertexArray(0);
+        } else {
+            vao = 0;
+        }
+        GLState.bindBuffer(GL_ARRAY_BUFFER, 0);
+        data.release();
+    }
+
+    /**
+     * Copies count vertices from first in a MeshData-layout buffer into an arena range.
+     */
+    private void write(VertexArenas.Range range, FloatBuffer vertices, int first, int count) {
+        if (format == VertexFormat.PACKED) {
+            arenas.write(range, pack(vertices, first, count));
+            return;
+        }
+        FloatBuffer slice = vertices.duplicate();
+        slice.limit((first + count) * MeshData.FLOATS_PER_VERTEX).position(first * MeshData.FLOATS_PER_VERTEX);
+        arenas.write(range, slice);
+    }
+
+    private ShortBuffer pack(FloatBuffer vertices, int first, int count) {
+        if (packBuffer.capacity() < count * 2) {
+            packBuffer = BufferUtils.createShortBuffer(Math.max(count * 2, packBuffer.capacity() * 2));
+        }
+        packBuffer.clear();
+        PackedVertices.pack(vertices, first, count, minX, minY, minZ, packBuffer);
+        packBuffer.flip();
+        return packBuffer;
+    }
+
+    /**
+     * True if the section's box lies at least partly inside the frustum.
+     */
+    public boolean isVisible(FrustumIntersection frustum) {
+        return frustum.testAab(minX, minY, minZ, minX + Chunk.SIZE, maxY, minZ + Chunk.SIZE);
+    }
+
+    /**
+     * Bytes of vertex buffer memory the section takes on the GPU.
+     */
+    public int getByteSize() {
+        return byteSize;
+    }
+
+    public boolean hasPass(int pass) {
+        return passCount[pass] > 0;
+    }
+
+    /**
+     * Squared distance from a point to the centre of the section's box.
+     */
+    public float distanceSq(float x, float y, float z) {
+        float dx = minX + Chunk.SIZE / 2.0f - x;
+        float dy = (minY + maxY) / 2 - y;
+        float dz = minZ + Chunk.SIZE / 2.0f - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Re-sorts the translucent faces back to front for the camera, unless they
+     * are already sorted for the block the camera is in.
+     *
+     * @return true if the faces were re-sorted and uploaded
+     */
+    public boolean sortTranslucent(float camX, float camY, float camZ) {
+        if (translucent == null) {
+            return false;
+        }
+        // Blocks are unit cubes centred on their integer coordinates
+        long block = ((long)Math.round(camX) & 0x1fffff) << 42 | ((long)Math.round(camY) & 0x1fffff) << 21 | ((long)Math.round(camZ) & 0x1fffff);
+        if (block == sortedFor) {
+            return false;
+        }
+        sortedFor = block;
+
+        if (sorted.length < translucent.length) {
+            sorted = new float[translucent.length];
+            sortedBuffer = BufferUtils.createFloatBuffer(translucent.length);
+        }
+        SORTER.sort(translucent, sorted, camX, camY, camZ);
+        sortedBuffer.clear();
+        sortedBuffer.put(sorted, 0, translucent.length).flip();
+        if (arenas != null) {
+            // The old range may still be in use by the GPU, so the faces go to a new one
+            VertexArenas.Range range = arenas.allocate(passCount[MeshData.TRANSPARENT]);
+            write(range, sortedBuffer, 0, passCount[MeshData.TRANSPARENT]);
+            arenas.free(ranges[MeshData.TRANSPARENT]);
+            ranges[MeshData.TRANSPARENT] = range;
+            return true;
+        }
+        GLState.bindBuffer(GL_ARRAY_BUFFER, vbo);
+        long offset = (long)passFirst[MeshData.TRANSPARENT] * stride;
+        if (format == VertexFormat.PACKED) {
+            glBufferSubData(GL_ARRAY_BUFFER, offset, pack(sortedBuffer, 0, passCount[MeshData.TRANSPARENT]));
+        } else {
+            glBufferSubData(GL_ARRAY_BUFFER, offset, sortedBuffer);
+        }
+        return true;
+    }
+
+    /**
+     * Draws one pass in a single call. The caller binds the block texture array
+     * and shader, and afterwards unbinds the vertex array object, or without
+     * one enables the format's arrays and disables them. originUniform is
+     * the packed shader's sectionOrigin; it is ignored for float meshes.
+     * Sections in an arena only queue the draw; the caller submits the arenas.
+     *
+     * @return the number of draw calls issued
+     */
+    public int draw(int pass, int originUniform) {
+        if (passCount[pass] == 0) {
+            return 0;
+        }
+        if (arenas != null) {
+            arenas.queueDraw(ranges[pass], 0, passCount[pass], minX, minY, minZ);
+            return 0;
+        }
+        bind();
+        if (format == VertexFormat.PACKED) {
+            glUniform3f(originUniform, minX, minY, minZ);
+        }
+        if (vao != 0) {
+            glDrawElementsBaseVertex(GL_TRIANGLES, QuadIndexBuffer.indexCount(passCount[pass]), GL_UNSIGNED_INT, 0L, passFirst[pass]);
+        } else {
+            glDrawArrays(GL_QUADS, passFirst[pass], passCount[pass]);
+        }
+        return 1;
+    }
+
+    /**
+     * Fallback for drivers without texture arrays: one glDrawArrays per 2D texture.
+     *
+     * @return the number of draw calls issued
+     */
+    public int drawPerTexture(int pass, int[] textures) {
+        if (passCount[pass] == 0) {
+            return 0;
+        }
+        bind();
+        int calls = 0;
+        int base = pass * ChunkMesher.TEXTURE_COUNT;
+        for (int texture = 0; texture < ChunkMesher.TEXTURE_COUNT; texture++) {
+            if (count[base + texture] > 0) {
+                GLState.bindTexture(GL_TEXTURE_2D, textures[texture]);
+                glDrawArrays(GL_QUADS, first[base + texture], count[base + texture]);
+                calls++;
+            }
+        }
+        return calls;
+    }
+
+    private void bind() {
+        if (vao != 0) {
+            GLState.bindVertexArray(vao);
+            return;
+        }
+        GLState.bindBuffer(GL_ARRAY_BUFFER, vbo);
+        format.setPointers();
+    }
+
+    public void delete() {
+        if (arenas != null) {
+            for (VertexArenas.Range range : ranges) {
+                if (range != null) {
+                    arenas.free(range);
+                }
+            }
+            return;
+        }
+        if (vao != 0) {
+            GLState.deleteVertexArray(vao);
+        }
+        GLState.deleteBuffer(vbo);
+    }
+}
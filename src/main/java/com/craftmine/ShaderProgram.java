@@ -0,0 +1,136 @@
+package com.craftmine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.lwjgl.opengl.GL;
+
+import static org.lwjgl.opengl.GL11.glGetInteger;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL32.GL_CONTEXT_CORE_PROFILE_BIT;
+import static org.lwjgl.opengl.GL32.GL_CONTEXT_PROFILE_MASK;
+import static org.lwjgl.opengl.GL31.GL_INVALID_INDEX;
+import static org.lwjgl.opengl.GL31.glGetUniformBlockIndex;
+import static org.lwjgl.opengl.GL31.glUniformBlockBinding;
+
+/**
+ * A vertex and fragment shader pair loaded from the classpath. Named vertex
+ * attributes are bound to locations 0, 1, ... in the order given.
+ *
+ * Shader sources are written in GLSL 3.30 core style without a #version line.
+ * On a GL 3.3 or newer context they are compiled as such; on older contexts a
+ * header maps them onto GLSL 1.20 (in/out to attribute/varying, fragColor to
+ * gl_FragColor) and defines LEGACY_GLSL for the few places that differ, such
+ * as uniform blocks.
+ */
+public class ShaderProgram {
+    private static final String CORE_VERTEX_HEADER = "#version 330 core\n";
+    private static final String CORE_FRAGMENT_HEADER = "#version 330 core\nout vec4 fragColor;\n";
+    private static final String LEGACY_VERTEX_HEADER = "#version 120\n#define LEGACY_GLSL\n#define in attribute\n#define out varying\n";
+    private static final String LEGACY_FRAGMENT_HEADER = "#version 120\n#define LEGACY_GLSL\n#define in varying\n#define fragColor gl_FragColor\n";
+
+    private final int program;
+
+    public ShaderProgram(String vertexResource, String fragmentResource, String... attributes) {
+        this(vertexResource, fragmentResource, new String[0], attributes);
+    }
+
+    /**
+     * A program with each of defines #defined in both stages.
+     */
+    public ShaderProgram(String vertexResource, String fragmentResource, String[] defines, String[] attributes) {
+        int vertex = compile(GL_VERTEX_SHADER, vertexResource, defines);
+        int fragment = compile(GL_FRAGMENT_SHADER, fragmentResource, defines);
+        program = glCreateProgram();
+        glAttachShader(program, vertex);
+        glAttachShader(program, fragment);
+        for (int location = 0; location < attributes.length; location++) {
+            glBindAttribLocation(program, location, attributes[location]);
+        }
+        glLinkProgram(program);
+        // The program keeps the compiled stages alive
+        glDeleteShader(vertex);
+        glDeleteShader(fragment);
+        if (glGetProgrami(program, GL_LINK_STATUS) == 0) {
+            String log = glGetProgramInfoLog(program);
+            glDeleteProgram(program);
+            throw new RuntimeException("Failed to link " + vertexResource + " + " + fragmentResource + ": " + log);
+        }
+    }
+
+    /**
+     * True if the current context runs GLSL 3.30, and with it uniform blocks,
+     * vertex array objects and everything else a core profile needs.
+     */
+    public static boolean isCoreGlsl() {
+        return GL.getCapabilities().OpenGL33;
+    }
+
+    /**
+     * True if the current context is a core profile, which has no fixed-function
+     * pipeline to fall back to.
+     */
+    public static boolean isCoreProfile() {
+        return GL.getCapabilities().OpenGL32 && (glGetInteger(GL_CONTEXT_PROFILE_MASK) & GL_CONTEXT_CORE_PROFILE_BIT) != 0;
+    }
+
+    private static int compile(int type, String resourcePath, String[] defines) {
+        String header;
+        if (isCoreGlsl()) {
+            header = type == GL_VERTEX_SHADER ? CORE_VERTEX_HEADER : CORE_FRAGMENT_HEADER;
+        } else {
+            header = type == GL_VERTEX_SHADER ? LEGACY_VERTEX_HEADER : LEGACY_FRAGMENT_HEADER;
+        }
+        for (String define : defines) {
+            header += "#define " + define + "\n";
+        }
+        int shader = glCreateShader(type);
+        glShaderSource(shader, header + readResource(resourcePath));
+        glCompileShader(shader);
+        if (glGetShaderi(shader, GL_COMPILE_STATUS) == 0) {
+            String log = glGetShaderInfoLog(shader);
+            glDeleteShader(shader);
+            throw new RuntimeException("Failed to compile " + resourcePath + ": " + log);
+        }
+        return shader;
+    }
+
+    private static String readResource(String resourcePath) {
+        try (InputStream in = ShaderProgram.class.getResourceAsStream("/" + resourcePath)) {
+            if (in == null) {
+                throw new RuntimeException("Resource not found: " + resourcePath);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read shader: " + resourcePath, e);
+        }
+    }
+
+    public void use() {
+        GLState.useProgram(program);
+    }
+
+    public static void useNone() {
+        GLState.useProgram(0);
+    }
+
+    public int getUniformLocation(String name) {
+        return glGetUniformLocation(program, name);
+    }
+
+    /**
+     * Reads the named uniform block from a buffer bound at binding. Needs GLSL 3.30.
+     */
+    public void bindUniformBlock(String name, int binding) {
+        int index = glGetUniformBlockIndex(program, name);
+        if (index == GL_INVALID_INDEX) {
+            throw new RuntimeException("Uniform block not found: " + name);
+        }
+        glUniformBlockBinding(program, index, binding);
+    }
+
+    public void delete() {
+        glDeleteProgram(program);
+    }
+}
@@ -0,0 +1,120 @@
+package com.craftmine;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Packs images into one square RGBA atlas so screens built from them draw
+ * with a single texture. Pure CPU code; {@link UiSprites} uploads it.
+ *
+ * Images go onto shelves, tallest first. One larger than the atlas is scaled
+ * down to fit, keeping its shape. Every image is surrounded by a copy of its
+ * own edge pixels, so linear filtering never blends in a neighbour.
+ */
+public class SpriteAtlas {
+    public static final int PADDING = 1;
+
+    private final int size;
+    private final byte[] rgba;
+    private final float[] regions;  // u0, v0, u1, v1 per image
+
+    private SpriteAtlas(int size, byte[] rgba, float[] regions) {
+        this.size = size;
+        this.rgba = rgba;
+        this.regions = regions;
+    }
+
+    /**
+     * Packs images into a size x size atlas, regions in the order given.
+     *
+     * @throws IllegalArgumentException if they don't all fit
+     */
+    public static SpriteAtlas pack(TexturePacker.Image[] images, int size) {
+        TexturePacker.Image[] fitted = new TexturePacker.Image[images.length];
+        for (int i = 0; i < images.length; i++) {
+            fitted[i] = fit(images[i], size - 2 * PADDING);
+        }
+        Integer[] order = new Integer[images.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt((Integer i) -> fitted[i].height).reversed());
+
+        byte[] rgba = new byte[size * size * 4];
+        float[] regions = new float[images.length * 4];
+        int x = 0;
+        int shelfY = 0;
+        int shelfHeight = 0;
+        for (int i : order) {
+            TexturePacker.Image image = fitted[i];
+            int width = image.width + 2 * PADDING;
+            int height = image.height + 2 * PADDING;
+            if (x + width > size) {
+                x = 0;
+                shelfY += shelfHeight;
+                shelfHeight = 0;
+            }
+            if (shelfY + height > size) {
+                throw new IllegalArgumentException("Sprites don't fit in a " + size + " x " + size + " atlas");
+            }
+            copyPadded(image, rgba, size, x, shelfY);
+            regions[i * 4] = (float)(x + PADDING) / size;
+            regions[i * 4 + 1] = (float)(shelfY + PADDING) / size;
+            regions[i * 4 + 2] = (float)(x + PADDING + image.width) / size;
+            regions[i * 4 + 3] = (float)(shelfY + PADDING + image.height) / size;
+            x += width;
+            shelfHeight = Math.max(shelfHeight, height);
+        }
+        return new SpriteAtlas(size, rgba, regions);
+    }
+
+    // Scaled down to fit within limit x limit, or as it is
+    private static TexturePacker.Image fit(TexturePacker.Image image, int limit) {
+        if (image.width <= limit && image.height <= limit) {
+            return image;
+        }
+        float scale = Math.min((float)limit / image.width, (float)limit / image.height);
+        int width = Math.max(1, Math.min(limit, Math.round(image.width * scale)));
+        int height = Math.max(1, Math.min(limit, Math.round(image.height * scale)));
+        return new TexturePacker.Image(width, height, TexturePacker.resize(image, width, height));
+    }
+
+    // The image at (left + PADDING, top + PADDING), its edge pixels repeated into the padding
+    private static void copyPadded(TexturePacker.Image image, byte[] atlas, int size, int left, int top) {
+        for (int y = -PADDING; y < image.height + PADDING; y++) {
+            int sourceY = Math.max(0, Math.min(image.height - 1, y));
+            for (int x = -PADDING; x < image.width + PADDING; x++) {
+                int sourceX = Math.max(0, Math.min(image.width - 1, x));
+                System.arraycopy(image.rgba, (sourceY * image.width + sourceX) * 4,
+                    atlas, ((top + PADDING + y) * size + left + PADDING + x) * 4, 4);
+            }
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * RGBA8 pixels, rows top to bottom.
+     */
+    public byte[] getPixels() {
+        return rgba;
+    }
+
+    public float getU0(int image) {
+        return regions[image * 4];
+    }
+
+    public float getV0(int image) {
+        return regions[image * 4 + 1];
+    }
+
+    public float getU1(int image) {
+        return regions[image * 4 + 2];
+    }
+
+    public float getV1(int image) {
+        return regions[image * 4 + 3];
+    }
+}
@@ -1,8 +1,20 @@
 package com.craftmine;
 
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class TerrainGeneration implements BlockAccess {
+    /**
+     * Told about every section whose mesh a block change affects, on the thread
+     * that made the change. An edit on a section's border also affects the
+     * neighbours across it, whose faces against the edited block may appear or
+     * vanish, and whose ambient occlusion reaches diagonally across edges and corners.
+     */
+    public interface SectionListener {
+        void sectionChanged(int chunkX, int chunkZ, int sectionY);
+    }
 
-public class TerrainGeneration {
     public enum BlockType {
         GRASS,
         DIRT,
@@ -18,6 +30,8 @@ public class TerrainGeneration {
 
     public static final int WORLD_SIZE = 512;  // World dimensions (512x512)
     private static final int HALF_SIZE = WORLD_SIZE / 2;  // Half size for quadrant calculations
+    public static final int CHUNK_SIZE = 16;  // Chunk footprint (16x16 columns)
+    public static final int CHUNKS_PER_SIDE = WORLD_SIZE / CHUNK_SIZE;
     private static final int MIN_HEIGHT = 9;  // Minimum total height (1 grass + 3 dirt + 5 stone)
     private static final int MAX_STONE_LAYERS = 15;
     private static final int MAX_DIRT_LAYERS = 7;
@@ -34,7 +48,8 @@ public class TerrainGeneration {
     private final int seed;
     private final Random random;
     private double[] gradients;
-    private BlockType[][][] world;  // [x][z][y] for easier height access
+    private final ChunkStore chunks;  // Blocks live in 16x16 chunks that can be swapped out
+    private final List<SectionListener> sectionListeners = new CopyOnWriteArrayList<>();
     private int[][] heightMap = new int[WORLD_SIZE][WORLD_SIZE];
     private int[] riverPositions;  // Store river positions
     private int[][] riverPaths;    // Store river paths
@@ -44,16 +59,18 @@ public class TerrainGeneration {
     public TerrainGeneration(int seed) {
         this.seed = seed;
         this.random = new Random(seed);
-        this.world = new BlockType[WORLD_SIZE][WORLD_SIZE][MAX_STONE_LAYERS + MAX_DIRT_LAYERS + 1];
+        this.chunks = new ChunkStore(CHUNKS_PER_SIDE, MAX_HEIGHT, seed);
         this.riverPositions = new int[NUM_RIVERS];
         this.riverPaths = new int[NUM_RIVERS][WORLD_SIZE];
         initGradients();
         generateRiverPaths();
         generateWorld();
+        chunks.optimizeAll();  // Collapse uniform sections so cave generation can skip them
         
         // Generate caves after the basic terrain
         Caves caves = new Caves(this, seed);
         caves.generateCaves();
+        chunks.optimizeAll();
     }
     
     private void initGradients() {
@@ -201,41 +218,41 @@ public class TerrainGeneration {
                 for (; y < stoneHeight; y++) {
                     double oreChance = random.nextDouble();
                     if (oreChance < DIAMOND_ORE_CHANCE) {
-                        world[x][z][y] = BlockType.DIAMOND_ORE;
+                        setBlock(x, z, y, BlockType.DIAMOND_ORE);
                     } else if (oreChance < IRON_ORE_CHANCE + DIAMOND_ORE_CHANCE) {
-                        world[x][z][y] = BlockType.IRON_ORE;
+                        setBlock(x, z, y, BlockType.IRON_ORE);
                     } else if (oreChance < COAL_ORE_CHANCE + IRON_ORE_CHANCE + DIAMOND_ORE_CHANCE) {
-                        world[x][z][y] = BlockType.COAL_ORE;
+                        setBlock(x, z, y, BlockType.COAL_ORE);
                     } else {
-                        world[x][z][y] = BlockType.STONE;
+                        setBlock(x, z, y, BlockType.STONE);
                     }
                 }
                 
                 if (inRiver) {
                     // Create riverbed (sand)
                     for (; y < totalHeight - RIVER_DEPTH + 1; y++) {
-                        world[x][z][y] = BlockType.SAND;
+                        setBlock(x, z, y, BlockType.SAND);
                     }
                     // Fill with water
                     for (; y < totalHeight; y++) {
-                        world[x][z][y] = BlockType.WATER;
+                        setBlock(x, z, y, BlockType.WATER);
                     }
                     y++;
                 } else if (nearRiver) {
                     // Create sand banks
                     for (; y < totalHeight; y++) {
-                        world[x][z][y] = BlockType.SAND;
+                        setBlock(x, z, y, BlockType.SAND);
                     }
                     y++;
                 } else {
                     // Normal terrain
                     int dirtHeight = Math.min(totalHeight - stoneHeight - 1, MAX_DIRT_LAYERS);
                     for (; y < stoneHeight + dirtHeight; y++) {
-                        world[x][z][y] = BlockType.DIRT;
+                        setBlock(x, z, y, BlockType.DIRT);
                     }
                     // Add top layer
                     if (y < totalHeight) {
-                        world[x][z][y] = BlockType.GRASS;
+                        setBlock(x, z, y, BlockType.GRASS);
                         y++;
                     }
                 }
@@ -247,7 +264,7 @@ public class TerrainGeneration {
         // Second pass: Add sand around rivers
         for (int x = 0; x < WORLD_SIZE; x++) {
             for (int z = 0; z < WORLD_SIZE; z++) {
-                if (world[x][z][heightMap[x][z]] == BlockType.GRASS) {
+                if (getBlock(x, z, heightMap[x][z]) == BlockType.GRASS) {
                     // Check if near water (within 3 blocks)
                     boolean nearWater = false;
                     for (int dx = -3; dx <= 3 && !nearWater; dx++) {
@@ -255,14 +272,14 @@ public class TerrainGeneration {
                             int nx = x + dx;
                             int nz = z + dz;
                             if (nx >= 0 && nx < WORLD_SIZE && nz >= 0 && nz < WORLD_SIZE) {
-                                if (world[nx][nz][heightMap[nx][nz]] == BlockType.WATER) {
+                                if (getBlock(nx, nz, heightMap[nx][nz]) == BlockType.WATER) {
                                     nearWater = true;
                                 }
                             }
                         }
                     }
                     if (nearWater) {
-                        world[x][z][heightMap[x][z]] = BlockType.SAND;
+                        setBlock(x, z, heightMap[x][z], BlockType.SAND);
                     }
                 }
             }
@@ -271,7 +288,7 @@ public class TerrainGeneration {
         // Third pass: Generate trees
         for (int x = 0; x < WORLD_SIZE; x++) {
             for (int z = 0; z < WORLD_SIZE; z++) {
-                if (world[x][z][heightMap[x][z]] == BlockType.GRASS) {
+                if (getBlock(x, z, heightMap[x][z]) == BlockType.GRASS) {
                     // Tree generation chance (1%)
                     if (random.nextDouble() < 0.01) {
                         generateTree(x, z, heightMap[x][z] + 1);
@@ -290,7 +307,7 @@ public class TerrainGeneration {
         // Generate trunk (4-6 blocks tall)
         int trunkHeight = 4 + random.nextInt(3);
         for (int y = baseY; y < baseY + trunkHeight; y++) {
-            world[x][z][y] = BlockType.LOG;
+            setBlock(x, z, y, BlockType.LOG);
         }
         
         // Generate leaves (3x3x3 cube with some random removals)
@@ -303,29 +320,112 @@ public class TerrainGeneration {
                     if (Math.abs(dx) + Math.abs(dz) > 3) continue;
                     if (random.nextDouble() < 0.1) continue;
                     
-                    world[x + dx][z + dz][leavesBaseY + dy] = BlockType.LEAVES;
+                    setBlock(x + dx, z + dz, leavesBaseY + dy, BlockType.LEAVES);
                 }
             }
         }
     }
     
+    @Override
     public BlockType getBlock(int x, int z, int y) {
-        // Convert from world coordinates to array indices (no offset needed)
+        // Convert from world coordinates to chunk and local coordinates
+        if (x < 0 || x >= WORLD_SIZE || z < 0 || z >= WORLD_SIZE || y < 0 || y >= MAX_HEIGHT) {
+            return null;
+        }
+        return chunks.getChunk(x / CHUNK_SIZE, z / CHUNK_SIZE).getBlock(x % CHUNK_SIZE, z % CHUNK_SIZE, y);
+    }
+
+    /**
+     * Same as {@link #getBlock(int, int, int)}, finding the chunk through the caller's cache.
+     */
+    public BlockType getBlock(ChunkStore.Cache cache, int x, int z, int y) {
         if (x < 0 || x >= WORLD_SIZE || z < 0 || z >= WORLD_SIZE || y < 0 || y >= MAX_HEIGHT) {
             return null;
         }
-        return world[x][z][y];
+        return cache.getChunk(x / CHUNK_SIZE, z / CHUNK_SIZE).getBlock(x % CHUNK_SIZE, z % CHUNK_SIZE, y);
     }
 
     public void setBlock(int x, int z, int y, BlockType type) {
-        // Convert from world coordinates to array indices (no offset needed)
+        // Convert from world coordinates to chunk and local coordinates
         if (x < 0 || x >= WORLD_SIZE || z < 0 || z >= WORLD_SIZE || y < 0 || y >= MAX_HEIGHT) {
             return;
         }
-        world[x][z][y] = type;
+        Chunk chunk = chunks.getChunk(x / CHUNK_SIZE, z / CHUNK_SIZE);
+        if (chunk.setBlock(x % CHUNK_SIZE, z % CHUNK_SIZE, y, type) && !sectionListeners.isEmpty()) {
+            publishEdit(chunk, x, z, y);
+        }
+    }
+
+    public void addSectionListener(SectionListener listener) {
+        sectionListeners.add(listener);
+    }
+
+    public void removeSectionListener(SectionListener listener) {
+        sectionListeners.remove(listener);
+    }
+
+    private void publishEdit(Chunk chunk, int x, int z, int y) {
+        int chunkX = x / CHUNK_SIZE;
+        int chunkZ = z / CHUNK_SIZE;
+        int sectionY = y / Chunk.SECTION_HEIGHT;
+        int localX = x % CHUNK_SIZE;
+        int localZ = z % CHUNK_SIZE;
+        int localY = y % Chunk.SECTION_HEIGHT;
+        // Neighbouring chunk and section offsets the edit touches, 0 always among them
+        int fromX = localX == 0 && chunkX > 0 ? -1 : 0;
+        int toX = localX == CHUNK_SIZE - 1 && chunkX + 1 < CHUNKS_PER_SIDE ? 1 : 0;
+        int fromZ = localZ == 0 && chunkZ > 0 ? -1 : 0;
+        int toZ = localZ == CHUNK_SIZE - 1 && chunkZ + 1 < CHUNKS_PER_SIDE ? 1 : 0;
+        int fromY = localY == 0 && sectionY > 0 ? -1 : 0;
+        int toY = localY == Chunk.SECTION_HEIGHT - 1 && sectionY + 1 < chunk.getSectionCount() ? 1 : 0;
+        for (SectionListener listener : sectionListeners) {
+            listener.sectionChanged(chunkX, chunkZ, sectionY);
+            for (int dx = fromX; dx <= toX; dx++) {
+                for (int dz = fromZ; dz <= toZ; dz++) {
+                    for (int dy = fromY; dy <= toY; dy++) {
+                        if (dx != 0 || dz != 0 || dy != 0) {
+                            listener.sectionChanged(chunkX + dx, chunkZ + dz, sectionY + dy);
+                        }
+                    }
+                }
+            }
+        }
     }
     
+    @Override
     public int getMaxHeight() {
         return MAX_HEIGHT;
     }
+
+    /**
+     * True if the 16x8x16 section holding (x, z, y) is made of a single block
+     * type. Scanning code can then look at one block and jump to {@link #sectionEnd}.
+     */
+    public boolean isUniformSection(int x, int z, int y) {
+        if (x < 0 || x >= WORLD_SIZE || z < 0 || z >= WORLD_SIZE || y < 0 || y >= MAX_HEIGHT) {
+            return false;
+        }
+        return chunks.getChunk(x / CHUNK_SIZE, z / CHUNK_SIZE).isSectionUniform(y / Chunk.SECTION_HEIGHT);
+    }
+
+    /**
+     * Same as {@link #isUniformSection(int, int, int)}, finding the chunk through the caller's cache.
+     */
+    public boolean isUniformSection(ChunkStore.Cache cache, int x, int z, int y) {
+        if (x < 0 || x >= WORLD_SIZE || z < 0 || z >= WORLD_SIZE || y < 0 || y >= MAX_HEIGHT) {
+            return false;
+        }
+        return cache.getChunk(x / CHUNK_SIZE, z / CHUNK_SIZE).isSectionUniform(y / Chunk.SECTION_HEIGHT);
+    }
+
+    /**
+     * First y above the section that holds y.
+     */
+    public static int sectionEnd(int y) {
+        return (y / Chunk.SECTION_HEIGHT + 1) * Chunk.SECTION_HEIGHT;
+    }
+
+    public ChunkStore getChunkStore() {
+        return chunks;
+    }
 }
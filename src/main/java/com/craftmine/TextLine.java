@@ -0,0 +1,117 @@
+package com.craftmine;
+
+import java.util.Arrays;
+
+/**
+ * A line of text built in a reusable char array, for HUD lines rebuilt every
+ * frame. Numbers are written digit by digit instead of through String.format,
+ * so once the array has grown to the longest line nothing is allocated.
+ *
+ * Decimals round half up, as String.format does: a float times a power of
+ * ten up to 10^8 is exact in a double, so rounding that product is exact too.
+ */
+public class TextLine implements CharSequence {
+    private static final long[] POWERS_OF_TEN = {
+        1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L
+    };
+
+    private char[] chars = new char[64];
+    private int length;
+
+    public TextLine clear() {
+        length = 0;
+        return this;
+    }
+
+    public TextLine append(char c) {
+        ensureCapacity(length + 1);
+        chars[length++] = c;
+        return this;
+    }
+
+    public TextLine append(CharSequence text) {
+        int count = text.length();
+        ensureCapacity(length + count);
+        for (int i = 0; i < count; i++) {
+            chars[length++] = text.charAt(i);
+        }
+        return this;
+    }
+
+    public TextLine append(long value) {
+        if (value < 0) {
+            append('-');
+        }
+        appendDigits(value, 1);
+        return this;
+    }
+
+    /**
+     * Appends value with the given number of decimals, 0 to 8.
+     */
+    public TextLine append(float value, int decimals) {
+        if (Float.isNaN(value)) {
+            return append("NaN");
+        }
+        if (Float.isInfinite(value)) {
+            return append(value > 0 ? "Infinity" : "-Infinity");
+        }
+        long power = POWERS_OF_TEN[decimals];
+        long scaled = Math.round(Math.abs((double)value) * power);
+        // Like String.format, small negatives keep their sign: -0.01 with one decimal is -0.0
+        if (Float.floatToRawIntBits(value) < 0) {
+            append('-');
+        }
+        appendDigits(scaled / power, 1);
+        if (decimals > 0) {
+            append('.');
+            appendDigits(scaled % power, decimals);
+        }
+        return this;
+    }
+
+    /**
+     * Appends the magnitude of value with at least minDigits digits, zero padded.
+     */
+    private void appendDigits(long value, int minDigits) {
+        int digits = 1;
+        // Counted on the negative side, which also holds Long.MIN_VALUE
+        long negative = value < 0 ? value : -value;
+        for (long rest = negative / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        digits = Math.max(digits, minDigits);
+        ensureCapacity(length + digits);
+        for (int i = length + digits - 1; i >= length; i--) {
+            chars[i] = (char)('0' - negative % 10);
+            negative /= 10;
+        }
+        length += digits;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(capacity, chars.length * 2));
+        }
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return chars[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new String(chars, start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+}
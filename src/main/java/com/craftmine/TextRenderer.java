@@ -0,0 +1,48 @@
+package com.craftmine;
+
+/**
+ * Draws text from the {@link BitmapFont} glyphs in the {@link UiSprites} atlas
+ * into a {@link QuadBatch}, one quad per visible character, so text shares a
+ * draw call with the sprites and overlays around it. Text is laid out as the
+ * old line font was: each character 36 pixels after the one before, capitals
+ * 36 pixels tall above the baseline given.
+ */
+public class TextRenderer {
+    private final UiSprites sprites;
+    private int color = 0xffffffff;
+
+    public TextRenderer(UiSprites sprites) {
+        this.sprites = sprites;
+    }
+
+    /**
+     * Colour of the text drawn next, components from 0 to 1.
+     */
+    public void setColor(float red, float green, float blue, float alpha) {
+        color = QuadBatch.rgba(red, green, blue, alpha);
+    }
+
+    /**
+     * Queues text with its baseline at y, starting at x.
+     */
+    public void draw(QuadBatch batch, float x, float y, CharSequence text) {
+        batch.setTexture(sprites.getTexture());
+        // Glyph cells are placed within the font's region of the atlas
+        float u0 = sprites.getU0(UiSprites.FONT);
+        float v0 = sprites.getV0(UiSprites.FONT);
+        float uScale = (sprites.getU1(UiSprites.FONT) - u0) / BitmapFont.ATLAS_WIDTH;
+        float vScale = (sprites.getV1(UiSprites.FONT) - v0) / BitmapFont.ATLAS_HEIGHT;
+        float top = y - BitmapFont.ASCENT - BitmapFont.PADDING;
+        float bottom = top + BitmapFont.CELL_HEIGHT;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (BitmapFont.isVisible(c)) {
+                float left = x + i * BitmapFont.ADVANCE - BitmapFont.PADDING;
+                float u = u0 + BitmapFont.cellX(c) * uScale;
+                float v = v0 + BitmapFont.cellY(c) * vScale;
+                batch.add(left, top, left + BitmapFont.CELL_WIDTH, bottom,
+                    u, v, u + BitmapFont.CELL_WIDTH * uScale, v + BitmapFont.CELL_HEIGHT * vScale, color);
+            }
+        }
+    }
+}
@@ -32,7 +32,7 @@ public class Texture {
             }
 
             id = glGenTextures();
-            glBindTexture(GL_TEXTURE_2D, id);
+            GLState.bindTexture(GL_TEXTURE_2D, id);
 
             glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_REPEAT);
             glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_REPEAT);
@@ -47,10 +47,10 @@ public class Texture {
     }
 
     public void bind() {
-        glBindTexture(GL_TEXTURE_2D, id);
+        GLState.bindTexture(GL_TEXTURE_2D, id);
     }
 
     public void cleanup() {
-        glDeleteTextures(id);
+        GLState.deleteTexture(id);
     }
 }
@@ -11,7 +11,11 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 
+import static org.lwjgl.opengl.EXTTextureArray.GL_TEXTURE_2D_ARRAY_EXT;
 import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.GL_CLAMP_TO_EDGE;
+import static org.lwjgl.opengl.GL12.GL_TEXTURE_MAX_LEVEL;
+import static org.lwjgl.opengl.GL12.glTexImage3D;
 
 public class TextureLoader {
     private static final String[] TEXTURE_FILES = {
@@ -66,13 +70,13 @@ public class TextureLoader {
 
             // Create and bind texture
             int textureId = glGenTextures();
-            glBindTexture(GL_TEXTURE_2D, textureId);
+            GLState.bindTexture(GL_TEXTURE_2D, textureId);
 
             // Set texture parameters for pixel-perfect rendering
             glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
             glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
-            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP);
-            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP);
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
 
             // Upload texture data
             glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, width.get(), height.get(), 0, GL_RGBA, GL_UNSIGNED_BYTE, data);
@@ -82,11 +86,71 @@ public class TextureLoader {
             Files.delete(tempFile);
 
             // Unbind texture
-            glBindTexture(GL_TEXTURE_2D, 0);
+            GLState.bindTexture(GL_TEXTURE_2D, 0);
 
             return textureId;
         } catch (IOException e) {
             throw new RuntimeException("Failed to load texture: " + resourcePath, e);
         }
     }
+
+    /**
+     * Decodes an image resource to RGBA8 pixels without creating a GL texture.
+     */
+    public static TexturePacker.Image loadImage(String resourcePath) {
+        IntBuffer width = BufferUtils.createIntBuffer(1);
+        IntBuffer height = BufferUtils.createIntBuffer(1);
+        IntBuffer channels = BufferUtils.createIntBuffer(1);
+
+        try (InputStream inputStream = TextureLoader.class.getResourceAsStream("/" + resourcePath)) {
+            if (inputStream == null) {
+                throw new RuntimeException("Resource not found: " + resourcePath);
+            }
+            Path tempFile = Files.createTempFile("texture", ".png");
+            Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+
+            ByteBuffer data = STBImage.stbi_load(tempFile.toString(), width, height, channels, 4);
+            Files.delete(tempFile);
+            if (data == null) {
+                throw new RuntimeException("Failed to load texture: " + resourcePath + ", reason: " + STBImage.stbi_failure_reason());
+            }
+            byte[] rgba = new byte[data.remaining()];
+            // An absolute get leaves the position at 0; stbi_image_free frees from the position
+            data.get(0, rgba);
+            STBImage.stbi_image_free(data);
+            return new TexturePacker.Image(width.get(0), height.get(0), rgba);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load texture: " + resourcePath, e);
+        }
+    }
+
+    /**
+     * Loads images into the layers of one GL_TEXTURE_2D_ARRAY, in the given
+     * order, with mipmaps and repeat wrapping. Needs EXT_texture_array.
+     */
+    public static int loadTextureArray(String[] resourcePaths) {
+        TexturePacker.Image[] images = new TexturePacker.Image[resourcePaths.length];
+        for (int i = 0; i < resourcePaths.length; i++) {
+            images[i] = loadImage(resourcePaths[i]);
+        }
+        TexturePacker.Packed packed = TexturePacker.pack(images);
+
+        int textureId = glGenTextures();
+        GLState.bindTexture(GL_TEXTURE_2D_ARRAY_EXT, textureId);
+        glTexParameteri(GL_TEXTURE_2D_ARRAY_EXT, GL_TEXTURE_MIN_FILTER, GL_NEAREST_MIPMAP_LINEAR);
+        glTexParameteri(GL_TEXTURE_2D_ARRAY_EXT, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+        glTexParameteri(GL_TEXTURE_2D_ARRAY_EXT, GL_TEXTURE_WRAP_S, GL_REPEAT);
+        glTexParameteri(GL_TEXTURE_2D_ARRAY_EXT, GL_TEXTURE_WRAP_T, GL_REPEAT);
+        glTexParameteri(GL_TEXTURE_2D_ARRAY_EXT, GL_TEXTURE_MAX_LEVEL, packed.levels.length - 1);
+
+        for (int level = 0; level < packed.levels.length; level++) {
+            int size = packed.levelSize(level);
+            ByteBuffer pixels = BufferUtils.createByteBuffer(packed.levels[level].length);
+            pixels.put(packed.levels[level]).flip();
+            glTexImage3D(GL_TEXTURE_2D_ARRAY_EXT, level, GL_RGBA, size, size, packed.layerCount, 0, GL_RGBA, GL_UNSIGNED_BYTE, pixels);
+        }
+
+        GLState.bindTexture(GL_TEXTURE_2D_ARRAY_EXT, 0);
+        return textureId;
+    }
 }
@@ -0,0 +1,150 @@
+package com.craftmine;
+
+/**
+ * Packs block textures of different sizes into the layers of one texture
+ * array, with a full mip chain per layer. Pure CPU code; the upload lives in
+ * {@link TextureLoader#loadTextureArray}.
+ *
+ * Every layer mips on its own, so unlike an atlas there is no padding to
+ * reserve and no bleeding between neighbouring textures at small mip levels.
+ */
+public class TexturePacker {
+    // Our source images go up to 1920 pixels; more than 256 per block face is never visible
+    public static final int MAX_LAYER_SIZE = 256;
+
+    /**
+     * Decoded RGBA8 image, rows top to bottom.
+     */
+    public static final class Image {
+        final int width;
+        final int height;
+        final byte[] rgba;
+
+        public Image(int width, int height, byte[] rgba) {
+            if (rgba.length != width * height * 4) {
+                throw new IllegalArgumentException("Expected " + width * height * 4 + " bytes, got " + rgba.length);
+            }
+            this.width = width;
+            this.height = height;
+            this.rgba = rgba;
+        }
+    }
+
+    /**
+     * Result of {@link #pack}: levels[level] holds all layers of that mip level back to back.
+     */
+    public static final class Packed {
+        public final int layerSize;
+        public final int layerCount;
+        public final byte[][] levels;
+
+        Packed(int layerSize, int layerCount, byte[][] levels) {
+            this.layerSize = layerSize;
+            this.layerCount = layerCount;
+            this.levels = levels;
+        }
+
+        public int levelSize(int level) {
+            return Math.max(1, layerSize >> level);
+        }
+    }
+
+    public static Packed pack(Image[] images) {
+        int size = layerSize(images);
+        int levelCount = mipLevelCount(size);
+        byte[][] levels = new byte[levelCount][];
+        for (int level = 0; level < levelCount; level++) {
+            int levelSize = Math.max(1, size >> level);
+            levels[level] = new byte[levelSize * levelSize * 4 * images.length];
+        }
+
+        for (int layer = 0; layer < images.length; layer++) {
+            byte[] pixels = resize(images[layer], size);
+            for (int level = 0; level < levelCount; level++) {
+                int levelSize = Math.max(1, size >> level);
+                if (level > 0) {
+                    pixels = downsample(pixels, levelSize * 2);
+                }
+                System.arraycopy(pixels, 0, levels[level], layer * levelSize * levelSize * 4, pixels.length);
+            }
+        }
+        return new Packed(size, images.length, levels);
+    }
+
+    /**
+     * Smallest power of two that fits the largest image, capped at {@link #MAX_LAYER_SIZE}.
+     */
+    public static int layerSize(Image[] images) {
+        int largest = 1;
+        for (Image image : images) {
+            largest = Math.max(largest, Math.max(image.width, image.height));
+        }
+        int size = 1;
+        while (size < largest && size < MAX_LAYER_SIZE) {
+            size *= 2;
+        }
+        return size;
+    }
+
+    public static int mipLevelCount(int size) {
+        return 32 - Integer.numberOfLeadingZeros(size);
+    }
+
+    /**
+     * Scales an image to size x size. Every target pixel averages the source
+     * pixels it covers, which degrades to nearest-neighbour when enlarging.
+     */
+    public static byte[] resize(Image image, int size) {
+        return resize(image, size, size);
+    }
+
+    /**
+     * Scales an image to width x height, averaging as {@link #resize(Image, int)} does.
+     */
+    public static byte[] resize(Image image, int width, int height) {
+        byte[] out = new byte[width * height * 4];
+        for (int y = 0; y < height; y++) {
+            int y0 = y * image.height / height;
+            int y1 = Math.max(y0 + 1, (y + 1) * image.height / height);
+            for (int x = 0; x < width; x++) {
+                int x0 = x * image.width / width;
+                int x1 = Math.max(x0 + 1, (x + 1) * image.width / width);
+                int count = (y1 - y0) * (x1 - x0);
+                for (int channel = 0; channel < 4; channel++) {
+                    int sum = 0;
+                    for (int sy = y0; sy < y1; sy++) {
+                        for (int sx = x0; sx < x1; sx++) {
+                            sum += image.rgba[(sy * image.width + sx) * 4 + channel] & 0xff;
+                        }
+                    }
+                    out[(y * width + x) * 4 + channel] = (byte)((sum + count / 2) / count);
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Next mip level of a square image: every pixel is the average of a 2x2 block.
+     */
+    public static byte[] downsample(byte[] pixels, int size) {
+        int half = Math.max(1, size / 2);
+        byte[] out = new byte[half * half * 4];
+        for (int y = 0; y < half; y++) {
+            for (int x = 0; x < half; x++) {
+                for (int channel = 0; channel < 4; channel++) {
+                    int sum = 0;
+                    for (int dy = 0; dy < 2; dy++) {
+                        for (int dx = 0; dx < 2; dx++) {
+                            int sx = Math.min(size - 1, x * 2 + dx);
+                            int sy = Math.min(size - 1, y * 2 + dy);
+                            sum += pixels[(sy * size + sx) * 4 + channel] & 0xff;
+                        }
+                    }
+                    out[(y * half + x) * 4 + channel] = (byte)((sum + 2) / 4);
+                }
+            }
+        }
+        return out;
+    }
+}
@@ -1,5 +1,7 @@
 package com.craftmine;
 
+import org.joml.Matrix4f;
+
 import static org.lwjgl.opengl.GL11.*;
 
 public class UI {
@@ -10,10 +12,35 @@ public class UI {
     private boolean isButtonHovered;
     private boolean showCoordinates = false;
     private Camera camera;
-    private int buttonTexture;
     private float tintValue = 0f;  // 0-100 tint value
+    private RenderStats renderStats;  // Shown under the coordinates when set
+    private FrameProfiler profiler;
+    private boolean showProfiler = false;
+
+    // Overlays, sprites and text go through one batch; lines are built without garbage
+    private final QuadBatch batch;
+    private final UiSprites sprites;
+    private final TextRenderer text;
+    private final TextLine line = new TextLine();
+    private final Matrix4f screenProjection = new Matrix4f();  // Pixels, y down
+    private int projectionWidth;
+    private int projectionHeight;
 
-    public UI(Camera camera) {
+    // Frame graph: one bar per profiled frame, 33 ms tall, sections stacked in these colours
+    private static final float PROFILER_BAR_WIDTH = 2;
+    private static final float PROFILER_PIXELS_PER_MS = 6;
+    private static final float PROFILER_GRAPH_HEIGHT = 200;
+    private static final float PROFILER_MARK_WIDTH = 1;  // Pixels across the 60 and 30 fps marks
+    private static final float PROFILER_LINE_WIDTH = 2;  // And across the frame and GPU time lines
+    private static final float[][] PROFILER_COLORS = {
+        { 0.9f, 0.9f, 0.3f }, { 0.3f, 0.9f, 0.3f }, { 0.3f, 0.6f, 1.0f }, { 1.0f, 0.5f, 0.2f }, { 0.9f, 0.3f, 0.9f }
+    };
+
+    /**
+     * @param batch  the batch the UI draws with, shared with the home screen
+     * @param sprites  the menu atlas, also shared
+     */
+    public UI(Camera camera, QuadBatch batch, UiSprites sprites) {
         this.buttonWidth = 500;  // Increased from 300 to 400
         this.buttonHeight = 50;  // Made taller for the texture
         this.buttonX = 650;  // Will be adjusted in render
@@ -21,7 +48,9 @@ public class UI {
         this.isButtonHovered = false;
         this.showCoordinates = false;
         this.camera = camera;
-        this.buttonTexture = TextureLoader.loadTexture("assets/backtogamebutton.png");
+        this.batch = batch;
+        this.sprites = sprites;
+        this.text = new TextRenderer(sprites);
     }
 
     public void setTint(float value) {
@@ -32,225 +61,220 @@ public class UI {
         return tintValue;
     }
 
+    public void setRenderStats(RenderStats renderStats) {
+        this.renderStats = renderStats;
+    }
+
+    public void setProfiler(FrameProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /**
+     * The HUD. Expects depth testing off, as Game leaves it for the UI.
+     */
     public void render(int windowWidth, int windowHeight) {
-        setupOrthoProjection(windowWidth, windowHeight);
-        
-        // Save OpenGL state
-        boolean depthEnabled = glIsEnabled(GL_DEPTH_TEST);
-        boolean textureEnabled = glIsEnabled(GL_TEXTURE_2D);
-        boolean blendEnabled = glIsEnabled(GL_BLEND);
-        
+        updateProjection(windowWidth, windowHeight);
+        GLState.enable(GL_BLEND);
+        GLState.blendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+        batch.begin(screenProjection);
+
         // Apply tint if any
         if (tintValue > 0) {
-            glDisable(GL_TEXTURE_2D);
-            glEnable(GL_BLEND);
-            glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
             float alpha = tintValue / 100f * 0.8f; // Max alpha of 0.8 at tint 100
-            glColor4f(0.0f, 0.0f, 0.0f, alpha);
-            glBegin(GL_QUADS);
-            glVertex2f(0, 0);
-            glVertex2f(windowWidth, 0);
-            glVertex2f(windowWidth, windowHeight);
-            glVertex2f(0, windowHeight);
-            glEnd();
+            fill(0, 0, windowWidth, windowHeight, QuadBatch.rgba(0.0f, 0.0f, 0.0f, alpha));
         }
 
         // Only render coordinates if enabled
         if (showCoordinates) {
-            glColor4f(1.0f, 1.0f, 1.0f, 1.0f);  // White text
-            String coords = String.format("X: %.1f Y: %.1f Z: %.1f", 
-                camera.getDisplayX(), camera.getDisplayY(), camera.getDisplayZ());
-            renderString(10, 50, coords);
+            text.setColor(1.0f, 1.0f, 1.0f, 1.0f);  // White text
+            line.clear().append("X: ").append(camera.getDisplayX(), 1).append(" Y: ").append(camera.getDisplayY(), 1)
+                .append(" Z: ").append(camera.getDisplayZ(), 1);
+            text.draw(batch, 10, 50, line);
+
+            if (renderStats != null) {
+                line.clear().append("UPLOAD ").append(renderStats.getUploadMillis(), 2)
+                    .append(" MS ").append(renderStats.getUploadBytes() / 1024)
+                    .append(" KB - ").append(renderStats.getUploadedChunks())
+                    .append(" CHUNKS ").append(renderStats.getPendingUploads())
+                    .append(" WAITING - ").append(renderStats.getEditedSections()).append(" EDITED IN ")
+                    .append(renderStats.getEditLatencyFrames()).append(" FRAMES");
+                text.draw(batch, 10, 100, line);
+                line.clear().append("SECTIONS ").append(renderStats.getSectionsTested())
+                    .append(" TESTED ").append(renderStats.getSectionsCulled())
+                    .append(" CULLED ").append(renderStats.getSectionsOccluded())
+                    .append(" OCCLUDED ").append(renderStats.getSectionsDrawn()).append(" DRAWN");
+                text.draw(batch, 10, 150, line);
+                line.clear().append("DISTANT ").append(renderStats.getDistantChunksDrawn())
+                    .append(" CHUNKS - WATER ").append(renderStats.getTranslucentSections())
+                    .append(" SECTIONS ").append(renderStats.getTranslucentResorted()).append(" RESORTED");
+                text.draw(batch, 10, 200, line);
+                line.clear().append("VERTEX MEMORY ").append(renderStats.getVertexBufferBytes() / 1024)
+                    .append(" KB - DISTANT ").append(renderStats.getDistantVertexBufferBytes() / 1024).append(" KB");
+                text.draw(batch, 10, 250, line);
+                line.clear().append("DRAW CALLS ").append(renderStats.getDrawCalls())
+                    .append(" - ARENAS ").append(renderStats.getArenaCount())
+                    .append(" USED ").append(renderStats.getArenaUsedBytes() / 1024)
+                    .append(" OF ").append(renderStats.getArenaCapacityBytes() / 1024)
+                    .append(" KB - ").append(renderStats.getArenaFreeBlocks())
+                    .append(" GAPS ").append(renderStats.getArenaFragmentationPercent()).append("/100 FRAGMENTED");
+                text.draw(batch, 10, 300, line);
+                line.clear().append("GL STATE ").append(GLState.getLastFrameIssued())
+                    .append(" SET ").append(GLState.getLastFrameSkipped()).append(" SKIPPED");
+                text.draw(batch, 10, 350, line);
+            }
+        }
+
+        boolean profiling = showProfiler && profiler != null;
+        if (profiling) {
+            queueProfiler(windowHeight);
         }
-        
-        // Restore OpenGL state
-        if (depthEnabled) glEnable(GL_DEPTH_TEST); else glDisable(GL_DEPTH_TEST);
-        if (textureEnabled) glEnable(GL_TEXTURE_2D); else glDisable(GL_TEXTURE_2D);
-        if (blendEnabled) glEnable(GL_BLEND); else glDisable(GL_BLEND);
-        glColor4f(1.0f, 1.0f, 1.0f, 1.0f); // Reset color
-        
-        // Restore matrix
-        glPopMatrix();
+
+        // Everything above in one draw
+        batch.end();
     }
 
     public void renderPauseMenu(int windowWidth, int windowHeight) {
-        setupOrthoProjection(windowWidth, windowHeight);
-        
-        // Save OpenGL state
-        boolean depthEnabled = glIsEnabled(GL_DEPTH_TEST);
-        boolean textureEnabled = glIsEnabled(GL_TEXTURE_2D);
-        boolean blendEnabled = glIsEnabled(GL_BLEND);
-        
+        updateProjection(windowWidth, windowHeight);
+
         // Center the button
         buttonX = (windowWidth - buttonWidth) / 2;
         buttonY = (windowHeight - buttonHeight) / 2;
-        
+
+        GLState.enable(GL_BLEND);
+        GLState.blendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+        batch.begin(screenProjection);
         // Draw dark overlay with tint
-        glDisable(GL_TEXTURE_2D);
-        glEnable(GL_BLEND);
-        glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
         float alpha = tintValue / 100f * 0.8f; // Max alpha of 0.8 at tint 100
-        glColor4f(0.0f, 0.0f, 0.0f, alpha);
-        glBegin(GL_QUADS);
-        glVertex2f(0, 0);
-        glVertex2f(windowWidth, 0);
-        glVertex2f(windowWidth, windowHeight);
-        glVertex2f(0, windowHeight);
-        glEnd();
-        
-        // Draw button with texture
-        glEnable(GL_TEXTURE_2D);
-        glBindTexture(GL_TEXTURE_2D, buttonTexture);
-        
-        if (isButtonHovered) {
-            glColor4f(1.0f, 1.0f, 1.0f, 1.0f);  // Full brightness when hovered
-        } else {
-            glColor4f(0.8f, 0.8f, 0.8f, 1.0f);  // Slightly dimmed when not hovered
+        fill(0, 0, windowWidth, windowHeight, QuadBatch.rgba(0.0f, 0.0f, 0.0f, alpha));
+        // Full brightness when hovered, slightly dimmed when not
+        sprites.draw(batch, UiSprites.BACK_TO_GAME, buttonX, buttonY, buttonWidth, buttonHeight,
+            isButtonHovered ? 0xffffffff : 0xccccccff);
+        batch.end();
+    }
+
+    private void updateProjection(int windowWidth, int windowHeight) {
+        if (windowWidth != projectionWidth || windowHeight != projectionHeight) {
+            screenProjection.setOrtho2D(0, windowWidth, windowHeight, 0);
+            projectionWidth = windowWidth;
+            projectionHeight = windowHeight;
         }
-        
-        glBegin(GL_QUADS);
-        glTexCoord2f(0.0f, 0.0f); glVertex2f(buttonX, buttonY);
-        glTexCoord2f(1.0f, 0.0f); glVertex2f(buttonX + buttonWidth, buttonY);
-        glTexCoord2f(1.0f, 1.0f); glVertex2f(buttonX + buttonWidth, buttonY + buttonHeight);
-        glTexCoord2f(0.0f, 1.0f); glVertex2f(buttonX, buttonY + buttonHeight);
-        glEnd();
-        
-        // Restore OpenGL state
-        if (depthEnabled) glEnable(GL_DEPTH_TEST); else glDisable(GL_DEPTH_TEST);
-        if (textureEnabled) glEnable(GL_TEXTURE_2D); else glDisable(GL_TEXTURE_2D);
-        if (blendEnabled) glEnable(GL_BLEND); else glDisable(GL_BLEND);
-        glColor4f(1.0f, 1.0f, 1.0f, 1.0f); // Reset color
-        
-        // Restore matrix
-        glPopMatrix();
     }
 
-    private void setupOrthoProjection(int windowWidth, int windowHeight) {
-        // Save matrix
-        glPushMatrix();
-        
-        // Switch to 2D
-        glMatrixMode(GL_PROJECTION);
-        glPushMatrix();
-        glLoadIdentity();
-        glOrtho(0, windowWidth, windowHeight, 0, -1, 1);
-        glMatrixMode(GL_MODELVIEW);
-        glLoadIdentity();
+    private void fill(float x0, float y0, float x1, float y1, int rgba) {
+        sprites.draw(batch, UiSprites.WHITE, x0, y0, x1 - x0, y1 - y0, rgba);
+    }
+
+    /**
+     * Graph of the last frames in the bottom left corner: each section's CPU time
+     * stacked in its colour, the whole frame in white and the GPU time in red,
+     * with marks at 60 and 30 frames per second. Averages are listed beside it.
+     */
+    private void queueProfiler(int windowHeight) {
+        int frames = profiler.getFrameCount();
+        int sections = profiler.getSectionCount();
+        float left = 10;
+        float right = left + FrameProfiler.HISTORY * PROFILER_BAR_WIDTH;
+        float bottom = windowHeight - 10;
+        float first = right - frames * PROFILER_BAR_WIDTH;  // Newest frame on the right
+
+        fill(left - 5, bottom - PROFILER_GRAPH_HEIGHT - 5, right + 5, bottom, QuadBatch.rgba(0.0f, 0.0f, 0.0f, 0.5f));
+        for (int i = 0; i < frames; i++) {
+            float x = first + i * PROFILER_BAR_WIDTH;
+            float y = bottom;
+            for (int section = 0; section < sections; section++) {
+                float height = Math.min(profiler.getCpuMillis(i, section) * PROFILER_PIXELS_PER_MS, y - (bottom - PROFILER_GRAPH_HEIGHT));
+                float[] color = PROFILER_COLORS[section % PROFILER_COLORS.length];
+                fill(x, y - height, x + PROFILER_BAR_WIDTH, y, QuadBatch.rgba(color[0], color[1], color[2], 1.0f));
+                y -= height;
+            }
+        }
+        queueProfilerLines(first, left, right, bottom);
+
+        float textX = right + 30;
+        float textY = bottom - sections * 45;
+        text.setColor(1.0f, 1.0f, 1.0f, 1.0f);
+        line.clear().append("FRAME ").append(averageFrameMillis(), 2).append(" MS - AVERAGE CPU/GPU");
+        text.draw(batch, textX, textY, line);
+        for (int section = 0; section < sections; section++) {
+            float[] color = PROFILER_COLORS[section % PROFILER_COLORS.length];
+            text.setColor(color[0], color[1], color[2], 1.0f);
+            float gpu = profiler.getAverageGpuMillis(section);
+            line.clear().append(profiler.getName(section)).append(' ').append(profiler.getAverageCpuMillis(section), 2).append('/');
+            if (gpu >= 0) {
+                line.append(gpu, 2);
+            } else {
+                line.append('-');
+            }
+            text.draw(batch, textX, textY + (section + 1) * 45, line);
+        }
     }
 
-    private void renderString(float x, float y, String text) {
-        glPushMatrix();
-        glTranslatef(x, y, 0);
-        glScalef(3.0f, -3.0f, 1.0f);  // Negative Y scale to flip text right-side up
-        glLineWidth(5.0f);  // Make lines thicker for bold effect
-        for (char c : text.toCharArray()) {
-            glBegin(GL_LINES);
-            drawCharacter(c);
-            glEnd();
-            glTranslatef(12.0f, 0.0f, 0.0f);
+    /**
+     * The 60 and 30 fps marks and the frame and GPU time lines, over the bars.
+     * Lines are thin quads in the same batch: a step between neighbouring
+     * frames spans both times, so the eye still follows the curve.
+     */
+    private void queueProfilerLines(float first, float left, float right, float bottom) {
+        int mark = QuadBatch.rgba(0.6f, 0.6f, 0.6f, 1.0f);
+        float sixty = graphY(bottom, 1000 / 60f);
+        float thirty = graphY(bottom, 1000 / 30f);
+        fill(left, sixty - PROFILER_MARK_WIDTH / 2, right, sixty + PROFILER_MARK_WIDTH / 2, mark);
+        fill(left, thirty - PROFILER_MARK_WIDTH / 2, right, thirty + PROFILER_MARK_WIDTH / 2, mark);
+
+        // Steps between neighbouring frames whose times are known
+        int frameColor = QuadBatch.rgba(1.0f, 1.0f, 1.0f, 1.0f);
+        int gpuColor = QuadBatch.rgba(1.0f, 0.2f, 0.2f, 1.0f);
+        for (int i = 1; i < profiler.getFrameCount(); i++) {
+            float x = first + i * PROFILER_BAR_WIDTH;
+            float frameBefore = profiler.getFrameMillis(i - 1);
+            float frame = profiler.getFrameMillis(i);
+            if (frameBefore >= 0 && frame >= 0) {
+                fillStep(x, graphY(bottom, frameBefore), graphY(bottom, frame), frameColor);
+            }
+            float gpuBefore = gpuMillis(i - 1);
+            float gpu = gpuMillis(i);
+            if (gpuBefore >= 0 && gpu >= 0) {
+                fillStep(x, graphY(bottom, gpuBefore), graphY(bottom, gpu), gpuColor);
+            }
         }
-        glLineWidth(1.0f);  // Reset line width
-        glPopMatrix();
     }
 
-    private void drawCharacter(char c) {
-        // Simple vector font implementation
-        switch (c) {
-            case 'X':
-                glVertex2f(0, 0); glVertex2f(8, 12);  // Diagonal line from bottom-left to top-right
-                glVertex2f(0, 12); glVertex2f(8, 0);  // Diagonal line from top-left to bottom-right
-                break;
-            case 'Y':
-                glVertex2f(0, 12); glVertex2f(4, 6);  // Top-left to middle
-                glVertex2f(8, 12); glVertex2f(4, 6);  // Top-right to middle
-                glVertex2f(4, 6); glVertex2f(4, 0);   // Middle to bottom
-                break;
-            case 'Z':
-                glVertex2f(0, 12); glVertex2f(8, 12); // Top horizontal
-                glVertex2f(8, 12); glVertex2f(0, 0);  // Diagonal
-                glVertex2f(0, 0); glVertex2f(8, 0);   // Bottom horizontal
-                break;
-            case ':':
-                glVertex2f(4, 8); glVertex2f(4, 9);   // Top dot
-                glVertex2f(4, 3); glVertex2f(4, 4);   // Bottom dot
-                break;
-            case '.':
-                glVertex2f(4, 0); glVertex2f(4, 1);   // Single dot
-                break;
-            case '-':
-                glVertex2f(2, 6); glVertex2f(6, 6);   // Middle horizontal line
-                break;
-            case ' ':
-                break;  // Space character - just move the cursor
-            default:
-                // For numbers 0-9
-                if (c >= '0' && c <= '9') {
-                    drawNumber(c - '0');
-                }
+    // From one bar's time at y0 to the next bar's at y1, ending at x
+    private void fillStep(float x, float y0, float y1, int rgba) {
+        float half = PROFILER_LINE_WIDTH / 2;
+        fill(x - PROFILER_BAR_WIDTH, Math.min(y0, y1) - half, x, Math.max(y0, y1) + half, rgba);
+    }
+
+    private static float graphY(float bottom, float millis) {
+        return bottom - Math.min(millis * PROFILER_PIXELS_PER_MS, PROFILER_GRAPH_HEIGHT);
+    }
+
+    /**
+     * GPU time of all sections of a frame, or a negative number until all are known.
+     */
+    private float gpuMillis(int frame) {
+        float total = 0;
+        for (int section = 0; section < profiler.getSectionCount(); section++) {
+            float millis = profiler.getGpuMillis(frame, section);
+            if (millis < 0) {
+                return -1;
+            }
+            total += millis;
         }
+        return total;
     }
 
-    private void drawNumber(int num) {
-        switch (num) {
-            case 0:
-                glVertex2f(0, 0); glVertex2f(8, 0);   // Bottom
-                glVertex2f(8, 0); glVertex2f(8, 12);  // Right
-                glVertex2f(8, 12); glVertex2f(0, 12); // Top
-                glVertex2f(0, 12); glVertex2f(0, 0);  // Left
-                break;
-            case 1:
-                glVertex2f(4, 0); glVertex2f(4, 12);  // Vertical line
-                break;
-            case 2:
-                glVertex2f(0, 12); glVertex2f(8, 12); // Top
-                glVertex2f(8, 12); glVertex2f(8, 6);  // Right top
-                glVertex2f(8, 6); glVertex2f(0, 6);   // Middle
-                glVertex2f(0, 6); glVertex2f(0, 0);   // Left bottom
-                glVertex2f(0, 0); glVertex2f(8, 0);   // Bottom
-                break;
-            case 3:
-                glVertex2f(0, 12); glVertex2f(8, 12); // Top
-                glVertex2f(8, 12); glVertex2f(8, 0);  // Right
-                glVertex2f(8, 0); glVertex2f(0, 0);   // Bottom
-                glVertex2f(0, 6); glVertex2f(8, 6);   // Middle
-                break;
-            case 4:
-                glVertex2f(0, 12); glVertex2f(0, 6);  // Left top
-                glVertex2f(0, 6); glVertex2f(8, 6);   // Middle
-                glVertex2f(8, 12); glVertex2f(8, 0);  // Right
-                break;
-            case 5:
-                glVertex2f(8, 12); glVertex2f(0, 12); // Top
-                glVertex2f(0, 12); glVertex2f(0, 6);  // Left top
-                glVertex2f(0, 6); glVertex2f(8, 6);   // Middle
-                glVertex2f(8, 6); glVertex2f(8, 0);   // Right bottom
-                glVertex2f(8, 0); glVertex2f(0, 0);   // Bottom
-                break;
-            case 6:
-                glVertex2f(8, 12); glVertex2f(0, 12); // Top
-                glVertex2f(0, 12); glVertex2f(0, 0);  // Left
-                glVertex2f(0, 0); glVertex2f(8, 0);   // Bottom
-                glVertex2f(8, 0); glVertex2f(8, 6);   // Right bottom
-                glVertex2f(8, 6); glVertex2f(0, 6);   // Middle
-                break;
-            case 7:
-                glVertex2f(0, 12); glVertex2f(8, 12); // Top
-                glVertex2f(8, 12); glVertex2f(8, 0);  // Right
-                break;
-            case 8:
-                glVertex2f(0, 0); glVertex2f(8, 0);   // Bottom
-                glVertex2f(8, 0); glVertex2f(8, 12);  // Right
-                glVertex2f(8, 12); glVertex2f(0, 12); // Top
-                glVertex2f(0, 12); glVertex2f(0, 0);  // Left
-                glVertex2f(0, 6); glVertex2f(8, 6);   // Middle
-                break;
-            case 9:
-                glVertex2f(8, 0); glVertex2f(8, 12);  // Right
-                glVertex2f(8, 12); glVertex2f(0, 12); // Top
-                glVertex2f(0, 12); glVertex2f(0, 6);  // Left top
-                glVertex2f(0, 6); glVertex2f(8, 6);   // Middle
-                break;
+    private float averageFrameMillis() {
+        float total = 0;
+        int count = 0;
+        for (int i = 0; i < profiler.getFrameCount(); i++) {
+            float millis = profiler.getFrameMillis(i);
+            if (millis >= 0) {
+                total += millis;
+                count++;
+            }
         }
+        return count == 0 ? 0 : total / count;
     }
 
     public void handleMousePosition(double xpos, double ypos) {
@@ -266,4 +290,8 @@ public class UI {
     public void toggleCoordinates() {
         showCoordinates = !showCoordinates;
     }
+
+    public void toggleProfiler() {
+        showProfiler = !showProfiler;
+    }
 }
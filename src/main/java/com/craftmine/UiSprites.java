@@ -0,0 +1,121 @@
+package com.craftmine;
+
+import org.lwjgl.BufferUtils;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.GL_CLAMP_TO_EDGE;
+
+/**
+ * Everything the 2D screens draw, in one {@link SpriteAtlas} texture: the home
+ * screen background, the menu buttons, the HUD font and a plain white sprite
+ * that the batch colour tints for overlays and bars. A whole screen, menus,
+ * text and all, is then a single {@link QuadBatch} draw.
+ */
+public class UiSprites {
+    public static final int BACKGROUND = 0;
+    public static final int SINGLEPLAYER = 1;
+    public static final int MULTIPLAYER = 2;
+    public static final int OPTIONS = 3;
+    public static final int CHOOSE_SKIN = 4;
+    public static final int GAMEMODE_CREATIVE = 5;
+    public static final int GAMEMODE_SURVIVAL = 6;
+    public static final int BACK_TO_GAME = 7;
+    public static final int WHITE = 8;
+    public static final int FONT = 9;
+
+    // In the order of the sprites above; WHITE and FONT are made, not loaded
+    private static final String[] FILES = {
+        "assets/homescreen.png",
+        "assets/singleplayerbutton.png",
+        "assets/multiplayerbutton.png",
+        "assets/optionsbutton.png",
+        "assets/choosenewskinbutton.png",
+        "assets/gamemodecreativebutton.png",
+        "assets/gamemodesurvivalbutton.png",
+        "assets/backtogamebutton.png"
+    };
+    // Square textures this size work on every desktop driver; the background is scaled down to fit
+    private static final int ATLAS_SIZE = 2048;
+
+    private final float[] regions = new float[(FONT + 1) * 4];  // u0, v0, u1, v1 per sprite; the pixels aren't kept
+    private final int texture;
+
+    public UiSprites() {
+        SpriteAtlas atlas = packAtlas();
+        for (int sprite = 0; sprite <= FONT; sprite++) {
+            regions[sprite * 4] = atlas.getU0(sprite);
+            regions[sprite * 4 + 1] = atlas.getV0(sprite);
+            regions[sprite * 4 + 2] = atlas.getU1(sprite);
+            regions[sprite * 4 + 3] = atlas.getV1(sprite);
+        }
+
+        ByteBuffer pixels = BufferUtils.createByteBuffer(atlas.getPixels().length);
+        pixels.put(atlas.getPixels()).flip();
+        texture = glGenTextures();
+        GLState.bindTexture(GL_TEXTURE_2D, texture);
+        // Buttons and the background are drawn smaller than their images
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+        glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA8, ATLAS_SIZE, ATLAS_SIZE, 0, GL_RGBA, GL_UNSIGNED_BYTE, pixels);
+        GLState.bindTexture(GL_TEXTURE_2D, 0);
+    }
+
+    /**
+     * Loads and packs the sprites without creating a texture, so needs no OpenGL context.
+     */
+    static SpriteAtlas packAtlas() {
+        TexturePacker.Image[] images = new TexturePacker.Image[FILES.length + 2];
+        for (int i = 0; i < FILES.length; i++) {
+            images[i] = TextureLoader.loadImage(FILES[i]);
+        }
+        byte[] white = new byte[4 * 4 * 4];
+        Arrays.fill(white, (byte)255);
+        images[WHITE] = new TexturePacker.Image(4, 4, white);
+        // White glyphs with the coverage as alpha, so the batch colour tints the text
+        byte[] coverage = BitmapFont.rasterize();
+        byte[] font = new byte[coverage.length * 4];
+        Arrays.fill(font, (byte)255);
+        for (int i = 0; i < coverage.length; i++) {
+            font[i * 4 + 3] = coverage[i];
+        }
+        images[FONT] = new TexturePacker.Image(BitmapFont.ATLAS_WIDTH, BitmapFont.ATLAS_HEIGHT, font);
+        return SpriteAtlas.pack(images, ATLAS_SIZE);
+    }
+
+    /**
+     * Queues sprite stretched over the rectangle at (x, y), multiplied by rgba (0xRRGGBBAA).
+     */
+    public void draw(QuadBatch batch, int sprite, float x, float y, float width, float height, int rgba) {
+        batch.setTexture(texture);
+        batch.add(x, y, x + width, y + height, getU0(sprite), getV0(sprite), getU1(sprite), getV1(sprite), rgba);
+    }
+
+    public int getTexture() {
+        return texture;
+    }
+
+    public float getU0(int sprite) {
+        return regions[sprite * 4];
+    }
+
+    public float getV0(int sprite) {
+        return regions[sprite * 4 + 1];
+    }
+
+    public float getU1(int sprite) {
+        return regions[sprite * 4 + 2];
+    }
+
+    public float getV1(int sprite) {
+        return regions[sprite * 4 + 3];
+    }
+
+    public void delete() {
+        GLState.deleteTexture(texture);
+    }
+}
@@ -0,0 +1,347 @@
+package com.craftmine;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GLCapabilities;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.glEnableVertexAttribArray;
+import static org.lwjgl.opengl.GL20.glVertexAttribPointer;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL32.*;
+import static org.lwjgl.opengl.GL33.glVertexAttribDivisor;
+import static org.lwjgl.opengl.GL40.GL_DRAW_INDIRECT_BUFFER;
+import static org.lwjgl.opengl.GL43.glMultiDrawElementsIndirect;
+import static org.lwjgl.opengl.GL44.*;
+import static org.lwjgl.system.MemoryUtil.memAddress;
+import static org.lwjgl.system.MemoryUtil.memCopy;
+
+/**
+ * Vertex storage for {@link SectionMesh}es that draw with multi-draw indirect.
+ * Meshes live in a few large, persistently mapped vertex buffers (arenas),
+ * each split between them by an {@link ArenaAllocator} counting in vertices.
+ * Meshes queue one draw each per pass, and the queue goes to the GPU as one
+ * glMultiDrawElementsIndirect per arena, in queue order.
+ *
+ * Packed meshes need their origin per draw; it is an instanced vertex
+ * attribute, read through each command's base instance.
+ *
+ * The mapped memory is written without synchronisation, so a freed range is
+ * only handed out again once the GPU has finished the frame it was freed in.
+ * Needs GL 4.3 and buffer storage; must be used on the render thread.
+ */
+public class VertexArenas {
+    public static final int ARENA_BYTES = 32 * 1024 * 1024;
+
+    // DrawElementsIndirectCommand: count, instanceCount, firstIndex, baseVertex, baseInstance
+    private static final int COMMAND_INTS = 5;
+    private static final int MAP_FLAGS = GL_MAP_WRITE_BIT | GL_MAP_PERSISTENT_BIT | GL_MAP_COHERENT_BIT;
+
+    /**
+     * A range of vertices in one arena.
+     */
+    public static final class Range {
+        private final Arena arena;
+        private final int first;
+        private final int count;
+
+        private Range(Arena arena, int first, int count) {
+            this.arena = arena;
+            this.first = first;
+            this.count = count;
+        }
+    }
+
+    private static final class Arena {
+        final int buffer;
+        final int vao;
+        final long address;  // Start of the mapped buffer
+        final ArenaAllocator allocator;
+
+        Arena(int buffer, int vao, long address, int vertices) {
+            this.buffer = buffer;
+            this.vao = vao;
+            this.address = address;
+            this.allocator = new ArenaAllocator(vertices);
+        }
+    }
+
+    /**
+     * Ranges freed in one frame, released once the fence after that frame signals.
+     */
+    private static final class PendingFrees {
+        final List<Range> ranges = new ArrayList<>();
+        long fence;
+    }
+
+    private final VertexFormat format;
+    private final QuadIndexBuffer indices;
+    private final int originLocation;  // Attribute location of the per-draw origin, packed meshes only
+    private final List<Arena> arenas = new ArrayList<>();
+    private final ArrayDeque<PendingFrees> fencedFrees = new ArrayDeque<>();
+    private PendingFrees frameFrees = new PendingFrees();
+    private final int commandBuffer;
+    private final int originBuffer;
+    private IntBuffer commands = BufferUtils.createIntBuffer(256 * COMMAND_INTS);
+    private FloatBuffer origins = BufferUtils.createFloatBuffer(256 * 3);
+    private Arena queuedArena;  // Arena the queued draws read from
+    private int drawCalls;
+
+    public VertexArenas(VertexFormat format, QuadIndexBuffer indices) {
+        this.format = format;
+        this.indices = indices;
+        this.originLocation = format.getAttributes().length;
+        commandBuffer = glGenBuffers();
+        originBuffer = glGenBuffers();
+    }
+
+    /**
+     * True if the context can draw from arenas: indirect multi-draw with base
+     * instances and persistently mapped buffer storage.
+     */
+    public static boolean isSupported(GLCapabilities caps) {
+        return caps.OpenGL43 && (caps.OpenGL44 || caps.GL_ARB_buffer_storage);
+    }
+
+    /**
+     * Name the packed terrain shader reads the per-draw origin from, bound after the format's attributes.
+     */
+    public static String getOriginAttribute() {
+        return "drawOrigin";
+    }
+
+    /**
+     * Allocates count vertices, in a new arena if no existing one has room.
+     */
+    public Range allocate(int count) {
+        reclaim();
+        indices.ensureCapacity(count / MeshData.VERTICES_PER_FACE);
+        for (Arena arena : arenas) {
+            int first = arena.allocator.allocate(count);
+            if (first >= 0) {
+                return new Range(arena, first, count);
+            }
+        }
+        Arena arena = createArena();
+        int first = arena.allocator.allocate(count);
+        if (first < 0) {
+            throw new IllegalArgumentException(count + " vertices do not fit in an arena");
+        }
+        return new Range(arena, first, count);
+    }
+
+    private Arena createArena() {
+        int vertices = ARENA_BYTES / format.getBytesPerVertex();
+        long bytes = (long)vertices * format.getBytesPerVertex();
+        int buffer = glGenBuffers();
+        GLState.bindBuffer(GL_ARRAY_BUFFER, buffer);
+        glBufferStorage(GL_ARRAY_BUFFER, bytes, MAP_FLAGS);
+        ByteBuffer mapped = glMapBufferRange(GL_ARRAY_BUFFER, 0, bytes, MAP_FLAGS);
+        if (mapped == null) {
+            GLState.deleteBuffer(buffer);
+            throw new RuntimeException("Failed to map a vertex arena");
+        }
+
+        int vao = glGenVertexArrays();
+        GLState.bindVertexArray(vao);
+        format.enableArrays();
+        format.setPointers();
+        if (format == VertexFormat.PACKED) {
+            GLState.bindBuffer(GL_ARRAY_BUFFER, originBuffer);
+            glEnableVertexAttribArray(originLocation);
+            glVertexAttribPointer(originLocation, 3, GL_FLOAT, false, 0, 0L);
+            glVertexAttribDivisor(originLocation, 1);
+        }
+        GLState.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, indices.getBuffer());
+        GLState.bindVertexArray(0);
+        GLState.bindBuffer(GL_ARRAY_BUFFER, 0);
+
+        Arena arena = new Arena(buffer, vao, memAddress(mapped), vertices);
+        arenas.add(arena);
+        return arena;
+    }
+
+    public void write(Range range, FloatBuffer vertices) {
+        write(range, memAddress(vertices), (long)vertices.remaining() * Float.BYTES);
+    }
+
+    public void write(Range range, ShortBuffer vertices) {
+        write(range, memAddress(vertices), (long)vertices.remaining() * Short.BYTES);
+    }
+
+    private void write(Range range, long source, long bytes) {
+        if (bytes > (long)range.count * format.getBytesPerVertex()) {
+            throw new IllegalArgumentException("Writing " + bytes + " bytes into a range of " + range.count + " vertices");
+        }
+        memCopy(source, range.arena.address + (long)range.first * format.getBytesPerVertex(), bytes);
+    }
+
+    /**
+     * Returns a range to its arena once the frames that may still draw it are done.
+     */
+    public void free(Range range) {
+        frameFrees.ranges.add(range);
+    }
+
+    /**
+     * Queues a draw of count vertices from first within range. Draws reading
+     * another arena than the queued ones submit those first.
+     */
+    public void queueDraw(Range range, int first, int count, float originX, float originY, float originZ) {
+        if (queuedArena != range.arena) {
+            submit();
+            queuedArena = range.arena;
+        }
+        int draw = commands.position() / COMMAND_INTS;
+        if (commands.remaining() < COMMAND_INTS) {
+            commands = grow(commands);
+            origins = grow(origins);
+        }
+        commands.put(QuadIndexBuffer.indexCount(count)).put(1).put(0).put(range.first + first).put(draw);
+        origins.put(originX).put(originY).put(originZ);
+    }
+
+    private static IntBuffer grow(IntBuffer buffer) {
+        IntBuffer grown = BufferUtils.createIntBuffer(buffer.capacity() * 2);
+        buffer.flip();
+        return grown.put(buffer);
+    }
+
+    private static FloatBuffer grow(FloatBuffer buffer) {
+        FloatBuffer grown = BufferUtils.createFloatBuffer(buffer.capacity() * 2);
+        buffer.flip();
+        return grown.put(buffer);
+    }
+
+    /**
+     * Draws everything queued, one multi-draw call. The caller binds the shader
+     * and texture, and unbinds the vertex array object afterwards.
+     */
+    public void submit() {
+        int draws = commands.position() / COMMAND_INTS;
+        if (draws == 0) {
+            return;
+        }
+        commands.flip();
+        origins.flip();
+        // Respecifying the data each time lets the driver hand out fresh storage
+        // instead of waiting for the previous draws to finish reading
+        GLState.bindBuffer(GL_DRAW_INDIRECT_BUFFER, commandBuffer);
+        glBufferData(GL_DRAW_INDIRECT_BUFFER, commands, GL_STREAM_DRAW);
+        if (format == VertexFormat.PACKED) {
+            GLState.bindBuffer(GL_ARRAY_BUFFER, originBuffer);
+            glBufferData(GL_ARRAY_BUFFER, origins, GL_STREAM_DRAW);
+            GLState.bindBuffer(GL_ARRAY_BUFFER, 0);
+        }
+        GLState.bindVertexArray(queuedArena.vao);
+        glMultiDrawElementsIndirect(GL_TRIANGLES, GL_UNSIGNED_INT, 0L, draws, 0);
+        GLState.bindBuffer(GL_DRAW_INDIRECT_BUFFER, 0);
+        commands.clear();
+        origins.clear();
+        queuedArena = null;
+        drawCalls++;
+    }
+
+    /**
+     * Fences the ranges freed this frame; call once the frame's draws are issued.
+     */
+    public void endFrame() {
+        if (!frameFrees.ranges.isEmpty()) {
+            frameFrees.fence = glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+            fencedFrees.add(frameFrees);
+            frameFrees = new PendingFrees();
+        }
+        reclaim();
+    }
+
+    /**
+     * Releases the ranges of every frame the GPU has finished, without waiting for any.
+     */
+    private void reclaim() {
+        while (!fencedFrees.isEmpty()) {
+            PendingFrees frees = fencedFrees.peek();
+            int status = glClientWaitSync(frees.fence, 0, 0L);
+            if (status != GL_ALREADY_SIGNALED && status != GL_CONDITION_SATISFIED) {
+                return;
+            }
+            glDeleteSync(frees.fence);
+            for (Range range : frees.ranges) {
+                range.arena.allocator.free(range.first);
+            }
+            fencedFrees.poll();
+        }
+    }
+
+    /**
+     * Multi-draw calls submitted since the last call, then resets the count.
+     */
+    public int takeDrawCalls() {
+        int calls = drawCalls;
+        drawCalls = 0;
+        return calls;
+    }
+
+    public int getArenaCount() {
+        return arenas.size();
+    }
+
+    public long getCapacityBytes() {
+        long vertices = 0;
+        for (Arena arena : arenas) {
+            vertices += arena.allocator.getCapacity();
+        }
+        return vertices * format.getBytesPerVertex();
+    }
+
+    public long getUsedBytes() {
+        long vertices = 0;
+        for (Arena arena : arenas) {
+            vertices += arena.allocator.getUsed();
+        }
+        return vertices * format.getBytesPerVertex();
+    }
+
+    /**
+     * Gaps between live ranges, over all arenas.
+     */
+    public int getFreeBlockCount() {
+        int blocks = 0;
+        for (Arena arena : arenas) {
+            blocks += arena.allocator.getFreeBlockCount();
+        }
+        return blocks;
+    }
+
+    public long getLargestFreeBytes() {
+        long largest = 0;
+        for (Arena arena : arenas) {
+            largest = Math.max(largest, arena.allocator.getLargestFreeBlock());
+        }
+        return largest * format.getBytesPerVertex();
+    }
+
+    public void delete() {
+        for (PendingFrees frees : fencedFrees) {
+            glDeleteSync(frees.fence);
+        }
+        fencedFrees.clear();
+        for (Arena arena : arenas) {
+            GLState.deleteVertexArray(arena.vao);
+            GLState.bindBuffer(GL_ARRAY_BUFFER, arena.buffer);
+            glUnmapBuffer(GL_ARRAY_BUFFER);
+            GLState.deleteBuffer(arena.buffer);
+        }
+        GLState.bindBuffer(GL_ARRAY_BUFFER, 0);
+        arenas.clear();
+        GLState.deleteBuffer(commandBuffer);
+        GLState.deleteBuffer(originBuffer);
+    }
+}
@@ -0,0 +1,80 @@
+package com.craftmine;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL20.glDisableVertexAttribArray;
+import static org.lwjgl.opengl.GL20.glEnableVertexAttribArray;
+import static org.lwjgl.opengl.GL20.glVertexAttribPointer;
+
+/**
+ * How a {@link SectionMesh} stores its vertices in the vertex buffer, and how
+ * they reach the vertex stage.
+ */
+public enum VertexFormat {
+    // MeshData's floats through the fixed-function vertex and texture coordinate arrays
+    FIXED_FUNCTION(MeshData.FLOATS_PER_VERTEX * Float.BYTES),
+    // MeshData's floats as the position and blockTexCoord attributes of shaders/terrain.vert
+    FLOATS(MeshData.FLOATS_PER_VERTEX * Float.BYTES, "position", "blockTexCoord"),
+    // PackedVertices as the packedVertex attribute of shaders/terrain_packed.vert
+    PACKED(PackedVertices.BYTES_PER_VERTEX, "packedVertex");
+
+    private final int bytesPerVertex;
+    private final String[] attributes;
+
+    VertexFormat(int bytesPerVertex, String... attributes) {
+        this.bytesPerVertex = bytesPerVertex;
+        this.attributes = attributes;
+    }
+
+    public int getBytesPerVertex() {
+        return bytesPerVertex;
+    }
+
+    /**
+     * Shader attribute names, for {@link ShaderProgram} to bind to locations 0, 1, ...
+     */
+    public String[] getAttributes() {
+        return attributes.clone();
+    }
+
+    public void enableArrays() {
+        if (this == FIXED_FUNCTION) {
+            glEnableClientState(GL_VERTEX_ARRAY);
+            glEnableClientState(GL_TEXTURE_COORD_ARRAY);
+            return;
+        }
+        for (int location = 0; location < attributes.length; location++) {
+            glEnableVertexAttribArray(location);
+        }
+    }
+
+    public void disableArrays() {
+        if (this == FIXED_FUNCTION) {
+            glDisableClientState(GL_TEXTURE_COORD_ARRAY);
+            glDisableClientState(GL_VERTEX_ARRAY);
+            return;
+        }
+        for (int location = 0; location < attributes.length; location++) {
+            glDisableVertexAttribArray(location);
+        }
+    }
+
+    /**
+     * Points the enabled arrays at the vertex buffer bound to GL_ARRAY_BUFFER.
+     */
+    public void setPointers() {
+        switch (this) {
+            case FIXED_FUNCTION:
+                glVertexPointer(3, GL_FLOAT, bytesPerVertex, 0L);
+                // u, v and the layer with its light, which 2D textures ignore
+                glTexCoordPointer(3, GL_FLOAT, bytesPerVertex, 3L * Float.BYTES);
+                break;
+            case FLOATS:
+                glVertexAttribPointer(0, 3, GL_FLOAT, false, bytesPerVertex, 0L);
+                glVertexAttribPointer(1, 3, GL_FLOAT, false, bytesPerVertex, 3L * Float.BYTES);
+                break;
+            case PACKED:
+                glVertexAttribPointer(0, 2, GL_UNSIGNED_SHORT, false, bytesPerVertex, 0L);
+                break;
+        }
+    }
+}
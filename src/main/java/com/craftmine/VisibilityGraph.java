@@ -0,0 +1,175 @@
+package com.craftmine;
+
+import java.util.Arrays;
+
+import org.joml.FrustumIntersection;
+
+/**
+ * Occlusion culling for the world's sections. Each section records which of
+ * its faces see each other ({@link SectionConnectivity}); every frame a
+ * breadth-first search starts at the camera's section and only crosses from a
+ * section into the next through a face it can see out of. Sections the search
+ * never reaches are hidden behind solid ground and need not be drawn.
+ *
+ * The search never turns back towards the camera and skips sections outside
+ * the frustum, so it stays close to the sections actually on screen.
+ * Sections without connectivity yet (chunks still loading) count as open.
+ *
+ * Needs no OpenGL context, but is not thread-safe.
+ */
+public class VisibilityGraph {
+    private final int chunksPerSide;
+    private final int sectionCount;
+    private final long[] connectivity;  // Indexed (chunkX * chunksPerSide + chunkZ) * sectionCount + sectionY
+    private final int[] reachedFrame;  // Frame a section was last reached in
+    private final byte[] directions;  // Directions the search moved in to reach a section, one bit per face
+    private final byte[] entryFaces;  // Face the search came in through, -1 for where it started
+    private final int[] queue;
+    private int frame;
+    private boolean everythingReached;  // Camera outside the world; nothing is culled
+    private int reachedCount;
+
+    public VisibilityGraph(int chunksPerSide, int sectionCount) {
+        this.chunksPerSide = chunksPerSide;
+        this.sectionCount = sectionCount;
+        int sections = chunksPerSide * chunksPerSide * sectionCount;
+        this.connectivity = new long[sections];
+        this.reachedFrame = new int[sections];
+        this.directions = new byte[sections];
+        this.entryFaces = new byte[sections];
+        this.queue = new int[sections];
+        Arrays.fill(connectivity, SectionConnectivity.ALL);
+    }
+
+    public void setSection(int chunkX, int chunkZ, int sectionY, long sectionConnectivity) {
+        connectivity[index(chunkX, chunkZ, sectionY)] = sectionConnectivity;
+    }
+
+    public void setChunk(int chunkX, int chunkZ, long[] sectionConnectivity) {
+        System.arraycopy(sectionConnectivity, 0, connectivity, index(chunkX, chunkZ, 0), sectionCount);
+    }
+
+    /**
+     * Forgets a chunk's connectivity once it is unloaded, so it doesn't block the view.
+     */
+    public void clearChunk(int chunkX, int chunkZ) {
+        int first = index(chunkX, chunkZ, 0);
+        Arrays.fill(connectivity, first, first + sectionCount, SectionConnectivity.ALL);
+    }
+
+    /**
+     * Searches outward from the camera through sections within radius (horizontally)
+     * and inside the frustum. A null frustum disables the frustum test.
+     *
+     * @return the number of sections reached
+     */
+    public int update(float camX, float camY, float camZ, float radius, FrustumIntersection frustum) {
+        frame++;
+        reachedCount = 0;
+        // Blocks are unit cubes centred on their integer coordinates
+        int camChunkX = (int)Math.floor((camX + 0.5f) / Chunk.SIZE);
+        int camChunkZ = (int)Math.floor((camZ + 0.5f) / Chunk.SIZE);
+        int camSectionY = (int)Math.floor((camY + 0.5f) / Chunk.SECTION_HEIGHT);
+        everythingReached = camChunkX < 0 || camChunkX >= chunksPerSide || camChunkZ < 0 || camChunkZ >= chunksPerSide;
+        if (everythingReached) {
+            return 0;
+        }
+        float radiusSq = radius * radius;
+        int head = 0;
+        int tail = 0;
+
+        if (camSectionY >= 0 && camSectionY < sectionCount) {
+            int start = index(camChunkX, camChunkZ, camSectionY);
+            reach(start, 0, -1);
+            queue[tail++] = start;
+        } else {
+            // Above or below the world: come in through the outer faces of the nearest layer
+            int sectionY = camSectionY < 0 ? 0 : sectionCount - 1;
+            int direction = camSectionY < 0 ? ChunkMesher.TOP : ChunkMesher.BOTTOM;
+            int entry = direction ^ 1;
+            int chunkRadius = (int)Math.ceil(radius / Chunk.SIZE);
+            for (int chunkX = camChunkX - chunkRadius; chunkX <= camChunkX + chunkRadius; chunkX++) {
+                for (int chunkZ = camChunkZ - chunkRadius; chunkZ <= camChunkZ + chunkRadius; chunkZ++) {
+                    if (!isCandidate(chunkX, chunkZ, sectionY, camX, camZ, radiusSq, frustum)) {
+                        continue;
+                    }
+                    int start = index(chunkX, chunkZ, sectionY);
+                    reach(start, 1 << direction, entry);
+                    // A closed outer face is drawn, but hides what lies behind it
+                    if (SectionConnectivity.isConnected(connectivity[start], entry, entry)) {
+                        queue[tail++] = start;
+                    }
+                }
+            }
+        }
+
+        while (head < tail) {
+            int current = queue[head++];
+            int sectionY = current % sectionCount;
+            int chunkZ = current / sectionCount % chunksPerSide;
+            int chunkX = current / (sectionCount * chunksPerSide);
+            int moved = directions[current];
+            int entry = entryFaces[current];
+            long links = connectivity[current];
+
+            for (int face = 0; face < SectionConnectivity.FACES; face++) {
+                // Never turn back towards the camera
+                if ((moved & (1 << (face ^ 1))) != 0) {
+                    continue;
+                }
+                // Leave only through a face the section's entry face can see
+                if (entry >= 0 && !SectionConnectivity.isConnected(links, entry, face)) {
+                    continue;
+                }
+                int nextX = chunkX + (face == ChunkMesher.EAST ? 1 : face == ChunkMesher.WEST ? -1 : 0);
+                int nextY = sectionY + (face == ChunkMesher.TOP ? 1 : face == ChunkMesher.BOTTOM ? -1 : 0);
+                int nextZ = chunkZ + (face == ChunkMesher.NORTH ? 1 : face == ChunkMesher.SOUTH ? -1 : 0);
+                if (nextY < 0 || nextY >= sectionCount || !isCandidate(nextX, nextZ, nextY, camX, camZ, radiusSq, frustum)) {
+                    continue;
+                }
+                int next = index(nextX, nextZ, nextY);
+                if (reachedFrame[next] == frame) {
+                    continue;
+                }
+                reach(next, moved | (1 << face), face ^ 1);
+                queue[tail++] = next;
+            }
+        }
+        return reachedCount;
+    }
+
+    public boolean isReached(int chunkX, int chunkZ, int sectionY) {
+        return everythingReached || reachedFrame[index(chunkX, chunkZ, sectionY)] == frame;
+    }
+
+    public int getReachedCount() {
+        return reachedCount;
+    }
+
+    private void reach(int section, int moved, int entry) {
+        reachedFrame[section] = frame;
+        directions[section] = (byte)moved;
+        entryFaces[section] = (byte)entry;
+        reachedCount++;
+    }
+
+    private boolean isCandidate(int chunkX, int chunkZ, int sectionY, float camX, float camZ, float radiusSq, FrustumIntersection frustum) {
+        if (chunkX < 0 || chunkX >= chunksPerSide || chunkZ < 0 || chunkZ >= chunksPerSide) {
+            return false;
+        }
+        if (ChunkLoadQueue.distanceSqToChunk(chunkX, chunkZ, camX, camZ) > radiusSq) {
+            return false;
+        }
+        if (frustum == null) {
+            return true;
+        }
+        float minX = chunkX * Chunk.SIZE - 0.5f;
+        float minY = sectionY * Chunk.SECTION_HEIGHT - 0.5f;
+        float minZ = chunkZ * Chunk.SIZE - 0.5f;
+        return frustum.testAab(minX, minY, minZ, minX + Chunk.SIZE, minY + Chunk.SECTION_HEIGHT, minZ + Chunk.SIZE);
+    }
+
+    private int index(int chunkX, int chunkZ, int sectionY) {
+        return (chunkX * chunksPerSide + chunkZ) * sectionCount + sectionY;
+    }
+}
@@ -0,0 +1,11 @@
+#ifdef LEGACY_GLSL
+#define texture texture2D
+#endif
+
+uniform sampler2D skin;
+
+in vec2 texCoord;
+
+void main() {
+    fragColor = texture(skin, texCoord);
+}
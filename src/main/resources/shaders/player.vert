@@ -0,0 +1,16 @@
+uniform mat4 modelViewProjection;
+
+// One matrix per part of the model, see PlayerModel
+uniform mat4 parts[6];
+
+// Position relative to the part's pivot, skin coordinates, and which part
+in vec3 position;
+in vec2 skinTexCoord;
+in float part;
+
+out vec2 texCoord;
+
+void main() {
+    texCoord = skinTexCoord;
+    gl_Position = modelViewProjection * parts[int(part)] * vec4(position, 1.0);
+}
@@ -0,0 +1,12 @@
+#ifdef LEGACY_GLSL
+#define texture texture2D
+#endif
+
+uniform sampler2D image;
+
+in vec2 texCoord;
+in vec4 color;
+
+void main() {
+    fragColor = texture(image, texCoord) * color;
+}
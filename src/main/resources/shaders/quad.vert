@@ -0,0 +1,15 @@
+uniform mat4 projection;
+
+// Screen position, texture coordinates, and the colour the texture is multiplied by
+in vec2 position;
+in vec2 quadTexCoord;
+in vec4 quadColor;
+
+out vec2 texCoord;
+out vec4 color;
+
+void main() {
+    texCoord = quadTexCoord;
+    color = quadColor;
+    gl_Position = projection * vec4(position, 0.0, 1.0);
+}
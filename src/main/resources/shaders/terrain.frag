@@ -0,0 +1,13 @@
+#ifdef LEGACY_GLSL
+#extension GL_EXT_texture_array : require
+#define texture texture2DArray
+#endif
+
+uniform sampler2DArray blockTextures;
+
+in vec3 texCoord;
+in float shade;
+
+void main() {
+    fragColor = texture(blockTextures, texCoord) * vec4(shade, shade, shade, 1.0);
+}
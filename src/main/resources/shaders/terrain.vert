@@ -0,0 +1,22 @@
+// Camera matrices, one uniform block shared by every world program
+#ifdef LEGACY_GLSL
+uniform mat4 viewProjection;
+#else
+layout(std140) uniform Camera {
+    mat4 viewProjection;
+};
+#endif
+
+// MeshData's floats: world position, then u, v and the texture array layer plus 16 times the light
+in vec3 position;
+in vec3 blockTexCoord;
+
+// Texture coordinate z is the layer of the block texture array
+out vec3 texCoord;
+out float shade;
+
+void main() {
+    texCoord = vec3(blockTexCoord.xy, mod(blockTexCoord.z, 16.0));
+    shade = (floor(blockTexCoord.z / 16.0) + 1.0) / 4.0;
+    gl_Position = viewProjection * vec4(position, 1.0);
+}
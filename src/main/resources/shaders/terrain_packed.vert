@@ -0,0 +1,34 @@
+// Camera matrices, one uniform block shared by every world program
+#ifdef LEGACY_GLSL
+uniform mat4 viewProjection;
+#else
+layout(std140) uniform Camera {
+    mat4 viewProjection;
+};
+#endif
+
+// Low corner of the mesh's box in world space; per draw, through the base instance, for multi-draws
+#ifdef DRAW_INDIRECT
+in vec3 drawOrigin;
+#define sectionOrigin drawOrigin
+#else
+uniform vec3 sectionOrigin;
+#endif
+
+// Two unsigned shorts, see PackedVertices:
+// x = x | y << 5 | z << 10, y = u | v << 5 | layer << 10 | light << 14
+in vec2 packedVertex;
+
+// Texture coordinate z is the layer of the block texture array
+out vec3 texCoord;
+out float shade;
+
+void main() {
+    float position = packedVertex.x;
+    float packedTexture = packedVertex.y;
+    vec3 local = vec3(mod(position, 32.0), mod(floor(position / 32.0), 32.0), floor(position / 1024.0));
+    texCoord = vec3(mod(packedTexture, 32.0), mod(floor(packedTexture / 32.0), 32.0), mod(floor(packedTexture / 1024.0), 16.0));
+    shade = (floor(packedTexture / 16384.0) + 1.0) / 4.0;
+
+    gl_Position = viewProjection * vec4(sectionOrigin + local, 1.0);
+}
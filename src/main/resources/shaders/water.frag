@@ -0,0 +1,16 @@
+#ifdef LEGACY_GLSL
+#extension GL_EXT_texture_array : require
+#define texture texture2DArray
+#endif
+
+uniform sampler2DArray blockTextures;
+
+// Colour and opacity the water texture is blended with
+uniform vec4 tint;
+
+in vec3 texCoord;
+in float shade;
+
+void main() {
+    fragColor = texture(blockTextures, texCoord) * vec4(tint.rgb * shade, tint.a);
+}